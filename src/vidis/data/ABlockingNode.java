@@ -0,0 +1,213 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import vidis.data.annotation.Passive;
+import vidis.data.mod.IUserPacket;
+import vidis.data.sim.Routine;
+
+/**
+ * abstract user node whose logic is one blocking routine instead of
+ * callbacks; module writers implement run() and wait within it for
+ * packets or steps, e.g.
+ * <pre>
+ * broadcast(new ElectionPacket(getId()));
+ * IUserPacket answer = awaitPacket(ofType(AnswerPacket.class), 10);
+ * if (answer == null) ...
+ * </pre>
+ * <p>
+ * run() starts in the first step of the node. the simulator resumes it
+ * in the step the awaited packet arrives in or the steps have passed,
+ * at the position of the node within the step, so runs can be reproduced
+ * by their seed just like with callbacks. meanwhile the node is idle and
+ * costs nothing but the parked thread of its routine (see {@link Routine}).
+ * packets the routine does not wait for stay in the mailbox until it
+ * asks for them.
+ * </p>
+ * <p>
+ * every blocking node holds a thread of its own for its whole life,
+ * parked with a stack of 128 KB, and every resume is a hand over between
+ * two threads. a topology of a few thousand blocking nodes is what a
+ * simulation can hold; larger ones are written with callbacks on
+ * {@link AUserNode}. {@link vidis.modules.bullyElectionAlgorithm.BlockingBullyNode}
+ * shows a blocking module.
+ * </p>
+ * <p>
+ * the routine must not spawn, connect or disconnect nodes, as the
+ * simulator holds its components while the routine runs; these calls
+ * throw an IllegalStateException within the routine.
+ * </p>
+ * @author Dominik
+ *
+ */
+@Passive
+public abstract class ABlockingNode extends AUserNode {
+
+	/**
+	 * selects the packets a routine waits for
+	 */
+	public interface PacketFilter {
+		public boolean accept(IUserPacket packet);
+	}
+
+	/**
+	 * received packets the routine has not taken yet, in arrival order
+	 */
+	private LinkedList<IUserPacket> mailbox = new LinkedList<IUserPacket>();
+
+	private Routine routine;
+
+	/**
+	 * what the parked routine waits for or null
+	 */
+	private PacketFilter awaited;
+	/**
+	 * true once an awaited packet has arrived
+	 */
+	private boolean ready;
+	/**
+	 * the step the parked routine goes on in at the latest or -1
+	 */
+	private long resume = -1;
+
+	/**
+	 * the logic of this node; the node does nothing once it returns
+	 */
+	protected abstract void run();
+
+	public void init() {
+	}
+
+	public final void execute() {
+		if (routine == null) {
+			routine = simulatorComponent.createRoutine(new Runnable() {
+				public void run() {
+					ABlockingNode.this.run();
+				}
+			});
+		} else if (!ready && (resume < 0 || getNow() < resume)) {
+			// woken up by a packet the routine does not wait for
+			return;
+		}
+		routine.resume();
+		if (!routine.isDone() && resume >= 0) {
+			// skip the steps until then
+			sleep((int) Math.min(Integer.MAX_VALUE, resume - getNow() - 1));
+		}
+	}
+
+	public final void receive(IUserPacket packet) {
+		mailbox.add(packet);
+		if (awaited != null && !ready && awaited.accept(packet)) {
+			ready = true;
+			// ends the sleep of a timeout
+			interrupt();
+		}
+	}
+
+	/**
+	 * retrieve the current step of the simulator
+	 */
+	protected final long getNow() {
+		return simulatorComponent.getNow();
+	}
+
+	/**
+	 * waits for the next packet that passes a filter
+	 * @param filter the filter or null for any packet
+	 * @param timeoutSteps the steps to wait at most; negative to wait
+	 *            forever, 0 to only look into the mailbox
+	 * @return the packet or null if the time is up
+	 */
+	protected final IUserPacket awaitPacket(PacketFilter filter, long timeoutSteps) {
+		long deadline = timeoutSteps < 0 ? -1 : getNow() + timeoutSteps;
+		while (true) {
+			IUserPacket packet = take(filter);
+			if (packet != null) {
+				return packet;
+			}
+			if (deadline >= 0 && getNow() >= deadline) {
+				return null;
+			}
+			park(filter == null ? ANY : filter, deadline);
+		}
+	}
+
+	/**
+	 * waits for the next packet
+	 */
+	protected final IUserPacket awaitPacket() {
+		return awaitPacket(null, -1);
+	}
+
+	/**
+	 * waits for the next packet that passes a filter
+	 */
+	protected final IUserPacket awaitPacket(PacketFilter filter) {
+		return awaitPacket(filter, -1);
+	}
+
+	/**
+	 * lets some steps pass; received packets stay in the mailbox
+	 * @param steps the number of steps
+	 */
+	protected final void sleepSteps(long steps) {
+		long deadline = getNow() + steps;
+		while (getNow() < deadline) {
+			park(null, deadline);
+		}
+	}
+
+	/**
+	 * retrieve the number of received packets the routine has not taken yet
+	 */
+	protected final int getMailboxSize() {
+		return mailbox.size();
+	}
+
+	private void park(PacketFilter filter, long deadline) {
+		if (routine == null) {
+			throw new IllegalStateException("only run() may wait");
+		}
+		awaited = filter;
+		resume = deadline;
+		ready = false;
+		routine.park();
+		awaited = null;
+		resume = -1;
+	}
+
+	private IUserPacket take(PacketFilter filter) {
+		for (Iterator<IUserPacket> i = mailbox.iterator(); i.hasNext(); ) {
+			IUserPacket packet = i.next();
+			if (filter == null || filter.accept(packet)) {
+				i.remove();
+				return packet;
+			}
+		}
+		return null;
+	}
+
+	private static final PacketFilter ANY = new PacketFilter() {
+		public boolean accept(IUserPacket packet) {
+			return true;
+		}
+	};
+
+	/**
+	 * retrieve a filter that accepts the packets of a class and its subclasses
+	 */
+	public static PacketFilter ofType(final Class<? extends IUserPacket> type) {
+		return new PacketFilter() {
+			public boolean accept(IUserPacket packet) {
+				return type.isInstance(packet);
+			}
+		};
+	}
+}
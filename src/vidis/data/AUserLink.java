@@ -29,6 +29,7 @@ import vidis.data.mod.IUserPacket;
 import vidis.data.sim.ISimLinkCon;
 import vidis.data.var.vars.AVariable;
 import vidis.data.var.vars.AVariable.COMMON_SCOPES;
+import vidis.util.SplitMix;
 
 /**
  * abstract user link represents a link by a user;
@@ -129,4 +130,13 @@ public abstract class AUserLink extends AUserComponent implements IUserLink {
 		return simulatorComponent.hasScopedVariable(COMMON_SCOPES.USER,
 				identifier);
 	}
+
+	/**
+	 * retrieve the random number generator of this link; use it instead of
+	 * Math.random() so runs can be reproduced by their seed
+	 * @return the generator
+	 */
+	protected final SplitMix getRandom() {
+		return simulatorComponent.getRandom();
+	}
 }
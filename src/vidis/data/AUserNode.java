@@ -15,6 +15,7 @@ import vidis.data.mod.IUserPacket;
 import vidis.data.sim.ISimNodeCon;
 import vidis.data.var.vars.AVariable;
 import vidis.data.var.vars.AVariable.COMMON_SCOPES;
+import vidis.util.SplitMix;
 
 /**
  * abstract user node represents a node by a user;
@@ -64,6 +65,58 @@ public abstract class AUserNode extends AUserComponent implements IUserNode {
     	simulatorComponent.send(p, l, wait);
     }
 
+    /**
+     * send a packet over all connected links; the receivers share
+     * the packet, so it must not be changed after sending; within
+     * receive() the packet answers for the link it came through
+     * @param p packet to send
+     */
+    protected final void broadcast(IUserPacket p) {
+    	simulatorComponent.broadcast(p, 0);
+    }
+
+    protected final void broadcast(IUserPacket p, long wait) {
+    	simulatorComponent.broadcast(p, wait);
+    }
+
+    /**
+     * send a packet over all connected links but one, e.g. forward
+     * a packet to everyone but its source
+     * @param p packet to send
+     * @param except link to leave out
+     */
+    protected final void broadcastExcept(IUserPacket p, IUserLink except) {
+    	simulatorComponent.broadcastExcept(p, except, 0);
+    }
+
+    protected final void broadcastExcept(IUserPacket p, IUserLink except, long wait) {
+    	simulatorComponent.broadcastExcept(p, except, wait);
+    }
+
+    /**
+     * send a packet over some of the connected links
+     * @param p packet to send
+     * @param links links to use for sending
+     */
+    protected final void multicast(IUserPacket p, List<IUserLink> links) {
+    	simulatorComponent.multicast(p, links, 0);
+    }
+
+    protected final void multicast(IUserPacket p, List<IUserLink> links, long wait) {
+    	simulatorComponent.multicast(p, links, wait);
+    }
+
+    /**
+     * passes every packet to receive(); override it to handle all
+     * packets of a step at once
+     * @param packets the packets in the order they arrived
+     */
+    public void receiveBatch(List<IUserPacket> packets) {
+    	for(int i=0; i<packets.size(); i++) {
+    		receive(packets.get(i));
+    	}
+    }
+
     public String toString() {
     	return "Node#" + getId();
     }
@@ -94,9 +147,10 @@ public abstract class AUserNode extends AUserComponent implements IUserNode {
     
     public final void disconnect(IUserNode n) {
     	IUserLink l = null;
-    	for(IUserLink ltmp : getConnectedLinks()) {
-    		if(ltmp.getOtherNode(this).equals(n)) {
-    			l = ltmp;
+    	List<IUserLink> links = getConnectedLinks();
+    	for(int i=0; i<links.size() && l == null; i++) {
+    		if(links.get(i).getOtherNode(this).equals(n)) {
+    			l = links.get(i);
     		}
     	}
     	if(l != null) {
@@ -111,6 +165,14 @@ public abstract class AUserNode extends AUserComponent implements IUserNode {
     	return simulatorComponent.getId();
     }
 
+    /**
+     * retrieve the index of this node within [0 .. number of nodes[
+     * @see ISimNodeCon#getIndex()
+     */
+    protected final int getIndex() {
+    	return simulatorComponent.getIndex();
+    }
+
     public final AVariable getVariable(String identifier) {
     	return simulatorComponent.getScopedVariable(COMMON_SCOPES.USER, identifier);
     }
@@ -118,4 +180,13 @@ public abstract class AUserNode extends AUserComponent implements IUserNode {
     public final boolean hasVariable(String identifier) {
     	return simulatorComponent.hasScopedVariable(COMMON_SCOPES.USER, identifier);
     }
+
+    /**
+     * retrieve the random number generator of this node; use it instead of
+     * Math.random() so runs can be reproduced by their seed
+     * @return the generator
+     */
+    protected final SplitMix getRandom() {
+        return simulatorComponent.getRandom();
+    }
 }
@@ -5,6 +5,8 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.data;
 
+import java.io.Serializable;
+
 import vidis.data.exceptions.ObstructInitCallException;
 import vidis.data.mod.AUserComponent;
 import vidis.data.mod.IUserLink;
@@ -13,18 +15,22 @@ import vidis.data.mod.IUserPacket;
 import vidis.data.sim.ISimPacketCon;
 import vidis.data.var.vars.AVariable;
 import vidis.data.var.vars.AVariable.COMMON_SCOPES;
+import vidis.util.SplitMix;
 
 /**
  * abstract user packet represents a packet by a user;
  * 
- * module writers should use this class to write their own packet
+ * module writers should use this class to write their own packet;
+ * packets are serialised when they travel between the processes of a
+ * distributed simulation, so their fields should be serializable too
  * 
  * @author dominik
  * 
  */
-public abstract class AUserPacket extends AUserComponent implements IUserPacket {
+public abstract class AUserPacket extends AUserComponent implements IUserPacket, Serializable {
+	private static final long serialVersionUID = -3517462186830914471L;
 
-    protected ISimPacketCon simulatorComponent;
+    protected transient ISimPacketCon simulatorComponent;
 
     public void init(ISimPacketCon simulatorComponent) throws ObstructInitCallException {
 		if (this.simulatorComponent != null) {
@@ -80,4 +86,14 @@ public abstract class AUserPacket extends AUserComponent implements IUserPacket
     		return simulatorComponent.hasScopedVariable(COMMON_SCOPES.USER, identifier);
     	return false;
     }
+
+    /**
+     * retrieve the random number generator of this packet; use it instead of
+     * Math.random() so runs can be reproduced by their seed;
+     * only available once the packet has been sent
+     * @return the generator
+     */
+    protected final SplitMix getRandom() {
+        return simulatorComponent.getRandom();
+    }
 }
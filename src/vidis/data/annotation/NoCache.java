@@ -0,0 +1,26 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * marks a display method that has to be invoked on every read.
+ * <p>
+ * the value of a display method without parameters is computed at most
+ * once per simulator step, or again after a display action was invoked;
+ * methods with side effects, or whose value changes within a step and
+ * is read by the module itself, should carry this annotation.
+ * </p>
+ * @author Dominik
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface NoCache {
+}
@@ -0,0 +1,29 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * marks a user node or link whose execute() only reacts to something
+ * that happened to it: a received packet, the end of a sleep, an
+ * interrupt or a display method called by the user.
+ * <p>
+ * the simulator always executes a component in its first step, later on
+ * it skips passive components while nothing happens to them, so a component that does work on its own, e.g. counts down a timeout
+ * every step, must not be passive.
+ * </p>
+ * @author Dominik
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface Passive {
+}
@@ -7,6 +7,7 @@ package vidis.data.commonComponents;
 
 import vidis.data.AUserLink;
 import vidis.data.annotation.ComponentInfo;
+import vidis.data.annotation.Passive;
 
 /**
  * This is a standard implementation. It provides everything a link
@@ -15,6 +16,7 @@ import vidis.data.annotation.ComponentInfo;
  *
  */
 @ComponentInfo(name = "Default Link")
+@Passive
 public class DefaultLink extends AUserLink {
 
 	public void execute() {
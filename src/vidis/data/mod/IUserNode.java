@@ -5,6 +5,8 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.data.mod;
 
+import java.util.List;
+
 import vidis.data.AUserNode;
 import vidis.data.exceptions.ObstructInitCallException;
 import vidis.data.sim.ISimNodeCon;
@@ -39,6 +41,18 @@ public interface IUserNode extends IUserComponent {
 	 * @param packet the packet the user receives
 	 */
 	public void receive(IUserPacket packet);
+
+	/**
+	 * Is called with all packets that arrived within one simulation step.
+	 * 
+	 * <p>AUserNode passes every packet to {@link #receive(IUserPacket)}.
+	 * Nodes that receive a lot of packets may override this function;
+	 * they are then handed all their packets at the end of every step
+	 * instead of one by one as soon as each packet arrives.</p>
+	 * <p><strong>DO NO ANNOTATE THIS METHOD</strong></p>
+	 * @param packets the packets in the order they arrived
+	 */
+	public void receiveBatch(List<IUserPacket> packets);
 	
 	/**
 	 * Is executed upon the first simulation step.
@@ -75,4 +89,4 @@ public interface IUserNode extends IUserComponent {
 	 * @param n the node to disconnect from
 	 */
 	public void disconnect(IUserNode n);
-}
\ No newline at end of file
+}
\ No newline at end of file
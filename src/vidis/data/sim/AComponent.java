@@ -5,35 +5,36 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.data.sim;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.vecmath.Point3d;
 
 import org.apache.log4j.Logger;
 
-import vidis.data.annotation.ComponentColor;
-import vidis.data.annotation.ComponentInfo;
-import vidis.data.annotation.Display;
-import vidis.data.annotation.DisplayColor;
+import vidis.data.annotation.Passive;
 import vidis.data.mod.IUserComponent;
 import vidis.data.var.IVariableChangeListener;
+import vidis.data.var.IVariableInvokeListener;
+import vidis.data.var.VariableEpoch;
+import vidis.data.var.VariableIds;
+import vidis.data.var.VariableShape;
 import vidis.data.var.vars.AVariable;
+import vidis.data.var.vars.CounterVariable;
 import vidis.data.var.vars.DefaultVariable;
 import vidis.data.var.vars.FieldVariable;
 import vidis.data.var.vars.MethodVariable;
 import vidis.data.var.vars.AVariable.COMMON_IDENTIFIERS;
-import vidis.data.var.vars.AVariable.COMMON_SCOPES;
 import vidis.sim.Simulator;
+import vidis.sim.trace.TraceRecorder;
+import vidis.util.SplitMix;
+import vidis.util.metrics.Counter;
+import vidis.util.metrics.Metrics;
 
 /**
  * this is the abstract component superclass that implements
@@ -45,30 +46,305 @@ import vidis.sim.Simulator;
  * @see SimNode
  * @see SimPacket
  */
-public abstract class AComponent implements IComponent, IAComponentCon, IVariableChangeListener {
+public abstract class AComponent implements IComponent, IAComponentCon, IVariableChangeListener, IVariableInvokeListener {
 	private Logger logger = Logger.getLogger(AComponent.class);
 
     // -- IVariableContainer fields -- //
     private List<IVariableChangeListener> variableChangeListeners;
-    private Map<String, AVariable> vars;
+    private static final AVariable[] NO_VARIABLES = new AVariable[0];
+    /**
+     * the variables stored in the slots of the shape
+     */
+    private volatile AVariable[] values = NO_VARIABLES;
+    private volatile VariableShape shape = VariableShape.EMPTY;
+    /**
+     * former values shown instead of the current ones, by slot; null
+     * while the current values are shown
+     */
+    private volatile AVariable[] former;
 
     private int sleep = -1;
 
+    /**
+     * the simulator this component lives in
+     */
+    private Simulator simulator;
+
+    /**
+     * created on first use
+     */
+    private SplitMix random;
+
+    /**
+     * created on first use
+     */
+    private volatile ComponentStatistics statistics;
+
+    // -- scheduling -- //
+    private IScheduler scheduler;
+    private int slot = -1;
+    private Boolean passive;
+
+    // -- tracing -- //
+    private int traceId;
+    private int traceSession;
+
     /**
      * public constructor; all subclasses should call super() at
      * the beginning of their constructor!
      */
     public AComponent() {
+		simulator = Simulator.current();
 		// vars instanzieren
 		init();
     }
 
+    /**
+     * retrieve the simulator this component lives in
+     * @return the simulator
+     */
+    public Simulator getSimulator() {
+    	return simulator;
+    }
+
+    public void setSimulator(Simulator simulator) {
+    	this.simulator = simulator;
+    	AVariable[] v = values;
+    	for (int i=0; i<v.length; i++) {
+    		if (v[i] != null) {
+    			v[i].setEpoch(getVariableEpoch());
+    		}
+    	}
+    }
+
+    private VariableEpoch getVariableEpoch() {
+    	return simulator == null ? null : simulator.getVariableEpoch();
+    }
+
+    /**
+     * retrieve the packet counters of this component
+     */
+    public final ComponentStatistics getStatistics() {
+    	ComponentStatistics s = statistics;
+    	if (s == null) {
+    		synchronized (this) {
+    			if (statistics == null) {
+    				statistics = new ComponentStatistics();
+    			}
+    			s = statistics;
+    		}
+    	}
+    	return s;
+    }
+
+    // the counter variables are registered with the first count
+
+    protected final void countSent() {
+    	if (getStatistics().countSent() == 1) {
+    		registerVariable(new CounterVariable(COMMON_IDENTIFIERS.PACKETSSENT, statistics, ComponentStatistics.SENT));
+    	}
+    }
+
+    protected final void countReceived() {
+    	if (getStatistics().countReceived() == 1) {
+    		registerVariable(new CounterVariable(COMMON_IDENTIFIERS.PACKETSRECEIVED, statistics, ComponentStatistics.RECEIVED));
+    	}
+    }
+
+    protected final void countDropped(long packets) {
+    	if (packets > 0 && getStatistics().countDropped(packets) == packets) {
+    		registerVariable(new CounterVariable(COMMON_IDENTIFIERS.PACKETSDROPPED, statistics, ComponentStatistics.DROPPED));
+    	}
+    }
+
+    protected final void recordQueue(int length) {
+    	if (getStatistics().recordQueue(length) && !hasVariable(COMMON_IDENTIFIERS.QUEUEHIGHWATER)) {
+    		registerVariable(new CounterVariable(COMMON_IDENTIFIERS.QUEUEHIGHWATER, statistics, ComponentStatistics.QUEUE_HIGH_WATER));
+    	}
+    }
+
+    /**
+     * retrieve the scheduler this component is registered with or null
+     */
+    final IScheduler getScheduler() {
+    	return scheduler;
+    }
+
+    /**
+     * called by the scheduler when this component is registered
+     * @param scheduler the scheduler or null if unregistered
+     * @param slot the position of this component within the scheduler
+     */
+    public final void setScheduler(IScheduler scheduler, int slot) {
+    	this.scheduler = scheduler;
+    	this.slot = slot;
+    }
+
+    public final int getSlot() {
+    	return slot;
+    }
+
+    /**
+     * makes sure this component is executed within the current or the next step
+     */
+    public final void wake() {
+    	if (scheduler != null) {
+    		scheduler.wake(this);
+    	}
+    }
+
+    /**
+     * asks the scheduler to call {@link #endStep()} at the end of the
+     * current step
+     * @return false if no step is running, the caller must act at once
+     */
+    protected final boolean atStepEnd() {
+    	return scheduler != null && scheduler.atStepEnd(this);
+    }
+
+    /**
+     * retrieve if this component is going to be executed later within
+     * the current step
+     */
+    protected final boolean isPending() {
+    	return scheduler != null && scheduler.isPending(this);
+    }
+
+    /**
+     * called at the end of a step if requested by {@link #atStepEnd()}
+     */
+    public void endStep() {
+    }
+
+    /**
+     * retrieve if this component may be skipped from now on until it is
+     * woken up or its wake delay has passed
+     * @return false by default
+     */
+    public boolean mayIdle() {
+    	return false;
+    }
+
+    /**
+     * retrieve after how many steps an idle component must be executed again
+     * @return the steps or 0 if the component waits to be woken up
+     */
+    public long getWakeDelay() {
+    	return isSleeping() ? sleep + 1 : 0;
+    }
+
+    /**
+     * catches up on the steps this component has been skipped
+     * @param steps the number of steps
+     */
+    public void skipSteps(long steps) {
+    	if (isSleeping()) {
+    		sleep = (int) Math.max(-1, sleep - steps);
+    	}
+    }
+
+    /**
+     * retrieve if the user logic only reacts to events
+     * @see Passive
+     */
+    protected final boolean isPassive() {
+    	if (passive == null) {
+    		passive = getUserLogicClass().isAnnotationPresent(Passive.class);
+    	}
+    	return passive;
+    }
+
+    public void variableInvoked(String id) {
+    	// the user may have changed the state of the component
+    	wake();
+    }
+
+    public long getNow() {
+    	return simulator.getNow();
+    }
+
+    public SplitMix getRandom() {
+    	if (random == null) {
+    		random = SplitMix.forKey(simulator.getSeed(), getRandomKey());
+    	}
+    	return random;
+    }
+
+    /**
+     * retrieve the stable name of the random stream of this component
+     * @return by default the class and the id of the component
+     */
+    protected String getRandomKey() {
+    	if (hasVariable(COMMON_IDENTIFIERS.ID)) {
+    		return getClass().getSimpleName() + ":" + getVariableById(COMMON_IDENTIFIERS.ID).getData();
+    	}
+    	// no id, no reproducible stream
+    	logger.warn("component without id uses a random stream: " + this);
+    	return getClass().getName() + "@" + System.identityHashCode(this);
+    }
+
+    /**
+     * retrieve the number of this component within the running trace
+     */
+    public final int getTraceId() {
+    	TraceRecorder trace = TraceRecorder.getInstance();
+    	int session = trace.getSession();
+    	if (traceSession != session) {
+    		traceId = trace.register(getClass().getSimpleName(),
+    				hasVariable(COMMON_IDENTIFIERS.ID) ? String.valueOf(getVariableById(COMMON_IDENTIFIERS.ID).getData()) : "@" + System.identityHashCode(this));
+    		traceSession = session;
+    	}
+    	return traceId;
+    }
+
+    /**
+     * retrieve if the variable changes of this component are traced
+     * @return true by default
+     */
+    protected boolean isTraced() {
+    	return true;
+    }
+
+    /**
+     * records a variable change into the running trace; only default
+     * variables hold a value, the others would have to be evaluated
+     * and the packet counters are traced by the packet events anyway
+     */
+    private void traceVariable(String id) {
+    	TraceRecorder trace = TraceRecorder.getInstance();
+    	if (trace.isEnabled() && isTraced()) {
+    		AVariable var = getVariableById(id);
+    		if (var instanceof DefaultVariable) {
+    			trace.variable(this, id, var.getData());
+    		}
+    	}
+    }
+
+    /**
+     * retrieve if this component is shown; components of headless
+     * simulators must not send events to the visualisation
+     * @return true or false
+     */
+    protected boolean isVisualised() {
+    	return !simulator.isHeadless();
+    }
+
+    /**
+     * counts events into the runtime metrics; only the visualised
+     * simulator is measured, so concurrent headless runs do not mix in
+     * @param counter the counter, see {@link Metrics#counter(String)}
+     * @param events the number of events
+     */
+    protected final void countMetric(Counter counter, long events) {
+    	if (isVisualised()) {
+    		Metrics.getInstance().count(counter, events);
+    	}
+    }
+
     /**
      * initializes the internal variables and containers
      */
     private void init() {
-		if (this.vars == null)
-		    this.vars = new ConcurrentHashMap<String, AVariable>();
 		if (this.variableChangeListeners == null)
 		    this.variableChangeListeners = new ArrayList<IVariableChangeListener>();
     }
@@ -78,7 +354,10 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
      * objects in order that it may be collected by GC
      */
     public void kill() {
-		this.vars.clear();
+		synchronized (this) {
+			shape = VariableShape.EMPTY;
+			values = NO_VARIABLES;
+		}
 		this.variableChangeListeners.clear();
 		killVisObject();
     }
@@ -89,30 +368,35 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
      */
     protected abstract IUserComponent getUserLogic();
     
+    /**
+     * retrieve the class of the user logic, e.g. for statistics per class
+     * @return the class of the user logic
+     */
+    public final Class<?> getUserLogicClass() {
+    	return getUserLogic().getClass();
+    }
+    
     /**
      * kills the vis object safely
      */
     protected abstract void killVisObject();
 
     /**
-     * initialize all method variables
+     * retrieve the cached annotations of the user logic class
      */
-    private void initVarsMethods() {
-		for (Method m : getUserLogic().getClass().getMethods()) {
-		    initVarsMethods(m);
-		}
+    private VariableDeclarations getDeclarations() {
+    	return VariableDeclarations.forClass(getUserLogicClass());
     }
-    
+
     /**
-     * initialize a concrete method variable for a given method
-     * @param m the method to check for
+     * initialize all method variables
      */
-    private void initVarsMethods(Method m) {
-		for (Annotation a : m.getAnnotations()) {
-		    if (a.annotationType().equals(Display.class)) {
+    private void initVarsMethods() {
+		for (VariableDeclarations.Declaration d : getDeclarations().getMethods()) {
+			Method m = (Method) d.target;
+			String id = d.id;
+		    if (!d.color) {
 				// add variable for this method
-				Display t = (Display) a;
-				String id = COMMON_SCOPES.USER + "." + t.name();
 				if (hasVariable(id)) {
 					try {
 					    // only update
@@ -124,9 +408,7 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
 				} else {
 				    registerVariable(new MethodVariable(id, getUserLogic(), m));
 				}
-		    } else if ( a.annotationType().equals( DisplayColor.class ) ) {
-//				DisplayColor displayColor = (DisplayColor)a;
-				String id = COMMON_IDENTIFIERS.COLOR;
+		    } else {
 				try {
 					((MethodVariable)getVariableById(id)).update(getUserLogic(), m);
 				} catch (ClassCastException e) {
@@ -134,10 +416,7 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
 				} catch (NullPointerException e) {
 					registerVariable(new MethodVariable(id, getUserLogic(), m));
 				}
-			} else {
-		    	//Logger.output(LogLevel.WARN, this, "unknown method-annotation "
-				//+ a + " encountered!");
-		    }
+			}
 		}
     }
 
@@ -145,38 +424,17 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
      * initialize all class variables
      */
     private void initVarsClass() {
-		if (getUserLogic().getClass().getAnnotations().length > 0) {
-		    for (Annotation a : getUserLogic().getClass().getAnnotations()) {
-				if (a.annotationType().equals(ComponentColor.class)) {
-				    ComponentColor aa = (ComponentColor) a;
-				    String id = AVariable.COMMON_IDENTIFIERS.COLOR;
-				    if (hasVariable(id)) {
-				    	try {
-				    		((DefaultVariable)getVariableById(id)).update(aa.color());
-				    	} catch(ClassCastException e) {
-				    		registerVariable(new DefaultVariable(id, aa.color()));
-				    	}
-				    } else {
-				    	registerVariable(new DefaultVariable(id, aa.color()));
-				    }
-				} else if (a.annotationType().equals(ComponentInfo.class)) {
-				    ComponentInfo aa = (ComponentInfo) a;
-				    String id = COMMON_SCOPES.USER + ".header1";
-				    if (hasVariable(id)) {
-				    	try {
-				    		((DefaultVariable)getVariableById(id)).update(aa.name());
-				    	} catch(ClassCastException e) {
-				    		registerVariable(new DefaultVariable(id, aa.name()));
-				    	}
-				    } else {
-				    	registerVariable(new DefaultVariable(id, aa.name()));
-				    }
-				} else {
-				    //Logger.output(LogLevel.WARN, this,
-					//	  "unknown class-annotation " + a
-					//		  + " encountered!");
+		for (VariableDeclarations.Declaration d : getDeclarations().getClassValues()) {
+			String id = d.id;
+			if (hasVariable(id)) {
+				try {
+					((DefaultVariable)getVariableById(id)).update(d.target);
+				} catch(ClassCastException e) {
+					registerVariable(new DefaultVariable(id, d.target));
 				}
-		    }
+			} else {
+				registerVariable(new DefaultVariable(id, d.target));
+			}
 		}
     }
 
@@ -184,44 +442,29 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
      * initialize all field variables
      */
     private void initVarsFields() {
-		for (Field f : getUserLogic().getClass().getDeclaredFields()) {
-		    for (Annotation a : f.getAnnotations()) {
-				if (a.annotationType().equals(Display.class)) {
-				    Display d = (Display) a;
-				    String ns = "";
-				    if (Modifier.isPublic(f.getModifiers())) {
-				    	ns = COMMON_SCOPES.USER + ".";
-				    } else {
-				    	ns = COMMON_SCOPES.SYSTEM + ".";
-				    }
-				    String id = ns + d.name();
-				    if (hasVariable(id)) {
-				    	try {
-							// only update
-							((FieldVariable)getVariableById(id)).update(getUserLogic(), f);
-				    	} catch(ClassCastException e) {
-				    		registerVariable(new FieldVariable(id, getUserLogic(), f));
-				    	}
-				    } else {
-				    	registerVariable(new FieldVariable(id, getUserLogic(), f));
-				    }
-				} 
-				else if ( a.annotationType().equals( DisplayColor.class ) ) {
-//					DisplayColor displayColor = (DisplayColor)a;
-					String id = COMMON_IDENTIFIERS.COLOR;
-					try {
+		for (VariableDeclarations.Declaration d : getDeclarations().getFields()) {
+			Field f = (Field) d.target;
+			String id = d.id;
+			if (!d.color) {
+			    if (hasVariable(id)) {
+			    	try {
+						// only update
 						((FieldVariable)getVariableById(id)).update(getUserLogic(), f);
-					} catch (ClassCastException e) {
-						registerVariable(new FieldVariable(id, getUserLogic(), f));
-					} catch (NullPointerException e) {
-						registerVariable(new FieldVariable(id, getUserLogic(), f));
-					}
-				} else {
-//				    Logger.output(LogLevel.WARN, this,
-//						  "unknown field-annotation " + a
-//							  + " encountered!");
+			    	} catch(ClassCastException e) {
+			    		registerVariable(new FieldVariable(id, getUserLogic(), f));
+			    	}
+			    } else {
+			    	registerVariable(new FieldVariable(id, getUserLogic(), f));
+			    }
+			} else {
+				try {
+					((FieldVariable)getVariableById(id)).update(getUserLogic(), f);
+				} catch (ClassCastException e) {
+					registerVariable(new FieldVariable(id, getUserLogic(), f));
+				} catch (NullPointerException e) {
+					registerVariable(new FieldVariable(id, getUserLogic(), f));
 				}
-		    }
+			}
 		}
     }
 
@@ -246,7 +489,28 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
 
     public final void registerVariable(AVariable var) {
 		String id = var.getIdentifier();
-		AVariable old = vars.put(id, var);
+		var.setEpoch(getVariableEpoch());
+		int symbol = VariableIds.intern(id);
+		AVariable old;
+		synchronized (this) {
+			// copy on write; readers see either the old or the new array
+			AVariable[] current = values;
+			int slot = shape.slotOf(symbol);
+			if (slot < 0) {
+				VariableShape next = shape.with(symbol);
+				AVariable[] grown = new AVariable[next.size()];
+				System.arraycopy(current, 0, grown, 0, current.length);
+				grown[next.slotOf(symbol)] = var;
+				old = null;
+				values = grown;
+				shape = next;
+			} else {
+				AVariable[] copy = current.clone();
+				old = copy[slot];
+				copy[slot] = var;
+				values = copy;
+			}
+		}
 		if (old == null) {
 		    // new variable
 		    var.addVariableChangeListener(this);
@@ -282,7 +546,7 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
     }
 
     public final boolean hasVariable(String identifier) {
-    	return this.vars.containsKey(identifier);
+    	return getVariable(VariableIds.lookup(identifier)) != null;
     }
 
     public String toString() {
@@ -300,29 +564,70 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
     }
 
     public AVariable getVariableById(String id) throws ClassCastException {
-    	return this.vars.get(id);
+    	return getVariable(VariableIds.lookup(id));
+    }
+
+    /**
+     * retrieve a variable by its interned id
+     * @param id the id, see {@link VariableIds}
+     * @return the variable or null
+     */
+    public final AVariable getVariable(int id) {
+    	int slot = shape.slotOf(id);
+    	AVariable[] f = former;
+    	if (f != null && slot >= 0 && slot < f.length && f[slot] != null) {
+    		return f[slot];
+    	}
+    	AVariable[] v = values;
+    	return slot >= 0 && slot < v.length ? v[slot] : null;
+    }
+
+    /**
+     * shows former values instead of the current ones, e.g. while looking
+     * back into the history; the variables themselves are not changed
+     * @param values the former values by variable id, variables without
+     * a former value show their current one
+     */
+    public final void showFormerValues(Map<String, Object> values) {
+    	VariableShape s = shape;
+    	AVariable[] f = new AVariable[s.size()];
+    	for (Map.Entry<String, Object> e : values.entrySet()) {
+    		int slot = s.slotOf(VariableIds.lookup(e.getKey()));
+    		if (slot >= 0 && slot < f.length) {
+    			f[slot] = new DefaultVariable(e.getKey(), e.getValue());
+    		}
+    	}
+    	former = f;
+    }
+
+    /**
+     * shows the current values again
+     */
+    public final void showCurrentValues() {
+    	former = null;
+    }
+
+    /**
+     * retrieve the current variable layout of this component
+     */
+    protected final VariableShape getVariableShape() {
+    	return shape;
     }
 
     public final AVariable getScopedVariable(String scope, String identifier) {
-    	return getVariableById(scope + "." + identifier);
+    	return getVariable(VariableIds.intern(scope, identifier));
     }
 
     public final boolean hasScopedVariable(String scope, String identifier) {
-    	return hasVariable(scope + "." + identifier);
+    	return getScopedVariable(scope, identifier) != null;
     }
     
     public Set<String> getScopedVariableIdentifiers(String scope) {
-    	Set<String> ids = getVariableIds();
-    	Set<String> ssids = new HashSet<String>();
-    	for(String id : ids) {
-    		if(id.startsWith(scope))
-    			ssids.add(id);
-    	}
-    	return ssids;
+    	return shape.getScopedIds(scope);
     }
 
     public Set<String> getVariableIds() {
-    	return this.vars.keySet();
+    	return shape.getIds();
     }
 
     public void addVariableChangeListener(IVariableChangeListener l) {
@@ -339,6 +644,8 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
 
     public void variableAdded(String id) {
 		// System.out.println("AComponent.variableAdded()");
+		traceVariable(id);
+		markChanged();
 		synchronized (variableChangeListeners) {
 		    for (IVariableChangeListener l : variableChangeListeners)
 			l.variableAdded(id);
@@ -347,6 +654,25 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
 
     public void variableChanged(String id) {
 		// System.out.println("AComponent.variableChanged()");
+		traceVariable(id);
+		markChanged();
+		fireVariableChanged(id);
+    }
+
+    /**
+     * tells the scheduler that what is shown of this component changed
+     */
+    private void markChanged() {
+    	IScheduler s = scheduler;
+    	if (s != null) {
+    		s.changed(this);
+    	}
+    }
+
+    /**
+     * informs the listeners without tracing; the value may not have changed
+     */
+    private void fireVariableChanged(String id) {
 		synchronized (variableChangeListeners) {
 			try {
 			    for (IVariableChangeListener l : variableChangeListeners)
@@ -373,10 +699,9 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
 		// variableChanged call for every variable that changed since last step
 		// at the moment it is called for every variable, since it would cost more
 		// time and memory to evaluate which variables state changed
-		synchronized (vars) {
-			for (String varId : vars.keySet()) {
-				variableChanged(varId);
-			}
+		VariableShape s = shape;
+		for (int i = 0; i < s.size(); i++) {
+			fireVariableChanged(s.getName(i));
 		}
 		// Logger.output(LogLevel.DEBUG, this, "vars[" + vars.size() + "],
 		// varsListener["+variableChangeListeners.size()+"]");
@@ -398,6 +723,7 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
 
     public void interrupt() {
     	sleep = -1;
+    	wake();
     }
 
     /**
@@ -409,7 +735,7 @@ public abstract class AComponent implements IComponent, IAComponentCon, IVariabl
     }
 
 	protected boolean isConnectedTo(SimNode simNode) {
-		for(AComponent c : Simulator.getInstance().getSimulatorComponents()) {
+		for(AComponent c : getSimulator().getSimulatorComponents()) {
 			if( c instanceof SimLink) {
 				SimLink l = (SimLink) c;
 				if(l.isConnectedTo(simNode))
@@ -0,0 +1,138 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.sim;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import vidis.data.mod.IUserLink;
+
+/**
+ * the links of a node as an immutable snapshot.
+ * <p>
+ * the links are kept in two parallel arrays in the order they were
+ * connected, so iterating them is deterministic and allocation free.
+ * the snapshot is replaced as a whole on every connect or disconnect;
+ * readers always see a consistent set of links without locking.
+ * nodes with many links also get an index map, small ones are scanned.
+ * </p>
+ * @author Dominik
+ *
+ */
+final class Adjacency {
+	public static final Adjacency EMPTY = new Adjacency(new IUserLink[0], new SimLink[0]);
+
+	/**
+	 * above this number of links the index of a link is looked up in a map
+	 */
+	private static final int SCAN_LIMIT = 8;
+
+	private final IUserLink[] userLinks;
+	private final SimLink[] simLinks;
+	private final List<IUserLink> userView;
+	private final List<SimLink> simView;
+	private final Map<IUserLink, Integer> index;
+
+	private Adjacency(IUserLink[] userLinks, SimLink[] simLinks) {
+		this.userLinks = userLinks;
+		this.simLinks = simLinks;
+		this.userView = Collections.unmodifiableList(Arrays.asList(userLinks));
+		this.simView = Collections.unmodifiableList(Arrays.asList(simLinks));
+		if (userLinks.length > SCAN_LIMIT) {
+			index = new HashMap<IUserLink, Integer>(userLinks.length * 2);
+			for (int i=0; i<userLinks.length; i++) {
+				index.put(userLinks[i], i);
+			}
+		} else {
+			index = null;
+		}
+	}
+
+	public int size() {
+		return simLinks.length;
+	}
+
+	/**
+	 * retrieve the position of a link
+	 * @return the index or -1 if the node is not connected through it
+	 */
+	public int indexOf(IUserLink link) {
+		if (index != null) {
+			Integer i = index.get(link);
+			return i == null ? -1 : i;
+		}
+		for (int i=0; i<userLinks.length; i++) {
+			if (userLinks[i] == link || userLinks[i].equals(link)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public SimLink get(int i) {
+		return simLinks[i];
+	}
+
+	/**
+	 * retrieve the user links as an unmodifiable list
+	 */
+	public List<IUserLink> getUserLinks() {
+		return userView;
+	}
+
+	/**
+	 * retrieve the simulator links as an unmodifiable list
+	 */
+	public List<SimLink> getSimLinks() {
+		return simView;
+	}
+
+	/**
+	 * retrieve the snapshot with a link added at the end, or replaced
+	 * in place if its user link is already known
+	 */
+	public Adjacency with(SimLink link) {
+		int i = indexOf(link.getUserLogic());
+		IUserLink[] u;
+		SimLink[] s;
+		if (i < 0) {
+			i = simLinks.length;
+			u = new IUserLink[i + 1];
+			s = new SimLink[i + 1];
+			System.arraycopy(userLinks, 0, u, 0, i);
+			System.arraycopy(simLinks, 0, s, 0, i);
+		} else {
+			u = userLinks.clone();
+			s = simLinks.clone();
+		}
+		u[i] = link.getUserLogic();
+		s[i] = link;
+		return new Adjacency(u, s);
+	}
+
+	/**
+	 * retrieve the snapshot without a link
+	 */
+	public Adjacency without(SimLink link) {
+		int i = indexOf(link.getUserLogic());
+		if (i < 0) {
+			return this;
+		}
+		if (simLinks.length == 1) {
+			return EMPTY;
+		}
+		IUserLink[] u = new IUserLink[simLinks.length - 1];
+		SimLink[] s = new SimLink[simLinks.length - 1];
+		System.arraycopy(userLinks, 0, u, 0, i);
+		System.arraycopy(userLinks, i + 1, u, i, u.length - i);
+		System.arraycopy(simLinks, 0, s, 0, i);
+		System.arraycopy(simLinks, i + 1, s, i, s.length - i);
+		return new Adjacency(u, s);
+	}
+}
@@ -0,0 +1,108 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.sim;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * primitive packet counters of a node or link.
+ * <p>
+ * the counters are plain volatile fields updated without locks, so
+ * counting does not allocate and may happen from several threads. the
+ * ui reads them through {@link vidis.data.var.vars.CounterVariable}s.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class ComponentStatistics {
+	public static final int SENT = 0;
+	public static final int RECEIVED = 1;
+	public static final int DROPPED = 2;
+	public static final int QUEUE_HIGH_WATER = 3;
+
+	private static final AtomicLongFieldUpdater<ComponentStatistics> sentUpdater = AtomicLongFieldUpdater.newUpdater(ComponentStatistics.class, "sent");
+	private static final AtomicLongFieldUpdater<ComponentStatistics> receivedUpdater = AtomicLongFieldUpdater.newUpdater(ComponentStatistics.class, "received");
+	private static final AtomicLongFieldUpdater<ComponentStatistics> droppedUpdater = AtomicLongFieldUpdater.newUpdater(ComponentStatistics.class, "dropped");
+
+	private volatile long sent;
+	private volatile long received;
+	private volatile long dropped;
+	private volatile long queueHighWater;
+
+	/**
+	 * counts a sent packet
+	 * @return the new number of sent packets
+	 */
+	public long countSent() {
+		return sentUpdater.incrementAndGet(this);
+	}
+
+	/**
+	 * counts a received packet
+	 * @return the new number of received packets
+	 */
+	public long countReceived() {
+		return receivedUpdater.incrementAndGet(this);
+	}
+
+	/**
+	 * counts dropped packets
+	 * @return the new number of dropped packets
+	 */
+	public long countDropped(long packets) {
+		return droppedUpdater.addAndGet(this, packets);
+	}
+
+	/**
+	 * records the current length of a packet queue
+	 * @return true if this is a new high water mark
+	 */
+	public boolean recordQueue(long length) {
+		if (length > queueHighWater) {
+			synchronized (this) {
+				if (length > queueHighWater) {
+					queueHighWater = length;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public long getSent() {
+		return sent;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getQueueHighWater() {
+		return queueHighWater;
+	}
+
+	/**
+	 * retrieve a counter by its constant, e.g. {@link #SENT}
+	 */
+	public long get(int counter) {
+		switch (counter) {
+		case SENT:
+			return sent;
+		case RECEIVED:
+			return received;
+		case DROPPED:
+			return dropped;
+		case QUEUE_HIGH_WATER:
+			return queueHighWater;
+		default:
+			throw new IllegalArgumentException("unknown counter " + counter);
+		}
+	}
+}
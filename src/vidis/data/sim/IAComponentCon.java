@@ -8,6 +8,7 @@ package vidis.data.sim;
 import java.util.Set;
 
 import vidis.data.var.vars.AVariable;
+import vidis.util.SplitMix;
 
 /**
  * interface for all abstract user components
@@ -48,4 +49,11 @@ public interface IAComponentCon {
      * @param steps sleep for these steps
      */
     public void sleep(int steps);
+
+    /**
+     * retrieve the random number generator of this component;
+     * it depends on the simulator seed and the component id only
+     * @return the generator
+     */
+    public SplitMix getRandom();
 }
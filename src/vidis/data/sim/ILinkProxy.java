@@ -0,0 +1,45 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.sim;
+
+/**
+ * the end of a link that connects a node of this process with a node of
+ * another process; packets towards the other node leave the process,
+ * packets from it arrive through the proxy.
+ * @author Dominik
+ *
+ */
+public interface ILinkProxy {
+	/**
+	 * retrieve if a node is simulated by another process
+	 */
+	public boolean isRemote(SimNode node);
+
+	/**
+	 * retrieve if the user logic of the link is executed by this process
+	 */
+	public boolean isOwner();
+
+	/**
+	 * hands a packet over to the process of its target
+	 * @param packet the packet
+	 * @param to the remote node
+	 * @param step the step the packet has to be delivered in
+	 */
+	public void forward(SimPacket packet, SimNode to, long step);
+
+	/**
+	 * retrieve the next packet that arrived for the given step
+	 * @param step the current step
+	 * @return the packet or null if there is none
+	 */
+	public SimPacket poll(long step);
+
+	/**
+	 * retrieve if no arrived packets wait for delivery
+	 */
+	public boolean isIdle();
+}
@@ -0,0 +1,51 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.sim;
+
+/**
+ * decides which components are executed within a simulator step
+ * @author Dominik
+ *
+ */
+public interface IScheduler {
+	/**
+	 * makes sure a component is executed within the current or the next
+	 * step; may be called from any thread
+	 * @param component the component to wake up
+	 */
+	public void wake(AComponent component);
+
+	/**
+	 * notes that what is shown of a component may have changed outside of
+	 * its execution, e.g. a variable was set; may be called from any thread
+	 * @param component the component that changed
+	 */
+	public void changed(AComponent component);
+
+	/**
+	 * calls {@link AComponent#endStep()} once all components of the
+	 * current step have been executed; only allowed within a step
+	 * @param component the component to call
+	 * @return false if no step is running right now
+	 */
+	public boolean atStepEnd(AComponent component);
+
+	/**
+	 * retrieve if a component is going to be executed later within the
+	 * current step
+	 * @param component the component to check
+	 * @return false if no step is running or the component is not active
+	 *         or has already been passed
+	 */
+	public boolean isPending(AComponent component);
+
+	/**
+	 * lets another thread go on with the running step while the calling
+	 * one waits for it; does nothing unless the calling thread runs the step
+	 * @param thread the thread that runs the step from now on
+	 */
+	public void handOver(Thread thread);
+}
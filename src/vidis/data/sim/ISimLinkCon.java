@@ -61,6 +61,7 @@ public interface ISimLinkCon extends IAComponentCon {
 
 	/**
 	 * Disconnects this link.
+	 * @throws IllegalStateException if called by a blocking routine
 	 */
 	public void disconnect();
 }
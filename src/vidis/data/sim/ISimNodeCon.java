@@ -21,7 +21,7 @@ public interface ISimNodeCon extends IAComponentCon {
 
 	/**
 	 * retrieve all links that this node is connected to
-	 * @return a list of links
+	 * @return an unmodifiable list of links in the order they were connected
 	 */
 	public List<IUserLink> getConnectedLinks();
 	
@@ -41,22 +41,72 @@ public interface ISimNodeCon extends IAComponentCon {
 	 */
 	public void send(IUserPacket p, IUserLink link, long wait);
 
+	/**
+	 * send a packet over all links; all links share the one packet, so
+	 * it must not be changed after sending, neither by the sender nor by
+	 * its receivers. while a receiver handles it, the packet answers for
+	 * the link it came through
+	 * @param p the packet to send
+	 * @param wait the amount of time to wait
+	 */
+	public void broadcast(IUserPacket p, long wait);
+
+	/**
+	 * send a packet over all links but one, usually the link a packet
+	 * came from; all links share the one packet
+	 * @param p the packet to send
+	 * @param except the link to leave out, may be null
+	 * @param wait the amount of time to wait
+	 */
+	public void broadcastExcept(IUserPacket p, IUserLink except, long wait);
+
+	/**
+	 * send a packet over some links; all links share the one packet
+	 * @param p the packet to send
+	 * @param links the links which are used to send
+	 * @param wait the amount of time to wait
+	 */
+	public void multicast(IUserPacket p, List<IUserLink> links, long wait);
+
 	/**
 	 * retrieve unique identifier for this node
 	 * @return string
 	 */
 	public String getId();
 
+	/**
+	 * retrieve the index of this node; the nodes of a simulation are
+	 * numbered from 0 in the order they joined it, so the index suits
+	 * dense per node arrays
+	 * @return the index or -1 if the node has not joined a simulation
+	 */
+	public int getIndex();
+
+	/**
+	 * retrieve the current step of the simulator
+	 */
+	public long getNow();
+
 	/**
 	 * Connects this node to another node.
 	 * @param n the node to connect to
 	 * @param lclazz the link class to use
 	 * @param delay the delay of the link class
+	 * @throws IllegalStateException if called by a blocking routine
 	 */
 	public void connect(IUserNode n, Class<? extends IUserLink> lclazz, long delay);
 	
 	/**
 	 * Spawns a new node.
+	 * @throws IllegalStateException if called by a blocking routine
 	 */
 	public IUserNode spawnNewNode();
+
+	/**
+	 * creates the routine the logic of this node runs in, see
+	 * {@link vidis.data.ABlockingNode}; a node has one routine at most
+	 * @param body the logic
+	 * @return the routine, started with the first {@link Routine#resume()}
+	 */
+	public Routine createRoutine(Runnable body);
 }
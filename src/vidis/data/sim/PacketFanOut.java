@@ -0,0 +1,96 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.sim;
+
+import java.util.Set;
+
+import vidis.data.exceptions.ObstructInitCallException;
+import vidis.data.mod.IUserLink;
+import vidis.data.mod.IUserNode;
+import vidis.data.mod.IUserPacket;
+import vidis.data.var.vars.AVariable;
+import vidis.util.SplitMix;
+
+/**
+ * the simulator side of a user packet that is sent over several links
+ * at once.
+ * <p>
+ * every link carries its own simulator packet, but all of them share the
+ * one user packet, so a broadcast costs no copies of it. what differs
+ * per receiver, the link, the nodes and the variables, stays in the
+ * simulator packets. the user packet is bound to this object instead of
+ * a single simulator packet; it forwards to the copy that is delivered
+ * right now, so the receiver sees the link the packet came through.
+ * </p>
+ * <p>
+ * the user packet has to be treated as immutable once it is sent. a
+ * receiver that keeps it beyond receive() sees the link of the copy that
+ * was delivered last.
+ * </p>
+ * @author Dominik
+ *
+ */
+final class PacketFanOut implements ISimPacketCon {
+	private final IUserPacket packet;
+	private SimPacket current;
+
+	PacketFanOut(IUserPacket packet) {
+		this.packet = packet;
+	}
+
+	/**
+	 * binds the user packet on the first copy
+	 */
+	void bind(SimPacket copy) throws ObstructInitCallException {
+		if (current == null) {
+			current = copy;
+			packet.init(this);
+		}
+	}
+
+	/**
+	 * selects the copy that is delivered next
+	 */
+	void select(SimPacket copy) {
+		current = copy;
+	}
+
+	public IUserNode getFrom() {
+		return current.getFrom();
+	}
+
+	public IUserNode getTo() {
+		return current.getTo();
+	}
+
+	public IUserLink getLink() {
+		return current.getLink();
+	}
+
+	public AVariable getScopedVariable(String scope, String identifier) {
+		return current.getScopedVariable(scope, identifier);
+	}
+
+	public boolean hasScopedVariable(String scope, String identifier) {
+		return current.hasScopedVariable(scope, identifier);
+	}
+
+	public Set<String> getScopedVariableIdentifiers(String scope) {
+		return current.getScopedVariableIdentifiers(scope);
+	}
+
+	public void interrupt() {
+		current.interrupt();
+	}
+
+	public void sleep(int steps) {
+		current.sleep(steps);
+	}
+
+	public SplitMix getRandom() {
+		return current.getRandom();
+	}
+}
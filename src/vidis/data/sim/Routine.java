@@ -0,0 +1,193 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.sim;
+
+import vidis.sim.trace.TraceRecorder;
+
+/**
+ * runs the logic of a node as one blocking routine on a thread of its own.
+ * <p>
+ * the stepping thread and the routine take turns: the node resumes the
+ * routine within its execution and waits until the routine parks again,
+ * so the routine sees the simulation just like the node would and all
+ * runs of a simulation happen in the same order. while it has the turn
+ * the routine goes on with the step for the stepping thread, see
+ * {@link IScheduler#handOver(Thread)}.
+ * </p>
+ * <p>
+ * the threads are started with a small stack as a parked routine holds
+ * nothing but its own frames.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class Routine {
+	private static final long STACK_SIZE = 128 * 1024;
+
+	/**
+	 * the routine that runs on the current thread or null
+	 */
+	private static final ThreadLocal<Routine> current = new ThreadLocal<Routine>();
+
+	private final AComponent component;
+	private final Runnable body;
+	private final String name;
+
+	private Thread thread;
+	/**
+	 * the thread that resumed the routine and waits for it
+	 */
+	private Thread caller;
+	/**
+	 * true while the routine has the turn
+	 */
+	private boolean running;
+	private boolean done;
+	private boolean stopped;
+	private Throwable failure;
+
+	/**
+	 * thrown into a parked routine that is stopped; unwinds its stack
+	 */
+	private static class Stopped extends Error {
+		private static final long serialVersionUID = 7931427085521364119L;
+	}
+
+	Routine(AComponent component, Runnable body, String name) {
+		this.component = component;
+		this.body = body;
+		this.name = name;
+	}
+
+	/**
+	 * runs the routine until it parks or returns; exceptions of the
+	 * routine are thrown on to the caller
+	 */
+	public synchronized void resume() {
+		if (done) {
+			return;
+		}
+		caller = Thread.currentThread();
+		IScheduler scheduler = component.getScheduler();
+		if (scheduler != null) {
+			scheduler.handOver(thread == null ? startThread() : thread);
+		} else if (thread == null) {
+			startThread();
+		}
+		running = true;
+		notifyAll();
+		boolean interrupted = false;
+		while (running) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			caller.interrupt();
+		}
+		if (failure != null) {
+			Throwable t = failure;
+			failure = null;
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			}
+			throw (Error) t;
+		}
+	}
+
+	private Thread startThread() {
+		thread = new Thread(null, new Runnable() {
+			public void run() {
+				main();
+			}
+		}, "routine " + name, STACK_SIZE);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	private void main() {
+		current.set(this);
+		synchronized (this) {
+			awaitTurn();
+		}
+		try {
+			body.run();
+		} catch (Stopped e) {
+			// the node is gone
+		} catch (Throwable t) {
+			failure = t;
+		} finally {
+			TraceRecorder.getInstance().handOver();
+			synchronized (this) {
+				done = true;
+				giveBack();
+			}
+		}
+	}
+
+	/**
+	 * gives the turn back to the caller of {@link #resume()} and waits for
+	 * the next one; to be called by the routine only
+	 */
+	public synchronized void park() {
+		if (Thread.currentThread() != thread) {
+			throw new IllegalStateException("only the routine itself may park");
+		}
+		TraceRecorder.getInstance().handOver();
+		giveBack();
+		awaitTurn();
+	}
+
+	private void awaitTurn() {
+		while (!running && !stopped) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				// only stop() ends a routine
+			}
+		}
+		if (stopped) {
+			throw new Stopped();
+		}
+	}
+
+	private void giveBack() {
+		IScheduler scheduler = component.getScheduler();
+		if (scheduler != null && caller != null) {
+			scheduler.handOver(caller);
+		}
+		running = false;
+		notifyAll();
+	}
+
+	/**
+	 * ends a parked routine
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		notifyAll();
+	}
+
+	public synchronized boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * fails if called by a routine; the stepping thread holds the
+	 * components of the simulator while a routine runs, so a routine
+	 * cannot register or unregister components
+	 * @param what the operation that is refused
+	 */
+	static void checkNotRoutine(String what) {
+		Routine r = current.get();
+		if (r != null) {
+			throw new IllegalStateException(what + " is not allowed within the routine " + r.name);
+		}
+	}
+}
@@ -6,10 +6,13 @@
 package vidis.data.sim;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.vecmath.Tuple3d;
 import javax.vecmath.Vector3d;
@@ -20,18 +23,24 @@ import vidis.data.exceptions.ObstructInitCallException;
 import vidis.data.mod.IUserLink;
 import vidis.data.mod.IUserNode;
 import vidis.data.mod.IUserPacket;
+import vidis.data.var.VariableShape;
 import vidis.data.var.vars.AVariable;
 import vidis.data.var.vars.DefaultVariable;
-import vidis.sim.Simulator;
 import vidis.sim.exceptions.ObstructInitRuntimeCallException;
 import vidis.ui.events.IVidisEvent;
+import vidis.sim.trace.TraceRecorder;
 import vidis.ui.events.ObjectEvent;
 import vidis.ui.model.impl.Link;
 import vidis.ui.mvc.api.Dispatcher;
+import vidis.util.log.LogChannel;
+import vidis.util.metrics.Counter;
+import vidis.util.metrics.Metrics;
 
 public class SimLink extends AComponent implements ISimLinkCon {
 	
 	private static Logger logger = Logger.getLogger( SimLink.class );
+	private static final LogChannel log = LogChannel.get( SimLink.class );
+	private static final Counter droppedPackets = Metrics.getInstance().counter( Metrics.PACKETS_DROPPED );
 
     protected IUserLink logic;
 
@@ -40,6 +49,14 @@ public class SimLink extends AComponent implements ISimLinkCon {
     private SimNode b;
     private long delay;
     private List<PacketQueueHolder> queue;
+    /**
+     * set if the nodes of this link are simulated by different processes
+     */
+    private ILinkProxy proxy;
+    /**
+     * true while the queue is worked off
+     */
+    private boolean processing;
 
     private Link visObject;
     
@@ -55,7 +72,7 @@ public class SimLink extends AComponent implements ISimLinkCon {
 		// set fields
 		setDelay(delay);
 		
-		if ( visObject == null ) {
+		if ( visObject == null && isVisualised() ) {
 			visObject = new Link( this );
 		}
     }
@@ -70,6 +87,7 @@ public class SimLink extends AComponent implements ISimLinkCon {
 		    for (PacketQueueHolder pqh : queue) {
 		    	pqh.packet.kill();
 		    }
+		    countMetric(droppedPackets, queue.size());
 		    queue.clear();
 		}
 		super.kill();
@@ -77,8 +95,10 @@ public class SimLink extends AComponent implements ISimLinkCon {
     
     @Override
     protected void killVisObject() {
-    	ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectUnregister, visObject );
-		Dispatcher.forwardEvent( nextEvent );
+    	if ( isVisualised() ) {
+    		ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectUnregister, visObject );
+    		Dispatcher.forwardEvent( nextEvent );
+    	}
     }
 
     private void init(IUserLink link) {
@@ -105,21 +125,50 @@ public class SimLink extends AComponent implements ISimLinkCon {
 			this.b = b;
 			a.addConnection(this);
 			b.addConnection(this);
-			ObjectEvent oe = new ObjectEvent( IVidisEvent.ObjectRegister, visObject );
-			Dispatcher.forwardEvent( oe );
+			if ( isVisualised() ) {
+				ObjectEvent oe = new ObjectEvent( IVidisEvent.ObjectRegister, visObject );
+				Dispatcher.forwardEvent( oe );
+			}
     	}
     }
 
+    /**
+     * lets packets towards a node of another process pass the given proxy
+     * @param proxy the proxy or null
+     */
+    public void setProxy(ILinkProxy proxy) {
+    	this.proxy = proxy;
+    	wake();
+    }
+
+    public ILinkProxy getProxy() {
+    	return proxy;
+    }
+
     public void execute() {
 		processQueue();
+		if (proxy != null && !proxy.isOwner()) {
+			// the other process executes the user logic
+			return;
+		}
 		super.execute();
 		if (!isSleeping()) {
 		    this.logic.execute();
 		} else
-		    logger.debug("skip logic.execute()");
+		    log.debug("skip logic.execute()");
 		super.checkVariablesChanged();
     }
 
+    @Override
+    public boolean mayIdle() {
+    	synchronized (queue) {
+    		if (proxy != null && !proxy.isOwner()) {
+    			return queue.isEmpty() && proxy.isIdle();
+    		}
+    		return queue.isEmpty() && (proxy == null || proxy.isIdle()) && (isSleeping() || isPassive());
+    	}
+    }
+
 	public IUserNode getNodeA() {
     	return a.getUserLogic();
     }
@@ -141,8 +190,7 @@ public class SimLink extends AComponent implements ISimLinkCon {
 		} else if (getNodeBSim().compareTo(node) == 0) {
 		    return getNodeASim();
 		} else {
-		    logger.debug("getOtherNode(" + node
-			    + ") => null");
+		    log.debug("getOtherNode({}) => null", node);
 		    return null;
 		}
     }
@@ -167,10 +215,15 @@ public class SimLink extends AComponent implements ISimLinkCon {
 
     public void send(SimPacket packet, SimNode to) {
 		if (a.equals(to) || b.equals(to)) {
+			wake();
+			countSent();
 			// create new vis object
 			packet.createVisObject();
 			// and now do send operation
-		    if (getDelay() <= 0) {
+			if (proxy != null && proxy.isRemote(to)) {
+				// the queue would count the packet down within this step if it is still to be worked off
+				proxy.forward(packet, to, getSimulator().getNow() + getDelay() + (processing || isPending() ? 1 : 2));
+			} else if (getDelay() <= 0) {
 		    	// deliver immediatly
 		    	deliver(packet, to);
 		    } else {
@@ -183,14 +236,23 @@ public class SimLink extends AComponent implements ISimLinkCon {
 
     private void queue(SimPacket packet, SimNode to) {
     	queue.add(new PacketQueueHolder(packet, to, getDelay()));
+    	recordQueue(queue.size());
     }
 
     private void deliver(SimPacket packet, SimNode to) {
+    	countReceived();
     	to.receive(packet);
     }
 
     private void processQueue() {
 		synchronized (queue) {
+			processing = true;
+			if (proxy != null) {
+				long now = getSimulator().getNow();
+				for (SimPacket packet = proxy.poll(now); packet != null; packet = proxy.poll(now)) {
+					deliver(packet, packet.getToSim());
+				}
+			}
 		    for (int i = 0; i < queue.size(); i++) {
 			PacketQueueHolder tmp = queue.get(i);
 			/*
@@ -213,6 +275,7 @@ public class SimLink extends AComponent implements ISimLinkCon {
 			    tmp.lastStepTime = System.currentTimeMillis();
 			}
 		    }
+		    processing = false;
 		}
     }
 
@@ -234,6 +297,22 @@ public class SimLink extends AComponent implements ISimLinkCon {
 		// long lastMillis;
     }
 
+    /**
+     * retrieve the packets on this link in the order they were sent
+     */
+    public List<SimPacket> getQueuedPackets() {
+		synchronized (queue) {
+			if (queue.isEmpty()) {
+				return Collections.emptyList();
+			}
+			List<SimPacket> packets = new ArrayList<SimPacket>(queue.size());
+			for (PacketQueueHolder tmp : queue) {
+				packets.add(tmp.packet);
+			}
+			return packets;
+		}
+    }
+
     private PacketQueueHolder getPacketQueueHolderForPacket(SimPacket packet) {
 		for (int i = 0; i < queue.size(); i++) {
 		    PacketQueueHolder tmp = queue.get(i);
@@ -246,7 +325,7 @@ public class SimLink extends AComponent implements ISimLinkCon {
 
     
     public long getStepsOnLinkForPacket(SimPacket packet) {
-    	logger.debug("getStepsOnLinkForPacket("+packet+");");
+    	log.debug("getStepsOnLinkForPacket({});", packet);
 		PacketQueueHolder tmp = getPacketQueueHolderForPacket(packet);
 		if (tmp != null) {
 //		    int dir = packet.getDirection();
@@ -280,7 +359,7 @@ public class SimLink extends AComponent implements ISimLinkCon {
     
     
     public double getAlphaForPacket(SimPacket packet) {
-    	logger.debug("getAlphaForPacket("+packet+");");
+    	log.debug("getAlphaForPacket({});", packet);
 		PacketQueueHolder tmp = getPacketQueueHolderForPacket(packet);
 		if ( tmp != null ) {
 			long now = System.currentTimeMillis();
@@ -289,12 +368,13 @@ public class SimLink extends AComponent implements ISimLinkCon {
 			
 			long timeOnThisStep = now - lastStepTime;
 			
-			long lastStepDuration = Simulator.getInstance().getLastStepDuration();
+			long lastStepDuration = getSimulator().getLastStepDuration();
 			
 			// 100 -> lastStepDuration
 			// ? -> timeOnThisStep
 			
-			double alpha1 = (double) timeOnThisStep / (double) lastStepDuration;
+			// steps may run back to back without any measurable duration
+			double alpha1 = lastStepDuration > 0 ? Math.min(1, (double) timeOnThisStep / (double) lastStepDuration) : 1;
 			
 			// 100 -> stepsAll
 			// ? -> stepsDone
@@ -324,7 +404,7 @@ public class SimLink extends AComponent implements ISimLinkCon {
      * @return 0: unknown, 1: to A, -1: to B
      */
     public int getDirectionForPacket(SimPacket packet) {
-    	logger.debug("getDirectionForPacket("+packet+");");
+    	log.debug("getDirectionForPacket({});", packet);
 		PacketQueueHolder tmp = getPacketQueueHolderForPacket(packet);
 		if (tmp != null) {
 		    if (tmp.to.equals(a)) {
@@ -342,14 +422,14 @@ public class SimLink extends AComponent implements ISimLinkCon {
     private Vector3d move = null;
 
     public Vector3d getMove() {
-    	logger.debug("getMove()");
+    	log.debug("getMove()");
 		if (move == null)
 		    calcMove();
 		return move;
     }
 
     public void calcMove() {
-    	logger.debug("calcMove()");
+    	log.debug("calcMove()");
 		// TODO safe checks
 		Tuple3d a = (Tuple3d) getNodeASim().getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION ).getData();
 		Tuple3d b = (Tuple3d) getNodeBSim().getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION ).getData();
@@ -377,12 +457,23 @@ public class SimLink extends AComponent implements ISimLinkCon {
     public final static String POINT_A = "virtual.pointA";
     public final static String POINT_B = "virtual.pointB";
     
+    /**
+     * the ids including the virtual points per shape
+     */
+    private static final Map<VariableShape, Set<String>> idsWithPoints = new ConcurrentHashMap<VariableShape, Set<String>>();
+
     @Override
     public Set<String> getVariableIds() {
-    	Set<String> ret = new HashSet<String>( super.getVariableIds() );
-    	ret.add( POINT_A );
-    	ret.add( POINT_B );
-    	return ret;
+    	VariableShape shape = getVariableShape();
+    	Set<String> ids = idsWithPoints.get( shape );
+    	if ( ids == null ) {
+    		Set<String> ret = new LinkedHashSet<String>( shape.getIds() );
+    		ret.add( POINT_A );
+    		ret.add( POINT_B );
+    		ids = Collections.unmodifiableSet( ret );
+    		idsWithPoints.put( shape, ids );
+    	}
+    	return ids;
     }
     static int linkcount = 0;
     @Override
@@ -413,7 +504,10 @@ public class SimLink extends AComponent implements ISimLinkCon {
 		for(int i=0; i<queue.size(); i++) {
 			PacketQueueHolder pHolder = queue.get(i);
 			if(pHolder.packet.getUserLogic().equals(packet)) {
+				TraceRecorder.getInstance().dropped(this, pHolder.packet.getUserLogic());
 				pHolder.packet.kill();
+				countDropped(1);
+				countMetric(droppedPackets, 1);
 				queue.remove(i);
 				i--;
 			}
@@ -422,8 +516,11 @@ public class SimLink extends AComponent implements ISimLinkCon {
 
 	public void dropPacketsOnLink() {
 		for(PacketQueueHolder pHolder : queue) {
+			TraceRecorder.getInstance().dropped(this, pHolder.packet.getUserLogic());
 			pHolder.packet.kill();
 		}
+		countDropped(queue.size());
+		countMetric(droppedPackets, queue.size());
 		queue.clear();
 	}
 
@@ -441,9 +538,10 @@ public class SimLink extends AComponent implements ISimLinkCon {
     }
 	
 	public void disconnect() {
+		Routine.checkNotRoutine("disconnecting nodes");
 		getNodeASim().removeConnection(this);
 		getNodeBSim().removeConnection(this);
 		kill();
-		Simulator.getInstance().unregisterObject(this);
+		getSimulator().unregisterObject(this);
 	}
 }
@@ -8,26 +8,31 @@ package vidis.data.sim;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.vecmath.Point3d;
 
 import org.apache.log4j.Logger;
 
+import vidis.data.AUserNode;
 import vidis.data.exceptions.ObstructInitCallException;
 import vidis.data.mod.IUserLink;
 import vidis.data.mod.IUserNode;
 import vidis.data.mod.IUserPacket;
 import vidis.data.var.vars.AVariable;
 import vidis.data.var.vars.DefaultVariable;
-import vidis.sim.Simulator;
+import vidis.sim.classloader.ClassCache;
 import vidis.sim.exceptions.ObstructInitRuntimeCallException;
+import vidis.sim.trace.TraceRecord;
+import vidis.sim.trace.TraceRecorder;
 import vidis.ui.events.IVidisEvent;
 import vidis.ui.events.ObjectEvent;
+import vidis.ui.events.ObjectsEvent;
 import vidis.ui.model.impl.Node;
 import vidis.ui.model.structure.IVisObject;
 import vidis.ui.mvc.api.Dispatcher;
+import vidis.util.log.LogChannel;
+import vidis.util.metrics.Counter;
+import vidis.util.metrics.Metrics;
 
 /**
  * simulator node
@@ -37,23 +42,52 @@ import vidis.ui.mvc.api.Dispatcher;
  */
 public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNode> {
 	private static Logger logger = Logger.getLogger( SimNode.class );
+	private static final LogChannel log = LogChannel.get( SimNode.class );
+	private static final Counter sentPackets = Metrics.getInstance().counter( Metrics.PACKETS_SENT );
+	private static final Counter deliveredPackets = Metrics.getInstance().counter( Metrics.PACKETS_DELIVERED );
+	private static final Counter droppedPackets = Metrics.getInstance().counter( Metrics.PACKETS_DROPPED );
 	
     protected IUserNode logic;
 
     // -------- sim fields ------- //
     /**
-     * contains all connected links in this node
+     * contains all connected links in this node; replaced as a whole
+     * on every connect or disconnect
      */
-    private Map<IUserLink, SimLink> links;
+    private volatile Adjacency links = Adjacency.EMPTY;
 
     /**
      * internal packet queue
      */
     private List<PacketQueueHolder> packetQueue;
 
+    /**
+     * user classes that override receiveBatch()
+     */
+    private static final ClassCache<Boolean> batchReceivers = new ClassCache<Boolean>();
+
+    private boolean batchReceiver;
+
+    /**
+     * packets arrived within this step, only used by batch receivers
+     */
+    private List<SimPacket> inbox = new ArrayList<SimPacket>();
+
     private IVisObject visObject;
+
+    /**
+     * the routine of a blocking node or null
+     */
+    private Routine routine;
     
     private int step = 0;
+
+    private long packetsSent = 0;
+
+    /**
+     * the position of this node among all nodes of the simulation or -1
+     */
+    private int index = -1;
     
     /**
      * public constructor
@@ -66,31 +100,43 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
 		init();
 		init(node);
 		
-		visObject = new Node( this );
-		ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectRegister, visObject );
-		Dispatcher.forwardEvent( nextEvent );
+		// headless nodes do not need the costly gui objects
+		if ( isVisualised() ) {
+			visObject = new Node( this );
+			ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectRegister, visObject );
+			Dispatcher.forwardEvent( nextEvent );
+		}
     }
 
     /**
      * initialize this class
      */
     private void init() {
-		this.links = new ConcurrentHashMap<IUserLink, SimLink>();
 		this.packetQueue = new LinkedList<PacketQueueHolder>();
 		// setVariable(new Variable<Long>("packetsReceived", 0l));
     }
 
     @Override
     public void kill() {
-		links.clear();
+		links = Adjacency.EMPTY;
+		countMetric(droppedPackets, packetQueue.size() + inbox.size());
 		packetQueue.clear();
+		for (int i=0; i<inbox.size(); i++) {
+			inbox.get(i).kill();
+		}
+		inbox.clear();
+		if (routine != null) {
+			routine.stop();
+		}
 		super.kill();
     }
     
     @Override
     protected void killVisObject() {
-    	ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectUnregister, visObject );
-		Dispatcher.forwardEvent( nextEvent );
+    	if ( isVisualised() ) {
+    		ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectUnregister, visObject );
+    		Dispatcher.forwardEvent( nextEvent );
+    	}
     }
 
     /**
@@ -101,6 +147,7 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
      */
     private void init(IUserNode node) {
 		logic = node;
+		batchReceiver = isBatchReceiver(node.getClass());
 		try {
 			initVars();
 		    node.init(this);
@@ -117,13 +164,13 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
 		if (!isSleeping()) {
 		    this.logic.execute();
 		} else {
-			logger.debug("skip logic.execute()");
+			log.debug("skip logic.execute()");
 		}
 		step++;
     }
 
     public List<IUserLink> getConnectedLinks() {
-    	return new LinkedList<IUserLink>(this.links.keySet());
+    	return this.links.getUserLinks();
     }
 
     /**
@@ -136,18 +183,16 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
     }
 
     /**
-     * retrieve if this node is connected through a link
+     * retrieve the link this node is connected through
      * 
      * @param link
      *          the link to check
-     * @return true or false
+     * @return the simulator link or null if not connected through it
      */
-    private boolean isConnectedThrough(IUserLink link) {
-    	return this.links.containsKey(link);
-    }
-
     private SimLink getConnectedLink(IUserLink link) {
-    	return this.links.get(link);
+    	Adjacency a = this.links;
+    	int i = a.indexOf(link);
+    	return i < 0 ? null : a.get(i);
     }
 
     public void send(IUserPacket p, IUserLink link) {
@@ -155,28 +200,87 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
     }
 
     public void send(IUserPacket packet, IUserLink link, long wait) {
-		if (isConnectedThrough(link)) {
-		    SimPacket simPacket = new SimPacket(packet, getConnectedLink(link), this, getConnectedLink(link).getOtherNode(this));
-		    logger.debug(this + ".send("+packet+", "+link+", "+wait+");");
+		SimLink simLink = getConnectedLink(link);
+		if (simLink != null) {
+		    SimPacket simPacket = new SimPacket(packet, simLink, this, simLink.getOtherNode(this));
+		    if (log.isDebug()) {
+		    	log.debug("{}.send({}, {}, {});", this, packet, link, wait);
+		    }
 		    if (wait <= 0) {
-		    	doSendOperation(simPacket, getConnectedLink(link));
+		    	doSendOperation(simPacket, simLink);
 		    } else {
-		    	addToPacketQueue(simPacket, getConnectedLink(link), wait);
+		    	addToPacketQueue(simPacket, simLink, wait);
 		    }
 		} else {
 		    // cannot send
+			TraceRecorder.getInstance().dropped(this, packet);
+			countDropped(1);
+			countMetric(droppedPackets, 1);
 		}
     }
 
+    public void broadcast(IUserPacket packet, long wait) {
+    	broadcastExcept(packet, null, wait);
+    }
+
+    public void broadcastExcept(IUserPacket packet, IUserLink except, long wait) {
+    	Adjacency a = this.links;
+    	int skip = except == null ? -1 : a.indexOf(except);
+    	SimLink[] targets = new SimLink[a.size()];
+    	int n = 0;
+    	for (int i=0; i<a.size(); i++) {
+    		if (i != skip) {
+    			targets[n++] = a.get(i);
+    		}
+    	}
+    	fanOut(packet, targets, n, wait);
+    }
+
+    public void multicast(IUserPacket packet, List<IUserLink> links, long wait) {
+    	SimLink[] targets = new SimLink[links.size()];
+    	int n = 0;
+    	for (int i=0; i<links.size(); i++) {
+    		SimLink simLink = getConnectedLink(links.get(i));
+    		if (simLink != null) {
+    			targets[n++] = simLink;
+    		}
+    	}
+    	if (n < targets.length) {
+    		// cannot send over links we are not connected through
+    		countDropped(targets.length - n);
+    		countMetric(droppedPackets, targets.length - n);
+    	}
+    	fanOut(packet, targets, n, wait);
+    }
+
+    /**
+     * sends one user packet over several links; every link gets its own
+     * simulator packet, all of them share the user packet
+     */
+    private void fanOut(IUserPacket packet, SimLink[] targets, int n, long wait) {
+    	if (n == 0) {
+    		return;
+    	}
+    	PacketFanOut shared = n > 1 ? new PacketFanOut(packet) : null;
+    	if (log.isDebug()) {
+    		log.debug("{}.fanOut({}, {} links, {});", this, packet, n, wait);
+    	}
+    	if (wait <= 0) {
+    		for (int i=0; i<n; i++) {
+    			doSendOperation(new SimPacket(packet, targets[i], this, targets[i].getOtherNode(this), shared), targets[i]);
+    		}
+    	} else {
+    		for (int i=0; i<n; i++) {
+    			packetQueue.add(new PacketQueueHolder(new SimPacket(packet, targets[i], this, targets[i].getOtherNode(this), shared), targets[i], wait));
+    		}
+    		recordQueue(packetQueue.size());
+    	}
+    }
+
     private void doSendOperation(SimPacket simPacket, SimLink link) {
-		if (hasVariable(AVariable.COMMON_IDENTIFIERS.PACKETSSENT)) {
-		    Long oldValue = (Long) ((DefaultVariable)getVariableById(AVariable.COMMON_IDENTIFIERS.PACKETSSENT)
-			    ).getData();
-		    ((DefaultVariable)getVariableById(AVariable.COMMON_IDENTIFIERS.PACKETSSENT)).update(Long.valueOf(oldValue + 1));
-		} else {
-		    registerVariable(new DefaultVariable(
-			    AVariable.COMMON_IDENTIFIERS.PACKETSSENT, 1l));
-		}
+		TraceRecorder.getInstance().packet(TraceRecord.SEND, simPacket);
+		countSent();
+		countMetric(sentPackets, 1);
 		link.send(simPacket, link.getOtherNode(this));
     }
 
@@ -187,18 +291,72 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
      *          the packet to receive
      */
     public final void receive(SimPacket packet) {
-		if (hasVariable(AVariable.COMMON_IDENTIFIERS.PACKETSRECEIVED)) {
-			Long oldValue = (Long) ((DefaultVariable)getVariableById(AVariable.COMMON_IDENTIFIERS.PACKETSRECEIVED)
-		    ).getData();
-	    ((DefaultVariable)getVariableById(AVariable.COMMON_IDENTIFIERS.PACKETSRECEIVED)).update(Long.valueOf(oldValue + 1));
-		} else
-		    registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.PACKETSRECEIVED, 1l));
-		logger.debug(this + ".receive("+packet.getUserLogic()+");");
+		TraceRecorder.getInstance().packet(TraceRecord.RECEIVE, packet);
+		countReceived();
+		countMetric(deliveredPackets, 1);
+		wake();
+		if (batchReceiver && (!inbox.isEmpty() || atStepEnd())) {
+			// handed over with all others at the end of the step
+			inbox.add(packet);
+			return;
+		}
+		log.debug("{}.receive({});", this, packet.getUserLogic());
+		packet.select();
 		logic.receive(packet.getUserLogic());
 		// kill 3d instance
 		packet.kill();
     }
 
+    /**
+     * hands the packets of this step over to the user node at once
+     */
+    @Override
+    public void endStep() {
+		if (inbox.isEmpty()) {
+			return;
+		}
+		List<SimPacket> batch = inbox;
+		inbox = new ArrayList<SimPacket>();
+		List<IUserPacket> packets = new ArrayList<IUserPacket>(batch.size());
+		for (int i=0; i<batch.size(); i++) {
+			SimPacket packet = batch.get(i);
+			packet.select();
+			packets.add(packet.getUserLogic());
+		}
+		log.debug("{}.receiveBatch({});", this, packets);
+		logic.receiveBatch(packets);
+		// kill all 3d instances with one event
+		List<IVisObject> unregister = null;
+		for (int i=0; i<batch.size(); i++) {
+			IVisObject o = batch.get(i).killQuietly();
+			if (o != null) {
+				if (unregister == null) {
+					unregister = new ArrayList<IVisObject>(batch.size());
+				}
+				unregister.add(o);
+			}
+		}
+		if (unregister != null) {
+			Dispatcher.forwardEvent(new ObjectsEvent(IVidisEvent.ObjectsUnregister, unregister));
+		}
+    }
+
+    /**
+     * retrieve if a user class overrides receiveBatch()
+     */
+    private static boolean isBatchReceiver(Class<?> clazz) {
+		Boolean b = batchReceivers.get(clazz);
+		if (b == null) {
+			try {
+				b = clazz.getMethod("receiveBatch", List.class).getDeclaringClass() != AUserNode.class;
+			} catch (NoSuchMethodException e) {
+				b = false;
+			}
+			batchReceivers.put(clazz, b);
+		}
+		return b;
+    }
+
     /**
      * internal packet queue holder
      * 
@@ -219,6 +377,7 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
 
     private void addToPacketQueue(SimPacket simPacket, SimLink link, long wait) {
     	packetQueue.add(new PacketQueueHolder(simPacket, link, wait));
+    	recordQueue(packetQueue.size());
     }
 
     private void processPacketQueue() {
@@ -237,27 +396,47 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
 		}
     }
 
+    /**
+     * retrieve a new number for a packet sent by this node
+     */
+    long nextPacketNumber() {
+    	return packetsSent++;
+    }
+
     public void addConnection(SimLink link) {
-    	links.put(link.getUserLogic(), link);
+    	synchronized (this) {
+    		links = links.with(link);
+    	}
+    	wake();
     }
     
     public void removeConnection(SimLink simLink) {
-    	links.remove(simLink.getUserLogic());
+    	synchronized (this) {
+    		links = links.without(simLink);
+    	}
+    	wake();
 	}
+
+    @Override
+    public boolean mayIdle() {
+    	return packetQueue.isEmpty() && (isSleeping() || isPassive());
+    }
     
     public void connect(IUserNode n, Class<? extends IUserLink> lclazz, long delay) {
+    	Routine.checkNotRoutine("connecting nodes");
     	// TODO connect this one
-			for(int i=0; i<Simulator.getInstance().getSimulatorComponents().size(); i++) {
-				AComponent c = Simulator.getInstance().getSimulatorComponents().get(i);
+			List<AComponent> components = getSimulator().getSimulatorComponents();
+			for(int i=0; i<components.size(); i++) {
+				AComponent c = components.get(i);
 				if(c.getUserLogic().equals(n)) {
 					try {
 						if(c.isConnectedTo(this)) {
 							throw new InstantiationException("This nodes are already connected, multiple connections are not allowed.");
 						}
 						SimLink s = new SimLink(lclazz.newInstance(), delay);
-						s.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, "spawn_link_"+(Math.random()*Double.MAX_VALUE)));
+						s.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, "spawn_link_"+Long.toHexString(getRandom().nextLong())));
 						s.connect(this, (SimNode)c);
-						Simulator.getInstance().registerComponent(s);
+						getSimulator().registerComponent(s);
 						logger.info("connected " + this + " with " + c + " through " + s);
 						break;
 					} catch (InstantiationException e) {
@@ -303,12 +482,24 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
     	return getVariableById(AVariable.COMMON_IDENTIFIERS.ID).getData().toString();
     }
 
+    public int getIndex() {
+    	return index;
+    }
+
+    /**
+     * called by the simulator when this node joins the simulation
+     * @param index the position of this node among all nodes
+     */
+    public void setIndex(int index) {
+    	this.index = index;
+    }
+
 	public List<SimLink> getConnectedLinksSim() {
-		return new ArrayList<SimLink>(links.values());
+		return links.getSimLinks();
 	}
 
 	public boolean isConnectedTo(SimNode b) {
-		List<SimLink> links = getConnectedLinksSim();
+		Adjacency links = this.links;
 		for(int i=0; i<links.size(); i++) {
 			if(links.get(i).getOtherNode(this).equals(b)) {
 				return true;
@@ -317,14 +508,25 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
 		return false;
 	}
 	
+	public Routine createRoutine(Runnable body) {
+		if (routine != null) {
+			throw new IllegalStateException(this + " already has a routine");
+		}
+		routine = new Routine(this, body, getId());
+		return routine;
+	}
+
 	public IUserNode spawnNewNode() {
+		Routine.checkNotRoutine("spawning nodes");
 		SimNode n;
 		try {
 			n = new SimNode(getUserLogic().getClass().newInstance());
-			n.registerVariable( new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, "spawn_node_"+(Math.random()*Double.MAX_VALUE)));
+			n.registerVariable( new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, "spawn_node_"+Long.toHexString(getRandom().nextLong())));
 			n.registerVariable( new DefaultVariable(AVariable.COMMON_IDENTIFIERS.POSITION, new Point3d()));
-			Simulator.getInstance().registerComponent(n);
-			Dispatcher.forwardEvent( IVidisEvent.LayoutReLayout );
+			getSimulator().registerComponent(n);
+			if ( isVisualised() ) {
+				Dispatcher.forwardEvent( IVidisEvent.LayoutReLayout );
+			}
 			return n.getUserLogic();
 		} catch (InstantiationException e) {
 			logger.error(e);
@@ -333,4 +535,4 @@ public class SimNode extends AComponent implements ISimNodeCon, Comparable<SimNo
 		}
 		return null;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -6,6 +6,7 @@
 package vidis.data.sim;
 
 import javax.vecmath.Point3d;
+import javax.vecmath.Tuple3d;
 import javax.vecmath.Vector3d;
 
 import vidis.data.exceptions.ObstructInitCallException;
@@ -14,17 +15,17 @@ import vidis.data.mod.IUserNode;
 import vidis.data.mod.IUserPacket;
 import vidis.data.var.vars.AVariable;
 import vidis.data.var.vars.DefaultVariable;
-import vidis.sim.Simulator;
 import vidis.sim.exceptions.ObstructInitRuntimeCallException;
 import vidis.ui.events.IVidisEvent;
 import vidis.ui.events.ObjectEvent;
 import vidis.ui.model.impl.Packet;
 import vidis.ui.model.structure.IVisObject;
 import vidis.ui.mvc.api.Dispatcher;
+import vidis.util.log.LogChannel;
 
 public class SimPacket extends AComponent implements ISimPacketCon {
 
-	private static org.apache.log4j.Logger logger = org.apache.log4j.Logger.getLogger( SimPacket.class );
+	private static final LogChannel log = LogChannel.get( SimPacket.class );
 	
     protected IUserPacket logic;
 
@@ -33,20 +34,56 @@ public class SimPacket extends AComponent implements ISimPacketCon {
     private SimNode from;
     private SimNode to;
 
+    /**
+     * the number of this packet among all packets sent by its source
+     */
+    private long number;
+
+    /**
+     * the shared binding if the user packet travels over several links
+     */
+    private PacketFanOut fanOut;
+
     private IVisObject visObject;
     
+    public IVisObject getVisObject() {
+    	return visObject;
+    }
+    
     public SimPacket(IUserPacket packet, SimLink link, SimNode source, SimNode target) {
+    	this(packet, link, source, target, null);
+    }
+
+    /**
+     * creates one copy of a user packet that is sent over several links
+     * @param fanOut the binding shared by all copies or null
+     */
+    SimPacket(IUserPacket packet, SimLink link, SimNode source, SimNode target, PacketFanOut fanOut) {
+    	this(packet, link, source, target, fanOut, -1);
+    }
+
+    /**
+     * recreates a packet that has been sent by another process
+     * @param number the number of the packet among all packets sent by its
+     *            source or -1 to take the next one
+     */
+    public SimPacket(IUserPacket packet, SimLink link, SimNode source, SimNode target, long number) {
+    	this(packet, link, source, target, null, number);
+    }
+
+    private SimPacket(IUserPacket packet, SimLink link, SimNode source, SimNode target, PacketFanOut fanOut, long number) {
 		super();
 		init();
 		
-		
+		this.fanOut = fanOut;
 		init(packet);
 		// set variables
 		setThrough(link);
 		setFrom(source);
 		setTo(target);
+		this.number = number < 0 ? source.nextPacketNumber() : number;
 		
-		logger.info(getVariableIds());
+		log.debug("variables {}", getVariableIds());
 		// set 3d object; this (SimPacket) class should be fully initialized at this
 		// call!
 		// setObject3D(new Packet3D(this));
@@ -62,13 +99,30 @@ public class SimPacket extends AComponent implements ISimPacketCon {
 		setLogic(packet);
 		try {
 			initVars();
-		    packet.init(this);
+			if (fanOut == null) {
+				packet.init(this);
+			} else {
+				fanOut.bind(this);
+			}
 		} catch (ObstructInitCallException e) {
 		    // never happens, if anyway throw a real severe exception
 		    throw new ObstructInitRuntimeCallException(e.getCause());
 		}
     }
 
+    /**
+     * packets change their position all the time, which is not worth a trace
+     */
+    @Override
+    protected boolean isTraced() {
+    	return false;
+    }
+
+    @Override
+    protected String getRandomKey() {
+    	return "SimPacket:" + from.getId() + "/" + number;
+    }
+
     public void execute() {
 		super.execute();
 		if (!isSleeping()) {
@@ -83,6 +137,16 @@ public class SimPacket extends AComponent implements ISimPacketCon {
     	return logic;
     }
 
+    /**
+     * to be called right before the user packet is delivered; a shared
+     * user packet then answers for this copy
+     */
+    final void select() {
+    	if (fanOut != null) {
+    		fanOut.select(this);
+    	}
+    }
+
     public final double getAlpha() {
     	return getThrough().getAlphaForPacket(this);
     }
@@ -91,6 +155,13 @@ public class SimPacket extends AComponent implements ISimPacketCon {
     	return getThrough().getDirectionForPacket(this);
     }
 
+    /**
+     * retrieve the number of this packet among all packets sent by its source
+     */
+    public final long getNumber() {
+    	return number;
+    }
+
     public final SimLink getThrough() {
     	return through;
     }
@@ -115,6 +186,14 @@ public class SimPacket extends AComponent implements ISimPacketCon {
     	return from.getUserLogic();
     }
 
+    public final SimNode getFromSim() {
+    	return from;
+    }
+
+    public final SimNode getToSim() {
+    	return to;
+    }
+
     public IUserNode getTo() {
     	return to.getUserLogic();
     }
@@ -127,7 +206,7 @@ public class SimPacket extends AComponent implements ISimPacketCon {
     
     private AVariable positionOverride() {
     	// ugly workaround
-    	if ( Simulator.getInstance().getPlayer().isPaused() ) {
+    	if ( getSimulator().getPlayer().isPaused() ) {
     		return super.getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION );
     	}
     	
@@ -153,42 +232,7 @@ public class SimPacket extends AComponent implements ISimPacketCon {
 			}
 			Point3d posFrom = (Point3d) nodeFrom.getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION ).getData();
 			Point3d posTo = (Point3d) nodeTo.getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION ).getData();
-			// calculate pos
-			Point3d pos = null;
-		//	long stepsOnLink = getThrough().getStepsOnLinkForPacket( this );
-			//Vector3d move = getThrough().getMove();
-			//Vector3d moveScaled = new Vector3d( move );
-			//moveScaled.scale( alpha );
-			Vector3d position = new Vector3d();
-			position.interpolate( posFrom, posTo, alpha );
-			
-			double alpham = 1 - alpha;
-			// height:
-			Vector3d up = new Vector3d( 0, 1, 0 );
-			Vector3d tmp = new Vector3d();
-			tmp.sub( posFrom, posTo );
-			double length = tmp.length();
-			tmp.interpolate( posFrom, posTo, 0.5 );
-			Point3d M = new Point3d( tmp );
-			tmp.scale( length / 2d, up );
-			M.add( tmp );
-			Point3d MxPosFrom = new Point3d();
-			Point3d MxPosTo = new Point3d();
-			MxPosFrom.interpolate( posFrom, M, alpha );
-			MxPosTo.interpolate( posTo, M, alpham );
-			position.interpolate( MxPosFrom, MxPosTo, alpha );
-			
-			
-	//		if ( direction > 0 ) {
-	//			position.negate();
-	//		}
-	//		Vector3d posv = new Vector3d( posFrom );
-	//		posv.add( moveScaled );
-			
-	//		Vector3d way = new Vector3d();
-	//		way.sub(posTo, posFrom);
-	//		way.scale(alpha);
-			pos = new Point3d( position );
+			Point3d pos = positionOnLink( posFrom, posTo, alpha );
 			
 			// set var or register var
 			if( hasVariable( AVariable.COMMON_IDENTIFIERS.POSITION ) ) {
@@ -200,6 +244,35 @@ public class SimPacket extends AComponent implements ISimPacketCon {
 		return super.getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION );
     }
     
+    /**
+     * calculates the position of a packet on the arc between two nodes
+     * @param posFrom the position of the sending node
+     * @param posTo the position of the receiving node
+     * @param alpha the part of the way already done within [0 .. 1]
+     * @return the position of the packet
+     */
+    public static Point3d positionOnLink( Tuple3d posFrom, Tuple3d posTo, double alpha ) {
+		Vector3d position = new Vector3d();
+		position.interpolate( posFrom, posTo, alpha );
+		
+		double alpham = 1 - alpha;
+		// height:
+		Vector3d up = new Vector3d( 0, 1, 0 );
+		Vector3d tmp = new Vector3d();
+		tmp.sub( posFrom, posTo );
+		double length = tmp.length();
+		tmp.interpolate( posFrom, posTo, 0.5 );
+		Point3d M = new Point3d( tmp );
+		tmp.scale( length / 2d, up );
+		M.add( tmp );
+		Point3d MxPosFrom = new Point3d();
+		Point3d MxPosTo = new Point3d();
+		MxPosFrom.interpolate( posFrom, M, alpha );
+		MxPosTo.interpolate( posTo, M, alpham );
+		position.interpolate( MxPosFrom, MxPosTo, alpha );
+		return new Point3d( position );
+    }
+    
     @Override
     public AVariable getVariableById(String id) throws ClassCastException {
     	if(id.equals(AVariable.COMMON_IDENTIFIERS.POSITION)) {
@@ -211,8 +284,10 @@ public class SimPacket extends AComponent implements ISimPacketCon {
     
     @Override
     public void kill() {
-    	getThrough().getVisObject().delPacket( this.visObject );
-    	logger.debug( "kill()" );
+    	if ( visObject != null ) {
+    		getThrough().getVisObject().delPacket( this.visObject );
+    	}
+    	log.debug( "kill()" );
     	super.kill();
     	//logger.info("");
     	// this will be done by super
@@ -221,17 +296,33 @@ public class SimPacket extends AComponent implements ISimPacketCon {
 //    	this.visObject = null;
     }
     
+    /**
+     * kills this packet without unregistering its vis object
+     * @return the vis object that still has to be unregistered or null
+     */
+    final IVisObject killQuietly() {
+    	IVisObject o = visObject;
+    	if ( o != null ) {
+    		getThrough().getVisObject().delPacket( o );
+    		visObject = null;
+    	}
+    	super.kill();
+    	return isVisualised() ? o : null;
+    }
+    
     @Override
     protected void killVisObject() {
-    	if ( visObject != null ) {
+    	if ( visObject != null && isVisualised() ) {
 	    	ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectUnregister,visObject );
 			Dispatcher.forwardEvent( nextEvent );
     	}
     }
 
 	public void createVisObject() {
-		visObject = new Packet(this, this.getThrough().getVisObject() );
-		ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectRegister, visObject );
-		Dispatcher.forwardEvent( nextEvent );
+		if ( isVisualised() ) {
+			visObject = new Packet(this, this.getThrough().getVisObject() );
+			ObjectEvent nextEvent = new ObjectEvent( IVidisEvent.ObjectRegister, visObject );
+			Dispatcher.forwardEvent( nextEvent );
+		}
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.sim;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import vidis.data.annotation.ComponentColor;
+import vidis.data.annotation.ComponentInfo;
+import vidis.data.annotation.Display;
+import vidis.data.annotation.DisplayColor;
+import vidis.data.var.vars.AVariable.COMMON_IDENTIFIERS;
+import vidis.data.var.vars.AVariable.COMMON_SCOPES;
+import vidis.sim.classloader.ClassCache;
+
+/**
+ * the annotated variables of a user class; the reflection over the
+ * class is done once, all components of the class share the result
+ * @author Dominik
+ *
+ */
+final class VariableDeclarations {
+	private static final ClassCache<VariableDeclarations> cache = new ClassCache<VariableDeclarations>();
+
+	/**
+	 * a single annotated class, method or field
+	 */
+	static final class Declaration {
+		final String id;
+		/**
+		 * true for the DisplayColor annotation
+		 */
+		final boolean color;
+		/**
+		 * the value of a class annotation, the method or the field
+		 */
+		final Object target;
+
+		Declaration(String id, boolean color, Object target) {
+			this.id = id;
+			this.color = color;
+			this.target = target;
+		}
+	}
+
+	private final List<Declaration> classValues = new ArrayList<Declaration>();
+	private final List<Declaration> methods = new ArrayList<Declaration>();
+	private final List<Declaration> fields = new ArrayList<Declaration>();
+
+	static VariableDeclarations forClass(Class<?> clazz) {
+		VariableDeclarations d = cache.get(clazz);
+		if (d == null) {
+			d = new VariableDeclarations(clazz);
+			cache.put(clazz, d);
+		}
+		return d;
+	}
+
+	private VariableDeclarations(Class<?> clazz) {
+		for (Annotation a : clazz.getAnnotations()) {
+			if (a.annotationType().equals(ComponentColor.class)) {
+				classValues.add(new Declaration(COMMON_IDENTIFIERS.COLOR, false, ((ComponentColor) a).color()));
+			} else if (a.annotationType().equals(ComponentInfo.class)) {
+				classValues.add(new Declaration(COMMON_SCOPES.USER + ".header1", false, ((ComponentInfo) a).name()));
+			}
+		}
+		for (Method m : clazz.getMethods()) {
+			for (Annotation a : m.getAnnotations()) {
+				if (a.annotationType().equals(Display.class)) {
+					methods.add(new Declaration(COMMON_SCOPES.USER + "." + ((Display) a).name(), false, m));
+				} else if (a.annotationType().equals(DisplayColor.class)) {
+					methods.add(new Declaration(COMMON_IDENTIFIERS.COLOR, true, m));
+				}
+			}
+		}
+		for (Field f : clazz.getDeclaredFields()) {
+			for (Annotation a : f.getAnnotations()) {
+				if (a.annotationType().equals(Display.class)) {
+					String ns = Modifier.isPublic(f.getModifiers()) ? COMMON_SCOPES.USER : COMMON_SCOPES.SYSTEM;
+					fields.add(new Declaration(ns + "." + ((Display) a).name(), false, f));
+				} else if (a.annotationType().equals(DisplayColor.class)) {
+					fields.add(new Declaration(COMMON_IDENTIFIERS.COLOR, true, f));
+				}
+			}
+		}
+	}
+
+	/**
+	 * the values of the ComponentColor and ComponentInfo annotations
+	 */
+	List<Declaration> getClassValues() {
+		return classValues;
+	}
+
+	List<Declaration> getMethods() {
+		return methods;
+	}
+
+	List<Declaration> getFields() {
+		return fields;
+	}
+}
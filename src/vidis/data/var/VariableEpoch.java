@@ -0,0 +1,33 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.var;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a counter that tells when cached variable values become stale.
+ * <p>
+ * every simulator has its own epoch; it advances after every step and
+ * whenever a user action or a setter may have changed the state of one
+ * of its components. values computed within the same epoch may be reused.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class VariableEpoch {
+	private final AtomicLong epoch = new AtomicLong();
+
+	public long current() {
+		return epoch.get();
+	}
+
+	/**
+	 * makes all cached values of the simulator stale
+	 */
+	public void advance() {
+		epoch.incrementAndGet();
+	}
+}
@@ -0,0 +1,99 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.var;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * the symbol table of all variable identifiers.
+ * <p>
+ * every identifier is interned to a small int once; components look
+ * their variables up by this int within their {@link VariableShape}.
+ * identifiers are never removed, there are only as many as the loaded
+ * classes declare.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class VariableIds {
+	private static final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * scope -&gt; identifier -&gt; id; saves building scope + "." + identifier
+	 */
+	private static final ConcurrentHashMap<String, Map<String, Integer>> scoped = new ConcurrentHashMap<String, Map<String, Integer>>();
+
+	private static volatile String[] names = new String[64];
+	private static int count = 0;
+
+	private VariableIds() {
+	}
+
+	/**
+	 * retrieve the id of an identifier, it is created on first use
+	 * @param identifier the full identifier, e.g. system.id
+	 * @return the id
+	 */
+	public static int intern(String identifier) {
+		Integer id = ids.get(identifier);
+		if (id == null) {
+			synchronized (VariableIds.class) {
+				id = ids.get(identifier);
+				if (id == null) {
+					String[] n = names;
+					if (count == n.length) {
+						String[] t = new String[n.length * 2];
+						System.arraycopy(n, 0, t, 0, count);
+						n = t;
+					}
+					n[count] = identifier;
+					names = n;
+					id = count++;
+					ids.put(identifier, id);
+				}
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * retrieve the id of an identifier without creating it
+	 * @param identifier the full identifier
+	 * @return the id or -1 if no variable ever had this identifier
+	 */
+	public static int lookup(String identifier) {
+		Integer id = ids.get(identifier);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * retrieve the id of scope + "." + identifier, it is created on first use
+	 */
+	public static int intern(String scope, String identifier) {
+		Map<String, Integer> m = scoped.get(scope);
+		if (m == null) {
+			m = new ConcurrentHashMap<String, Integer>();
+			Map<String, Integer> old = scoped.putIfAbsent(scope, m);
+			if (old != null) {
+				m = old;
+			}
+		}
+		Integer id = m.get(identifier);
+		if (id == null) {
+			id = intern(scope + "." + identifier);
+			m.put(identifier, id);
+		}
+		return id;
+	}
+
+	/**
+	 * retrieve the identifier of an id
+	 */
+	public static String getName(int id) {
+		return names[id];
+	}
+}
@@ -0,0 +1,122 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.var;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * the layout of the variables of a component: which variable id is
+ * stored in which slot of the flat variable array of the component.
+ * <p>
+ * shapes are immutable and shared. adding a variable moves a component
+ * to the next shape, and the transitions are cached, so all components of
+ * a user class that register their variables in the same order end up
+ * with the same shape. the id sets are computed once per shape.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class VariableShape {
+	public static final VariableShape EMPTY = new VariableShape(new int[0], new String[0]);
+
+	/**
+	 * slot of every id or -1
+	 */
+	private final int[] slots;
+	private final String[] names;
+
+	private final ConcurrentHashMap<Integer, VariableShape> transitions = new ConcurrentHashMap<Integer, VariableShape>();
+	private final Map<String, Set<String>> scoped = new ConcurrentHashMap<String, Set<String>>();
+	private volatile Set<String> ids;
+
+	private VariableShape(int[] slots, String[] names) {
+		this.slots = slots;
+		this.names = names;
+	}
+
+	/**
+	 * retrieve the slot of a variable id
+	 * @param id the interned id, see {@link VariableIds}
+	 * @return the slot or -1 if this shape has no such variable
+	 */
+	public int slotOf(int id) {
+		return id >= 0 && id < slots.length ? slots[id] : -1;
+	}
+
+	/**
+	 * retrieve the number of slots
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * retrieve the identifier stored in a slot
+	 */
+	public String getName(int slot) {
+		return names[slot];
+	}
+
+	/**
+	 * retrieve the shape with an additional variable in the next free slot
+	 * @param id an id this shape does not contain
+	 */
+	public VariableShape with(int id) {
+		VariableShape next = transitions.get(id);
+		if (next == null) {
+			int[] s = new int[Math.max(slots.length, id + 1)];
+			System.arraycopy(slots, 0, s, 0, slots.length);
+			Arrays.fill(s, slots.length, s.length, -1);
+			s[id] = names.length;
+			String[] n = new String[names.length + 1];
+			System.arraycopy(names, 0, n, 0, names.length);
+			n[names.length] = VariableIds.getName(id);
+			next = new VariableShape(s, n);
+			VariableShape old = transitions.putIfAbsent(id, next);
+			if (old != null) {
+				next = old;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * retrieve all identifiers in slot order
+	 * @return an unmodifiable set
+	 */
+	public Set<String> getIds() {
+		Set<String> s = ids;
+		if (s == null) {
+			s = Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(names)));
+			ids = s;
+		}
+		return s;
+	}
+
+	/**
+	 * retrieve all identifiers that start with a scope
+	 * @return an unmodifiable set
+	 */
+	public Set<String> getScopedIds(String scope) {
+		Set<String> s = scoped.get(scope);
+		if (s == null) {
+			Set<String> t = new LinkedHashSet<String>();
+			for (String name : names) {
+				if (name.startsWith(scope)) {
+					t.add(name);
+				}
+			}
+			s = Collections.unmodifiableSet(t);
+			scoped.put(scope, s);
+		}
+		return s;
+	}
+}
@@ -10,6 +10,7 @@ import java.util.List;
 
 import vidis.data.var.IVariable;
 import vidis.data.var.IVariableChangeListener;
+import vidis.data.var.VariableEpoch;
 
 public abstract class AVariable implements IVariable {
 	public static final class COMMON_SCOPES {
@@ -22,14 +23,21 @@ public abstract class AVariable implements IVariable {
 		public static final String POSITION = COMMON_SCOPES.SYSTEM + ".position";
 		public static final String PACKETSSENT = COMMON_SCOPES.SYSTEM + ".packetsSent";
 		public static final String PACKETSRECEIVED = COMMON_SCOPES.SYSTEM + ".packetsReceived";
+		public static final String PACKETSDROPPED = COMMON_SCOPES.SYSTEM + ".packetsDropped";
+		public static final String QUEUEHIGHWATER = COMMON_SCOPES.SYSTEM + ".queueHighWater";
 		public static final String NAME = COMMON_SCOPES.USER + ".name";
 		public static final String PACKETDIRECTION = COMMON_SCOPES.SYSTEM + ".packetDirection";
 	}
 	private String identifier;
 //	private DisplayType displayType = DisplayType.SHOW_SWING;
 	private List<IVariableChangeListener> variableChangeListeners;
+	/**
+	 * the epoch of the simulator the owner lives in or null
+	 */
+	private volatile VariableEpoch epoch;
 	private AVariable() {
-		this.variableChangeListeners = new ArrayList<IVariableChangeListener>();
+		// usually there is just the component as listener
+		this.variableChangeListeners = new ArrayList<IVariableChangeListener>(2);
 	}
 	public AVariable(String id) {
 		this();
@@ -68,6 +76,33 @@ public abstract class AVariable implements IVariable {
 	public List<IVariableChangeListener> getVariableChangeListeners() {
 		return variableChangeListeners;
 	}
+
+	/**
+	 * called by the component this variable is registered with
+	 * @param epoch the epoch of the simulator of the component
+	 */
+	public void setEpoch(VariableEpoch epoch) {
+		this.epoch = epoch;
+	}
+
+	/**
+	 * retrieve the epoch of the simulator the owner lives in
+	 * @return the epoch or null if the variable is not registered
+	 */
+	protected final VariableEpoch getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * to be called when the value has been set; cached values derived
+	 * from it become stale
+	 */
+	protected final void advanceEpoch() {
+		VariableEpoch e = epoch;
+		if (e != null) {
+			e.advance();
+		}
+	}
 	
 	/**
 	 * retrieves the variable class type of this variable.
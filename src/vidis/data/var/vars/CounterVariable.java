@@ -0,0 +1,54 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.data.var.vars;
+
+import vidis.data.sim.ComponentStatistics;
+
+/**
+ * a read only variable that shows one of the counters of a component;
+ * the value is read when asked for, counting never touches the variable
+ * 
+ * @author Dominik
+ *
+ */
+public class CounterVariable extends AVariable {
+	private ComponentStatistics statistics;
+	private int counter;
+
+	/**
+	 * @param id the id of this variable
+	 * @param statistics the counters of the component
+	 * @param counter the counter to show, e.g. {@link ComponentStatistics#SENT}
+	 */
+	public CounterVariable(String id, ComponentStatistics statistics, int counter) {
+		super(id);
+		this.statistics = statistics;
+		this.counter = counter;
+	}
+
+	public Object getData() {
+		return Long.valueOf(statistics.get(counter));
+	}
+
+	public Class<?> getDataType() {
+		return Long.class;
+	}
+
+	/**
+	 * counters are read only; does nothing
+	 */
+	public void update(Object data) {
+	}
+
+	@Override
+	public Class<? extends AVariable> getVariableType() {
+		return this.getClass();
+	}
+
+	public String toString() {
+		return "(" + Long.class.getName() + ")" + getIdentifier() + "=" + statistics.get(counter);
+	}
+}
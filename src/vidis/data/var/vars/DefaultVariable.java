@@ -5,9 +5,8 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.data.var.vars;
 
-import org.apache.log4j.Logger;
-
 import vidis.data.var.IVariableChangeListener;
+import vidis.util.log.LogChannel;
 
 /**
  * a default variable implementation
@@ -21,7 +20,7 @@ public class DefaultVariable extends AVariable {
 	 * the data of this variable
 	 */
 	private Object data;
-	private static Logger logger = Logger.getLogger(DefaultVariable.class);
+	private static final LogChannel log = LogChannel.get(DefaultVariable.class);
 
 	/**
 	 * the public constructor of this variable
@@ -85,11 +84,14 @@ public class DefaultVariable extends AVariable {
 	public void update(Object data) {
 		if (data != null && !data.equals(getData())) {
 			setData(data);
+			if (!COMMON_IDENTIFIERS.POSITION.equals(getIdentifier())) {
+				// the layout moves nodes all the time; no value derives from it
+				advanceEpoch();
+			}
 			// changed
 			synchronized (this.getVariableChangeListeners()) {
 				for (IVariableChangeListener l : this.getVariableChangeListeners()) {
-					logger .info(l.toString() + ".variableChanged(" +
-							getIdentifier() + ")");
+					log.debug("{}.variableChanged({})", l, getIdentifier());
 					l.variableChanged(getIdentifier());
 				}
 			}
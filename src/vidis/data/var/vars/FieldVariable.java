@@ -91,10 +91,12 @@ public class FieldVariable extends AVariable {
 	
 	public void update(Object data) {
 		this.object = data;
+		advanceEpoch();
 	}
 	
 	public void update(Object obj, Field field) {
 		this.object = obj;
 		this.field = field;
+		advanceEpoch();
 	}
 }
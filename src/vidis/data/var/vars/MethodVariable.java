@@ -10,10 +10,21 @@ import java.lang.reflect.Method;
 
 import org.apache.log4j.Logger;
 
+import vidis.data.annotation.NoCache;
+import vidis.data.var.IVariableChangeListener;
+import vidis.data.var.IVariableInvokeListener;
+import vidis.data.var.VariableEpoch;
+
 
 /**
  * a method variable; this variable uses reflection to retrieve the
  * value, just like its little brother FieldVariable does.
+ * <p>
+ * the value of a method without parameters is kept until the
+ * {@link VariableEpoch} of the simulator advances, so it is computed at
+ * most once per step or edit no matter how often it is read; see
+ * {@link NoCache}.
+ * </p>
  * 
  * @author Dominik
  *
@@ -28,8 +39,7 @@ public class MethodVariable extends AVariable {
 	 */
 	public MethodVariable(String id, Object object, Method method) {
 		super(id);
-		this.object = object;
-		this.method = method;
+		update(object, method);
 	}
 	
 //	/**
@@ -53,6 +63,22 @@ public class MethodVariable extends AVariable {
 
     private Object object;
     private Method method;
+    private boolean cacheable;
+
+    /**
+     * the value and the epoch it has been computed in
+     */
+    private static final class Cached {
+    	final long epoch;
+    	final Object value;
+
+    	Cached(long epoch, Object value) {
+    		this.epoch = epoch;
+    		this.value = value;
+    	}
+    }
+
+    private volatile Cached cached;
     
     public Class<?> getDataType() {
     	return method.getReturnType();
@@ -62,8 +88,20 @@ public class MethodVariable extends AVariable {
      * invokes the method
      */
     public Object getData() {
+    	VariableEpoch owner = getEpoch();
+    	// values of unregistered variables are not kept
+    	long epoch = owner == null ? -1 : owner.current();
+    	Cached c = cached;
+    	if (c != null && c.epoch == epoch && epoch >= 0) {
+    		return c.value;
+    	}
     	try {
-			return method.invoke(object);
+			Object result = method.invoke(object);
+			if (cacheable && epoch >= 0) {
+				cached = new Cached(epoch, result);
+			}
+			invoked();
+			return result;
 		} catch (IllegalArgumentException e) {
 			logger.error(e);
 		} catch (IllegalAccessException e) {
@@ -76,7 +114,9 @@ public class MethodVariable extends AVariable {
     
     public Object getData(Object... args) {
     	try {
-    		return method.invoke(object, args);
+    		Object result = method.invoke(object, args);
+    		invoked();
+    		return result;
 		} catch (IllegalArgumentException e) {
 			logger.error(e);
 		} catch (IllegalAccessException e) {
@@ -87,6 +127,21 @@ public class MethodVariable extends AVariable {
 		return null;
     }
 
+    /**
+     * informs the listeners after an action, that is a method without
+     * return value, has been invoked
+     */
+    private void invoked() {
+    	if (method.getReturnType() == Void.TYPE) {
+    		advanceEpoch();
+    		for (IVariableChangeListener l : getVariableChangeListeners()) {
+    			if (l instanceof IVariableInvokeListener) {
+    				((IVariableInvokeListener) l).variableInvoked(getIdentifier());
+    			}
+    		}
+    	}
+    }
+
     /**
      * this method retrieves if this method expects parameters
      * @return true or false
@@ -103,15 +158,27 @@ public class MethodVariable extends AVariable {
     	return method.getParameterTypes();
     }
 
+	/**
+	 * retrieve if the value may be kept for the current step, that is
+	 * the method returns something, takes no parameters and is not
+	 * annotated with {@link NoCache}
+	 */
+	public boolean isCacheable() {
+		return cacheable;
+	}
+
 	public Class<? extends AVariable> getVariableType() {
 		return this.getClass();
 	}
 
 	public void update(Object data) {
 		this.object = data;
+		this.cached = null;
 	}
 	public void update(Object obj, Method m) {
 		this.method = m;
 		this.object = obj;
+		this.cacheable = m.getReturnType() != Void.TYPE && m.getParameterTypes().length == 0 && !m.isAnnotationPresent(NoCache.class);
+		this.cached = null;
 	}
 }
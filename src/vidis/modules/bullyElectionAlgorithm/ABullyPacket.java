@@ -8,6 +8,8 @@ package vidis.modules.bullyElectionAlgorithm;
 import vidis.data.AUserPacket;
 
 public abstract class ABullyPacket extends AUserPacket {
+	private static final long serialVersionUID = -3756189752854758227L;
+
 	protected int hopsLeft;
 	public ABullyPacket() {
 		setHops(getMaxHops());
@@ -0,0 +1,266 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.modules.bullyElectionAlgorithm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import vidis.data.ABlockingNode;
+import vidis.data.annotation.ColorType;
+import vidis.data.annotation.Display;
+import vidis.data.annotation.DisplayColor;
+import vidis.data.mod.IUserLink;
+import vidis.data.mod.IUserPacket;
+
+/**
+ * the bully election written as one blocking routine, see
+ * {@link ABlockingNode}; it uses the packets of
+ * {@link BullyElectionAlgorithmNode}.
+ * <p>
+ * a node starts after a few steps and stands as candidate. during an
+ * election it only takes election packets; pings and pongs stay in the
+ * mailbox until the election is settled. afterwards it relays the
+ * packets of the others and pings its bully from time to time. if no
+ * pong comes back in time it floods a restart and stands again. a node
+ * relays a ping or pong wave only once, so the floods stay small on
+ * meshed topologies too.
+ * </p>
+ * <p>
+ * every link gets a packet of its own, as the routine asks a packet for
+ * the link it came through after receive() has returned.
+ * </p>
+ * <p>
+ * e.g. <code>TopologyGenerator ring:30 -package
+ * vidis.modules.bullyElectionAlgorithm -node BlockingBullyNode -link
+ * DefaultLink -steps 1000</code>
+ * </p>
+ * @author Dominik
+ *
+ */
+public class BlockingBullyNode extends ABlockingNode {
+	/**
+	 * the steps the nodes start apart at most
+	 */
+	private static final int START_SPREAD = 20;
+	/**
+	 * the steps without a new candidate that settle an election
+	 */
+	private static final int ELECTION_STEPS = 20;
+	/**
+	 * the steps between two pings of the bully
+	 */
+	private static final int CHECK_STEPS = 200;
+	/**
+	 * the steps to wait for the pong of the bully; longer than an
+	 * election, as a node in an election answers after it
+	 */
+	private static final int PONG_STEPS = 150;
+	/**
+	 * the steps between a restart and the new candidacy
+	 */
+	private static final int RESTART_STEPS = 10;
+
+	private String bully = null;
+	private boolean electing;
+	private boolean checking;
+	/**
+	 * the step every ping and pong wave was relayed in
+	 */
+	private Map<String, Long> relayed = new HashMap<String, Long>();
+
+	@Display(name="bully")
+	public String getBully() {
+		return bully;
+	}
+
+	@Display(name="gotBully")
+	public boolean gotBully() {
+		return bully != null;
+	}
+
+	public boolean amIBully() {
+		return getId().equals(bully);
+	}
+
+	@Override
+	protected void run() {
+		sleepSteps(1 + getRandom().nextInt(START_SPREAD));
+		while (true) {
+			elect();
+			watch();
+			// the bully did not answer
+			bully = null;
+			flood(new ElectionRestartPacket(getId()), null, 0);
+			sleepSteps(RESTART_STEPS);
+		}
+	}
+
+	/**
+	 * stands as candidate until no bigger one shows up for a while
+	 */
+	private void elect() {
+		electing = true;
+		bully = getId();
+		flood(new ElectionPacket(bully), null, 0);
+		IUserPacket packet;
+		while ((packet = awaitPacket(ofType(ElectionPacket.class), ELECTION_STEPS)) != null) {
+			elected((ElectionPacket) packet);
+		}
+		// the restarts that led to this election are over
+		while (awaitPacket(ofType(ElectionRestartPacket.class), 0) != null) {
+			// drop it
+		}
+		electing = false;
+	}
+
+	/**
+	 * relays the packets of the others and pings the bully; returns
+	 * once the bully did not answer in time
+	 */
+	private void watch() {
+		long check = getNow() + CHECK_STEPS;
+		while (true) {
+			IUserPacket packet = awaitPacket(null, Math.max(0, check - getNow()));
+			if (packet == null) {
+				if (checking) {
+					checking = false;
+					return;
+				}
+				if (gotBully() && !amIBully()) {
+					checking = true;
+					flood(new PingPacket(bully, getId()), null, 0);
+					check = getNow() + PONG_STEPS;
+				} else {
+					check = getNow() + CHECK_STEPS;
+				}
+			} else if (packet instanceof ElectionRestartPacket) {
+				if (gotBully()) {
+					flood((ABullyPacket) packet, packet.getLinkToSource(), ((ABullyPacket) packet).getHops());
+				}
+				// the restarting node stands again, wait for its election
+				bully = null;
+				checking = false;
+				check = getNow() + CHECK_STEPS;
+			} else if (packet instanceof ElectionPacket) {
+				elected((ElectionPacket) packet);
+			} else if (packet instanceof PingPacket) {
+				pinged((PingPacket) packet);
+			} else if (packet instanceof PongPacket) {
+				PongPacket pong = (PongPacket) packet;
+				if (!pong.getSenderId().equals(getId())) {
+					if (fresh("pong", pong.getSenderId())) {
+						flood(pong, pong.getLinkToSource(), pong.getHops());
+					}
+				} else if (checking) {
+					checking = false;
+					check = getNow() + CHECK_STEPS;
+				}
+			}
+		}
+	}
+
+	private void elected(ElectionPacket p) {
+		if (p.getBullyId().equals(bully)) {
+			// nothing new
+		} else if (gotBully() && bully.compareTo(p.getBullyId()) > 0) {
+			// ours is bigger, tell the sender
+			hop(new ElectionPacket(bully), p.getLinkToSource(), 0);
+		} else if (!gotBully() && getId().compareTo(p.getBullyId()) > 0) {
+			// I am bigger than the candidate, tell everyone
+			bully = getId();
+			flood(new ElectionPacket(bully), null, 0);
+		} else {
+			bully = p.getBullyId();
+			flood(p, p.getLinkToSource(), p.getHops());
+		}
+	}
+
+	private void pinged(PingPacket p) {
+		if (!p.getBullyId().equals(bully)) {
+			// we disagree, the pinging node restarts the election
+			return;
+		}
+		if (amIBully()) {
+			hop(new PongPacket(bully, p.getSenderId()), p.getLinkToSource(), 0);
+		} else if (!p.getSenderId().equals(getId()) && fresh("ping", p.getSenderId())) {
+			flood(p, p.getLinkToSource(), p.getHops());
+		}
+	}
+
+	/**
+	 * retrieve if a wave of a node has not been relayed yet; a node
+	 * starts one wave per check at most and a wave is over once the
+	 * pong is due
+	 */
+	private boolean fresh(String kind, String sender) {
+		String key = kind + ":" + sender;
+		Long last = relayed.get(key);
+		if (last != null && getNow() - last < PONG_STEPS) {
+			return false;
+		}
+		relayed.put(key, getNow());
+		return true;
+	}
+
+	/**
+	 * sends a copy of a packet over all links but one
+	 * @param hops the hops left to the packet that led to it, 0 for a
+	 *            new packet
+	 */
+	private void flood(ABullyPacket p, IUserLink except, int hops) {
+		for (IUserLink l : getConnectedLinks()) {
+			if (!l.equals(except)) {
+				hop(copy(p), l, hops);
+			}
+		}
+	}
+
+	/**
+	 * sends a packet over a link if it has hops left
+	 * @param hops the hops left to the packet that led to it, 0 for a
+	 *            new packet
+	 */
+	private void hop(ABullyPacket p, IUserLink l, int hops) {
+		p.setHops(hops == 0 ? p.getMaxHops() : hops - 1);
+		if (p.getHops() > 0) {
+			send(p, l, getRandom().nextInt(2));
+		}
+	}
+
+	private static ABullyPacket copy(ABullyPacket p) {
+		if (p instanceof ElectionPacket) {
+			return new ElectionPacket(((ElectionPacket) p).getBullyId());
+		} else if (p instanceof ElectionRestartPacket) {
+			return new ElectionRestartPacket(((ElectionRestartPacket) p).getBullyId());
+		} else if (p instanceof PingPacket) {
+			return new PingPacket(((PingPacket) p).getBullyId(), ((PingPacket) p).getSenderId());
+		} else {
+			return new PongPacket(((PongPacket) p).getBullyId(), ((PongPacket) p).getSenderId());
+		}
+	}
+
+	@DisplayColor
+	public ColorType getNodeColor() {
+		if (electing)
+			return ColorType.ORANGE;
+		else if (checking)
+			return ColorType.ORANGE_LIGHT;
+		else if (amIBully())
+			return ColorType.GREEN;
+		else
+			return ColorType.GREY;
+	}
+
+	@Display(name="header1")
+	public String getHeader1() {
+		return getId();
+	}
+
+	@Display(name="header2")
+	public String getHeader2() {
+		return gotBully() ? (amIBully() ? "Bully=ME!" : "Bully=" + bully) : "Bully=???";
+	}
+}
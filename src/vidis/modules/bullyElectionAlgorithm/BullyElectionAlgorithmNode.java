@@ -103,7 +103,7 @@ public class BullyElectionAlgorithmNode extends AUserNode {
     }
     
     private void sendMy(ABullyPacket p, IUserLink l, Integer hops) {
-    	long wait = (int)(Math.random()*2 + 0);
+    	long wait = getRandom().nextInt(2);
     	if(enabled == false) {
     		return;
     	}
@@ -12,6 +12,7 @@ import vidis.data.annotation.DisplayColor;
 
 @ComponentColor(color=ColorType.GREEN)
 public class ElectionPacket extends ABullyPacket {
+	private static final long serialVersionUID = 7105762895447311728L;
 
     private String id;
 
@@ -35,4 +36,4 @@ public class ElectionPacket extends ABullyPacket {
 	public int getMaxHops() {
 		return 15;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
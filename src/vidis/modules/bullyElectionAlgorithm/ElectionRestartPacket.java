@@ -12,6 +12,7 @@ import vidis.data.annotation.DisplayColor;
 
 @ComponentColor(color=ColorType.RED)
 public class ElectionRestartPacket extends ABullyPacket {
+	private static final long serialVersionUID = -5212881139512965730L;
 
     private String id;
     
@@ -35,4 +36,4 @@ public class ElectionRestartPacket extends ABullyPacket {
 	public int getMaxHops() {
 		return 15;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,6 +12,7 @@ import vidis.data.annotation.DisplayColor;
 
 @ComponentColor(color=ColorType.BLUE)
 public class PingPacket extends ABullyPacket {
+	private static final long serialVersionUID = -6622605673574297698L;
 
     private String id;
     private String senderId;
@@ -41,4 +42,4 @@ public class PingPacket extends ABullyPacket {
 	public int getMaxHops() {
 		return 15;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
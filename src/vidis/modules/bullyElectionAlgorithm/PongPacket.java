@@ -12,6 +12,7 @@ import vidis.data.annotation.DisplayColor;
 
 @ComponentColor(color=ColorType.CYAN)
 public class PongPacket extends ABullyPacket {
+	private static final long serialVersionUID = 3420800710332696392L;
 
     private String id;
     private String senderId;
@@ -36,4 +37,4 @@ public class PongPacket extends ABullyPacket {
     public String toString() {
     	return "Pong{"+getBullyId()+","+getSenderId()+","+getHops()+"/"+getMaxHops()+"}";
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -17,10 +17,12 @@ import vidis.data.AUserNode;
 import vidis.data.annotation.ColorType;
 import vidis.data.annotation.Display;
 import vidis.data.annotation.DisplayColor;
+import vidis.data.annotation.Passive;
 import vidis.data.mod.IUserLink;
 import vidis.data.mod.IUserPacket;
 import vidis.modules.byzantineGenerals.APacket.PacketType;
 
+@Passive
 public abstract class ANode extends AUserNode {
 	protected enum NodeType {
 		GOOD(ColorType.GREEN),
@@ -64,24 +66,29 @@ public abstract class ANode extends AUserNode {
 		send(p, l);
 	}
 	
+	/**
+	 * sends one packet to all neighbours
+	 */
+	protected void myBroadcast(APacket p) {
+		if(!alreadySeen(p.getId()))
+			alreadySeen.put(p.getId(), new HashSet<APacket>());
+		broadcast(p);
+	}
+	
 	protected void sendAttackPacket(APacket sourcePacket) {
-		int id = (int)(Math.random() * (double)Integer.MAX_VALUE);
-		for(IUserLink l : getConnectedLinks()) {
-			if(sourcePacket != null) {
-				mySend(new AttackPacket(sourcePacket.getId()), l);
-			} else {
-				mySend(new AttackPacket(id), l);
-			}
+		int id = getRandom().nextInt(Integer.MAX_VALUE);
+		if(sourcePacket != null) {
+			myBroadcast(new AttackPacket(sourcePacket.getId()));
+		} else {
+			myBroadcast(new AttackPacket(id));
 		}
 	}
 	protected void sendRetreatPacket(APacket sourcePacket) {
-		int id = (int)(Math.random() * (double)Integer.MAX_VALUE);
-		for(IUserLink l : getConnectedLinks()) {
-			if(sourcePacket != null) {
-				mySend(new RetreatPacket(sourcePacket.getId()), l);
-			} else {
-				mySend(new RetreatPacket(id), l);
-			}
+		int id = getRandom().nextInt(Integer.MAX_VALUE);
+		if(sourcePacket != null) {
+			myBroadcast(new RetreatPacket(sourcePacket.getId()));
+		} else {
+			myBroadcast(new RetreatPacket(id));
 		}
 	}
 	
@@ -232,7 +239,7 @@ public abstract class ANode extends AUserNode {
 					break;
 				case DONTKNOW:
 					// propagate random (good/bad) message
-					if(Math.random() < 0.5) {
+					if(getRandom().nextBoolean()) {
 						sendRetreatPacket(p);
 					} else {
 						sendAttackPacket(p);
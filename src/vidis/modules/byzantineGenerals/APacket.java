@@ -10,6 +10,8 @@ import vidis.data.annotation.ColorType;
 import vidis.data.annotation.DisplayColor;
 
 public abstract class APacket extends AUserPacket {
+	private static final long serialVersionUID = -5078845466171974501L;
+
 	private int id;
 	
 	public APacket(int id) {
@@ -7,6 +7,8 @@ package vidis.modules.byzantineGenerals;
 
 
 public class AttackPacket extends APacket {
+	private static final long serialVersionUID = 3408357674818582264L;
+
 	public AttackPacket(int id) {
 		super(id);
 	}
@@ -7,6 +7,8 @@ package vidis.modules.byzantineGenerals;
 
 
 public class RetreatPacket extends APacket {
+	private static final long serialVersionUID = -5312867305188202189L;
+
 	public RetreatPacket(int id) {
 		super(id);
 	}
@@ -7,8 +7,10 @@ package vidis.modules.echoAlgorithm;
 
 import vidis.data.AUserLink;
 import vidis.data.annotation.ComponentInfo;
+import vidis.data.annotation.Passive;
 
 @ComponentInfo(name = "Default Link")
+@Passive
 public class DefaultLink extends AUserLink {
 
 	public void execute() {
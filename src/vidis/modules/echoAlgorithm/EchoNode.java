@@ -5,6 +5,8 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.modules.echoAlgorithm;
 
+import java.util.List;
+
 import org.apache.log4j.Logger;
 
 import vidis.data.AUserNode;
@@ -12,6 +14,7 @@ import vidis.data.annotation.ColorType;
 import vidis.data.annotation.ComponentColor;
 import vidis.data.annotation.Display;
 import vidis.data.annotation.DisplayColor;
+import vidis.data.annotation.Passive;
 import vidis.data.mod.IUserLink;
 import vidis.data.mod.IUserNode;
 import vidis.data.mod.IUserPacket;
@@ -23,6 +26,7 @@ import vidis.data.mod.IUserPacket;
  *
  */
 @ComponentColor(color=ColorType.BLACK)
+@Passive
 public class EchoNode extends AUserNode {
 	private static Logger logger = Logger.getLogger(EchoNode.class);
 	
@@ -57,22 +61,27 @@ public class EchoNode extends AUserNode {
 	 */
 	public void init() {
 		if ( thisOneSends() ) {
-			for ( IUserLink l : getConnectedLinks() ) {
-				send( new ExplorePacket(), l);
-			}
+			broadcast( new ExplorePacket() );
 			state = State.RED;
 		}
 	}
 
+	/**
+	 * the initiator gets an echo or explore from every neighbour at
+	 * about the same time; take them all at the end of the step
+	 */
+	@Override
+	public void receiveBatch(List<IUserPacket> packets) {
+		for ( IUserPacket packet : packets ) {
+			receive( packet );
+		}
+	}
+
 	public void receive(IUserPacket packet) {
 		if ( packet instanceof ExplorePacket ) {
 			if ( state == State.WHITE ) {
 				state = State.RED;
-				for ( IUserLink l : getConnectedLinks() ) {
-					if ( ! l.equals(packet.getLinkToSource()) ) {
-						send( new ExplorePacket(), l);
-					}
-				}
+				broadcastExcept( new ExplorePacket(), packet.getLinkToSource() );
 				firstNeighbour = packet.getSource();
 			}
 			counter++;
@@ -8,4 +8,6 @@ package vidis.modules.echoAlgorithm;
 import vidis.data.AUserPacket;
 
 public class EchoPacket extends AUserPacket {
+	private static final long serialVersionUID = 7194123020404855074L;
+
 }
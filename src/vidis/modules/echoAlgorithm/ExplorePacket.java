@@ -8,4 +8,6 @@ package vidis.modules.echoAlgorithm;
 import vidis.data.AUserPacket;
 
 public class ExplorePacket extends AUserPacket {
+	private static final long serialVersionUID = -8221671810827495183L;
+
 }
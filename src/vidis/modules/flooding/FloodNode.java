@@ -8,10 +8,12 @@ package vidis.modules.flooding;
 import vidis.data.AUserNode;
 import vidis.data.annotation.ComponentInfo;
 import vidis.data.annotation.Display;
+import vidis.data.annotation.Passive;
 import vidis.data.mod.IUserLink;
 import vidis.data.mod.IUserPacket;
 
 @ComponentInfo(name = "FloodNode")
+@Passive
 public class FloodNode extends AUserNode {
 	
 	@Display(name = "flood sent")
@@ -20,7 +22,7 @@ public class FloodNode extends AUserNode {
 	public void execute() {
 		if (!floodSent) {
 			for (IUserLink link : this.getConnectedLinks()) {
-				send(new FloodPacket(this, 0), link, 1 + (long) (Math.random() * 2));
+				send(new FloodPacket(this, 0), link, 1 + getRandom().nextInt(2));
 			}
 			floodSent = true;
 		} else {
@@ -44,7 +46,7 @@ public class FloodNode extends AUserNode {
 				if (!packet.getLinkToSource().equals(link)) {
 					// Logger.output(LogLevel.DEBUG, this, "rcv('" + packet.getCreator() +
 					// "') => flood '" + link.getOtherNode(this) + "'!");
-					send(new FloodPacket(packet), link, 1 + (long) (Math.random() * 2));
+					send(new FloodPacket(packet), link, 1 + getRandom().nextInt(2));
 				} else {
 					// Logger.output(LogLevel.DEBUG, this, "rcv('" + packet.getCreator() +
 					// "') => no flood '" + link.getOtherNode(this) + "'!");
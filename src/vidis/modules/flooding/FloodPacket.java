@@ -12,6 +12,8 @@ import vidis.data.annotation.Display;
 
 @ComponentColor(color = ColorType.GREY_LIGHT)
 public class FloodPacket extends AUserPacket {
+	private static final long serialVersionUID = 4234345716101837956L;
+
 	@Display(name = "sent by")
 	public FloodNode whoSentThis;
 	@Display(name = "hop count")
@@ -38,4 +40,4 @@ public class FloodPacket extends AUserPacket {
 	public FloodNode getCreator() {
 		return this.whoSentThis;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
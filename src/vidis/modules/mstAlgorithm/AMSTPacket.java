@@ -14,8 +14,11 @@ import vidis.data.AUserPacket;
 import vidis.data.annotation.ColorType;
 import vidis.data.annotation.Display;
 import vidis.data.annotation.DisplayColor;
+import vidis.util.SplitMix;
 
 public abstract class AMSTPacket extends AUserPacket {
+	private static final long serialVersionUID = 3471915759596823104L;
+
 	protected enum Type {
 		EXPLORE(ColorType.CYAN),
 		ECHO(ColorType.BLUE),
@@ -65,12 +68,9 @@ public abstract class AMSTPacket extends AUserPacket {
 	
 	// ------------ random id generator ------------ //
 	private static Set<Integer> randomIds = new HashSet<Integer>();
-	private static int someRandomId() {
-		return (int) (Math.random()*Integer.MAX_VALUE);
-	}
-	public static int generateRandomId() {
+	public static int generateRandomId(SplitMix random) {
 		int id;
-		while((randomIds.contains(id = someRandomId())));
+		while((randomIds.contains(id = random.nextInt(Integer.MAX_VALUE))));
 		logger.info("generated id: " + id);
 		return id;
 	}
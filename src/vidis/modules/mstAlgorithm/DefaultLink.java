@@ -9,6 +9,7 @@ import vidis.data.AUserLink;
 import vidis.data.annotation.ColorType;
 import vidis.data.annotation.ComponentInfo;
 import vidis.data.annotation.DisplayColor;
+import vidis.data.annotation.Passive;
 import vidis.data.mod.IUserPacket;
 
 /**
@@ -18,6 +19,7 @@ import vidis.data.mod.IUserPacket;
  *
  */
 @ComponentInfo(name = "Default Link")
+@Passive
 public class DefaultLink extends AUserLink {
 	private ColorType c = ColorType.BLACK;
 	
@@ -8,6 +8,8 @@ package vidis.modules.mstAlgorithm;
 import java.util.Map;
 
 public class EchoPacket extends AMSTPacket {
+	private static final long serialVersionUID = -1099993265341953814L;
+
 	private Map<String, Long> distances;
 	public EchoPacket(int id, String senderId, Map<String, Long> distances) {
 		super(Type.ECHO, id, senderId);
@@ -7,6 +7,8 @@ package vidis.modules.mstAlgorithm;
 
 
 public class ExplorePacket extends AMSTPacket {
+	private static final long serialVersionUID = -7188938613700018360L;
+
 	public ExplorePacket(int id, String senderId) {
 		super(Type.EXPLORE, id, senderId);
 	}
@@ -17,6 +17,7 @@ import vidis.data.AUserNode;
 import vidis.data.annotation.ColorType;
 import vidis.data.annotation.Display;
 import vidis.data.annotation.DisplayColor;
+import vidis.data.annotation.Passive;
 import vidis.data.mod.IUserLink;
 import vidis.data.mod.IUserPacket;
 
@@ -27,6 +28,7 @@ import vidis.data.mod.IUserPacket;
  * @author Dominik
  *
  */
+@Passive
 public class MSTNode extends AUserNode {
 	private static Logger logger = Logger.getLogger(MSTNode.class);
 	
@@ -183,11 +185,9 @@ public class MSTNode extends AUserNode {
 	@Display(name="Reset link colors")
 	public void resetLinkColors() {
 		int id = getNewPacketId();
-		for(IUserLink l : getConnectedLinks()) {
-			send(new AMSTPacket(AMSTPacket.Type.RESETCOLOR, id, getId()) {
-				
-			}, l);
-		}
+		broadcast(new AMSTPacket(AMSTPacket.Type.RESETCOLOR, id, getId()) {
+			
+		});
 		resetPacketsSeen.add(id);
 	}
 	
@@ -204,7 +204,7 @@ public class MSTNode extends AUserNode {
 	}
 	
 	protected int getNewPacketId() {
-		return AMSTPacket.generateRandomId();
+		return AMSTPacket.generateRandomId(getRandom());
 	}
 	
 	public String getId() {
@@ -286,11 +286,7 @@ public class MSTNode extends AUserNode {
 		// real algorithm
 		if ( currentState.get(p.getQueryierId()) == State.WHITE ) {
 			currentState.put(p.getQueryierId(), State.RED);
-			for ( IUserLink l : getConnectedLinks() ) {
-				if ( ! l.equals(p.getLinkToSource()) ) {
-					sendExplore(p, l);
-				}
-			}
+			broadcastExcept(new ExplorePacket(p), p.getLinkToSource());
 			// set first neighbour
 			currentParent.put( p.getQueryierId(), p.getSourceId());
 		}
@@ -414,13 +410,9 @@ public class MSTNode extends AUserNode {
 			case RESETCOLOR:
 				// forward if not seen yet
 				if(!resetPacketsSeen.contains(p.getId())) {
-					for(IUserLink l : getConnectedLinks()) {
-						// all but sender
-						if(!l.equals(p.getLinkToSource())) {
-							send(new AMSTPacket(p.getType(), p.getId(), p.getQueryierId()) {
-							},l);
-						}
-					}
+					// all but sender
+					broadcastExcept(new AMSTPacket(p.getType(), p.getId(), p.getQueryierId()) {
+					}, p.getLinkToSource());
 					resetPacketsSeen.add(p.getId());
 				} else {
 					// do not forward
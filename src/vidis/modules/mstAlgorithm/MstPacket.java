@@ -7,6 +7,8 @@ package vidis.modules.mstAlgorithm;
 
 
 public class MstPacket extends AMSTPacket {
+	private static final long serialVersionUID = 7974897684291530493L;
+
 	private String targetId;
 	public MstPacket(int id, String senderId, String targetId) {
 		super(Type.MSTPACKET, id, senderId);
@@ -7,6 +7,8 @@ package vidis.modules.mstAlgorithm;
 
 
 public class PingPacket extends AMSTPacket {
+	private static final long serialVersionUID = 4384341392815711539L;
+
 	private String targetId;
 	public PingPacket(int id, String senderId, String targetId) {
 		super(Type.PING, id, senderId);
@@ -7,6 +7,8 @@ package vidis.modules.mstAlgorithm;
 
 
 public class PongPacket extends AMSTPacket {
+	private static final long serialVersionUID = -6701606998291133038L;
+
 	private String targetId;
 	public PongPacket(int id, String senderId, String targetId) {
 		super(Type.PONG, id, senderId);
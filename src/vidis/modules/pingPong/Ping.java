@@ -8,4 +8,6 @@ import vidis.data.annotation.ComponentInfo;
 @ComponentInfo(name="Ping")
 @ComponentColor(color=ColorType.GREEN)
 public class Ping extends AUserPacket {
+	private static final long serialVersionUID = -8477721560206697527L;
+
 }
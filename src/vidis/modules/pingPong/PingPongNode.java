@@ -2,9 +2,10 @@ package vidis.modules.pingPong;
 
 import vidis.data.AUserNode;
 import vidis.data.annotation.Display;
-import vidis.data.mod.IUserLink;
+import vidis.data.annotation.Passive;
 import vidis.data.mod.IUserPacket;
 
+@Passive
 public class PingPongNode extends AUserNode {
 	@Override
 	public void init() {
@@ -13,8 +14,7 @@ public class PingPongNode extends AUserNode {
 	
 	@Display(name="Ping!")
 	public void ping() {
-		for(IUserLink l : getConnectedLinks())
-			send(new Ping(), l);
+		broadcast(new Ping());
 	}
 	
 	public void receive(IUserPacket packet) {
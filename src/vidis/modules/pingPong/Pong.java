@@ -8,4 +8,6 @@ import vidis.data.annotation.ComponentInfo;
 @ComponentInfo(name="Pong")
 @ComponentColor(color=ColorType.YELLOW)
 public class Pong extends AUserPacket {
+	private static final long serialVersionUID = 7557588083275872876L;
+
 }
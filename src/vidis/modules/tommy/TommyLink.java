@@ -3,7 +3,9 @@ package vidis.modules.tommy;
 import org.apache.log4j.Logger;
 
 import vidis.data.AUserLink;
+import vidis.data.annotation.Passive;
 
+@Passive
 public class TommyLink extends AUserLink {
 	private static Logger logger = Logger.getLogger(TommyLink.class);
 
@@ -6,9 +6,11 @@ import org.apache.log4j.Logger;
 
 import vidis.data.AUserNode;
 import vidis.data.annotation.Display;
+import vidis.data.annotation.Passive;
 import vidis.data.mod.IUserLink;
 import vidis.data.mod.IUserPacket;
 
+@Passive
 public class TommyNode extends AUserNode {
 	private static Logger logger = Logger.getLogger(TommyNode.class);
 	
@@ -7,6 +7,8 @@ import vidis.data.annotation.ColorType;
 import vidis.data.annotation.DisplayColor;
 
 public class TommyPacketResponse extends AUserPacket {
+	private static final long serialVersionUID = 1539844012824505719L;
+
 	private static Logger logger = Logger.getLogger(TommyPacketResponse.class);
 	
 	private int range;
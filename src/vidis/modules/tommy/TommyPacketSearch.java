@@ -7,6 +7,8 @@ import vidis.data.annotation.ColorType;
 import vidis.data.annotation.DisplayColor;
 
 public class TommyPacketSearch extends AUserPacket {
+	private static final long serialVersionUID = 504290609719153810L;
+
 	private static Logger logger = Logger.getLogger(TommyPacketSearch.class);
 
 	private float pseudoHash;
@@ -98,7 +98,7 @@ public class VarTestNode extends AUserNode {
     	// TODO Auto-generated method stub
     	list = new LinkedList<Integer>();
     	for (int i = 0; i < 6; i++) {
-    	    list.add((int) (100 * Math.random()));
+    	    list.add(getRandom().nextInt(100));
     	}
     }
 
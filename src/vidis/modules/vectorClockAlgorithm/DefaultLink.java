@@ -7,6 +7,7 @@ package vidis.modules.vectorClockAlgorithm;
 
 import vidis.data.AUserLink;
 import vidis.data.annotation.ComponentInfo;
+import vidis.data.annotation.Passive;
 
 /**
  * a common default link that does nothing
@@ -14,6 +15,7 @@ import vidis.data.annotation.ComponentInfo;
  *
  */
 @ComponentInfo(name = "Default Link")
+@Passive
 public class DefaultLink extends AUserLink {
 
 	public void execute() {
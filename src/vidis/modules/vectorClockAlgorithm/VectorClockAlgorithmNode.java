@@ -16,7 +16,7 @@ import vidis.data.mod.IUserPacket;
  *
  */
 public class VectorClockAlgorithmNode extends AUserNode {
-    private VectorTime localTimeVector = new VectorTime(this, 0);
+    private VectorTime localTimeVector = new VectorTime();
     
     @Display(name="Automatische Events")
 	public boolean autoEvents = false;
@@ -48,8 +48,10 @@ public class VectorClockAlgorithmNode extends AUserNode {
     
     private void macheEventAktion() {
     	increaseLocalTime();
+    	// all packets of this event share the same time
+    	VectorTime.Snapshot time = getTimeVector().snapshot();
 	    for (IUserLink link : this.getConnectedLinks()) {
-	    	send(link, new VectorClockAlgorithmPacket(getTimeVector()));
+	    	send(link, new VectorClockAlgorithmPacket(time));
 	    }
     }
     
@@ -58,17 +60,17 @@ public class VectorClockAlgorithmNode extends AUserNode {
     }
     
     public int getLocalTime() {
-    	return localTimeVector.getNodeTime(this);
+    	return localTimeVector.getNodeTime(getIndex());
     }
     
     public void execute() {
-    	if(autoEvents && Math.random() < 0.03) {
+    	if(autoEvents && getRandom().nextDouble() < 0.03) {
     		macheEventAktion();
     	}
     }
 
     private void increaseLocalTime() {
-    	getTimeVector().update(this, getLocalTime()+1);
+    	getTimeVector().increase(getIndex());
 	}
 
 	/**
@@ -77,12 +79,12 @@ public class VectorClockAlgorithmNode extends AUserNode {
      * @param packet the packet to send
      */
     private void send(IUserLink link, VectorClockAlgorithmPacket packet) {
-    	send(packet, link, 1 + (long) (Math.random() * 2));
+    	send(packet, link, 1 + getRandom().nextInt(2));
     }
 
     private void receive(VectorClockAlgorithmPacket packet) {
     	increaseLocalTime();
-		VectorTime remoteTimeVector = packet.getTime();
+		VectorTime.Snapshot remoteTimeVector = packet.getTime();
 		// update my time despite on the time we receive
 		getTimeVector().update(remoteTimeVector);
     }
@@ -17,11 +17,13 @@ import vidis.data.annotation.Display;
  */
 @ComponentColor(color = ColorType.GREY_LIGHT)
 public class VectorClockAlgorithmPacket extends AUserPacket {
-    private VectorTime time = new VectorTime();
-    public VectorClockAlgorithmPacket(VectorTime time) {
-    	this.time.update(time);
+	private static final long serialVersionUID = 870412348768205085L;
+
+    private final VectorTime.Snapshot time;
+    public VectorClockAlgorithmPacket(VectorTime.Snapshot time) {
+    	this.time = time;
     }
-    public VectorTime getTime() {
+    public VectorTime.Snapshot getTime() {
     	return time;
     }
     
@@ -33,4 +35,4 @@ public class VectorClockAlgorithmPacket extends AUserPacket {
     public String toString() {
     	return getName();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
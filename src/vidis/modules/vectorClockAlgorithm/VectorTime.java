@@ -5,63 +5,281 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.modules.vectorClockAlgorithm;
 
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * vector time class .. coolest of all
  * 
- * stores time vectors for nodes
+ * stores the time of every node at the index of the node, see
+ * {@link vidis.data.sim.ISimNodeCon#getIndex()}; nodes without entry
+ * have the time 0.
+ * <p>
+ * as long as at most half of the entries are set the vector keeps
+ * only those in sorted index and time arrays, afterwards it keeps
+ * one time for every index up to the highest one it has seen.
+ * </p>
  * @author Dominik
  *
  */
 public class VectorTime {
-    private Map<VectorClockAlgorithmNode, Integer> timeVector = new ConcurrentHashMap<VectorClockAlgorithmNode, Integer>();
+	private static final int[] EMPTY = new int[0];
 
-    public VectorTime(VectorClockAlgorithmNode vectorClockAlgorithmNode, int i) {
-    	update(vectorClockAlgorithmNode, i);
-    }
+	/**
+	 * the indices of the entries in times or null if dense
+	 */
+	private int[] indices = EMPTY;
+	private int[] times = EMPTY;
+	/**
+	 * the number of entries in use if sparse
+	 */
+	private int count = 0;
 
-    public VectorTime() {
+	public VectorTime() {
 		// nothing
 	}
 
-	public void update(VectorClockAlgorithmNode node, int time) {
-		if (timeVector.containsKey(node)) {
-		    if (timeVector.get(node).compareTo(time) < 0) {
-		    	timeVector.put(node, time);
-		    }
-		} else {
-		    timeVector.put(node, time);
+	public VectorTime(int index, int time) {
+		update(index, time);
+	}
+
+	/**
+	 * retrieve the time of a node
+	 * @param index the index of the node
+	 */
+	public int getNodeTime(int index) {
+		return getNodeTime(indices, times, count, index);
+	}
+
+	/**
+	 * retrieve a bound of the indices; all nodes from it on have the time 0
+	 */
+	public int size() {
+		if (indices == null) {
+			return times.length;
+		}
+		return count == 0 ? 0 : indices[count - 1] + 1;
+	}
+
+	public void update(int index, int time) {
+		int i = slotOf(index);
+		if (times[i] < time) {
+			times[i] = time;
+		}
+	}
+
+	/**
+	 * increases the time of a node by one
+	 * @return the new time
+	 */
+	public int increase(int index) {
+		int i = slotOf(index);
+		return ++times[i];
+	}
+
+	/**
+	 * takes the maximum of both times for every node
+	 */
+	public void update(Snapshot remoteTimeVector) {
+		if (indices != null && (remoteTimeVector.indices == null || !merge(remoteTimeVector))) {
+			toDense(Math.max(size(), remoteTimeVector.size));
+		}
+		if (indices == null) {
+			ensureSize(remoteTimeVector.size);
+			if (remoteTimeVector.indices == null) {
+				max(times, remoteTimeVector.times, remoteTimeVector.size);
+			} else {
+				int[] remoteIndices = remoteTimeVector.indices;
+				int[] remote = remoteTimeVector.times;
+				for (int i=0; i<remoteIndices.length; i++) {
+					times[remoteIndices[i]] = Math.max(times[remoteIndices[i]], remote[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * a branch free loop the jit compiles to vector instructions
+	 */
+	private static void max(int[] into, int[] from, int length) {
+		for (int i=0; i<length; i++) {
+			into[i] = Math.max(into[i], from[i]);
+		}
+	}
+
+	/**
+	 * merges the entries of a sparse snapshot into this sparse vector
+	 * @return false if the result would not be sparse; nothing is changed then
+	 */
+	private boolean merge(Snapshot remote) {
+		int[] remoteIndices = remote.indices;
+		int[] remoteTimes = remote.times;
+		int n = remoteIndices.length;
+		int[] mergedIndices = new int[count + n];
+		int[] mergedTimes = new int[count + n];
+		int i = 0, j = 0, k = 0;
+		while (i < count || j < n) {
+			if (j == n || (i < count && indices[i] < remoteIndices[j])) {
+				mergedIndices[k] = indices[i];
+				mergedTimes[k++] = times[i++];
+			} else if (i == count || remoteIndices[j] < indices[i]) {
+				mergedIndices[k] = remoteIndices[j];
+				mergedTimes[k++] = remoteTimes[j++];
+			} else {
+				mergedIndices[k] = indices[i];
+				mergedTimes[k++] = Math.max(times[i++], remoteTimes[j++]);
+			}
+		}
+		if (k > 0 && k * 2 > mergedIndices[k - 1] + 1) {
+			return false;
+		}
+		indices = mergedIndices;
+		times = mergedTimes;
+		count = k;
+		return true;
+	}
+
+	/**
+	 * retrieve the position of the entry of a node in times; creates
+	 * the entry if needed
+	 */
+	private int slotOf(int index) {
+		if (indices == null) {
+			ensureSize(index + 1);
+			return index;
+		}
+		int i = Arrays.binarySearch(indices, 0, count, index);
+		if (i >= 0) {
+			return i;
+		}
+		i = -i - 1;
+		if ((count + 1) * 2 > Math.max(size(), index + 1)) {
+			toDense(Math.max(size(), index + 1));
+			return index;
+		}
+		if (count == indices.length) {
+			indices = grow(indices, Math.max(4, count * 2));
+			times = grow(times, indices.length);
+		}
+		System.arraycopy(indices, i, indices, i + 1, count - i);
+		System.arraycopy(times, i, times, i + 1, count - i);
+		indices[i] = index;
+		times[i] = 0;
+		count++;
+		return i;
+	}
+
+	private void toDense(int size) {
+		int[] dense = new int[size];
+		for (int i=0; i<count; i++) {
+			dense[indices[i]] = times[i];
 		}
-    }
+		indices = null;
+		times = dense;
+		count = 0;
+	}
+
+	private void ensureSize(int size) {
+		if (times.length < size) {
+			times = grow(times, Math.max(size, times.length + times.length / 2));
+		}
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
 
-    public void update(VectorTime remoteTimeVector) {
-		for (VectorClockAlgorithmNode node : remoteTimeVector.getNodes()) {
-		    update(node, remoteTimeVector.timeVector.get(node));
+	/**
+	 * retrieve an unchangeable copy of this time to send along; mostly
+	 * empty vectors only keep the entries that are set
+	 */
+	public Snapshot snapshot() {
+		if (indices != null) {
+			return new Snapshot(size(), copy(indices, count), copy(times, count));
+		}
+		int set = 0;
+		int size = 0;
+		for (int i=0; i<times.length; i++) {
+			if (times[i] != 0) {
+				set++;
+				size = i + 1;
+			}
 		}
-    }
+		if (set * 2 < size) {
+			int[] sparseIndices = new int[set];
+			int[] sparseTimes = new int[set];
+			for (int i=0, j=0; i<size; i++) {
+				if (times[i] != 0) {
+					sparseIndices[j] = i;
+					sparseTimes[j++] = times[i];
+				}
+			}
+			return new Snapshot(size, sparseIndices, sparseTimes);
+		}
+		return new Snapshot(size, null, copy(times, size));
+	}
 
-    public Set<VectorClockAlgorithmNode> getNodes() {
-    	return timeVector.keySet();
-    }
+	private static int[] copy(int[] array, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, length);
+		return copy;
+	}
 
-    public String toString() {
+	private static int getNodeTime(int[] indices, int[] times, int count, int index) {
+		if (indices == null) {
+			return index < times.length ? times[index] : 0;
+		}
+		int i = Arrays.binarySearch(indices, 0, count, index);
+		return i < 0 ? 0 : times[i];
+	}
+
+	private static String toString(int[] indices, int[] times, int count, int size) {
 		StringBuffer buff = new StringBuffer();
 		buff.append("(");
-		int i=0;
-		for (VectorClockAlgorithmNode node : getNodes()) {
+		for (int i=0; i<size; i++) {
 			if(i > 0)
-		    	buff.append(",");
-		    buff.append(timeVector.get(node));
-		    i++;
+				buff.append(",");
+			buff.append(getNodeTime(indices, times, count, i));
 		}
 		buff.append(")");
 		return buff.toString();
-    }
+	}
+
+	public String toString() {
+		return toString(indices, times, count, size());
+	}
 
-	public int getNodeTime(VectorClockAlgorithmNode node) {
-		return timeVector.get(node).intValue();
+	/**
+	 * the time of a vector at the moment it was sent
+	 */
+	public static final class Snapshot implements Serializable {
+		private static final long serialVersionUID = 2617361098745120893L;
+
+		private final int size;
+		/**
+		 * the indices of the entries in times or null if dense
+		 */
+		private final int[] indices;
+		private final int[] times;
+
+		private Snapshot(int size, int[] indices, int[] times) {
+			this.size = size;
+			this.indices = indices;
+			this.times = times;
+		}
+
+		public int getNodeTime(int index) {
+			return VectorTime.getNodeTime(indices, times, indices == null ? 0 : indices.length, index);
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public String toString() {
+			return VectorTime.toString(indices, times, indices == null ? 0 : indices.length, size);
+		}
 	}
 }
@@ -5,62 +5,236 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.sim;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import javax.swing.JOptionPane;
 
+import org.apache.log4j.Logger;
+
+import vidis.sim.history.History;
+import vidis.sim.trace.TraceRecorder;
+import vidis.sim.trace.TraceReplayView;
+
+/**
+ * drives the simulator with a fixed timestep.
+ * <p>
+ * the player runs a target number of steps per second; the time that
+ * passed is collected and as many steps are run as fit into it, at most
+ * maxStepsPerTick at once. if the steps take longer than planned the
+ * overrun policy decides if the missed steps are caught up later or
+ * skipped. a step rate of {@link #UNBOUNDED} runs the steps back to back.
+ * while paused or stopped the worker blocks until the state changes.
+ * </p>
+ * <p>
+ * while a trace replay is open the player steps through the trace
+ * instead of simulating; play, the step buttons and rewind work on the
+ * replayed steps then.
+ * </p>
+ * @author Dominik
+ *
+ */
 public class Player {
-	private boolean paused = true;
-	private boolean stopped = false;
-	private boolean killed = false;
+	private static Logger logger = Logger.getLogger(Player.class);
+
+	/**
+	 * step rate to run as fast as possible
+	 */
+	public static final double UNBOUNDED = Double.POSITIVE_INFINITY;
+
+	/**
+	 * the step rate of former versions, one step every 250ms
+	 */
+	public static final double DEFAULT_STEP_RATE = 4;
+
+	public static final int DEFAULT_MAX_STEPS_PER_TICK = 8;
+
+	/**
+	 * the number of steps a rewind goes back by default
+	 */
+	public static final int DEFAULT_REWIND_STEPS = 10;
+
+	/**
+	 * what to do with steps that could not be run in time
+	 */
+	public enum OverrunPolicy {
+		/**
+		 * run the missed steps later, up to maxStepsPerTick steps behind
+		 */
+		CATCH_UP,
+		/**
+		 * forget the missed steps and continue with the target rate
+		 */
+		SKIP
+	}
+
+	private volatile boolean paused = true;
+	private volatile boolean stopped = false;
+	private volatile boolean killed = false;
+
+	private volatile double stepRate = DEFAULT_STEP_RATE;
+	private volatile OverrunPolicy overrunPolicy = OverrunPolicy.CATCH_UP;
+	private volatile int maxStepsPerTick = DEFAULT_MAX_STEPS_PER_TICK;
+
+	private volatile long steps = 0;
+	private volatile long skippedSteps = 0;
+
+	/**
+	 * guards the state changes the worker waits for
+	 */
+	private final ReentrantLock stateLock = new ReentrantLock();
+	private final Condition stateChanged = stateLock.newCondition();
+
+	/**
+	 * held while a step runs; fair so that stop() is not starved by
+	 * an unbounded step rate
+	 */
+	private final ReentrantLock stepLock = new ReentrantLock(true);
+
 	private Thread worker;
 
-	public Player() {
+	/**
+	 * the open trace replay or null
+	 */
+	private volatile TraceReplayView replay;
+	/**
+	 * the step the replay shows, -1 before the first step
+	 */
+	private long replayStep;
+
+	private final Simulator simulator;
+
+	public Player(Simulator simulator) {
+		this.simulator = simulator;
  //           Simulator.configDisable3D();
 		worker = new Thread() {
 			@Override
 			public void run() {
-				long steps = 0;
-				long sleepTime = 250;
-				while (!killed) {
-					steps = alive(steps, sleepTime);
+				try {
+					loop();
+				} catch (InterruptedException e) {
+					logger.warn("player interrupted", e);
 				}
 			}
+		};
+	}
 
-			private long alive(long steps, long sleepTime) {
-				try {
-					if (!stopped) {
-						if (!paused) {
-							try {
-								long simPre = System.currentTimeMillis();
-								Simulator.getInstance().simulateOneStep();
-								long simPost = System.currentTimeMillis();
-								long simulatedMillis = simPost - simPre;
-								long sleepMillis = sleepTime - simulatedMillis;
-								if (sleepMillis > 0)
-									Thread.sleep(sleepMillis);
-								// Logger.output(LogLevel.DEBUG, "Player", "simulatedMillis="
-								// + simulatedMillis);
-								steps++;
-							} catch (InterruptedException e) {
-								// TODO Auto-generated catch block
-								e.printStackTrace();
-							} catch (OutOfMemoryError e) {
-								JOptionPane.showMessageDialog(null , "OUT OF MEMORY ERROR: \n"+e.getMessage());
-								System.exit(99);
-							}
-						} else {
-							Thread.sleep(150);
-						}
-					} else {
-						Simulator.getInstance().reset();
-						Thread.sleep(150);
+	private void loop() throws InterruptedException {
+		long backlog = 0;
+		long last = System.nanoTime();
+		while (!killed) {
+			if (awaitRunning()) {
+				// do not catch up the time we were idle
+				backlog = 0;
+				last = System.nanoTime();
+				continue;
+			}
+			long interval = getStepInterval();
+			if (interval == 0) {
+				step();
+				continue;
+			}
+			long now = System.nanoTime();
+			backlog += now - last;
+			last = now;
+			if (backlog < interval) {
+				awaitChange(interval - backlog);
+				continue;
+			}
+			int max = Math.max(1, maxStepsPerTick);
+			int done = 0;
+			while (backlog >= interval && done < max && isRunning()) {
+				step();
+				backlog -= interval;
+				done++;
+			}
+			// limit the debt the policy allows us to keep
+			long keep = overrunPolicy == OverrunPolicy.SKIP ? interval : max * interval;
+			if (backlog >= keep) {
+				long skip = (backlog - keep) / interval + 1;
+				skippedSteps += skip;
+				backlog -= skip * interval;
+			}
+		}
+	}
+
+	private void step() {
+		stepLock.lock();
+		try {
+			if (isRunning()) {
+				if (replay != null) {
+					if (!showReplay(replayStep + 1)) {
+						// the end of the trace
+						paused = true;
 					}
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+				} else {
+					simulator.simulateOneStep();
+					steps++;
 				}
-				return steps;
 			}
-		};
+		} catch (OutOfMemoryError e) {
+			JOptionPane.showMessageDialog(null , "OUT OF MEMORY ERROR: \n"+e.getMessage());
+			System.exit(99);
+		} finally {
+			stepLock.unlock();
+		}
+	}
+
+	private boolean isRunning() {
+		return !paused && !stopped && !killed;
+	}
+
+	/**
+	 * blocks while paused or stopped
+	 * @return true if the worker had to wait
+	 */
+	private boolean awaitRunning() throws InterruptedException {
+		if (isRunning()) {
+			return false;
+		}
+		stateLock.lock();
+		try {
+			while (!killed && (paused || stopped)) {
+				stateChanged.await();
+			}
+		} finally {
+			stateLock.unlock();
+		}
+		return true;
+	}
+
+	private void awaitChange(long nanos) throws InterruptedException {
+		stateLock.lock();
+		try {
+			if (isRunning()) {
+				stateChanged.await(nanos, TimeUnit.NANOSECONDS);
+			}
+		} finally {
+			stateLock.unlock();
+		}
+	}
+
+	private void signal() {
+		stateLock.lock();
+		try {
+			stateChanged.signalAll();
+		} finally {
+			stateLock.unlock();
+		}
+	}
+
+	/**
+	 * retrieve the nanoseconds between two steps; 0 if unbounded
+	 */
+	private long getStepInterval() {
+		double rate = stepRate;
+		if (Double.isInfinite(rate) || rate <= 0) {
+			return 0;
+		}
+		return (long) (1e9 / rate);
 	}
 
 	public void startWorker() {
@@ -69,8 +243,10 @@ public class Player {
 	}
 
 	public void play() {
+		simulator.getHistory().showCurrent();
 		paused = false;
 		stopped = false;
+		signal();
 	}
 	
 	public void playPause() {
@@ -82,20 +258,183 @@ public class Player {
 	}
 
 	public void pause() {
-		if (paused)
+		if (paused) {
+			simulator.getHistory().showCurrent();
 			paused = false;
-		else
+		} else
 			paused = true;
+		signal();
+	}
+
+	/**
+	 * shows the step before the shown one, see {@link #rewind(int)}
+	 */
+	public boolean stepBackward() {
+		return rewind(1);
 	}
 
+	/**
+	 * pauses the player and shows a former step from the history; the
+	 * simulation goes on from the current step once played again
+	 * @param steps how many steps to go back from the shown one
+	 * @return false if there is no former step in the history
+	 */
+	public boolean rewind(int steps) {
+		if (!paused) {
+			pause();
+		}
+		stepLock.lock();
+		try {
+			if (replay != null) {
+				long target = Math.max(-1, replayStep - Math.max(1, steps));
+				return target < replayStep && showReplay(target);
+			}
+			History history = simulator.getHistory();
+			long shown = history.getShownStep();
+			long target = Math.max(history.getOldestStep(), shown - Math.max(1, steps));
+			return target >= 0 && target < shown && history.show(target);
+		} finally {
+			stepLock.unlock();
+		}
+	}
+
+	/**
+	 * pauses the player and shows the step after the shown one; if the
+	 * current step is shown, one more step is simulated
+	 */
+	public void stepForward() {
+		if (!paused) {
+			pause();
+		}
+		stepLock.lock();
+		try {
+			History history = simulator.getHistory();
+			if (replay != null) {
+				showReplay(replayStep + 1);
+			} else if (history.isShowing()) {
+				long next = history.getShownStep() + 1;
+				if (next >= history.getNewestStep()) {
+					history.showCurrent();
+				} else {
+					history.show(next);
+				}
+			} else if (!stopped && !killed) {
+				simulator.simulateOneStep();
+				steps++;
+			}
+		} finally {
+			stepLock.unlock();
+		}
+	}
+
+	/**
+	 * stops the player and resets the simulator time; waits for a
+	 * running step to finish
+	 */
 	public void stop() {
-		stopped = true;
-		paused = false;
+		stepLock.lock();
+		try {
+			stopped = true;
+			paused = false;
+			simulator.reset();
+		} finally {
+			stepLock.unlock();
+		}
+		signal();
+	}
+
+	/**
+	 * shows a trace on the loaded simulation instead of simulating it; a
+	 * replay that is open is closed first. the player is paused before
+	 * the first step of the trace
+	 * @param view the replay to show, matched to the loaded components
+	 */
+	public void openReplay(TraceReplayView view) {
+		stepLock.lock();
+		try {
+			closeReplay();
+			simulator.getHistory().showCurrent();
+			replay = view;
+			stopped = false;
+			paused = true;
+			showReplay(-1);
+		} finally {
+			stepLock.unlock();
+		}
+		signal();
+	}
+
+	/**
+	 * removes the replayed packets; the player simulates again
+	 */
+	public void closeReplay() {
+		stepLock.lock();
+		try {
+			if (replay != null) {
+				replay.clear();
+				replay = null;
+			}
+		} finally {
+			stepLock.unlock();
+		}
+	}
+
+	public boolean isReplaying() {
+		return replay != null;
+	}
+
+	/**
+	 * retrieve the step the open replay shows
+	 * @return the step, -1 before the first step
+	 */
+	public long getReplayStep() {
+		return replayStep;
+	}
+
+	/**
+	 * shows a step of the open replay; to be called with the step lock
+	 * @return false if the step is not within the trace
+	 */
+	private boolean showReplay(long step) {
+		if (step < -1 || step > replay.getReplay().getLastStep()) {
+			return false;
+		}
+		replay.show(step);
+		replayStep = step;
+		return true;
+	}
+
+	/**
+	 * starts tracing the simulator between two steps, so the trace
+	 * begins with a whole step
+	 * @param directory where to write the trace to
+	 */
+	public void startTrace(File directory) throws IOException {
+		stepLock.lock();
+		try {
+			TraceRecorder.getInstance().start(directory, simulator);
+		} finally {
+			stepLock.unlock();
+		}
+	}
+
+	/**
+	 * stops the running trace between two steps; the stepping thread has
+	 * handed its records over by then
+	 */
+	public void stopTrace() throws IOException {
+		stepLock.lock();
+		try {
+			TraceRecorder.getInstance().stop();
+		} finally {
+			stepLock.unlock();
+		}
 	}
 
 	public void kill() {
 		stop();
 		killed = true;
+		signal();
 	}
 	
 	public boolean isStopped() {
@@ -105,4 +444,56 @@ public class Player {
 	public boolean isPaused() {
 		return this.paused;
 	}
+
+	/**
+	 * sets the number of steps per second
+	 * @param stepRate {@link #UNBOUNDED}, zero or a negative value to run
+	 * as fast as possible
+	 */
+	public void setStepRate(double stepRate) {
+		this.stepRate = stepRate;
+		signal();
+	}
+
+	public double getStepRate() {
+		return stepRate;
+	}
+
+	public boolean isUnbounded() {
+		return getStepInterval() == 0;
+	}
+
+	public void setOverrunPolicy(OverrunPolicy overrunPolicy) {
+		this.overrunPolicy = overrunPolicy;
+	}
+
+	public OverrunPolicy getOverrunPolicy() {
+		return overrunPolicy;
+	}
+
+	/**
+	 * sets how many steps may be run back to back to catch up with the
+	 * target rate
+	 */
+	public void setMaxStepsPerTick(int maxStepsPerTick) {
+		this.maxStepsPerTick = maxStepsPerTick;
+	}
+
+	public int getMaxStepsPerTick() {
+		return maxStepsPerTick;
+	}
+
+	/**
+	 * retrieve the number of steps run since the player was created
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * retrieve the number of steps dropped due to overruns
+	 */
+	public long getSkippedSteps() {
+		return skippedSteps;
+	}
 }
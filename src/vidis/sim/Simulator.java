@@ -12,11 +12,13 @@ import java.io.FileWriter;
 import java.io.PrintStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
@@ -26,19 +28,30 @@ import vidis.data.mod.IUserNode;
 import vidis.data.sim.AComponent;
 import vidis.data.sim.SimLink;
 import vidis.data.sim.SimNode;
+import vidis.data.var.VariableEpoch;
 import vidis.data.var.vars.AVariable;
 import vidis.data.var.vars.DefaultVariable;
+import vidis.sim.classloader.ModuleClassLoader;
 import vidis.sim.classloader.VidisClassLoader;
 import vidis.sim.classloader.modules.impl.dir.FileModuleFile;
+import vidis.sim.classloader.modules.impl.jar.JarModuleFile;
 import vidis.sim.classloader.modules.interfaces.IModuleFile;
 import vidis.sim.exceptions.NotFoundException;
 import vidis.sim.exceptions.SimulatorConfigRuntimeException;
+import vidis.sim.history.History;
+import vidis.sim.partition.ComponentPartitioner;
+import vidis.sim.partition.Partitioning;
 import vidis.sim.simulatorInternals.SimulatorData;
+import vidis.sim.topology.EdgeList;
+import vidis.sim.topology.TopologyBuilder;
+import vidis.sim.trace.TraceRecorder;
 import vidis.sim.xml.modules.XMLModuleReader;
 import vidis.sim.xml.modules.dataStructure.DocumentData;
 import vidis.sim.xml.modules.dataStructure.DocumentDataConnection;
 import vidis.sim.xml.modules.dataStructure.DocumentDataLink;
 import vidis.ui.model.graph.layouts.AGraphLayout;
+import vidis.util.metrics.Histogram;
+import vidis.util.metrics.Metrics;
 
 public class Simulator {
 	/* -- time management for interpolation -- */
@@ -52,20 +65,149 @@ public class Simulator {
 	
 	/* -- logger -- */
 	private static final Logger logger = Logger.getLogger(Simulator.class);
+	private static final Histogram stepTimes = Metrics.getInstance().histogram(Metrics.STEP);
 
 	/* -- simulator stuff -- */
 	private static Simulator instance;
+	
+	/**
+	 * the simulator the current thread works for; threads started within
+	 * a step, e.g. the routines of blocking nodes, work for it as well
+	 */
+	private static final ThreadLocal<Simulator> context = new InheritableThreadLocal<Simulator>();
+	
+	/**
+	 * headless simulators run without player thread and visualisation
+	 */
+	private final boolean headless;
+	
+	/**
+	 * root seed of the random streams of all components
+	 */
+	private long seed = System.nanoTime();
 
 	private SimulatorData data;
 	
+	/**
+	 * tells when the cached variable values of the components are stale
+	 */
+	private final VariableEpoch variableEpoch = new VariableEpoch();
+	
+	/**
+	 * the recent steps as shown in the visualisation
+	 */
+	private final History history = new History();
+	
 	private List<IModuleFile> simFileHistory = new LinkedList<IModuleFile>();
+	/**
+	 * the msim file of an imported part, see
+	 * {@link #importSimFilePart(XMLModuleReader, Set, Set)}
+	 */
+	private DocumentData part;
+	
+	/**
+	 * loads the user classes of the imported module; a module from a jar
+	 * gets its own loader that is released when the simulation is cleared
+	 */
+	private ClassLoader classLoader = VidisClassLoader.getInstance();
 	
 	private static boolean RUN_WITH_3D = true;
 
 	private Simulator() {
-		player = new Player();
-		player.startWorker();
-		data = new SimulatorData();
+		this(false);
+	}
+	
+	private Simulator(boolean headless) {
+		this.headless = headless;
+		player = new Player(this);
+		if (!headless) {
+			player.startWorker();
+		}
+		data = new SimulatorData(!headless, variableEpoch);
+	}
+	
+	/**
+	 * creates an independent simulator instance; it does not forward
+	 * any events to the visualisation and has no running player, it is
+	 * driven by calling simulateOneStep()
+	 * 
+	 * @return a new simulator
+	 */
+	public static final Simulator createHeadless() {
+		return new Simulator(true);
+	}
+	
+	/**
+	 * retrieves the simulator the calling thread currently works for;
+	 * this is the shared instance unless a headless simulator is
+	 * importing or executing a step on this thread
+	 * 
+	 * @return the simulator of the current thread
+	 */
+	public static final Simulator current() {
+		Simulator s = context.get();
+		if (s == null) {
+			s = getInstance();
+		}
+		return s;
+	}
+	
+	private Simulator enter() {
+		Simulator previous = context.get();
+		context.set(this);
+		return previous;
+	}
+	
+	private void exit(Simulator previous) {
+		context.set(previous);
+	}
+	
+	/**
+	 * runs a task with this simulator as context of the calling thread,
+	 * e.g. to create components for a headless simulator
+	 * 
+	 * @param task the task to run
+	 */
+	public void execute(Runnable task) {
+		Simulator previous = enter();
+		try {
+			task.run();
+		} finally {
+			exit(previous);
+		}
+	}
+	
+	/**
+	 * stops the player and kills all components; the simulator must not
+	 * be used afterwards
+	 */
+	public void shutdown() {
+		player.kill();
+		Simulator previous = enter();
+		try {
+			data.killComponents();
+		} finally {
+			exit(previous);
+		}
+		releaseClassLoader();
+	}
+	
+	public boolean isHeadless() {
+		return headless;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * sets the root seed of the random streams; must be set before a
+	 * file is imported to reproduce a run
+	 * 
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
 	}
 
 	public static final boolean configIsEnable3D() {
@@ -135,7 +277,26 @@ public class Simulator {
 		long now = System.currentTimeMillis();
 		lastTimes.add(now - lastTime);
 		lastTime = now;
-		data.executeComponents();
+		long start = System.nanoTime();
+		Simulator previous = enter();
+		try {
+			TraceRecorder.getInstance().step(this, data.getTime());
+			data.executeComponents();
+			TraceRecorder.getInstance().handOver();
+			if (!headless) {
+				List<AComponent> components = data.getComponents();
+				synchronized (components) {
+					history.record(data.getTime(), data.collectChanged(), components);
+				}
+			}
+		} finally {
+			exit(previous);
+		}
+		if (!headless) {
+			Metrics metrics = Metrics.getInstance();
+			metrics.record(stepTimes, System.nanoTime() - start);
+			metrics.endStep();
+		}
 	}
 
 	public long getLastStepDuration() {
@@ -152,8 +313,35 @@ public class Simulator {
 		simFileHistory.add(f);
 		
 		XMLModuleReader reader = XMLModuleReader.parse(f);
+		logger.info("importing " + f + " with seed " + seed);
 		
-		init(reader);
+		Simulator previous = enter();
+		try {
+			init(reader, f);
+		} finally {
+			exit(previous);
+		}
+	}
+
+	/**
+	 * replaces the current simulation by a generated topology; the
+	 * topology is generated with the seed of this simulator
+	 * 
+	 * @param builder the topology and the user classes to build
+	 */
+	public void importTopology(TopologyBuilder builder) {
+		logger.info("importing " + builder + " with seed " + seed);
+		long start = System.nanoTime();
+		EdgeList edges = builder.generate(seed);
+		
+		Simulator previous = enter();
+		try {
+			clear();
+			builder.build(this, edges);
+		} finally {
+			exit(previous);
+		}
+		logger.info("built " + builder.getTopology().getNodes() + " nodes and " + edges.size() + " links in " + (System.nanoTime() - start) / 1000000 + "ms");
 	}
 
 	public void importSimFile(File file) {
@@ -161,6 +349,49 @@ public class Simulator {
 		
 		importSimFile(f);
 	}
+
+	/**
+	 * imports a part of a msim file for one process of a distributed run.
+	 * only the given nodes and links are built and registered; a node at
+	 * the other end of a given link is built without being registered, as
+	 * another process simulates it. a part is not reloaded.
+	 * 
+	 * @param reader the parsed msim file
+	 * @param nodeIds the ids of the nodes to simulate
+	 * @param linkIds the ids of the links to simulate
+	 */
+	public void importSimFilePart(XMLModuleReader reader, Set<String> nodeIds, Set<String> linkIds) {
+		logger.info("importing " + nodeIds.size() + " nodes and " + linkIds.size() + " links of " + reader.getSimFile() + " with seed " + seed);
+		
+		Simulator previous = enter();
+		try {
+			init(reader, reader.getSimFile(), nodeIds, linkIds);
+			part = reader.getDocument();
+		} finally {
+			exit(previous);
+		}
+	}
+
+	/**
+	 * builds a node of the part's msim file that another process
+	 * simulates, e.g. because a packet refers to it; see
+	 * {@link #importSimFilePart(XMLModuleReader, Set, Set)}
+	 * 
+	 * @param nodeId the id of the node
+	 * @return the node, neither registered nor connected, or null if the
+	 *         msim file has no such node
+	 */
+	public SimNode createRemoteNode(String nodeId) {
+		if (part == null) {
+			return null;
+		}
+		Simulator previous = enter();
+		try {
+			return createRemoteNode(part, nodeId);
+		} finally {
+			exit(previous);
+		}
+	}
 	
 	public void exportSimFile(File file) {
 		if(true) // TODO feature that is not working yet how it should
@@ -214,42 +445,104 @@ public class Simulator {
 		}
 	}
 
-	private final void init(XMLModuleReader reader) {
+	private final void init(XMLModuleReader reader, IModuleFile f) {
+		init(reader, f, null, null);
+	}
+
+	/**
+	 * @param nodeIds the nodes to build or null for all
+	 * @param linkIds the links to build or null for all
+	 */
+	private final void init(XMLModuleReader reader, IModuleFile f, Set<String> nodeIds, Set<String> linkIds) {
 		if (reader == null) {
 			throw new RuntimeException("Cannot initialize Module: reader == null; please check your config file!");
 		}
 
-		player.stop();
-
-//		if (data.components.size() > 0) {
-			data.killComponents();
-			reset();
-			data = new SimulatorData();
-//		}
+		clear();
+		classLoader = createClassLoader(f);
 
-		if (reader.getDocument().getNodeDensity() != null) {
+		if (!headless && reader.getDocument().getNodeDensity() != null) {
 			double density = reader.getDocument().getNodeDensity();
 			AGraphLayout.setNodeDensityToAll(density);
 		}
 
 		// get nodes
 		Map<String, SimNode> nodes = new TreeMap<String, SimNode>();
-		generateSimNodes(nodes, reader.getDocument());
+		generateSimNodes(nodes, reader.getDocument(), nodeIds);
 		
 		// get links
 		Map<String, SimLink> links = new HashMap<String, SimLink>();
-		generateSimLinks(links, reader.getDocument());
+		generateSimLinks(links, reader.getDocument(), linkIds);
 
 		// connect nodes via links
-		generateSimNode_SimLink_connections(nodes, links, reader.getDocument());
+		generateSimNode_SimLink_connections(nodes, links, reader.getDocument(), nodeIds != null);
 	}
 
-	private void generateSimNode_SimLink_connections(Map<String, SimNode> nodes, Map<String, SimLink> links, DocumentData document) {
+	private void clear() {
+		player.stop();
+
+//		if (data.components.size() > 0) {
+			data.killComponents();
+			reset();
+			data = new SimulatorData(!headless, variableEpoch);
+//		}
+		releaseClassLoader();
+		part = null;
+	}
+	
+	/**
+	 * retrieves a fresh loader for the module of a msim file, so changes
+	 * of the jar are picked up on every import
+	 */
+	private ClassLoader createClassLoader(IModuleFile f) {
+		if (f instanceof JarModuleFile) {
+			try {
+				return new ModuleClassLoader(((JarModuleFile) f).getModule().getFile());
+			} catch (MalformedURLException e) {
+				logger.error(e);
+			}
+		}
+		return VidisClassLoader.getInstance();
+	}
+	
+	private void releaseClassLoader() {
+		if (classLoader instanceof ModuleClassLoader) {
+			((ModuleClassLoader) classLoader).release();
+		}
+		classLoader = VidisClassLoader.getInstance();
+	}
+	
+	/**
+	 * retrieves the class loader of the user classes of the current module
+	 */
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	/**
+	 * @param remote true to build the nodes of the links that are not
+	 *            built yet as nodes of another process
+	 */
+	private void generateSimNode_SimLink_connections(Map<String, SimNode> nodes, Map<String, SimLink> links, DocumentData document, boolean remote) {
 		for (DocumentDataConnection documentConnection : document.getConnections()) {
 			// may should be done using a node connect function, but for now it's fine
 			// if we connect manually
 			SimLink link = links.get(documentConnection.getLink().getId());
 			if (link != null) {
+				if (remote) {
+					String a = documentConnection.getNodeA().getId();
+					String b = documentConnection.getNodeB().getId();
+					if (!nodes.containsKey(a) && !nodes.containsKey(b)) {
+						// only kept as a link whose nodes were connected already
+						registerComponent(link);
+						continue;
+					}
+					for (String nodeId : new String[] { a, b }) {
+						if (!nodes.containsKey(nodeId)) {
+							nodes.put(nodeId, createRemoteNode(document, nodeId));
+						}
+					}
+				}
 				SimNode nodeA = nodes.get(documentConnection.getNodeA().getId());
 				SimNode nodeB = nodes.get(documentConnection.getNodeB().getId());
 				if(link.isConnected()) {
@@ -277,16 +570,19 @@ public class Simulator {
 		return constructor;
 	}
 
-	private void generateSimLinks(Map<String, SimLink> links, DocumentData document) {
+	private void generateSimLinks(Map<String, SimLink> links, DocumentData document, Set<String> keep) {
 		List<String> linkIds = new LinkedList<String>();
 		linkIds.addAll(document.getLinks().keySet());
 		Collections.sort(linkIds);
 		for (String id : linkIds) {
+			if (keep != null && !keep.contains(id)) {
+				continue;
+			}
 			DocumentDataLink documentLink = document.getLinkById(id);
 			String classpath = document.getPackageName() + "." + documentLink.getClasspath();
 			try {
 //				Class<?> clazz = Class.forName(classpath);
-				Class<?> clazz = VidisClassLoader.getInstance().loadClass(classpath);
+				Class<?> clazz = classLoader.loadClass(classpath);
 				Constructor<?> constructor = getEmptyConstructor(clazz);
 				if (constructor != null) {
 					// instance IUserLink
@@ -320,49 +616,70 @@ public class Simulator {
 		}
 	}
 
-	private void generateSimNodes(Map<String, SimNode> nodes, DocumentData document) {
+	private void generateSimNodes(Map<String, SimNode> nodes, DocumentData document, Set<String> keep) {
 		List<String> nodeIds = new LinkedList<String>();
 		nodeIds.addAll(document.getNodes().keySet());
 		Collections.sort(nodeIds);
 		for (String nodeId : nodeIds) {
-			String classpath = document.getPackageName() + "." + document.getNodeById(nodeId).getClasspath();
-			try {
-				// Class<?> clasS =
-				// ClassLoader.getSystemClassLoader().loadClass(classpath);
-//				Class<?> c = Class.forName(classpath);
-				Class<?> c = VidisClassLoader.getInstance().loadClass(classpath);
-				Constructor<?> k = getEmptyConstructor(c);
-				Object o = k.newInstance();
-				if (o instanceof IUserNode) {
-					SimNode node = new SimNode((IUserNode) o);
-					node.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, nodeId));
-					for (String identifier : document.getNodeById(nodeId).getVariables().keySet()) {
-						node.registerVariable(new DefaultVariable(AVariable.COMMON_SCOPES.USER + "." + identifier, document.getNodeById(nodeId).getVariables().get(identifier)));
-					}
-//					if (!node.hasVariable(AVariable.COMMON_IDENTIFIERS.POSITION)) {
-//						Point3d point = ((GraphSpiralLayout)GraphSpiralLayout.getInstance()).nextNodePoint3d();
-//						// Logger.output(this, nodeId + " => " + point);
-//						// Logger.output(LogLevel.WARN, this, nodeId + " => " + point);
-//						node.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.POSITION, point));
-//					}
-					nodes.put(nodeId, node);
-					registerComponent(node);
-					// this.informAll(new NodeJoinEvent(node.getInstance()));
+			if (keep != null && !keep.contains(nodeId)) {
+				continue;
+			}
+			SimNode node = createSimNode(document, nodeId);
+			if (node != null) {
+				nodes.put(nodeId, node);
+				registerComponent(node);
+				// this.informAll(new NodeJoinEvent(node.getInstance()));
+			}
+		}
+	}
+
+	private SimNode createSimNode(DocumentData document, String nodeId) {
+		String classpath = document.getPackageName() + "." + document.getNodeById(nodeId).getClasspath();
+		try {
+			// Class<?> clasS =
+			// ClassLoader.getSystemClassLoader().loadClass(classpath);
+//			Class<?> c = Class.forName(classpath);
+			Class<?> c = classLoader.loadClass(classpath);
+			Constructor<?> k = getEmptyConstructor(c);
+			Object o = k.newInstance();
+			if (o instanceof IUserNode) {
+				SimNode node = new SimNode((IUserNode) o);
+				node.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, nodeId));
+				for (String identifier : document.getNodeById(nodeId).getVariables().keySet()) {
+					node.registerVariable(new DefaultVariable(AVariable.COMMON_SCOPES.USER + "." + identifier, document.getNodeById(nodeId).getVariables().get(identifier)));
 				}
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
-			} catch (IllegalArgumentException e) {
-				e.printStackTrace();
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-			} catch (InvocationTargetException e) {
-				e.printStackTrace();
+				return node;
 			}
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		} catch (SecurityException e) {
+			e.printStackTrace();
+		} catch (InstantiationException e) {
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
 		}
+		return null;
+	}
+
+	/**
+	 * builds a node of another process of a distributed run; it is only
+	 * known to the links and packets that refer to it, it is neither
+	 * registered nor executed
+	 */
+	private SimNode createRemoteNode(DocumentData document, String nodeId) {
+		if (document.getNodeById(nodeId) == null) {
+			return null;
+		}
+		SimNode node = createSimNode(document, nodeId);
+		if (node != null) {
+			node.setSimulator(this);
+		}
+		return node;
 	}
 	
 	public void reload() {
@@ -374,7 +691,30 @@ public class Simulator {
 		}
 	}
 
+	/**
+	 * partitions the nodes by their links and observed costs and
+	 * executes the components part by part from now on
+	 * 
+	 * @param parts the wanted number of parts
+	 * @return the partitioning of the nodes
+	 */
+	public Partitioning partition(int parts) {
+		return new ComponentPartitioner().partition(data, parts);
+	}
+
+	/**
+	 * partitions the nodes like {@link #partition(int)} but keeps the
+	 * order the components are executed in
+	 * 
+	 * @param parts the wanted number of parts
+	 * @return the partitioning of the nodes
+	 */
+	public Partitioning partitionNodes(int parts) {
+		return new ComponentPartitioner().assign(data, parts);
+	}
+
 	public void reset() {
+		history.clear();
 		data.reset();
 	}
 
@@ -383,6 +723,7 @@ public class Simulator {
 	}
 
 	public void registerComponent(AComponent component) {
+		component.setSimulator(this);
 		data.registerComponent(component);
 	}
 	public void unregisterObject(AComponent component) {
@@ -393,10 +734,22 @@ public class Simulator {
 		return data.getTime();
 	}
 
+	public VariableEpoch getVariableEpoch() {
+		return variableEpoch;
+	}
+
 	public Player getPlayer() {
 		return player;
 	}
 
+	/**
+	 * retrieve the history of the recent steps; it is only recorded if
+	 * this simulator is visualised
+	 */
+	public History getHistory() {
+		return history;
+	}
+
 	public IUserNode findUserNodeForId(String id) throws NotFoundException {
 		for ( AComponent c : getSimulatorComponents() ) {
 			if ( c instanceof SimNode ) {
@@ -0,0 +1,88 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.classloader;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * a cache of values per class that does not keep the classes alive.
+ * <p>
+ * the classes are referenced weakly. values that reference their own
+ * class, e.g. reflected methods, would keep it alive anyway; they are
+ * dropped when the module class loader of the class is released, see
+ * {@link ModuleClassLoader#release()}.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class ClassCache<V> {
+	private static final List<WeakReference<ClassCache<?>>> caches = new CopyOnWriteArrayList<WeakReference<ClassCache<?>>>();
+
+	private final Map<Class<?>, V> values = new WeakHashMap<Class<?>, V>();
+
+	public ClassCache() {
+		caches.add(new WeakReference<ClassCache<?>>(this));
+	}
+
+	/**
+	 * retrieve the cached value of a class or null
+	 */
+	public synchronized V get(Class<?> clazz) {
+		return values.get(clazz);
+	}
+
+	public synchronized void put(Class<?> clazz, V value) {
+		values.put(clazz, value);
+	}
+
+	public synchronized int size() {
+		return values.size();
+	}
+
+	public synchronized void clear() {
+		values.clear();
+	}
+
+	/**
+	 * removes the values of all classes loaded through a class loader
+	 */
+	private synchronized void evict(ClassLoader loader) {
+		for (Iterator<Class<?>> it = values.keySet().iterator(); it.hasNext();) {
+			if (loadedBy(it.next(), loader)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * removes the values of all classes loaded through a class loader
+	 * from all caches
+	 */
+	static void evictAll(ClassLoader loader) {
+		for (WeakReference<ClassCache<?>> ref : caches) {
+			ClassCache<?> cache = ref.get();
+			if (cache == null) {
+				caches.remove(ref);
+			} else {
+				cache.evict(loader);
+			}
+		}
+	}
+
+	private static boolean loadedBy(Class<?> clazz, ClassLoader loader) {
+		for (ClassLoader l = clazz.getClassLoader(); l != null; l = l.getParent()) {
+			if (l == loader) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,77 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.classloader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.apache.log4j.Logger;
+
+/**
+ * the class loader of a single jar module.
+ * <p>
+ * every import of a msim file from a jar gets a new loader below the
+ * {@link VidisClassLoader}, so the module starts with fresh static state
+ * and a changed jar is picked up on the next import. once the simulation
+ * is gone the loader is released and its classes can be unloaded.
+ * </p>
+ * <p>
+ * the usual parent first delegation applies: module classes that are
+ * also on the application class path, as in a development setup, are
+ * shared and loaded from there.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class ModuleClassLoader extends URLClassLoader {
+	private static Logger logger = Logger.getLogger(ModuleClassLoader.class);
+
+	private final File file;
+	private volatile boolean released = false;
+
+	public ModuleClassLoader(File file) throws MalformedURLException {
+		super(new URL[] { file.toURI().toURL() }, VidisClassLoader.getInstance());
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public boolean isReleased() {
+		return released;
+	}
+
+	/**
+	 * drops the cached data of the classes of this loader and closes the
+	 * jar where the runtime supports it; classes that are already loaded
+	 * keep working, but no further classes should be loaded
+	 */
+	public void release() {
+		if (released) {
+			return;
+		}
+		released = true;
+		ClassCache.evictAll(this);
+		if (((Object) this) instanceof Closeable) {
+			try {
+				((Closeable) (Object) this).close();
+			} catch (IOException e) {
+				logger.warn("could not close " + file, e);
+			}
+		}
+		logger.debug("released " + this);
+	}
+
+	@Override
+	public String toString() {
+		return "ModuleClassLoader{" + file + "}";
+	}
+}
@@ -29,26 +29,33 @@ public class VidisClassLoader extends URLClassLoader {
 	
 	private static VidisClassLoader instance;
 	
-	private List<JarFile> loadedJars;
+	private List<File> loadedJars;
 
 	private VidisClassLoader() {
 //		super(urls, ClassLoader.getSystemClassLoader());
 		super(new URL[] { });
-		loadedJars = new LinkedList<JarFile>();
+		loadedJars = new LinkedList<File>();
 	}
 	
-	public static VidisClassLoader getInstance() {
+	public static synchronized VidisClassLoader getInstance() {
 		if(instance == null)
 			instance = new VidisClassLoader();
 		return instance;
 	}
 	
-	public List<JarFile> getLoadedFiles() {
+	public List<File> getLoadedFiles() {
 		return loadedJars;
 	}
 	
 	public void addFile(JarFile p) throws MalformedURLException {
-		String urlpath = "jar:" + new File(p.getName()).toURI().toURL() + "!/";
+		addFile(new File(p.getName()));
+	}
+	
+	/**
+	 * adds a jar to the class path without opening it
+	 */
+	public synchronized void addFile(File p) throws MalformedURLException {
+		String urlpath = "jar:" + p.toURI().toURL() + "!/";
 		if(loadedJars.contains(p)) {
 			logger.debug("[ReLoad JAR] " + p);
 		} else {
@@ -26,8 +26,7 @@ public abstract class AModule implements IModule {
 		} else {
 			if(f.getName().toLowerCase().endsWith(".jar")) {
 				try {
-					JarFile jf = new JarFile(f);
-					return new JarModule( jf );
+					return new JarModule( f );
 				} catch (IOException e) {
 					logger.error(e);
 				}
@@ -36,6 +35,11 @@ public abstract class AModule implements IModule {
 		}
 	}
 	protected IModule getImplementation(JarFile f) {
-		return new JarModule(f);
+		try {
+			return new JarModule(f);
+		} catch (IOException e) {
+			logger.error(e);
+			return null;
+		}
 	}
 }
@@ -0,0 +1,205 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.classloader.modules.impl.jar;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the names of a class file: the class, its super class, its interfaces
+ * and the annotations on the class; read without loading the class
+ * @author Dominik
+ *
+ */
+final class ClassHeader {
+	private static final String ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+	private String name;
+	private String superName;
+	private List<String> interfaces = new ArrayList<String>();
+	private List<String> annotations = new ArrayList<String>();
+
+	private ClassHeader() {
+	}
+
+	/**
+	 * retrieve the binary name, e.g. vidis.data.AUserNode
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * retrieve the binary name of the super class or null
+	 */
+	public String getSuperName() {
+		return superName;
+	}
+
+	public List<String> getInterfaces() {
+		return interfaces;
+	}
+
+	/**
+	 * retrieve the binary names of the runtime visible class annotations
+	 */
+	public List<String> getAnnotations() {
+		return annotations;
+	}
+
+	public static ClassHeader read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		if (in.readInt() != 0xCAFEBABE) {
+			throw new IOException("not a class file");
+		}
+		in.readUnsignedShort();
+		in.readUnsignedShort();
+		int count = in.readUnsignedShort();
+		String[] utf8 = new String[count];
+		int[] classes = new int[count];
+		for (int i = 1; i < count; i++) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+			case 1:
+				utf8[i] = in.readUTF();
+				break;
+			case 7:
+				classes[i] = in.readUnsignedShort();
+				break;
+			case 8:
+			case 16:
+			case 19:
+			case 20:
+				in.readUnsignedShort();
+				break;
+			case 3:
+			case 4:
+			case 9:
+			case 10:
+			case 11:
+			case 12:
+			case 17:
+			case 18:
+				in.readInt();
+				break;
+			case 5:
+			case 6:
+				in.readLong();
+				i++;
+				break;
+			case 15:
+				in.readUnsignedByte();
+				in.readUnsignedShort();
+				break;
+			default:
+				throw new IOException("unknown constant pool tag " + tag);
+			}
+		}
+		ClassHeader h = new ClassHeader();
+		in.readUnsignedShort();
+		h.name = className(utf8, classes, in.readUnsignedShort());
+		h.superName = className(utf8, classes, in.readUnsignedShort());
+		int interfaceCount = in.readUnsignedShort();
+		for (int i = 0; i < interfaceCount; i++) {
+			h.interfaces.add(className(utf8, classes, in.readUnsignedShort()));
+		}
+		// fields and methods
+		for (int k = 0; k < 2; k++) {
+			int members = in.readUnsignedShort();
+			for (int i = 0; i < members; i++) {
+				in.readUnsignedShort();
+				in.readUnsignedShort();
+				in.readUnsignedShort();
+				skipAttributes(in);
+			}
+		}
+		int attributes = in.readUnsignedShort();
+		for (int i = 0; i < attributes; i++) {
+			String attribute = utf8[in.readUnsignedShort()];
+			int length = in.readInt();
+			if (ANNOTATIONS.equals(attribute)) {
+				int annotations = in.readUnsignedShort();
+				for (int j = 0; j < annotations; j++) {
+					h.annotations.add(descriptorName(utf8[in.readUnsignedShort()]));
+					skipElementValuePairs(in);
+				}
+			} else {
+				skip(in, length);
+			}
+		}
+		return h;
+	}
+
+	private static String className(String[] utf8, int[] classes, int index) {
+		if (index == 0) {
+			return null;
+		}
+		return utf8[classes[index]].replace('/', '.');
+	}
+
+	/**
+	 * Lvidis/data/annotation/Passive; to vidis.data.annotation.Passive
+	 */
+	private static String descriptorName(String descriptor) {
+		if (descriptor.startsWith("L") && descriptor.endsWith(";")) {
+			descriptor = descriptor.substring(1, descriptor.length() - 1);
+		}
+		return descriptor.replace('/', '.');
+	}
+
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		int attributes = in.readUnsignedShort();
+		for (int i = 0; i < attributes; i++) {
+			in.readUnsignedShort();
+			skip(in, in.readInt());
+		}
+	}
+
+	private static void skipElementValuePairs(DataInputStream in) throws IOException {
+		int pairs = in.readUnsignedShort();
+		for (int i = 0; i < pairs; i++) {
+			in.readUnsignedShort();
+			skipElementValue(in);
+		}
+	}
+
+	private static void skipElementValue(DataInputStream in) throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case 'e':
+			in.readUnsignedShort();
+			in.readUnsignedShort();
+			break;
+		case '@':
+			in.readUnsignedShort();
+			skipElementValuePairs(in);
+			break;
+		case '[':
+			int values = in.readUnsignedShort();
+			for (int i = 0; i < values; i++) {
+				skipElementValue(in);
+			}
+			break;
+		default:
+			in.readUnsignedShort();
+		}
+	}
+
+	private static void skip(DataInputStream in, int length) throws IOException {
+		while (length > 0) {
+			int skipped = in.skipBytes(length);
+			if (skipped <= 0) {
+				throw new EOFException();
+			}
+			length -= skipped;
+		}
+	}
+}
@@ -10,12 +10,8 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import vidis.sim.classloader.modules.impl.AModule;
@@ -25,70 +21,76 @@ import vidis.sim.classloader.modules.interfaces.IModuleFile;
 /**
  * a jar msim module; can also be used to load a remote
  * jar file
+ * <p>
+ * names and msim files come from the {@link JarModuleIndex}; the jar
+ * itself is only opened when a msim file is read.
+ * </p>
  * @author Dominik
  *
  */
 public class JarModule extends AModule {
 	private JarFile f;
+	private long opened;
 	private File ff;
+	private JarModuleIndex.Entry index;
 	
 	public JarModule(URL url) throws IOException, URISyntaxException {
 		this(url.toURI());
 	}
 	public JarModule(URI uri) throws IOException, URISyntaxException {
-		this(new JarFile(new File(uri)));
+		this(new File(uri));
 	}
-	public JarModule(JarFile file) {
+	public JarModule(File file) throws IOException {
+		this(file, JarModuleIndex.getInstance().get(file));
+	}
+	public JarModule(File file, JarModuleIndex.Entry index) {
+		ff = file;
+		this.index = index;
+	}
+	public JarModule(JarFile file) throws IOException {
 		f = file;
 		ff = new File(f.getName());
+		index = JarModuleIndex.scan(ff, f);
+	}
+
+	/**
+	 * retrieve the jar file, it is opened on first use and opened
+	 * again if the jar has been replaced since
+	 */
+	public synchronized JarFile getJarFile() throws IOException {
+		if(f != null && opened != 0 && opened != ff.lastModified()) {
+			f.close();
+			f = null;
+		}
+		if(f == null) {
+			opened = ff.lastModified();
+			f = new JarFile(ff, true);
+		}
+		return f;
+	}
+	
+	public File getFile() {
+		return ff;
+	}
+
+	/**
+	 * retrieve the user node, link and packet classes of this jar
+	 */
+	public List<JarModuleIndex.ComponentClass> getComponentClasses() {
+		return index.getComponentClasses();
 	}
 
 	public List<IModuleFile> getModuleFiles() {
 		List<IModuleFile> moduleFiles = new LinkedList<IModuleFile>();
-		
-		Enumeration<JarEntry> es = f.entries();
-		while(es.hasMoreElements()) {
-			JarEntry e = es.nextElement();
-			if(e.getName().endsWith(".msim")) {
-				// assume valid msim file
-				moduleFiles.add(new JarModuleFile(f, e));
-			}
+		for(String entry : index.getMsimEntries()) {
+			moduleFiles.add(new JarModuleFile(this, entry, index.getMsimName(entry)));
 		}
 		return moduleFiles;
 	}
 
 	@Override
 	public String getName() {
-		// test if we may find a module name in the manifest
-		try {
-			// check mainlevel
-			for(Entry<Object,Object> e : f.getManifest().getMainAttributes().entrySet()) {
-				if(e.getKey().equals(new Attributes.Name("Module-Name"))) {
-					return e.getValue().toString();
-				}
-			}
-			// check attributes
-			for(Entry<String,Attributes> es : f.getManifest().getEntries().entrySet()) {
-				if(es.getKey().equals("Module")) {
-					// got module information
-					for(Entry<Object, Object> e : es.getValue().entrySet()) {
-						if(e.getKey().equals(new Attributes.Name("Module-Name"))) {
-							return e.getValue().toString();
-						}
-					}
-				}
-			}
-//			Attributes mod = f.getManifest().getEntries().get("Module");
-//			if(mod != null) {
-//				if(mod.containsKey("Module-Name")) {
-//					return mod.getValue("Module-Name");
-//				}
-//			} else {
-//				logger.warning("module not found");
-//			}
-		} catch (IOException e) {
-		}
-		return ff.getName();
+		return index.getModuleName();
 	}
 	
 	public List<IModule> getModules() {
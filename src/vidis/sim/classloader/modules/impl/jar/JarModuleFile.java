@@ -5,10 +5,9 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.sim.classloader.modules.impl.jar;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map.Entry;
-import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -21,37 +20,37 @@ import vidis.sim.classloader.modules.impl.AModuleFile;
  *
  */
 public class JarModuleFile extends AModuleFile {
-	private JarFile f;
-	private JarEntry e;
+	private JarModule module;
+	private String entry;
+	private String name;
 	
-	public JarModuleFile(JarFile f, JarEntry e) {
-		this.f = f;
-		this.e = e;
+	public JarModuleFile(JarModule module, String entry, String name) {
+		this.module = module;
+		this.entry = entry;
+		this.name = name;
+	}
+	/**
+	 * retrieve the module that contains this file
+	 */
+	public JarModule getModule() {
+		return module;
 	}
 	@Override
 	public String getName() {
-		try {
-			for(Entry<String,Attributes> es : f.getManifest().getEntries().entrySet()) {
-				if(es.getKey().equals(this.e.getName())) {
-//					 got module information
-					for(Entry<Object, Object> e : es.getValue().entrySet()) {
-						if(e.getKey().equals(new Attributes.Name("MSIM-Name"))) {
-							return e.getValue().toString();
-						}
-					}
-				}
-			}
-		} catch (IOException e1) {
-		}
-		return e.getName();
+		return name;
 	}
 	@Override
 	public InputStream getInputStream() throws IOException {
+		JarFile f = module.getJarFile();
+		JarEntry e = f.getJarEntry(entry);
+		if(e == null) {
+			throw new FileNotFoundException(entry + " in " + f.getName());
+		}
 		return f.getInputStream(e);
 	}
 	
 	@Override
 	public String toString() {
-		return f.getName() + " : " + e.getName();
+		return module.getFile().getPath() + " : " + entry;
 	}
 }
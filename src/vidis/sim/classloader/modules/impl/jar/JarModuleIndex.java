@@ -0,0 +1,388 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.classloader.modules.impl.jar;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.apache.log4j.Logger;
+
+import vidis.util.ResourceManager;
+
+/**
+ * persistent index of the jar modules.
+ * <p>
+ * for every jar the module name, the msim entries with their names and
+ * the user component classes with their class annotations are read once
+ * and kept in a text file, keyed by the path, size and modification time
+ * of the jar. a jar is only opened again if it changed, so listing the
+ * modules does not open any jar that is already known.
+ * </p>
+ * <p>
+ * the file has one line per fact, separated by tabs:
+ * <code>j size modified path</code> starts a jar, followed by
+ * <code>n name</code>, <code>m entry name</code> per msim file and
+ * <code>c class kind annotations</code> per component class.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class JarModuleIndex {
+	private static Logger logger = Logger.getLogger(JarModuleIndex.class);
+
+	private static final String HEADER = "# vidis module index 1";
+
+	private static final Attributes.Name MODULE_NAME = new Attributes.Name("Module-Name");
+	private static final Attributes.Name MSIM_NAME = new Attributes.Name("MSIM-Name");
+
+	public static final String NODE = "node";
+	public static final String LINK = "link";
+	public static final String PACKET = "packet";
+
+	private static final Map<String, String> KINDS = new HashMap<String, String>();
+	static {
+		KINDS.put("vidis.data.AUserNode", NODE);
+		KINDS.put("vidis.data.mod.IUserNode", NODE);
+		KINDS.put("vidis.data.AUserLink", LINK);
+		KINDS.put("vidis.data.mod.IUserLink", LINK);
+		KINDS.put("vidis.data.AUserPacket", PACKET);
+		KINDS.put("vidis.data.mod.IUserPacket", PACKET);
+	}
+
+	private static JarModuleIndex instance;
+
+	private final File file;
+	/**
+	 * entries by path, as read from the file or scanned
+	 */
+	private Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	/**
+	 * entries by path that were asked for since the index was loaded
+	 */
+	private Map<String, Entry> used = new ConcurrentHashMap<String, Entry>();
+	private volatile boolean dirty = false;
+
+	private JarModuleIndex(File file) {
+		this.file = file;
+		load();
+	}
+
+	public static synchronized JarModuleIndex getInstance() {
+		if (instance == null) {
+			instance = new JarModuleIndex(new File(ResourceManager.getModuleIndexPath()));
+		}
+		return instance;
+	}
+
+	/**
+	 * retrieve the entry of a jar; the jar is only scanned if it is not
+	 * indexed yet or has changed since. safe to be called concurrently.
+	 */
+	public Entry get(File jar) throws IOException {
+		String path = jar.getPath();
+		Entry e = entries.get(path);
+		if (e == null || e.size != jar.length() || e.lastModified != jar.lastModified()) {
+			logger.debug("indexing " + path);
+			e = scan(jar);
+			entries.put(path, e);
+			dirty = true;
+		}
+		used.put(path, e);
+		return e;
+	}
+
+	/**
+	 * writes the index if it changed; jars that were not asked for since
+	 * the index was loaded are dropped
+	 */
+	public synchronized void save() {
+		if (!dirty && used.size() == entries.size()) {
+			return;
+		}
+		List<String> paths = new ArrayList<String>(used.keySet());
+		Collections.sort(paths);
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			PrintWriter out = new PrintWriter(new FileWriter(tmp));
+			try {
+				out.println(HEADER);
+				for (String path : paths) {
+					used.get(path).write(out);
+				}
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(file)) {
+				file.delete();
+				if (!tmp.renameTo(file)) {
+					throw new IOException("could not replace " + file);
+				}
+			}
+			entries = new ConcurrentHashMap<String, Entry>(used);
+			dirty = false;
+		} catch (IOException e) {
+			logger.warn("could not write module index " + file, e);
+		}
+	}
+
+	private void load() {
+		if (!file.isFile()) {
+			return;
+		}
+		try {
+			BufferedReader in = new BufferedReader(new FileReader(file));
+			try {
+				if (!HEADER.equals(in.readLine())) {
+					logger.info("ignoring module index of another version " + file);
+					return;
+				}
+				Entry e = null;
+				String line;
+				while ((line = in.readLine()) != null) {
+					String[] parts = line.split("\t", -1);
+					if ("j".equals(parts[0])) {
+						e = new Entry(parts[3], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+						entries.put(e.path, e);
+					} else if ("n".equals(parts[0])) {
+						e.moduleName = parts[1];
+					} else if ("m".equals(parts[0])) {
+						e.msims.put(parts[1], parts[2]);
+					} else if ("c".equals(parts[0])) {
+						List<String> annotations = new ArrayList<String>();
+						for (String a : parts[3].split(",")) {
+							if (a.length() > 0) {
+								annotations.add(a);
+							}
+						}
+						e.classes.add(new ComponentClass(parts[1], parts[2], annotations));
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			logger.warn("ignoring broken module index " + file, e);
+			entries.clear();
+		}
+	}
+
+	/**
+	 * reads the entry of a jar without using or changing the index
+	 */
+	public static Entry scan(File jar) throws IOException {
+		JarFile f = new JarFile(jar, false);
+		try {
+			return scan(jar, f);
+		} finally {
+			f.close();
+		}
+	}
+
+	static Entry scan(File jar, JarFile f) throws IOException {
+		Entry entry = new Entry(jar.getPath(), jar.length(), jar.lastModified());
+		Manifest manifest = f.getManifest();
+		entry.moduleName = moduleName(manifest, jar);
+		Map<String, ClassHeader> headers = new HashMap<String, ClassHeader>();
+		Enumeration<JarEntry> es = f.entries();
+		while (es.hasMoreElements()) {
+			JarEntry e = es.nextElement();
+			if (e.getName().endsWith(".msim")) {
+				// assume valid msim file
+				entry.msims.put(e.getName(), msimName(manifest, e.getName()));
+			} else if (e.getName().endsWith(".class")) {
+				InputStream in = f.getInputStream(e);
+				try {
+					ClassHeader h = ClassHeader.read(in);
+					headers.put(h.getName(), h);
+				} catch (IOException ex) {
+					logger.warn("could not read " + e.getName() + " in " + jar, ex);
+				} catch (RuntimeException ex) {
+					// broken constant pool indices, the class is skipped
+					logger.warn("could not read " + e.getName() + " in " + jar, ex);
+				} finally {
+					in.close();
+				}
+			}
+		}
+		List<String> names = new ArrayList<String>(headers.keySet());
+		Collections.sort(names);
+		for (String name : names) {
+			String kind = kindOf(headers, headers.get(name));
+			if (kind != null) {
+				entry.classes.add(new ComponentClass(name, kind, headers.get(name).getAnnotations()));
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * retrieve the component kind of a class by its known ancestors within
+	 * the same jar, or null if it is no user component
+	 */
+	private static String kindOf(Map<String, ClassHeader> headers, ClassHeader h) {
+		for (int depth = 0; h != null && depth < headers.size() + 1; depth++) {
+			for (String i : h.getInterfaces()) {
+				if (KINDS.containsKey(i)) {
+					return KINDS.get(i);
+				}
+			}
+			if (KINDS.containsKey(h.getSuperName())) {
+				return KINDS.get(h.getSuperName());
+			}
+			h = headers.get(h.getSuperName());
+		}
+		return null;
+	}
+
+	private static String moduleName(Manifest manifest, File jar) {
+		if (manifest != null) {
+			Object name = manifest.getMainAttributes().get(MODULE_NAME);
+			if (name != null) {
+				return name.toString();
+			}
+			Attributes module = manifest.getAttributes("Module");
+			if (module != null && module.get(MODULE_NAME) != null) {
+				return module.get(MODULE_NAME).toString();
+			}
+		}
+		return jar.getName();
+	}
+
+	private static String msimName(Manifest manifest, String entry) {
+		if (manifest != null) {
+			Attributes a = manifest.getAttributes(entry);
+			if (a != null && a.get(MSIM_NAME) != null) {
+				return a.get(MSIM_NAME).toString();
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * the indexed facts of one jar
+	 */
+	public static final class Entry {
+		private final String path;
+		private final long size;
+		private final long lastModified;
+		private String moduleName;
+		private Map<String, String> msims = new LinkedHashMap<String, String>();
+		private List<ComponentClass> classes = new ArrayList<ComponentClass>();
+
+		private Entry(String path, long size, long lastModified) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public String getModuleName() {
+			return moduleName;
+		}
+
+		/**
+		 * retrieve the msim entry names of the jar
+		 */
+		public List<String> getMsimEntries() {
+			return new ArrayList<String>(msims.keySet());
+		}
+
+		/**
+		 * retrieve the display name of a msim entry
+		 */
+		public String getMsimName(String entry) {
+			return msims.get(entry);
+		}
+
+		public List<ComponentClass> getComponentClasses() {
+			return Collections.unmodifiableList(classes);
+		}
+
+		private void write(PrintWriter out) {
+			out.println("j\t" + size + "\t" + lastModified + "\t" + path);
+			out.println("n\t" + moduleName);
+			for (Map.Entry<String, String> m : msims.entrySet()) {
+				out.println("m\t" + m.getKey() + "\t" + m.getValue());
+			}
+			for (ComponentClass c : classes) {
+				StringBuilder annotations = new StringBuilder();
+				for (String a : c.getAnnotations()) {
+					if (annotations.length() > 0) {
+						annotations.append(',');
+					}
+					annotations.append(a);
+				}
+				out.println("c\t" + c.getName() + "\t" + c.getKind() + "\t" + annotations);
+			}
+		}
+	}
+
+	/**
+	 * a user node, link or packet class within a jar
+	 */
+	public static final class ComponentClass {
+		private final String name;
+		private final String kind;
+		private final List<String> annotations;
+
+		ComponentClass(String name, String kind, List<String> annotations) {
+			this.name = name;
+			this.kind = kind;
+			this.annotations = Collections.unmodifiableList(new ArrayList<String>(annotations));
+		}
+
+		/**
+		 * retrieve the binary class name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * retrieve one of {@link JarModuleIndex#NODE}, {@link JarModuleIndex#LINK}
+		 * or {@link JarModuleIndex#PACKET}
+		 */
+		public String getKind() {
+			return kind;
+		}
+
+		/**
+		 * retrieve the binary names of the class annotations
+		 */
+		public List<String> getAnnotations() {
+			return annotations;
+		}
+
+		public boolean hasAnnotation(Class<?> annotation) {
+			return annotations.contains(annotation.getName());
+		}
+
+		@Override
+		public String toString() {
+			return kind + " " + name + annotations;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.distributed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+
+/**
+ * reads packets written by a {@link ComponentOutputStream}; the classes
+ * are loaded by the loader of the simulated module, the references are
+ * resolved by the part of the simulation that receives them
+ * @author Dominik
+ *
+ */
+class ComponentInputStream extends ObjectInputStream {
+	private ClassLoader loader;
+	private PartitionedSimulation simulation;
+
+	ComponentInputStream(InputStream in, ClassLoader loader, PartitionedSimulation simulation) throws IOException {
+		super(in);
+		this.loader = loader;
+		this.simulation = simulation;
+		enableResolveObject(true);
+	}
+
+	@Override
+	protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+		try {
+			return Class.forName(desc.getName(), false, loader);
+		} catch (ClassNotFoundException e) {
+			return super.resolveClass(desc);
+		}
+	}
+
+	@Override
+	protected Object resolveObject(Object obj) throws IOException {
+		if (obj instanceof ComponentRef) {
+			ComponentRef ref = (ComponentRef) obj;
+			if (ref.isNode()) {
+				SimNode node = simulation.getNode(ref.getId());
+				if (node != null) {
+					return node.getUserLogic();
+				}
+			} else {
+				SimLink link = simulation.getLink(ref.getId());
+				if (link != null) {
+					return link.getUserLogic();
+				}
+			}
+			throw new IOException("unknown component " + ref.getId());
+		}
+		return obj;
+	}
+}
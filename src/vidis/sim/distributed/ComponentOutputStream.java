@@ -0,0 +1,41 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.distributed;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import vidis.data.mod.IUserComponent;
+import vidis.data.mod.IUserNode;
+
+/**
+ * serialises packets; user nodes and links they refer to are written as
+ * references to their ids
+ * @author Dominik
+ *
+ */
+class ComponentOutputStream extends ObjectOutputStream {
+	private Map<IUserComponent, String> ids;
+
+	ComponentOutputStream(OutputStream out, Map<IUserComponent, String> ids) throws IOException {
+		super(out);
+		this.ids = ids;
+		enableReplaceObject(true);
+	}
+
+	@Override
+	protected Object replaceObject(Object obj) throws IOException {
+		if (obj instanceof IUserComponent) {
+			String id = ids.get(obj);
+			if (id != null) {
+				return new ComponentRef(id, obj instanceof IUserNode);
+			}
+		}
+		return obj;
+	}
+}
@@ -0,0 +1,35 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.distributed;
+
+import java.io.Serializable;
+
+/**
+ * stands for a user node or link within a serialised packet; a process
+ * builds a node of another part when a packet refers to it, but knows
+ * only the links of its part and those that lead to it
+ * @author Dominik
+ *
+ */
+final class ComponentRef implements Serializable {
+	private static final long serialVersionUID = 4129683745103957720L;
+
+	private final String id;
+	private final boolean node;
+
+	ComponentRef(String id, boolean node) {
+		this.id = id;
+		this.node = node;
+	}
+
+	String getId() {
+		return id;
+	}
+
+	boolean isNode() {
+		return node;
+	}
+}
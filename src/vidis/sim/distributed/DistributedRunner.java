@@ -0,0 +1,363 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import vidis.data.sim.SimNode;
+import vidis.sim.Simulator;
+import vidis.sim.classloader.modules.interfaces.IModuleFile;
+import vidis.sim.partition.ComponentPartitioner;
+import vidis.sim.sweep.SweepResult;
+import vidis.sim.sweep.SweepRun;
+import vidis.sim.sweep.SweepRunner;
+
+/**
+ * executes one simulation in several processes on this machine.
+ * <p>
+ * the runner starts a {@link Worker} process per part and talks to them
+ * over local tcp connections. the workers run window by window (see
+ * {@link PartitionedSimulation#getWindow()}); after every window the
+ * runner passes the packets between the parts on. the results add up to
+ * those of a single process run with the same seed, as long as the
+ * packets are serializable and the user logic of a node only changes its
+ * own state.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class DistributedRunner {
+	private static Logger logger = Logger.getLogger(DistributedRunner.class);
+
+	/**
+	 * how long to wait for the workers to connect
+	 */
+	private static final int CONNECT_TIMEOUT = 60000;
+
+	private int processes;
+
+	public DistributedRunner(int processes) {
+		this.processes = Math.max(1, processes);
+	}
+
+	private static class Connection {
+		private Socket socket;
+		private DataInputStream in;
+		private DataOutputStream out;
+
+		public Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		/**
+		 * reads the first word of an answer
+		 */
+		public void expectOk(int process) throws IOException {
+			if (in.readInt() != Worker.OK) {
+				throw new IOException("process " + process + " failed: " + in.readUTF());
+			}
+		}
+
+		public void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// gone anyway
+			}
+		}
+	}
+
+	/**
+	 * executes a msim file
+	 * @param msim the msim name, see {@link SweepRunner#findModuleFile(String)}
+	 * @param steps the number of steps to execute
+	 * @param seed the root seed of the random streams
+	 * @return the summed up results of all workers
+	 */
+	public SweepResult run(String msim, long steps, long seed) {
+		SweepResult result = new SweepResult(msim + "#" + seed);
+		long start = System.nanoTime();
+		List<Process> workers = new ArrayList<Process>();
+		Connection[] connections = new Connection[processes];
+		ServerSocket server = null;
+		try {
+			server = new ServerSocket(0, processes, InetAddress.getByName("localhost"));
+			server.setSoTimeout(CONNECT_TIMEOUT);
+			for (int i = 0; i < processes; i++) {
+				workers.add(launch(i, server.getLocalPort()));
+			}
+			for (int i = 0; i < processes; i++) {
+				connections[i] = new Connection(server.accept());
+			}
+			long window = setup(connections, msim, seed);
+			byte[][][] inbound = new byte[processes][processes][];
+			long done = 0;
+			while (done < steps) {
+				long n = Math.min(window, steps - done);
+				exchange(connections, inbound, n);
+				done += n;
+			}
+			// hand over the packets of the last window
+			exchange(connections, inbound, 0);
+			collect(connections, result);
+			result.setSteps(done);
+			result.setNanos(System.nanoTime() - start);
+		} catch (IOException e) {
+			logger.error("distributed run of " + msim + " failed", e);
+			result.setNanos(System.nanoTime() - start);
+			result.setError(e);
+		} finally {
+			for (Connection c : connections) {
+				if (c != null) {
+					try {
+						c.out.writeInt(Worker.STOP);
+						c.out.flush();
+					} catch (IOException e) {
+						// the worker is gone already
+					}
+					c.close();
+				}
+			}
+			if (server != null) {
+				try {
+					server.close();
+				} catch (IOException e) {
+					// nothing to do
+				}
+			}
+			for (Process p : workers) {
+				try {
+					p.waitFor();
+				} catch (InterruptedException e) {
+					p.destroy();
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * starts a worker process with the class path of this one
+	 */
+	private Process launch(final int process, int port) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		String log = System.getProperty("log4j.configuration");
+		if (log != null) {
+			command.add("-Dlog4j.configuration=" + log);
+		}
+		command.add(Worker.class.getName());
+		command.add("localhost");
+		command.add(String.valueOf(port));
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		final Process p = builder.start();
+		Thread output = new Thread("worker " + process + " output") {
+			@Override
+			public void run() {
+				try {
+					BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+					for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+						System.err.println("[" + process + "] " + line);
+					}
+				} catch (IOException e) {
+					// the worker has ended
+				}
+			}
+		};
+		output.setDaemon(true);
+		output.start();
+		return p;
+	}
+
+	/**
+	 * lets every worker import the msim file and checks that all of them
+	 * partitioned it the same way
+	 * @return the window of the run
+	 */
+	private long setup(Connection[] connections, String msim, long seed) throws IOException {
+		for (int i = 0; i < processes; i++) {
+			DataOutputStream out = connections[i].out;
+			out.writeInt(Worker.SETUP);
+			out.writeUTF(msim);
+			out.writeLong(seed);
+			out.writeInt(processes);
+			out.writeInt(i);
+			out.flush();
+		}
+		String partitioning = null;
+		long window = 0;
+		for (int i = 0; i < processes; i++) {
+			connections[i].expectOk(i);
+			String p = connections[i].in.readUTF();
+			long w = connections[i].in.readLong();
+			if (partitioning == null) {
+				partitioning = p;
+				window = w;
+			} else if (!partitioning.equals(p) || window != w) {
+				throw new IOException("process " + i + " partitioned differently: " + p);
+			}
+		}
+		logger.info(msim + ": " + partitioning + ", window " + (window == Long.MAX_VALUE ? "unbounded" : window + " steps"));
+		return window;
+	}
+
+	/**
+	 * hands the packets over and lets every worker execute some steps
+	 * @param inbound the packets for every worker from every worker; the
+	 *            new packets are stored into it
+	 */
+	private void exchange(Connection[] connections, byte[][][] inbound, long steps) throws IOException {
+		for (int i = 0; i < processes; i++) {
+			DataOutputStream out = connections[i].out;
+			out.writeInt(Worker.RUN);
+			out.writeLong(steps);
+			int batches = 0;
+			for (int from = 0; from < processes; from++) {
+				if (inbound[i][from] != null) {
+					batches++;
+				}
+			}
+			out.writeInt(batches);
+			for (int from = 0; from < processes; from++) {
+				if (inbound[i][from] != null) {
+					Worker.writeBytes(out, inbound[i][from]);
+					inbound[i][from] = null;
+				}
+			}
+			out.flush();
+		}
+		for (int i = 0; i < processes; i++) {
+			connections[i].expectOk(i);
+			for (int to = 0; to < processes; to++) {
+				byte[] batch = Worker.readBytes(connections[i].in);
+				if (batch.length > 0) {
+					inbound[to][i] = batch;
+				}
+			}
+		}
+	}
+
+	/**
+	 * adds up the results of all workers
+	 */
+	private void collect(Connection[] connections, SweepResult result) throws IOException {
+		for (int i = 0; i < processes; i++) {
+			connections[i].out.writeInt(Worker.COLLECT);
+			connections[i].out.flush();
+		}
+		for (int i = 0; i < processes; i++) {
+			DataInputStream in = connections[i].in;
+			connections[i].expectOk(i);
+			int values = in.readInt();
+			for (int v = 0; v < values; v++) {
+				String key = in.readUTF();
+				long value = in.readLong();
+				Object sum = result.get(key);
+				if (sum != null && !"time".equals(key)) {
+					value += ((Number) sum).longValue();
+				}
+				result.put(key, value);
+			}
+		}
+	}
+
+	/**
+	 * a single process run that collects the same values as the workers
+	 */
+	private static class SingleRun extends SweepRun {
+		public SingleRun(String name, IModuleFile file, long steps, long seed) {
+			super(name, file, steps, seed);
+		}
+
+		@Override
+		protected void collect(Simulator simulator, SweepResult result) {
+			super.collect(simulator, result);
+			List<SimNode> nodes = ComponentPartitioner.getNodes(simulator.getSimulatorComponents());
+			result.put("digest", PartitionedSimulation.digest(nodes));
+			result.put("state", PartitionedSimulation.state(nodes));
+		}
+	}
+
+	/**
+	 * usage: DistributedRunner &lt;steps&gt; &lt;processes&gt; &lt;msim&gt; [seed] [-verify]
+	 * <p>
+	 * runs a msim file in the given number of processes and prints the
+	 * result as csv; -verify runs it in this process too and fails if
+	 * the results differ
+	 * </p>
+	 */
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.err.println("usage: DistributedRunner <steps> <processes> <msim> [seed] [-verify]");
+			System.exit(1);
+		}
+		long steps = Long.parseLong(args[0]);
+		int processes = Integer.parseInt(args[1]);
+		String msim = args[2];
+		long seed = 0;
+		boolean verify = false;
+		for (int i = 3; i < args.length; i++) {
+			if ("-verify".equals(args[i])) {
+				verify = true;
+			} else {
+				seed = Long.parseLong(args[i]);
+			}
+		}
+		IModuleFile file = SweepRunner.findModuleFile(msim);
+		if (file == null) {
+			System.err.println("msim file not found: " + msim);
+			System.exit(1);
+		}
+		List<SweepResult> results = new ArrayList<SweepResult>();
+		SweepResult distributed = new DistributedRunner(processes).run(msim, steps, seed);
+		results.add(distributed);
+		boolean failed = !distributed.isSuccessful();
+		if (verify) {
+			SweepResult single = new SweepRunner(1).execute(new SingleRun(msim + "#" + seed + "@1", file, steps, seed));
+			results.add(single);
+			failed |= !single.isSuccessful() || !same(distributed, single);
+		}
+		SweepRunner.print(results, System.out);
+		if (verify) {
+			System.out.println(failed ? "results differ" : "results match");
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	private static boolean same(SweepResult a, SweepResult b) {
+		if (a.getValues().size() != b.getValues().size()) {
+			return false;
+		}
+		for (Map.Entry<String, Object> e : a.getValues().entrySet()) {
+			Object other = b.get(e.getKey());
+			if (other == null || ((Number) other).longValue() != ((Number) e.getValue()).longValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
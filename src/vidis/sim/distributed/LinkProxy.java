@@ -0,0 +1,103 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.distributed;
+
+import java.util.LinkedList;
+
+import vidis.data.sim.ILinkProxy;
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+import vidis.data.sim.SimPacket;
+
+/**
+ * one end of a link between two processes; packets arrive in the order
+ * they were sent, as only the remote node sends towards this end
+ * @author Dominik
+ *
+ */
+final class LinkProxy implements ILinkProxy {
+	private final PartitionedSimulation simulation;
+	private final SimLink link;
+	private final SimNode remote;
+	private final int process;
+	private final boolean owner;
+
+	private final LinkedList<Arrival> arrivals = new LinkedList<Arrival>();
+
+	private static class Arrival {
+		private SimPacket packet;
+		private long step;
+		public Arrival(SimPacket packet, long step) {
+			this.packet = packet;
+			this.step = step;
+		}
+	}
+
+	/**
+	 * @param remote the node simulated by the other process
+	 * @param process the number of the other process
+	 * @param owner true if this process executes the user link
+	 */
+	LinkProxy(PartitionedSimulation simulation, SimLink link, SimNode remote, int process, boolean owner) {
+		this.simulation = simulation;
+		this.link = link;
+		this.remote = remote;
+		this.process = process;
+		this.owner = owner;
+	}
+
+	SimLink getLink() {
+		return link;
+	}
+
+	int getProcess() {
+		return process;
+	}
+
+	public boolean isRemote(SimNode node) {
+		return node == remote;
+	}
+
+	public boolean isOwner() {
+		return owner;
+	}
+
+	public void forward(SimPacket packet, SimNode to, long step) {
+		simulation.forward(process, link, packet, to, step);
+	}
+
+	public SimPacket poll(long step) {
+		Arrival a = arrivals.peek();
+		if (a == null || a.step > step) {
+			return null;
+		}
+		if (a.step < step) {
+			throw new IllegalStateException(link + ": packet " + a.packet + " for step " + a.step + " arrived too late");
+		}
+		arrivals.poll();
+		return a.packet;
+	}
+
+	public boolean isIdle() {
+		return arrivals.isEmpty();
+	}
+
+	/**
+	 * queues a packet from the other process
+	 * @param step the step it has to be delivered in
+	 */
+	void arrive(SimPacket packet, long step) {
+		arrivals.add(new Arrival(packet, step));
+		link.wake();
+	}
+
+	/**
+	 * retrieve the number of packets waiting for delivery
+	 */
+	int getPending() {
+		return arrivals.size();
+	}
+}
@@ -0,0 +1,426 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import vidis.data.mod.IUserComponent;
+import vidis.data.sim.AComponent;
+import vidis.data.sim.ComponentStatistics;
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+import vidis.data.sim.SimPacket;
+import vidis.data.var.vars.AVariable;
+import vidis.sim.Simulator;
+import vidis.sim.classloader.modules.interfaces.IModuleFile;
+import vidis.sim.partition.LabelPropagationPartitioner;
+import vidis.sim.partition.PartitionGraph;
+import vidis.sim.partition.Partitioning;
+import vidis.sim.sweep.SweepResult;
+import vidis.sim.topology.EdgeList;
+import vidis.sim.xml.modules.XMLModuleReader;
+import vidis.sim.xml.modules.dataStructure.DocumentData;
+import vidis.sim.xml.modules.dataStructure.DocumentDataConnection;
+
+/**
+ * the part of a simulation one process of a distributed run executes.
+ * <p>
+ * every process reads the whole msim file and partitions its nodes by
+ * the links between them, like {@link Simulator#partitionNodes(int)} does
+ * for a fresh import, so all processes agree on the parts. a process then
+ * builds only the nodes of its part, the links between them and the
+ * links to the other parts; the components keep their ids and random
+ * streams, as those depend on the seed and the id only. the order of
+ * execution is not changed.
+ * </p>
+ * <p>
+ * a node of another part is only known by its id; packets carry it as a
+ * {@link ComponentRef}. it is built, but neither registered nor executed,
+ * where a link leads to it or a packet refers to it, as the user logic
+ * expects a node there. packets may only refer to the links of the
+ * sending part that lead to the receiving one.
+ * </p>
+ * <p>
+ * a link between two parts is registered in both processes; it belongs
+ * to the part of its first node, which executes its user logic. a packet
+ * towards the other part is serialised together with the step the queue
+ * of the link would deliver it in and handed over at the end of the
+ * window. the other process delivers it within that step at the slot of
+ * the link. a packet needs at least delay + 1 steps, so all processes may
+ * run that many steps before they have to exchange their packets.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class PartitionedSimulation {
+	private static Logger logger = Logger.getLogger(PartitionedSimulation.class);
+
+	private final Simulator simulator;
+	private final int processes;
+	private final int index;
+
+	private Partitioning partitioning;
+	private long window = Long.MAX_VALUE;
+
+	/**
+	 * the part of every node of the msim file
+	 */
+	private Map<String, Integer> parts = new HashMap<String, Integer>();
+	/**
+	 * the nodes built by this process, its own and those of other parts
+	 */
+	private Map<String, SimNode> nodes = new HashMap<String, SimNode>();
+	private Map<String, SimLink> links = new HashMap<String, SimLink>();
+	private Map<IUserComponent, String> ids = new IdentityHashMap<IUserComponent, String>();
+
+	private List<SimNode> ownNodes = new ArrayList<SimNode>();
+	private List<SimLink> ownLinks = new ArrayList<SimLink>();
+	private Map<String, LinkProxy> proxies = new HashMap<String, LinkProxy>();
+
+	/**
+	 * the packets for every other process since the last exchange
+	 */
+	private ByteArrayOutputStream[] buffers;
+	private ComponentOutputStream[] outboxes;
+
+	/**
+	 * reads a msim file and builds the part of this process
+	 * @param file the msim file
+	 * @param seed the root seed of the random streams
+	 * @param processes the number of processes of the run
+	 * @param index the number of this process
+	 */
+	public PartitionedSimulation(IModuleFile file, long seed, int processes, int index) {
+		this.processes = processes;
+		this.index = index;
+		this.buffers = new ByteArrayOutputStream[processes];
+		this.outboxes = new ComponentOutputStream[processes];
+		XMLModuleReader reader = XMLModuleReader.parse(file);
+		if (reader == null) {
+			throw new IllegalArgumentException("cannot read " + file);
+		}
+		Set<String> nodeIds = new HashSet<String>();
+		Set<String> linkIds = new HashSet<String>();
+		split(reader.getDocument(), nodeIds, linkIds);
+		simulator = Simulator.createHeadless();
+		simulator.setSeed(seed);
+		simulator.importSimFilePart(reader, nodeIds, linkIds);
+		simulator.execute(new Runnable() {
+			public void run() {
+				connect();
+			}
+		});
+		logger.info("process " + index + " keeps " + ownNodes.size() + " nodes, " + ownLinks.size() + " links and " + proxies.size() + " links to other processes");
+	}
+
+	/**
+	 * partitions the nodes of the msim file and decides what this process
+	 * builds
+	 * @param nodeIds filled with the nodes of this part
+	 * @param linkIds filled with the links that touch them
+	 */
+	private void split(DocumentData document, Set<String> nodeIds, Set<String> linkIds) {
+		// the nodes are numbered in the order of the import
+		List<String> all = new ArrayList<String>(document.getNodes().keySet());
+		Collections.sort(all);
+		Map<String, Integer> numbers = new HashMap<String, Integer>();
+		for (String id : all) {
+			numbers.put(id, numbers.size());
+		}
+		EdgeList edges = new EdgeList(Math.max(1, document.getConnections().size()));
+		List<DocumentDataConnection> connected = new ArrayList<DocumentDataConnection>();
+		Set<String> seen = new HashSet<String>();
+		Set<String> pairs = new HashSet<String>();
+		for (DocumentDataConnection c : document.getConnections()) {
+			String link = c.getLink().getId();
+			if (document.getLinkById(link) == null || !seen.add(link)) {
+				// not imported
+				continue;
+			}
+			String a = c.getNodeA().getId();
+			String b = c.getNodeB().getId();
+			if (pairs.contains(a + "\n" + b)) {
+				// refused to connect, the first process keeps it
+				if (index == 0) {
+					linkIds.add(link);
+				}
+				continue;
+			}
+			pairs.add(a + "\n" + b);
+			pairs.add(b + "\n" + a);
+			edges.add(numbers.get(a), numbers.get(b));
+			connected.add(c);
+		}
+		partitioning = new LabelPropagationPartitioner().partition(new PartitionGraph(all.size(), edges, null), processes);
+		for (int v = 0; v < all.size(); v++) {
+			parts.put(all.get(v), partitioning.getPart(v));
+			if (partitioning.getPart(v) == index) {
+				nodeIds.add(all.get(v));
+			}
+		}
+		long lookahead = Long.MAX_VALUE;
+		for (DocumentDataConnection c : connected) {
+			String link = c.getLink().getId();
+			int a = parts.get(c.getNodeA().getId());
+			int b = parts.get(c.getNodeB().getId());
+			if (a != b) {
+				long delay = document.getLinkById(link).getDelay();
+				if (delay <= 0) {
+					throw new IllegalStateException("link " + link + " without delay cannot connect nodes of different processes");
+				}
+				lookahead = Math.min(lookahead, delay);
+			}
+			if (a == index || b == index) {
+				linkIds.add(link);
+			}
+		}
+		if (lookahead != Long.MAX_VALUE) {
+			window = lookahead + 1;
+		}
+	}
+
+	/**
+	 * puts the proxies between the built links and the nodes of the other
+	 * parts
+	 */
+	private void connect() {
+		for (AComponent c : new ArrayList<AComponent>(simulator.getSimulatorComponents())) {
+			if (c instanceof SimNode) {
+				SimNode node = (SimNode) c;
+				ownNodes.add(node);
+				known(node);
+			} else if (c instanceof SimLink) {
+				SimLink link = (SimLink) c;
+				links.put(link.getId(), link);
+				ids.put(link.getUserLogic(), link.getId());
+				if (!link.isConnected()) {
+					ownLinks.add(link);
+					continue;
+				}
+				int a = parts.get(link.getNodeASim().getId());
+				int b = parts.get(link.getNodeBSim().getId());
+				if (a == index) {
+					ownLinks.add(link);
+				}
+				if (a != index) {
+					known(link.getNodeASim());
+					install(new LinkProxy(this, link, link.getNodeASim(), a, false));
+				} else if (b != index) {
+					known(link.getNodeBSim());
+					install(new LinkProxy(this, link, link.getNodeBSim(), b, true));
+				}
+			}
+		}
+	}
+
+	private void known(SimNode node) {
+		nodes.put(node.getId(), node);
+		ids.put(node.getUserLogic(), node.getId());
+	}
+
+	private void install(LinkProxy proxy) {
+		proxy.getLink().setProxy(proxy);
+		proxies.put(proxy.getLink().getId(), proxy);
+	}
+
+	/**
+	 * retrieve a node by its id; a node of another part that is not built
+	 * yet is built now
+	 * @return the node or null if the msim file has no such node
+	 */
+	SimNode getNode(String id) {
+		SimNode node = nodes.get(id);
+		if (node == null) {
+			node = simulator.createRemoteNode(id);
+			if (node != null) {
+				known(node);
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * retrieve a link of this part or one that leads to it
+	 * @return the link or null
+	 */
+	SimLink getLink(String id) {
+		return links.get(id);
+	}
+
+	public Simulator getSimulator() {
+		return simulator;
+	}
+
+	/**
+	 * retrieve the number of processes of the run
+	 */
+	public int getProcesses() {
+		return processes;
+	}
+
+	public Partitioning getPartitioning() {
+		return partitioning;
+	}
+
+	/**
+	 * retrieve how many steps may be executed before the packets have to
+	 * be exchanged; Long.MAX_VALUE if no link connects different processes
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	/**
+	 * executes a number of steps
+	 */
+	public void run(long steps) {
+		for (long i = 0; i < steps; i++) {
+			simulator.simulateOneStep();
+		}
+	}
+
+	/**
+	 * serialises a packet for another process
+	 */
+	void forward(int process, SimLink link, SimPacket packet, SimNode to, long step) {
+		try {
+			if (outboxes[process] == null) {
+				buffers[process] = new ByteArrayOutputStream();
+				outboxes[process] = new ComponentOutputStream(buffers[process], ids);
+			}
+			outboxes[process].writeObject(new Transfer(link.getId(), to.getId(), packet.getNumber(), step, packet.getUserLogic()));
+			// the packet leaves as it is right now, later changes travel with later packets
+			outboxes[process].reset();
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot send " + packet.getUserLogic() + " over " + link.getId() + " to process " + process, e);
+		}
+	}
+
+	/**
+	 * retrieve the packets for another process since the last call
+	 * @return the serialised packets or an empty array
+	 */
+	public byte[] takeOutbox(int process) throws IOException {
+		ComponentOutputStream out = outboxes[process];
+		if (out == null) {
+			return new byte[0];
+		}
+		out.writeObject(null);
+		out.close();
+		byte[] batch = buffers[process].toByteArray();
+		outboxes[process] = null;
+		buffers[process] = null;
+		return batch;
+	}
+
+	/**
+	 * hands the packets of another process over to their links
+	 * @param batch the packets as taken by {@link #takeOutbox(int)}
+	 */
+	public void receive(byte[] batch) throws IOException, ClassNotFoundException {
+		if (batch.length == 0) {
+			return;
+		}
+		final List<Transfer> transfers = new ArrayList<Transfer>();
+		ComponentInputStream in = new ComponentInputStream(new ByteArrayInputStream(batch), simulator.getClassLoader(), this);
+		for (Object o = in.readObject(); o != null; o = in.readObject()) {
+			transfers.add((Transfer) o);
+		}
+		in.close();
+		simulator.execute(new Runnable() {
+			public void run() {
+				for (Transfer t : transfers) {
+					LinkProxy proxy = proxies.get(t.getLink());
+					if (proxy == null) {
+						throw new IllegalStateException("link " + t.getLink() + " does not lead to process " + index);
+					}
+					SimLink link = proxy.getLink();
+					SimNode to = nodes.get(t.getTo());
+					proxy.arrive(new SimPacket(t.getPacket(), link, link.getOtherNode(to), to, t.getNumber()), t.getStep());
+				}
+			}
+		});
+	}
+
+	/**
+	 * collects the results of this part like {@link vidis.sim.sweep.SweepRun},
+	 * plus digests of the packet counters and of the user variables of
+	 * every node; the results of all parts add up to those of the whole
+	 * simulation, except the time
+	 */
+	public void collect(SweepResult result) {
+		long packets = 0;
+		for (SimLink link : ownLinks) {
+			packets += link.getPacketsOnLink().size();
+		}
+		for (LinkProxy proxy : proxies.values()) {
+			packets += proxy.getPending();
+		}
+		long sent = 0;
+		long received = 0;
+		for (SimNode node : ownNodes) {
+			sent += node.getStatistics().getSent();
+			received += node.getStatistics().getReceived();
+		}
+		result.put("time", simulator.getNow());
+		result.put("nodes", ownNodes.size());
+		result.put("links", ownLinks.size());
+		result.put("packets", packets);
+		result.put("sent", sent);
+		result.put("received", received);
+		result.put("digest", digest(ownNodes));
+		result.put("state", state(ownNodes));
+	}
+
+	/**
+	 * retrieve a checksum over the packet counters of the given nodes that
+	 * does not depend on their order
+	 */
+	public static long digest(List<SimNode> nodes) {
+		long digest = 0;
+		for (SimNode node : nodes) {
+			ComponentStatistics s = node.getStatistics();
+			digest += (node.getId() + ":" + s.getSent() + ":" + s.getReceived() + ":" + s.getDropped()).hashCode();
+		}
+		return digest;
+	}
+
+	/**
+	 * retrieve a checksum over the user variables of the given nodes that
+	 * does not depend on their order; values are compared by their text,
+	 * arrays by their elements
+	 */
+	public static long state(List<SimNode> nodes) {
+		long state = 0;
+		for (SimNode node : nodes) {
+			for (String id : node.getVariableIds()) {
+				if (id.startsWith(AVariable.COMMON_SCOPES.USER + ".")) {
+					Object value = node.getVariableById(id).getData();
+					String text = value != null && value.getClass().isArray() ? Arrays.deepToString(new Object[] { value }) : String.valueOf(value);
+					state += (node.getId() + ":" + id + "=" + text).hashCode();
+				}
+			}
+		}
+		return state;
+	}
+
+	public void shutdown() {
+		simulator.shutdown();
+	}
+}
@@ -0,0 +1,60 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.distributed;
+
+import java.io.Serializable;
+
+import vidis.data.mod.IUserPacket;
+
+/**
+ * a packet on its way to the process of its target node
+ * @author Dominik
+ *
+ */
+final class Transfer implements Serializable {
+	private static final long serialVersionUID = -6650374229417096218L;
+
+	private final String link;
+	private final String to;
+	private final long number;
+	private final long step;
+	private final IUserPacket packet;
+
+	/**
+	 * @param link the id of the link
+	 * @param to the id of the target node
+	 * @param number the number of the packet among all packets of its source
+	 * @param step the step the packet has to be delivered in
+	 * @param packet the user packet
+	 */
+	Transfer(String link, String to, long number, long step, IUserPacket packet) {
+		this.link = link;
+		this.to = to;
+		this.number = number;
+		this.step = step;
+		this.packet = packet;
+	}
+
+	String getLink() {
+		return link;
+	}
+
+	String getTo() {
+		return to;
+	}
+
+	long getNumber() {
+		return number;
+	}
+
+	long getStep() {
+		return step;
+	}
+
+	IUserPacket getPacket() {
+		return packet;
+	}
+}
@@ -0,0 +1,152 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import vidis.sim.classloader.modules.interfaces.IModuleFile;
+import vidis.sim.sweep.SweepResult;
+import vidis.sim.sweep.SweepRunner;
+
+/**
+ * one process of a distributed run; it connects to the
+ * {@link DistributedRunner}, executes its part of the simulation window
+ * by window and exchanges the packets between the parts through it.
+ * @author Dominik
+ *
+ */
+public class Worker {
+	private static Logger logger = Logger.getLogger(Worker.class);
+
+	// -- commands of the runner -- //
+	static final int SETUP = 1;
+	static final int RUN = 2;
+	static final int COLLECT = 3;
+	static final int STOP = 4;
+
+	// -- first word of every answer -- //
+	static final int OK = 0;
+	static final int FAILED = 1;
+
+	private DataInputStream in;
+	private DataOutputStream out;
+	private PartitionedSimulation simulation;
+
+	public Worker(DataInputStream in, DataOutputStream out) {
+		this.in = in;
+		this.out = out;
+	}
+
+	/**
+	 * answers the commands of the runner until it stops this worker or
+	 * something fails
+	 */
+	public void serve() throws IOException {
+		try {
+			while (true) {
+				int command = in.readInt();
+				if (command == SETUP) {
+					setup();
+				} else if (command == RUN) {
+					run();
+				} else if (command == COLLECT) {
+					collect();
+				} else if (command == STOP) {
+					return;
+				} else {
+					throw new IOException("unknown command " + command);
+				}
+				out.flush();
+			}
+		} catch (Exception e) {
+			logger.error("worker failed", e);
+			out.writeInt(FAILED);
+			out.writeUTF(String.valueOf(e));
+			out.flush();
+		} finally {
+			if (simulation != null) {
+				simulation.shutdown();
+			}
+		}
+	}
+
+	private void setup() throws IOException {
+		String msim = in.readUTF();
+		long seed = in.readLong();
+		int processes = in.readInt();
+		int index = in.readInt();
+		IModuleFile file = SweepRunner.findModuleFile(msim);
+		if (file == null) {
+			throw new IOException("msim file not found: " + msim);
+		}
+		simulation = new PartitionedSimulation(file, seed, processes, index);
+		out.writeInt(OK);
+		out.writeUTF(simulation.getPartitioning().toString());
+		out.writeLong(simulation.getWindow());
+	}
+
+	private void run() throws IOException, ClassNotFoundException {
+		long steps = in.readLong();
+		int batches = in.readInt();
+		for (int i = 0; i < batches; i++) {
+			simulation.receive(readBytes(in));
+		}
+		simulation.run(steps);
+		out.writeInt(OK);
+		for (int i = 0; i < simulation.getProcesses(); i++) {
+			writeBytes(out, simulation.takeOutbox(i));
+		}
+	}
+
+	private void collect() throws IOException {
+		SweepResult result = new SweepResult("");
+		simulation.collect(result);
+		out.writeInt(OK);
+		out.writeInt(result.getValues().size());
+		for (Map.Entry<String, Object> e : result.getValues().entrySet()) {
+			out.writeUTF(e.getKey());
+			out.writeLong(((Number) e.getValue()).longValue());
+		}
+	}
+
+	static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * usage: Worker &lt;host&gt; &lt;port&gt;
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: Worker <host> <port>");
+			System.exit(1);
+		}
+		Socket socket = new Socket(args[0], Integer.parseInt(args[1]));
+		try {
+			socket.setTcpNoDelay(true);
+			new Worker(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+					new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))).serve();
+		} finally {
+			socket.close();
+		}
+		System.exit(0);
+	}
+}
@@ -0,0 +1,642 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import vidis.data.sim.AComponent;
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+import vidis.data.sim.SimPacket;
+import vidis.data.var.vars.AVariable;
+import vidis.data.var.vars.MethodVariable;
+import vidis.sim.trace.ReplayPacket;
+import vidis.ui.events.IVidisEvent;
+import vidis.ui.events.ObjectEvent;
+import vidis.ui.events.ObjectsEvent;
+import vidis.ui.model.impl.Packet;
+import vidis.ui.model.structure.IVisObject;
+import vidis.ui.mvc.api.Dispatcher;
+
+/**
+ * keeps the recent past of a simulation in memory to look back at it.
+ * <p>
+ * after every step the variables of the nodes and links and the packets
+ * on the links are recorded, but only of the components the simulator
+ * reports as changed: executed, woken up or with a variable set. every
+ * {@link #getSnapshotInterval()} steps all recorded values are written
+ * as a snapshot, in between only what changed since the step before. if
+ * the memory budget is exceeded the oldest snapshot and its changes are
+ * dropped. showing a former step starts at the snapshot before it, so it
+ * costs at most one snapshot interval of changes and never a reload of
+ * the simulation.
+ * </p>
+ * <p>
+ * only what the visualisation shows is recorded; the user logic is not
+ * rewound and goes on from the current step once the current values are
+ * shown again. values are copied, see {@link Value}, and the memory of
+ * an entry is taken from its copy. variables added after the shown step
+ * show their current value.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class History {
+	private static Logger logger = Logger.getLogger(History.class);
+
+	public static final long DEFAULT_BUDGET = 32L << 20;
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 64;
+
+	/**
+	 * memory of an entry without its value: the entry object and its
+	 * references within the frame
+	 */
+	private static final int ENTRY_BYTES = 48;
+
+	/**
+	 * a recorded value. immutable values are kept as they are, all others
+	 * in serialised form, so a value object changed in place later does
+	 * not change the history; values that cannot be serialised are kept
+	 * in their string form
+	 */
+	private static final class Value {
+		private final Object value;
+		private final byte[] bytes;
+		private final ClassLoader loader;
+		/**
+		 * the memory of the entry in bytes
+		 */
+		private final int size;
+
+		private Value(Object value, byte[] bytes, ClassLoader loader, int size) {
+			this.value = value;
+			this.bytes = bytes;
+			this.loader = loader;
+			this.size = size;
+		}
+
+		private static Value of(Object data) {
+			if (data == null || isImmutable(data)) {
+				return new Value(data, null, null, ENTRY_BYTES + sizeOf(data));
+			}
+			byte[] bytes = serialise(data);
+			if (bytes != null) {
+				return new Value(null, bytes, data.getClass().getClassLoader(), ENTRY_BYTES + 16 + bytes.length);
+			}
+			String text = String.valueOf(data);
+			return new Value(text, null, null, ENTRY_BYTES + sizeOf(text));
+		}
+
+		private static boolean isImmutable(Object data) {
+			return data instanceof String || data instanceof Integer || data instanceof Long || data instanceof Double
+					|| data instanceof Boolean || data instanceof Character || data instanceof Float || data instanceof Short
+					|| data instanceof Byte || data instanceof Enum<?> || data instanceof Class<?>;
+		}
+
+		private static byte[] serialise(Object data) {
+			if (!(data instanceof Serializable)) {
+				return null;
+			}
+			try {
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				ObjectOutputStream out = new ObjectOutputStream(buffer);
+				out.writeObject(data);
+				out.close();
+				return buffer.toByteArray();
+			} catch (IOException e) {
+				// a field cannot be serialised
+				return null;
+			}
+		}
+
+		/**
+		 * retrieve if two recorded values are equal
+		 */
+		private boolean same(Value v) {
+			if (bytes != null) {
+				return Arrays.equals(bytes, v.bytes);
+			}
+			return v.bytes == null && (value == null ? v.value == null : value.equals(v.value));
+		}
+
+		/**
+		 * retrieve the value; a serialised value is copied anew
+		 */
+		private Object get() {
+			if (bytes == null) {
+				return value;
+			}
+			try {
+				ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+					@Override
+					protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+						if (loader != null) {
+							try {
+								return Class.forName(desc.getName(), false, loader);
+							} catch (ClassNotFoundException e) {
+								// not from the module, try the default way
+							}
+						}
+						return super.resolveClass(desc);
+					}
+				};
+				return in.readObject();
+			} catch (IOException e) {
+				logger.error("cannot restore a value of the history", e);
+			} catch (ClassNotFoundException e) {
+				logger.error("cannot restore a value of the history", e);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * retrieve the memory of an immutable value
+	 */
+	private static int sizeOf(Object data) {
+		if (data instanceof String) {
+			return 40 + 2 * ((String) data).length();
+		}
+		return data == null ? 0 : 16;
+	}
+
+	/**
+	 * a packet on a link
+	 */
+	private static final class PacketView {
+		private final SimNode from;
+		private final SimNode to;
+		private final String id;
+		private final String name;
+		private final long sent;
+
+		private PacketView(SimNode from, SimNode to, String id, String name, long sent) {
+			this.from = from;
+			this.to = to;
+			this.id = id;
+			this.name = name;
+			this.sent = sent;
+		}
+
+		private int size() {
+			return ENTRY_BYTES + sizeOf(id) + sizeOf(name);
+		}
+	}
+
+	/**
+	 * what was recorded after one step
+	 */
+	private static final class Frame {
+		private List<AComponent> components = new ArrayList<AComponent>();
+		private List<String> ids = new ArrayList<String>();
+		private List<Value> values = new ArrayList<Value>();
+		private List<SimLink> links = new ArrayList<SimLink>();
+		private List<PacketView[]> packets = new ArrayList<PacketView[]>();
+		/**
+		 * the memory of the frame in bytes
+		 */
+		private long bytes;
+
+		private void add(AComponent c, String id, Value value) {
+			components.add(c);
+			ids.add(id);
+			values.add(value);
+			bytes += value.size;
+		}
+
+		private void add(SimLink link, PacketView[] views, int newBytes) {
+			links.add(link);
+			packets.add(views);
+			bytes += ENTRY_BYTES + 8 * views.length + newBytes;
+		}
+
+		private void apply(Map<AComponent, Map<String, Value>> allValues, Map<SimLink, PacketView[]> allPackets) {
+			for (int i = 0; i < components.size(); i++) {
+				Map<String, Value> v = allValues.get(components.get(i));
+				if (v == null) {
+					v = new HashMap<String, Value>();
+					allValues.put(components.get(i), v);
+				}
+				v.put(ids.get(i), values.get(i));
+			}
+			for (int i = 0; i < links.size(); i++) {
+				allPackets.put(links.get(i), packets.get(i));
+			}
+		}
+	}
+
+	/**
+	 * a snapshot and the changes of the following steps
+	 */
+	private static final class Segment {
+		private final long first;
+		private final List<Frame> frames = new ArrayList<Frame>();
+		private long bytes;
+
+		private Segment(long first) {
+			this.first = first;
+		}
+
+		private long last() {
+			return first + frames.size() - 1;
+		}
+	}
+
+	/**
+	 * what was recorded last for a component
+	 */
+	private static final class Track {
+		private Map<String, Value> values = new HashMap<String, Value>();
+		private SimPacket[] packets = new SimPacket[0];
+		private PacketView[] views = new PacketView[0];
+	}
+
+	private boolean enabled = true;
+	private long budget = DEFAULT_BUDGET;
+	private int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+
+	private LinkedList<Segment> segments = new LinkedList<Segment>();
+	private long bytes;
+	private Map<AComponent, Track> tracks = new IdentityHashMap<AComponent, Track>();
+	/**
+	 * false until all components have been recorded once
+	 */
+	private boolean complete;
+
+	private boolean showing;
+	private long shownStep;
+	private List<AComponent> formerShown = new ArrayList<AComponent>();
+	private Map<PacketView, Packet> shownPackets = new IdentityHashMap<PacketView, Packet>();
+	private List<Packet> hiddenPackets = new ArrayList<Packet>();
+
+	public synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * enables or disables recording; disabling drops the history
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	public synchronized long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * sets the memory the history may use in bytes; the newest snapshot
+	 * and its changes are always kept
+	 */
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		evict();
+	}
+
+	public synchronized int getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	/**
+	 * sets the number of steps from one snapshot to the next
+	 */
+	public synchronized void setSnapshotInterval(int snapshotInterval) {
+		this.snapshotInterval = Math.max(1, snapshotInterval);
+	}
+
+	/**
+	 * retrieve the estimated memory used in bytes
+	 */
+	public synchronized long getMemory() {
+		return bytes;
+	}
+
+	/**
+	 * retrieve the oldest step that may be shown
+	 * @return the step or -1 if the history is empty
+	 */
+	public synchronized long getOldestStep() {
+		return segments.isEmpty() ? -1 : segments.getFirst().first;
+	}
+
+	/**
+	 * retrieve the newest recorded step, this is the current one
+	 * @return the step or -1 if the history is empty
+	 */
+	public synchronized long getNewestStep() {
+		return segments.isEmpty() ? -1 : segments.getLast().last();
+	}
+
+	/**
+	 * retrieve if a former step is shown
+	 */
+	public synchronized boolean isShowing() {
+		return showing;
+	}
+
+	/**
+	 * retrieve the step that is shown, the newest one if no former step
+	 * is shown
+	 */
+	public synchronized long getShownStep() {
+		return showing ? shownStep : getNewestStep();
+	}
+
+	/**
+	 * drops the whole history, e.g. because the simulation was reset
+	 */
+	public synchronized void clear() {
+		showCurrent();
+		segments.clear();
+		bytes = 0;
+		tracks = new IdentityHashMap<AComponent, Track>();
+		complete = false;
+	}
+
+	/**
+	 * records the state after a step
+	 * @param step the number of steps done
+	 * @param changed the components that changed within the step
+	 * @param components all components of the simulation, only looked at
+	 * after the history was cleared
+	 */
+	public synchronized void record(long step, List<AComponent> changed, List<AComponent> components) {
+		if (!enabled) {
+			return;
+		}
+		showCurrent();
+		if (!segments.isEmpty() && step != segments.getLast().last() + 1) {
+			// the simulator was reset or another simulation was loaded
+			clear();
+		}
+		if (!complete) {
+			changed = components;
+			complete = true;
+		}
+		Segment segment = segments.isEmpty() ? null : segments.getLast();
+		boolean snapshot = segment == null || segment.frames.size() >= snapshotInterval;
+		if (snapshot) {
+			segment = new Segment(step);
+			segments.add(segment);
+		}
+		Frame frame = new Frame();
+		for (int i = 0; i < changed.size(); i++) {
+			AComponent c = changed.get(i);
+			if (!(c instanceof SimNode) && !(c instanceof SimLink)) {
+				continue;
+			}
+			Track t = tracks.get(c);
+			if (t == null) {
+				t = new Track();
+				tracks.put(c, t);
+			}
+			recordValues(frame, c, t);
+			if (c instanceof SimLink) {
+				recordPackets(frame, (SimLink) c, t, step);
+			}
+		}
+		if (snapshot) {
+			frame = snapshot();
+		}
+		segment.frames.add(frame);
+		segment.bytes += frame.bytes;
+		bytes += frame.bytes;
+		evict();
+	}
+
+	/**
+	 * writes all recorded values and packets into one frame; forgets the
+	 * components that are gone
+	 */
+	private Frame snapshot() {
+		Frame frame = new Frame();
+		for (Iterator<Map.Entry<AComponent, Track>> i = tracks.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<AComponent, Track> e = i.next();
+			AComponent c = e.getKey();
+			if (c.getSlot() < 0) {
+				i.remove();
+				continue;
+			}
+			Track t = e.getValue();
+			for (Map.Entry<String, Value> v : t.values.entrySet()) {
+				frame.add(c, v.getKey(), v.getValue());
+			}
+			if (c instanceof SimLink) {
+				int viewBytes = 0;
+				for (PacketView p : t.views) {
+					viewBytes += p.size();
+				}
+				frame.add((SimLink) c, t.views, viewBytes);
+			}
+		}
+		return frame;
+	}
+
+	private void evict() {
+		while (bytes > budget && segments.size() > 1) {
+			Segment oldest = segments.removeFirst();
+			bytes -= oldest.bytes;
+			logger.debug("dropped the history of the steps " + oldest.first + " to " + oldest.last());
+		}
+	}
+
+	/**
+	 * retrieve if the value of a variable is recorded; positions belong
+	 * to the layout and methods are only called if they return the same
+	 * value within a step
+	 */
+	private static boolean isRecorded(String id, AVariable var) {
+		if (AVariable.COMMON_IDENTIFIERS.POSITION.equals(id) || SimLink.POINT_A.equals(id) || SimLink.POINT_B.equals(id)) {
+			return false;
+		}
+		if (var instanceof MethodVariable) {
+			return ((MethodVariable) var).isCacheable();
+		}
+		return var != null;
+	}
+
+	/**
+	 * records the values of a component that differ from the ones
+	 * recorded before
+	 */
+	private static void recordValues(Frame frame, AComponent c, Track t) {
+		for (String id : c.getVariableIds()) {
+			AVariable var = c.getVariableById(id);
+			if (!isRecorded(id, var)) {
+				continue;
+			}
+			Value value = Value.of(var.getData());
+			Value last = t.values.get(id);
+			if (last != null && last.same(value)) {
+				continue;
+			}
+			t.values.put(id, value);
+			frame.add(c, id, value);
+		}
+	}
+
+	private static void recordPackets(Frame frame, SimLink link, Track t, long step) {
+		List<SimPacket> queued = link.getQueuedPackets();
+		if (queued.size() == t.packets.length) {
+			boolean same = true;
+			for (int i = 0; i < t.packets.length && same; i++) {
+				same = queued.get(i) == t.packets[i];
+			}
+			if (same) {
+				return;
+			}
+		}
+		Map<SimPacket, PacketView> known = new IdentityHashMap<SimPacket, PacketView>();
+		for (int i = 0; i < t.packets.length; i++) {
+			known.put(t.packets[i], t.views[i]);
+		}
+		SimPacket[] packets = queued.toArray(new SimPacket[queued.size()]);
+		PacketView[] views = new PacketView[packets.length];
+		int newBytes = 0;
+		for (int i = 0; i < packets.length; i++) {
+			views[i] = known.get(packets[i]);
+			if (views[i] == null) {
+				views[i] = viewOf(link, packets[i], step);
+				newBytes += views[i].size();
+			}
+		}
+		t.packets = packets;
+		t.views = views;
+		frame.add(link, views, newBytes);
+	}
+
+	private static PacketView viewOf(SimLink link, SimPacket p, long step) {
+		String name = p.getUserLogic().getClass().getSimpleName();
+		String id = name;
+		if (p.hasVariable(AVariable.COMMON_IDENTIFIERS.NAME)) {
+			name = String.valueOf(p.getVariableById(AVariable.COMMON_IDENTIFIERS.NAME).getData());
+		}
+		if (p.hasVariable(AVariable.COMMON_IDENTIFIERS.ID)) {
+			id = String.valueOf(p.getVariableById(AVariable.COMMON_IDENTIFIERS.ID).getData());
+		}
+		return new PacketView(p.getFromSim(), p.getToSim(), id, name, step - link.getStepsOnLinkForPacket(p));
+	}
+
+	/**
+	 * shows the values and packets after a former step
+	 * @param step the step within [{@link #getOldestStep()} .. {@link #getNewestStep()}]
+	 * @return false if the step is not within the history
+	 */
+	public synchronized boolean show(long step) {
+		Segment segment = null;
+		for (Segment s : segments) {
+			if (s.first <= step && step <= s.last()) {
+				segment = s;
+				break;
+			}
+		}
+		if (segment == null) {
+			return false;
+		}
+		Map<AComponent, Map<String, Value>> values = new IdentityHashMap<AComponent, Map<String, Value>>();
+		Map<SimLink, PacketView[]> packets = new IdentityHashMap<SimLink, PacketView[]>();
+		for (int i = 0; i <= step - segment.first; i++) {
+			segment.frames.get(i).apply(values, packets);
+		}
+		for (AComponent c : formerShown) {
+			c.showCurrentValues();
+		}
+		formerShown = new ArrayList<AComponent>(values.keySet());
+		for (Map.Entry<AComponent, Map<String, Value>> e : values.entrySet()) {
+			Map<String, Object> former = new HashMap<String, Object>();
+			for (Map.Entry<String, Value> v : e.getValue().entrySet()) {
+				former.put(v.getKey(), v.getValue().get());
+			}
+			e.getKey().showFormerValues(former);
+		}
+		if (!showing) {
+			hideLivePackets();
+		}
+		Map<PacketView, Packet> next = new IdentityHashMap<PacketView, Packet>();
+		for (Map.Entry<SimLink, PacketView[]> e : packets.entrySet()) {
+			SimLink link = e.getKey();
+			if (link.getVisObject() == null) {
+				continue;
+			}
+			for (PacketView p : e.getValue()) {
+				Packet vis = shownPackets.remove(p);
+				if (vis == null) {
+					vis = ReplayPacket.show(link, p.to, p.id, p.name);
+				}
+				ReplayPacket.place(vis, p.from, p.to, (double) (step - p.sent) / Math.max(1, link.getDelay()));
+				next.put(p, vis);
+			}
+		}
+		ReplayPacket.remove(shownPackets.values());
+		shownPackets = next;
+		showing = true;
+		shownStep = step;
+		return true;
+	}
+
+	/**
+	 * shows the current values and packets again
+	 */
+	public synchronized void showCurrent() {
+		if (!showing) {
+			return;
+		}
+		for (AComponent c : formerShown) {
+			c.showCurrentValues();
+		}
+		formerShown = new ArrayList<AComponent>();
+		ReplayPacket.remove(shownPackets.values());
+		shownPackets = new IdentityHashMap<PacketView, Packet>();
+		for (Packet vis : hiddenPackets) {
+			vis.getLink().addPacket(vis);
+			Dispatcher.forwardEvent(new ObjectEvent(IVidisEvent.ObjectRegister, vis));
+		}
+		hiddenPackets = new ArrayList<Packet>();
+		showing = false;
+	}
+
+	/**
+	 * takes the vis objects of the packets on their way from the links
+	 * while a former step is shown
+	 */
+	private void hideLivePackets() {
+		List<IVisObject> hidden = new ArrayList<IVisObject>();
+		for (AComponent c : tracks.keySet()) {
+			if (c instanceof SimLink) {
+				for (SimPacket p : ((SimLink) c).getQueuedPackets()) {
+					if (p.getVisObject() instanceof Packet) {
+						Packet vis = (Packet) p.getVisObject();
+						vis.getLink().delPacket(vis);
+						hiddenPackets.add(vis);
+						hidden.add(vis);
+					}
+				}
+			}
+		}
+		if (!hidden.isEmpty()) {
+			Dispatcher.forwardEvent(new ObjectsEvent(IVidisEvent.ObjectsUnregister, hidden));
+		}
+	}
+}
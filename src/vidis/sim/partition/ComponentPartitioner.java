@@ -0,0 +1,157 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.partition;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import vidis.data.sim.AComponent;
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+import vidis.sim.simulatorInternals.SimulatorData;
+import vidis.sim.topology.EdgeList;
+
+/**
+ * partitions the nodes of a simulation and orders its components by part.
+ * <p>
+ * a link belongs to the part of its first node, so every node is weighed
+ * with its observed cost plus the cost of those links (see
+ * {@link SimulatorData#getCost(AComponent)}). the components of a part
+ * become one block of the scheduler: first its nodes, then its links.
+ * packets and unconnected components follow behind the last block in
+ * the order they were registered.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class ComponentPartitioner {
+	private static Logger logger = Logger.getLogger(ComponentPartitioner.class);
+
+	private Partitioner partitioner;
+
+	public ComponentPartitioner() {
+		this(new LabelPropagationPartitioner());
+	}
+
+	public ComponentPartitioner(Partitioner partitioner) {
+		this.partitioner = partitioner;
+	}
+
+	/**
+	 * partitions the components and applies the order to the scheduler
+	 * @param data the components and their observed costs
+	 * @param parts the wanted number of parts
+	 * @return the partitioning of the nodes, in the order of
+	 *         {@link #getNodes(List)}
+	 */
+	public Partitioning partition(SimulatorData data, int parts) {
+		List<AComponent> components = data.getComponents();
+		synchronized (components) {
+			List<SimNode> nodes = getNodes(components);
+			Map<SimNode, Integer> index = indexOf(nodes);
+			List<SimLink> links = new ArrayList<SimLink>();
+			EdgeList edges = new EdgeList(Math.max(1, components.size() - nodes.size()));
+			Partitioning p = partition(data, nodes, index, links, edges, parts);
+
+			List<List<AComponent>> blocks = new ArrayList<List<AComponent>>();
+			for (int i = 0; i < p.getParts(); i++) {
+				blocks.add(new ArrayList<AComponent>());
+			}
+			for (int v = 0; v < nodes.size(); v++) {
+				blocks.get(p.getPart(v)).add(nodes.get(v));
+			}
+			for (int e = 0; e < links.size(); e++) {
+				blocks.get(p.getPart(edges.getA(e))).add(links.get(e));
+			}
+			List<AComponent> order = new ArrayList<AComponent>(components.size());
+			int[] sizes = new int[blocks.size()];
+			for (int i = 0; i < sizes.length; i++) {
+				order.addAll(blocks.get(i));
+				sizes[i] = blocks.get(i).size();
+			}
+			Map<AComponent, Boolean> placed = new IdentityHashMap<AComponent, Boolean>();
+			for (AComponent c : order) {
+				placed.put(c, Boolean.TRUE);
+			}
+			for (AComponent c : components) {
+				if (!placed.containsKey(c)) {
+					order.add(c);
+				}
+			}
+			data.order(order, sizes);
+			logger.info("partitioned " + nodes.size() + " nodes: " + p);
+			return p;
+		}
+	}
+
+	/**
+	 * partitions the nodes like {@link #partition(SimulatorData, int)}
+	 * but leaves the order of the scheduler alone
+	 * @return the partitioning of the nodes, in the order of
+	 *         {@link #getNodes(List)}
+	 */
+	public Partitioning assign(SimulatorData data, int parts) {
+		List<AComponent> components = data.getComponents();
+		synchronized (components) {
+			List<SimNode> nodes = getNodes(components);
+			EdgeList edges = new EdgeList(Math.max(1, components.size() - nodes.size()));
+			return partition(data, nodes, indexOf(nodes), new ArrayList<SimLink>(), edges, parts);
+		}
+	}
+
+	/**
+	 * builds the graph of the nodes and partitions it
+	 * @param links filled with the links between the nodes
+	 * @param edges filled with the nodes of these links
+	 */
+	private Partitioning partition(SimulatorData data, List<SimNode> nodes, Map<SimNode, Integer> index, List<SimLink> links, EdgeList edges, int parts) {
+		long[] weights = new long[nodes.size()];
+		for (int v = 0; v < weights.length; v++) {
+			weights[v] = 1 + data.getCost(nodes.get(v));
+		}
+		for (AComponent c : data.getComponents()) {
+			if (c instanceof SimLink) {
+				SimLink link = (SimLink) c;
+				Integer a = index.get(link.getNodeASim());
+				Integer b = index.get(link.getNodeBSim());
+				if (a != null && b != null) {
+					links.add(link);
+					edges.add(a, b);
+					weights[a] += data.getCost(link);
+				}
+			}
+		}
+		PartitionGraph graph = new PartitionGraph(nodes.size(), edges, weights);
+		return partitioner.partition(graph, parts);
+	}
+
+	private static Map<SimNode, Integer> indexOf(List<SimNode> nodes) {
+		Map<SimNode, Integer> index = new IdentityHashMap<SimNode, Integer>();
+		for (SimNode node : nodes) {
+			index.put(node, index.size());
+		}
+		return index;
+	}
+
+	/**
+	 * retrieve the nodes in the order they are numbered in the partitioning
+	 */
+	public static List<SimNode> getNodes(List<AComponent> components) {
+		List<SimNode> nodes = new ArrayList<SimNode>();
+		synchronized (components) {
+			for (AComponent c : components) {
+				if (c instanceof SimNode) {
+					nodes.add((SimNode) c);
+				}
+			}
+		}
+		return nodes;
+	}
+}
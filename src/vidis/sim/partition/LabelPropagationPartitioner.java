@@ -0,0 +1,150 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.partition;
+
+import java.util.Arrays;
+
+/**
+ * a balanced partitioner for the large sparse graphs of simulations.
+ * <p>
+ * the parts are first grown one after another by breadth first search
+ * from the lowest unassigned node until they carry their share of the
+ * total weight, which gives connected regions. then the boundary is
+ * refined by label propagation: a node moves to the neighbouring part
+ * most of its links lead to, as long as that part stays within the
+ * allowed imbalance. both phases are linear in the size of the graph
+ * per round and deterministic.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class LabelPropagationPartitioner implements Partitioner {
+	private double imbalance = 1.03;
+	private int rounds = 16;
+
+	/**
+	 * @param imbalance the allowed load of a part relative to an even
+	 *            split, at least 1
+	 */
+	public void setImbalance(double imbalance) {
+		this.imbalance = Math.max(1, imbalance);
+	}
+
+	/**
+	 * @param rounds the maximum number of refinement rounds
+	 */
+	public void setRounds(int rounds) {
+		this.rounds = Math.max(0, rounds);
+	}
+
+	public Partitioning partition(PartitionGraph graph, int parts) {
+		int n = graph.size();
+		parts = Math.max(1, Math.min(parts, n));
+		int[] part = new int[n];
+		if (parts > 1) {
+			long[] loads = grow(graph, parts, part);
+			refine(graph, parts, part, loads);
+		}
+		return new Partitioning(graph, parts, part);
+	}
+
+	private long[] grow(PartitionGraph graph, int parts, int[] part) {
+		int n = graph.size();
+		long[] loads = new long[parts];
+		Arrays.fill(part, -1);
+		int[] queue = new int[n];
+		int nextSeed = 0;
+		long remaining = graph.getTotalWeight();
+		for (int p = 0; p < parts; p++) {
+			// the share of the parts still to fill, so rounding errors do not add up
+			long target = remaining / (parts - p);
+			int head = 0;
+			int tail = 0;
+			while (loads[p] < target || p == parts - 1) {
+				if (head == tail) {
+					while (nextSeed < n && part[nextSeed] >= 0) {
+						nextSeed++;
+					}
+					if (nextSeed == n) {
+						break;
+					}
+					part[nextSeed] = p;
+					queue[tail++] = nextSeed;
+				}
+				int v = queue[head++];
+				loads[p] += graph.weights[v];
+				for (int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++) {
+					int w = graph.targets[i];
+					if (part[w] < 0 && loads[p] < target) {
+						part[w] = p;
+						queue[tail++] = w;
+					}
+				}
+			}
+			// nodes claimed but not taken go back to the pool
+			for (int i = head; i < tail; i++) {
+				part[queue[i]] = -1;
+			}
+			if (head < tail) {
+				nextSeed = 0;
+			}
+			remaining -= loads[p];
+		}
+		return loads;
+	}
+
+	private void refine(PartitionGraph graph, int parts, int[] part, long[] loads) {
+		int n = graph.size();
+		long limit = (long) Math.ceil(graph.getTotalWeight() * imbalance / parts);
+		int[] links = new int[parts];
+		int[] touched = new int[parts];
+		int[] sizes = new int[parts];
+		for (int v = 0; v < n; v++) {
+			sizes[part[v]]++;
+		}
+		for (int round = 0; round < rounds; round++) {
+			int moved = 0;
+			for (int v = 0; v < n; v++) {
+				int from = part[v];
+				int count = 0;
+				for (int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++) {
+					int q = part[graph.targets[i]];
+					if (links[q]++ == 0) {
+						touched[count++] = q;
+					}
+				}
+				int best = from;
+				int bestLinks = links[from];
+				long weight = graph.weights[v];
+				for (int i = 0; i < count; i++) {
+					int q = touched[i];
+					if (q == from || loads[q] + weight > limit) {
+						continue;
+					}
+					// more links win; equal links only move towards the lighter part
+					if (links[q] > bestLinks || (links[q] == bestLinks && best == from && loads[q] + weight < loads[from])) {
+						best = q;
+						bestLinks = links[q];
+					}
+				}
+				for (int i = 0; i < count; i++) {
+					links[touched[i]] = 0;
+				}
+				if (best != from && sizes[from] > 1) {
+					part[v] = best;
+					loads[from] -= weight;
+					loads[best] += weight;
+					sizes[from]--;
+					sizes[best]++;
+					moved++;
+				}
+			}
+			if (moved == 0) {
+				break;
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.partition;
+
+import vidis.sim.topology.EdgeList;
+
+/**
+ * an undirected graph with weighted nodes in compressed adjacency form,
+ * the input of a {@link Partitioner}. parallel edges are kept, so the
+ * cut counts links and not pairs of nodes.
+ * @author Dominik
+ *
+ */
+public final class PartitionGraph {
+	/**
+	 * the neighbours of node v are targets[offsets[v] .. offsets[v+1]-1]
+	 */
+	final int[] offsets;
+	final int[] targets;
+	final long[] weights;
+	private final int edges;
+	private final long totalWeight;
+
+	/**
+	 * @param nodes the number of nodes
+	 * @param edges the edges between the node indices; loops are ignored
+	 * @param weights the weight of every node, e.g. its execute cost, or
+	 *            null to weigh all nodes with one
+	 */
+	public PartitionGraph(int nodes, EdgeList edges, long[] weights) {
+		offsets = new int[nodes + 1];
+		int count = 0;
+		for (int e = 0; e < edges.size(); e++) {
+			if (edges.getA(e) != edges.getB(e)) {
+				offsets[edges.getA(e) + 1]++;
+				offsets[edges.getB(e) + 1]++;
+				count++;
+			}
+		}
+		for (int v = 0; v < nodes; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		targets = new int[offsets[nodes]];
+		int[] fill = new int[nodes];
+		for (int e = 0; e < edges.size(); e++) {
+			int a = edges.getA(e);
+			int b = edges.getB(e);
+			if (a != b) {
+				targets[offsets[a] + fill[a]++] = b;
+				targets[offsets[b] + fill[b]++] = a;
+			}
+		}
+		this.edges = count;
+		this.weights = new long[nodes];
+		long total = 0;
+		for (int v = 0; v < nodes; v++) {
+			this.weights[v] = weights == null ? 1 : Math.max(1, weights[v]);
+			total += this.weights[v];
+		}
+		this.totalWeight = total;
+	}
+
+	public int size() {
+		return weights.length;
+	}
+
+	/**
+	 * retrieve the number of edges, loops excluded
+	 */
+	public int getEdgeCount() {
+		return edges;
+	}
+
+	public int getDegree(int node) {
+		return offsets[node + 1] - offsets[node];
+	}
+
+	public int getNeighbour(int node, int i) {
+		return targets[offsets[node] + i];
+	}
+
+	public long getWeight(int node) {
+		return weights[node];
+	}
+
+	public long getTotalWeight() {
+		return totalWeight;
+	}
+}
@@ -0,0 +1,21 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.partition;
+
+/**
+ * splits the nodes of a graph into a number of parts
+ * @author Dominik
+ *
+ */
+public interface Partitioner {
+	/**
+	 * @param graph the graph to split
+	 * @param parts the wanted number of parts; less parts are used if
+	 *            the graph has less nodes
+	 * @return the part of every node
+	 */
+	public Partitioning partition(PartitionGraph graph, int parts);
+}
@@ -0,0 +1,88 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.partition;
+
+import java.util.Locale;
+
+/**
+ * the assignment of the nodes of a graph to parts, with the cut links
+ * and the load of every part
+ * @author Dominik
+ *
+ */
+public final class Partitioning {
+	private final int parts;
+	private final int[] part;
+	private final long[] loads;
+	private final int cut;
+	private final int edges;
+	private final long totalWeight;
+
+	/**
+	 * @param part the part of every node within [0 .. parts-1]
+	 */
+	public Partitioning(PartitionGraph graph, int parts, int[] part) {
+		if (part.length != graph.size()) {
+			throw new IllegalArgumentException("expected " + graph.size() + " nodes, got " + part.length);
+		}
+		this.parts = parts;
+		this.part = part;
+		this.loads = new long[parts];
+		int crossing = 0;
+		for (int v = 0; v < part.length; v++) {
+			loads[part[v]] += graph.weights[v];
+			for (int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++) {
+				if (part[graph.targets[i]] != part[v]) {
+					crossing++;
+				}
+			}
+		}
+		// every cut edge has been seen from both ends
+		this.cut = crossing / 2;
+		this.edges = graph.getEdgeCount();
+		this.totalWeight = graph.getTotalWeight();
+	}
+
+	public int getParts() {
+		return parts;
+	}
+
+	public int getPart(int node) {
+		return part[node];
+	}
+
+	public long getLoad(int part) {
+		return loads[part];
+	}
+
+	/**
+	 * retrieve the number of edges between different parts
+	 */
+	public int getCut() {
+		return cut;
+	}
+
+	public int getEdgeCount() {
+		return edges;
+	}
+
+	/**
+	 * retrieve the load of the heaviest part relative to an even split;
+	 * 1 is a perfect balance
+	 */
+	public double getImbalance() {
+		long max = 0;
+		for (long l : loads) {
+			max = Math.max(max, l);
+		}
+		return totalWeight == 0 ? 1 : max * (double) parts / totalWeight;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US, "%d parts, %d of %d links cut, imbalance %.3f", parts, cut, edges, getImbalance());
+	}
+}
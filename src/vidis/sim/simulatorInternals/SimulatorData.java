@@ -5,55 +5,559 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.sim.simulatorInternals;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-
-import org.apache.log4j.Logger;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import vidis.data.sim.AComponent;
 import vidis.data.sim.IComponent;
+import vidis.data.sim.IScheduler;
+import vidis.data.sim.SimNode;
+import vidis.data.var.VariableEpoch;
+import vidis.util.log.LogChannel;
+import vidis.util.metrics.Counter;
+import vidis.util.metrics.Histogram;
+import vidis.util.metrics.Metrics;
 
-public class SimulatorData implements ISimulatorData {
-	private static Logger logger = Logger.getLogger(SimulatorData.class);
+/**
+ * keeps the components of a simulation and executes them step by step.
+ * <p>
+ * only the components within the active set are executed; a component
+ * leaves the set when it may idle (see {@link AComponent#mayIdle()}) and
+ * comes back when it is woken up or when its wake delay has passed.
+ * the active set is a bitset over the slots of the components, so the
+ * components are still executed in the order they were registered.
+ * </p>
+ * <p>
+ * the order can be changed with {@link #order(List, int[])}, e.g. by the
+ * {@link vidis.sim.partition.ComponentPartitioner}, which also divides
+ * the slots into blocks of nodes and links that belong together.
+ * components registered later are appended behind the last block.
+ * </p>
+ * <p>
+ * the visualised simulator also notes which components were executed,
+ * woken up or changed otherwise, see {@link #collectChanged()}, so that
+ * the history only looks at those.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class SimulatorData implements ISimulatorData, IScheduler {
+	private static final LogChannel log = LogChannel.get(SimulatorData.class);
+	private static final Counter executedComponents = Metrics.getInstance().counter(Metrics.EXECUTED);
 	/**
 	 * serial version UID
 	 */
 	private static final long serialVersionUID = -948286353824490701L;
 
-	public SimulatorData() {
+	/**
+	 * @param visualised true if the steps are recorded into the runtime
+	 *            metrics and the changed components are noted; only the
+	 *            visualised simulator is measured
+	 * @param epoch the epoch of the simulator, it advances after every step
+	 */
+	public SimulatorData(boolean visualised, VariableEpoch epoch) {
+		this.visualised = visualised;
+		this.epoch = epoch;
 		now = 0;
 		this.components = new LinkedList<AComponent>();
 	}
 
 	private long now;
 	private List<AComponent> components;
+	
+	/**
+	 * execute time histograms per user logic class
+	 */
+	private Map<Class<?>, Histogram> executeTimes = new HashMap<Class<?>, Histogram>();
+
+	// -- active set -- //
+	private AComponent[] slots = new AComponent[64];
+	private int slotCount = 0;
+	private int liveCount = 0;
+	/**
+	 * the number of nodes that ever joined, see {@link SimNode#getIndex()}
+	 */
+	private int nodeCount = 0;
+	private final boolean visualised;
+	private final VariableEpoch epoch;
+	private long[] active = new long[1];
+	/**
+	 * the slots changed since {@link #collectChanged()} was called last
+	 */
+	private long[] changed = new long[1];
+	/**
+	 * changes from other threads than the stepping one
+	 */
+	private Queue<AComponent> foreignChanges = new ConcurrentLinkedQueue<AComponent>();
+	/**
+	 * the step a slot went idle in
+	 */
+	private long[] idleSince = new long[64];
+	/**
+	 * the step an idle slot has to be executed again or -1 if it waits to be woken up
+	 */
+	private long[] wakeStep = new long[64];
+	/**
+	 * how often a slot has been executed and how long it took if timed
+	 */
+	private long[] executions = new long[64];
+	private long[] executeNanos = new long[64];
+	/**
+	 * the first slot of every block and the end of the last block, or null
+	 */
+	private int[] blockStarts = null;
+	private PriorityQueue<Timer> timers = new PriorityQueue<Timer>();
+	/**
+	 * wake ups from other threads than the stepping one
+	 */
+	private Queue<AComponent> foreignWakes = new ConcurrentLinkedQueue<AComponent>();
+	private volatile Thread stepping;
+	/**
+	 * the slot that is executed right now; beyond all slots at the end of a step
+	 */
+	private int executing = -1;
+	/**
+	 * components that want to be called at the end of the current step
+	 */
+	private List<AComponent> stepEnd = new ArrayList<AComponent>();
+
+	private static class Timer implements Comparable<Timer> {
+		private long step;
+		private AComponent component;
+		public Timer(long step, AComponent component) {
+			this.step = step;
+			this.component = component;
+		}
+		public int compareTo(Timer o) {
+			return step < o.step ? -1 : (step == o.step ? 0 : 1);
+		}
+	}
 
 	public long getTime() {
 		return now;
 	}
 
 	public void registerComponent(AComponent component) {
-		logger.debug("registerComponent("+component+");");
-		components.add(component);
+		log.debug("registerComponent({});", component);
+		synchronized (components) {
+			components.add(component);
+			if (slotCount == slots.length) {
+				grow(slots.length * 2);
+			}
+			int slot = slotCount++;
+			slots[slot] = component;
+			idleSince[slot] = now - 1;
+			wakeStep[slot] = -1;
+			executions[slot] = 0;
+			executeNanos[slot] = 0;
+			liveCount++;
+			if (component instanceof SimNode && ((SimNode) component).getIndex() < 0) {
+				((SimNode) component).setIndex(nodeCount++);
+			}
+			component.setScheduler(this, slot);
+			activate(slot);
+			markChanged(slot);
+		}
 	}
 
 	public void unregisterComponent(AComponent component) {
-		logger.debug("UNregisterComponent("+component+");");
-		components.remove(component);
+		log.debug("UNregisterComponent({});", component);
+		synchronized (components) {
+			components.remove(component);
+			int slot = component.getSlot();
+			if (slot >= 0 && slot < slotCount && slots[slot] == component) {
+				slots[slot] = null;
+				deactivate(slot);
+				changed[slot >>> 6] &= ~(1L << slot);
+				liveCount--;
+			}
+			component.setScheduler(null, -1);
+		}
+	}
+
+	public void wake(AComponent component) {
+		if (Thread.currentThread() == stepping) {
+			int slot = component.getSlot();
+			if (slot >= 0 && slot < slotCount && slots[slot] == component) {
+				activate(slot);
+				markChanged(slot);
+			}
+		} else {
+			foreignWakes.add(component);
+		}
+	}
+
+	public void changed(AComponent component) {
+		if (!visualised) {
+			return;
+		}
+		if (Thread.currentThread() == stepping) {
+			int slot = component.getSlot();
+			if (slot >= 0 && slot < slotCount && slots[slot] == component) {
+				markChanged(slot);
+			}
+		} else {
+			foreignChanges.add(component);
+		}
+	}
+
+	private void markChanged(int slot) {
+		if (visualised) {
+			changed[slot >>> 6] |= 1L << slot;
+		}
+	}
+
+	/**
+	 * retrieve the components that were executed, woken up or changed
+	 * otherwise since the last call, in the order they are executed;
+	 * only noted for the visualised simulator
+	 */
+	public List<AComponent> collectChanged() {
+		synchronized (components) {
+			for (AComponent c = foreignChanges.poll(); c != null; c = foreignChanges.poll()) {
+				int slot = c.getSlot();
+				if (slot >= 0 && slot < slotCount && slots[slot] == c) {
+					markChanged(slot);
+				}
+			}
+			List<AComponent> list = new ArrayList<AComponent>();
+			for (int word = 0; word < changed.length; word++) {
+				long bits = changed[word];
+				while (bits != 0) {
+					int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					if (slot < slotCount && slots[slot] != null) {
+						list.add(slots[slot]);
+					}
+				}
+				changed[word] = 0;
+			}
+			return list;
+		}
+	}
+
+	public boolean atStepEnd(AComponent component) {
+		if (Thread.currentThread() != stepping) {
+			return false;
+		}
+		stepEnd.add(component);
+		return true;
+	}
+
+	public boolean isPending(AComponent component) {
+		if (Thread.currentThread() != stepping) {
+			return false;
+		}
+		int slot = component.getSlot();
+		return slot > executing && slot < slotCount && slots[slot] == component && (active[slot >>> 6] & (1L << slot)) != 0;
+	}
+
+	public void handOver(Thread thread) {
+		if (Thread.currentThread() == stepping) {
+			stepping = thread;
+		}
 	}
 
 	public void executeComponents() {
-		logger.debug("simulating: " + now);
+		log.debug("simulating: {}", now);
 		synchronized (components) {
-			for (IComponent component : components) {
-				component.execute();
+			stepping = Thread.currentThread();
+			try {
+				if (slotCount > 2 * liveCount + 64) {
+					compact();
+				}
+				for (AComponent c = foreignWakes.poll(); c != null; c = foreignWakes.poll()) {
+					wake(c);
+				}
+				while (!timers.isEmpty() && timers.peek().step <= now) {
+					Timer t = timers.poll();
+					int slot = t.component.getSlot();
+					if (slot >= 0 && slot < slotCount && slots[slot] == t.component && wakeStep[slot] == t.step) {
+						activate(slot);
+					}
+				}
+				boolean timing = visualised && Metrics.getInstance().isComponentTiming();
+				int executed = 0;
+				for (int slot = nextActive(0); slot >= 0; slot = nextActive(slot + 1)) {
+					AComponent component = slots[slot];
+					executing = slot;
+					long skipped = now - idleSince[slot] - 1;
+					if (skipped > 0) {
+						// catch up on the steps the component has been skipped
+						component.skipSteps(skipped);
+					}
+					wakeStep[slot] = -1;
+					if (timing) {
+						long start = System.nanoTime();
+						component.execute();
+						long nanos = System.nanoTime() - start;
+						getExecuteTime(component).record(nanos);
+						executeNanos[slot] += nanos;
+					} else {
+						component.execute();
+					}
+					executions[slot]++;
+					executed++;
+					markChanged(slot);
+					idleSince[slot] = now;
+					if (component.mayIdle()) {
+						deactivate(slot);
+						long delay = component.getWakeDelay();
+						if (delay > 0) {
+							wakeStep[slot] = now + delay;
+							timers.add(new Timer(now + delay, component));
+						}
+					}
+				}
+				executing = Integer.MAX_VALUE;
+				// may grow while it is worked off
+				for (int i = 0; i < stepEnd.size(); i++) {
+					stepEnd.get(i).endStep();
+				}
+				if (visualised) {
+					Metrics.getInstance().count(executedComponents, executed);
+				}
+				now++;
+				epoch.advance();
+			} finally {
+				stepEnd.clear();
+				executing = -1;
+				stepping = null;
+			}
+		}
+	}
+
+	private void activate(int slot) {
+		active[slot >>> 6] |= 1L << slot;
+	}
+
+	private void deactivate(int slot) {
+		active[slot >>> 6] &= ~(1L << slot);
+	}
+
+	/**
+	 * retrieve the first active slot at or after from or -1
+	 */
+	private int nextActive(int from) {
+		if (from >= slotCount) {
+			return -1;
+		}
+		int word = from >>> 6;
+		long bits = active[word] & (-1L << from);
+		while (true) {
+			if (bits != 0) {
+				int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+				return slot < slotCount ? slot : -1;
+			}
+			if (++word >= active.length) {
+				return -1;
+			}
+			bits = active[word];
+		}
+	}
+
+	private void grow(int capacity) {
+		AComponent[] s = new AComponent[capacity];
+		System.arraycopy(slots, 0, s, 0, slotCount);
+		slots = s;
+		long[] l = new long[capacity];
+		System.arraycopy(idleSince, 0, l, 0, slotCount);
+		idleSince = l;
+		l = new long[capacity];
+		System.arraycopy(wakeStep, 0, l, 0, slotCount);
+		wakeStep = l;
+		l = new long[capacity];
+		System.arraycopy(executions, 0, l, 0, slotCount);
+		executions = l;
+		l = new long[capacity];
+		System.arraycopy(executeNanos, 0, l, 0, slotCount);
+		executeNanos = l;
+		l = new long[(capacity + 63) >>> 6];
+		System.arraycopy(active, 0, l, 0, active.length);
+		active = l;
+		l = new long[(capacity + 63) >>> 6];
+		System.arraycopy(changed, 0, l, 0, changed.length);
+		changed = l;
+	}
+
+	/**
+	 * removes the holes left by unregistered components, keeping the order
+	 */
+	private void compact() {
+		int to = 0;
+		int block = 0;
+		for (int from = 0; from < slotCount; from++) {
+			while (blockStarts != null && block < blockStarts.length && blockStarts[block] == from) {
+				blockStarts[block++] = to;
+			}
+			AComponent component = slots[from];
+			if (component != null) {
+				boolean on = (active[from >>> 6] & (1L << from)) != 0;
+				boolean dirty = (changed[from >>> 6] & (1L << from)) != 0;
+				deactivate(from);
+				changed[from >>> 6] &= ~(1L << from);
+				slots[to] = component;
+				idleSince[to] = idleSince[from];
+				wakeStep[to] = wakeStep[from];
+				executions[to] = executions[from];
+				executeNanos[to] = executeNanos[from];
+				if (on) {
+					activate(to);
+				}
+				if (dirty) {
+					markChanged(to);
+				}
+				component.setScheduler(this, to);
+				to++;
+			}
+		}
+		while (blockStarts != null && block < blockStarts.length) {
+			blockStarts[block++] = to;
+		}
+		for (int i = to; i < slotCount; i++) {
+			slots[i] = null;
+			deactivate(i);
+			changed[i >>> 6] &= ~(1L << i);
+		}
+		slotCount = to;
+	}
+
+	/**
+	 * retrieve the observed cost of a component: the nanoseconds spent
+	 * in its execution if component timing is on, else the number of
+	 * executions
+	 */
+	public long getCost(AComponent component) {
+		synchronized (components) {
+			int slot = component.getSlot();
+			if (slot < 0 || slot >= slotCount || slots[slot] != component) {
+				return 0;
+			}
+			return executeNanos[slot] > 0 ? executeNanos[slot] : executions[slot];
+		}
+	}
+
+	/**
+	 * changes the execution order of the components
+	 * @param order all registered components in their new order
+	 * @param blockSizes the number of components of every block, taken
+	 *            from the start of the order; null for no blocks
+	 */
+	public void order(List<AComponent> order, int[] blockSizes) {
+		synchronized (components) {
+			if (stepping != null) {
+				throw new IllegalStateException("cannot change the order within a step");
+			}
+			compact();
+			if (order.size() != slotCount) {
+				throw new IllegalArgumentException("expected all " + slotCount + " components, got " + order.size());
+			}
+			boolean[] seen = new boolean[slotCount];
+			for (AComponent c : order) {
+				int from = c.getSlot();
+				if (from < 0 || from >= slotCount || slots[from] != c || seen[from]) {
+					throw new IllegalArgumentException("not registered or given twice: " + c);
+				}
+				seen[from] = true;
+			}
+			AComponent[] s = new AComponent[slots.length];
+			long[] idle = new long[slots.length];
+			long[] wake = new long[slots.length];
+			long[] counts = new long[slots.length];
+			long[] nanos = new long[slots.length];
+			long[] on = new long[active.length];
+			long[] dirty = new long[changed.length];
+			for (int to = 0; to < order.size(); to++) {
+				AComponent c = order.get(to);
+				int from = c.getSlot();
+				s[to] = c;
+				idle[to] = idleSince[from];
+				wake[to] = wakeStep[from];
+				counts[to] = executions[from];
+				nanos[to] = executeNanos[from];
+				if ((active[from >>> 6] & (1L << from)) != 0) {
+					on[to >>> 6] |= 1L << to;
+				}
+				if ((changed[from >>> 6] & (1L << from)) != 0) {
+					dirty[to >>> 6] |= 1L << to;
+				}
+			}
+			slots = s;
+			idleSince = idle;
+			wakeStep = wake;
+			executions = counts;
+			executeNanos = nanos;
+			active = on;
+			changed = dirty;
+			for (int slot = 0; slot < slotCount; slot++) {
+				slots[slot].setScheduler(this, slot);
+			}
+			blockStarts = null;
+			if (blockSizes != null) {
+				int[] starts = new int[blockSizes.length + 1];
+				for (int b = 0; b < blockSizes.length; b++) {
+					starts[b + 1] = starts[b] + blockSizes[b];
+				}
+				if (starts[blockSizes.length] > slotCount) {
+					throw new IllegalArgumentException("the blocks hold more than " + slotCount + " components");
+				}
+				blockStarts = starts;
+			}
+		}
+	}
+
+	/**
+	 * retrieve the number of blocks set by the last {@link #order(List, int[])}
+	 */
+	public int getBlockCount() {
+		synchronized (components) {
+			return blockStarts == null ? 0 : blockStarts.length - 1;
+		}
+	}
+
+	/**
+	 * retrieve the components of a block in execution order
+	 */
+	public List<AComponent> getBlock(int block) {
+		synchronized (components) {
+			List<AComponent> list = new ArrayList<AComponent>();
+			for (int slot = blockStarts[block]; slot < blockStarts[block + 1]; slot++) {
+				if (slots[slot] != null) {
+					list.add(slots[slot]);
+				}
 			}
-			now++;
+			return list;
+		}
+	}
+
+	private Histogram getExecuteTime(AComponent component) {
+		Class<?> clazz = component.getUserLogicClass();
+		Histogram h = executeTimes.get(clazz);
+		if (h == null) {
+			h = Metrics.getInstance().histogram(Metrics.EXECUTE + clazz.getName());
+			executeTimes.put(clazz, h);
 		}
+		return h;
 	}
 
 	public void reset() {
 		resetTime();
+		synchronized (components) {
+			timers.clear();
+			for (int slot = 0; slot < slotCount; slot++) {
+				if (slots[slot] != null) {
+					idleSince[slot] = -1;
+					wakeStep[slot] = -1;
+					activate(slot);
+				}
+			}
+		}
 	}
 
 	private void resetTime() {
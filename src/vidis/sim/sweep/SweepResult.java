@@ -0,0 +1,90 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.sweep;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * the outcome of one sweep run
+ * @author Dominik
+ *
+ */
+public class SweepResult {
+	private String name;
+	private long steps;
+	private long nanos;
+	private Throwable error;
+	private Map<String, Object> values = new LinkedHashMap<String, Object>();
+
+	public SweepResult(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * retrieve the number of steps that were executed
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	public void setSteps(long steps) {
+		this.steps = steps;
+	}
+
+	/**
+	 * retrieve the wall clock time of the run in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	public void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+
+	/**
+	 * retrieve the exception that aborted the run or null
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	public void setError(Throwable error) {
+		this.error = error;
+	}
+
+	public boolean isSuccessful() {
+		return error == null;
+	}
+
+	/**
+	 * stores a collected value
+	 */
+	public void put(String key, Object value) {
+		values.put(key, value);
+	}
+
+	public Object get(String key) {
+		return values.get(key);
+	}
+
+	/**
+	 * retrieve all collected values in the order they were stored
+	 */
+	public Map<String, Object> getValues() {
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return name + "{steps=" + steps + ", ms=" + nanos / 1000000 + ", " + (error != null ? "error=" + error : values.toString()) + "}";
+	}
+}
@@ -0,0 +1,101 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.sweep;
+
+import vidis.data.sim.AComponent;
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+import vidis.sim.Simulator;
+import vidis.sim.classloader.modules.interfaces.IModuleFile;
+
+/**
+ * one independent run of a sweep; subclasses may vary the scenario in
+ * configure() and gather their own results in collect()
+ * @author Dominik
+ *
+ */
+public class SweepRun {
+	private String name;
+	private IModuleFile file;
+	private long steps;
+	private long seed;
+
+	/**
+	 * @param name the name of this run within the results
+	 * @param file the msim file to load
+	 * @param steps the number of steps to execute
+	 */
+	public SweepRun(String name, IModuleFile file, long steps) {
+		this(name, file, steps, 0);
+	}
+
+	/**
+	 * @param name the name of this run within the results
+	 * @param file the msim file to load
+	 * @param steps the number of steps to execute
+	 * @param seed the root seed of the random streams
+	 */
+	public SweepRun(String name, IModuleFile file, long steps, long seed) {
+		this.name = name;
+		this.file = file;
+		this.steps = steps;
+		this.seed = seed;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public IModuleFile getFile() {
+		return file;
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * called after the file has been loaded and before the first step
+	 * @param simulator the headless simulator of this run
+	 */
+	protected void configure(Simulator simulator) {
+	}
+
+	/**
+	 * called after the last step; by default collects the simulator time
+	 * and the number of nodes, links and packets on the links as well as
+	 * the packets sent and received by all nodes
+	 * @param simulator the headless simulator of this run
+	 * @param result the result to fill
+	 */
+	protected void collect(Simulator simulator, SweepResult result) {
+		int nodes = 0;
+		int links = 0;
+		int packets = 0;
+		long sent = 0;
+		long received = 0;
+		for (AComponent c : simulator.getSimulatorComponents()) {
+			if (c instanceof SimNode) {
+				nodes++;
+				sent += c.getStatistics().getSent();
+				received += c.getStatistics().getReceived();
+			} else if (c instanceof SimLink) {
+				links++;
+				packets += ((SimLink) c).getPacketsOnLink().size();
+			}
+		}
+		result.put("time", simulator.getNow());
+		result.put("nodes", nodes);
+		result.put("links", links);
+		result.put("packets", packets);
+		result.put("sent", sent);
+		result.put("received", received);
+	}
+}
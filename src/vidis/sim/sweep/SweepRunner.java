@@ -0,0 +1,196 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.sweep;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import vidis.sim.Simulator;
+import vidis.sim.classloader.modules.impl.dir.FileModuleFile;
+import vidis.sim.classloader.modules.interfaces.IModule;
+import vidis.sim.classloader.modules.interfaces.IModuleFile;
+import vidis.util.ResourceManager;
+
+/**
+ * executes many independent simulations concurrently within one jvm.
+ * <p>
+ * every run gets its own headless simulator, so runs do not share any
+ * components or time; they are spread over a thread pool that is sized
+ * to the available cores by default.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class SweepRunner {
+	private static Logger logger = Logger.getLogger(SweepRunner.class);
+
+	private int threads;
+
+	public SweepRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public SweepRunner(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * executes all runs and waits for them to finish
+	 * @param runs the runs to execute
+	 * @return the results in the order of the runs
+	 */
+	public List<SweepResult> run(List<? extends SweepRun> runs) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, runs.size())));
+		try {
+			List<Future<SweepResult>> futures = new ArrayList<Future<SweepResult>>();
+			for (final SweepRun run : runs) {
+				futures.add(executor.submit(new Callable<SweepResult>() {
+					public SweepResult call() {
+						return execute(run);
+					}
+				}));
+			}
+			List<SweepResult> results = new ArrayList<SweepResult>();
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					SweepResult result = new SweepResult(runs.get(i).getName());
+					result.setError(e.getCause());
+					results.add(result);
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * executes a single run on the calling thread
+	 */
+	public SweepResult execute(final SweepRun run) {
+		final SweepResult result = new SweepResult(run.getName());
+		final Simulator simulator = Simulator.createHeadless();
+		long start = System.nanoTime();
+		try {
+			simulator.setSeed(run.getSeed());
+			simulator.importSimFile(run.getFile());
+			simulator.execute(new Runnable() {
+				public void run() {
+					run.configure(simulator);
+				}
+			});
+			long steps = 0;
+			for (; steps < run.getSteps(); steps++) {
+				simulator.simulateOneStep();
+			}
+			result.setSteps(steps);
+			result.setNanos(System.nanoTime() - start);
+			simulator.execute(new Runnable() {
+				public void run() {
+					run.collect(simulator, result);
+				}
+			});
+		} catch (RuntimeException e) {
+			logger.error("sweep run " + run.getName() + " failed", e);
+			result.setNanos(System.nanoTime() - start);
+			result.setError(e);
+		} finally {
+			simulator.shutdown();
+		}
+		return result;
+	}
+
+	/**
+	 * searches the installed modules for a msim file by name
+	 * @param name the msim name or the end of its path, e.g. flood1.msim
+	 * @return the module file or null
+	 */
+	public static IModuleFile findModuleFile(String name) {
+		File file = new File(name);
+		if (file.isFile()) {
+			return new FileModuleFile(file);
+		}
+		List<IModule> modules = new ArrayList<IModule>(ResourceManager.getModules());
+		for (int i = 0; i < modules.size(); i++) {
+			IModule module = modules.get(i);
+			for (IModuleFile f : module.getModuleFiles()) {
+				if (f.getName().equals(name) || f.toString().endsWith(name)) {
+					return f;
+				}
+			}
+			modules.addAll(module.getModules());
+		}
+		return null;
+	}
+
+	/**
+	 * usage: SweepRunner &lt;steps&gt; &lt;repetitions&gt; &lt;msim&gt;...
+	 * <p>
+	 * runs every msim file the given number of times, seeded with the
+	 * number of the repetition, and prints the results as csv
+	 * </p>
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 3) {
+			System.err.println("usage: SweepRunner <steps> <repetitions> <msim>...");
+			System.exit(1);
+		}
+		long steps = Long.parseLong(args[0]);
+		int repetitions = Integer.parseInt(args[1]);
+		List<SweepRun> runs = new ArrayList<SweepRun>();
+		for (int i = 2; i < args.length; i++) {
+			IModuleFile file = findModuleFile(args[i]);
+			if (file == null) {
+				System.err.println("msim file not found: " + args[i]);
+				System.exit(1);
+			}
+			for (int r = 0; r < repetitions; r++) {
+				runs.add(new SweepRun(args[i] + "#" + r, file, steps, r));
+			}
+		}
+		print(new SweepRunner().run(runs), System.out);
+		System.exit(0);
+	}
+
+	/**
+	 * prints results as csv, headed by the keys of the first successful one
+	 */
+	public static void print(List<SweepResult> results, PrintStream out) {
+		boolean header = true;
+		for (SweepResult result : results) {
+			if (header && result.isSuccessful()) {
+				StringBuilder line = new StringBuilder("name,steps,ms");
+				for (String key : result.getValues().keySet()) {
+					line.append(',').append(key);
+				}
+				out.println(line);
+				header = false;
+			}
+			StringBuilder line = new StringBuilder();
+			line.append(result.getName()).append(',').append(result.getSteps()).append(',').append(result.getNanos() / 1000000);
+			if (result.isSuccessful()) {
+				for (Map.Entry<String, Object> e : result.getValues().entrySet()) {
+					line.append(',').append(e.getValue());
+				}
+			} else {
+				line.append(",error: ").append(result.getError());
+			}
+			out.println(line);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * generates the edges of a topology over the nodes 0 .. n-1.
+ * <p>
+ * the edges are generated in chunks which may run in parallel; every
+ * chunk draws from its own random stream, so the result only depends
+ * on the seed and not on the number of threads.
+ * </p>
+ * @author Dominik
+ *
+ */
+public abstract class ATopology {
+	/**
+	 * nodes per chunk of the generators that split over node ranges
+	 */
+	protected static final int CHUNK_NODES = 1 << 15;
+
+	private final int nodes;
+
+	public ATopology(int nodes) {
+		if (nodes < 1) {
+			throw new IllegalArgumentException("a topology needs at least one node");
+		}
+		this.nodes = nodes;
+	}
+
+	public int getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * retrieve into how many independent chunks the generation is split
+	 * @return 1 by default, that is the generation is sequential
+	 */
+	public int getChunks() {
+		return 1;
+	}
+
+	/**
+	 * generates the edges of one chunk
+	 * @param chunk the chunk within [0 .. getChunks()-1]
+	 * @param random the random stream of this chunk
+	 * @param edges the list to add the edges to
+	 */
+	public abstract void generate(int chunk, SplitMix random, EdgeList edges);
+
+	/**
+	 * retrieve the name of this topology, e.g. for the file description
+	 */
+	public abstract String getName();
+
+	/**
+	 * retrieve the number of chunks when splitting all nodes into ranges
+	 */
+	protected final int rangeChunks() {
+		return (nodes + CHUNK_NODES - 1) / CHUNK_NODES;
+	}
+
+	/**
+	 * retrieve the first node of a chunk split by node ranges
+	 */
+	protected final int rangeStart(int chunk) {
+		return chunk * CHUNK_NODES;
+	}
+
+	/**
+	 * retrieve the node after the last node of a chunk split by node ranges
+	 */
+	protected final int rangeEnd(int chunk) {
+		return (int) Math.min(nodes, (long) (chunk + 1) * CHUNK_NODES);
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,73 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * a scale free graph grown by preferential attachment: starting with a
+ * complete graph of m+1 nodes every new node connects to m distinct
+ * nodes, chosen with a probability proportional to their degree
+ * @author Dominik
+ *
+ */
+public class BarabasiAlbertTopology extends ATopology {
+	private final int m;
+
+	public BarabasiAlbertTopology(int nodes, int m) {
+		super(nodes);
+		if (m < 1 || m >= nodes) {
+			throw new IllegalArgumentException("m must be within [1 .. nodes-1]");
+		}
+		this.m = m;
+	}
+
+	@Override
+	public void generate(int chunk, SplitMix random, EdgeList edges) {
+		int n = getNodes();
+		// every node appears once per edge end, so a uniform pick is degree weighted
+		long capacity = 2L * ((long) m * (m + 1) / 2 + (long) (n - m - 1) * m);
+		if (capacity > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("too many edges for " + getName());
+		}
+		int[] ends = new int[(int) capacity];
+		int size = 0;
+		for (int u = 0; u <= m; u++) {
+			for (int v = u + 1; v <= m; v++) {
+				edges.add(u, v);
+				ends[size++] = u;
+				ends[size++] = v;
+			}
+		}
+		int[] targets = new int[m];
+		for (int u = m + 1; u < n; u++) {
+			int chosen = 0;
+			while (chosen < m) {
+				int v = ends[random.nextInt(size)];
+				boolean duplicate = false;
+				for (int i = 0; i < chosen; i++) {
+					if (targets[i] == v) {
+						duplicate = true;
+						break;
+					}
+				}
+				if (!duplicate) {
+					targets[chosen++] = v;
+				}
+			}
+			for (int i = 0; i < m; i++) {
+				edges.add(targets[i], u);
+				ends[size++] = targets[i];
+				ends[size++] = u;
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "barabasi-albert(" + getNodes() + ", " + m + ")";
+	}
+}
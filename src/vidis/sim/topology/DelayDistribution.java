@@ -0,0 +1,87 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * draws the delays of generated links
+ * @author Dominik
+ *
+ */
+public abstract class DelayDistribution {
+	/**
+	 * draws the next delay in simulator steps
+	 * @param random the random stream to draw from
+	 * @return a delay of at least 0
+	 */
+	public abstract long next(SplitMix random);
+
+	public static DelayDistribution constant(final long delay) {
+		return new DelayDistribution() {
+			public long next(SplitMix random) {
+				return delay;
+			}
+			public String toString() {
+				return String.valueOf(delay);
+			}
+		};
+	}
+
+	/**
+	 * delays uniformly distributed within [min .. max]
+	 */
+	public static DelayDistribution uniform(final long min, final long max) {
+		if (min < 0 || max < min) {
+			throw new IllegalArgumentException("need 0 <= min <= max");
+		}
+		return new DelayDistribution() {
+			public long next(SplitMix random) {
+				return min + (long) (random.nextDouble() * (max - min + 1));
+			}
+			public String toString() {
+				return "uniform:" + min + ":" + max;
+			}
+		};
+	}
+
+	/**
+	 * geometrically distributed delays, the discrete exponential distribution
+	 * @param mean the mean delay
+	 */
+	public static DelayDistribution exponential(final double mean) {
+		if (mean <= 0) {
+			throw new IllegalArgumentException("the mean must be positive");
+		}
+		return new DelayDistribution() {
+			public long next(SplitMix random) {
+				return (long) Math.floor(-Math.log(1 - random.nextDouble()) * mean);
+			}
+			public String toString() {
+				return "exp:" + mean;
+			}
+		};
+	}
+
+	/**
+	 * parses a distribution as written by toString(): "3", "uniform:1:10" or "exp:4"
+	 */
+	public static DelayDistribution parse(String spec) {
+		String[] parts = spec.split(":");
+		try {
+			if (parts.length == 1) {
+				return constant(Long.parseLong(parts[0]));
+			} else if (parts[0].equalsIgnoreCase("uniform") && parts.length == 3) {
+				return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+			} else if (parts[0].equalsIgnoreCase("exp") && parts.length == 2) {
+				return exponential(Double.parseDouble(parts[1]));
+			}
+		} catch (NumberFormatException e) {
+			// fall through
+		}
+		throw new IllegalArgumentException("unknown delay distribution: " + spec);
+	}
+}
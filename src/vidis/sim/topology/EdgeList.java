@@ -0,0 +1,129 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * a growable list of undirected edges between node indices together
+ * with the delay of the link of every edge
+ * @author Dominik
+ *
+ */
+public class EdgeList {
+	private int[] a;
+	private int[] b;
+	private long[] delays;
+	private int size = 0;
+
+	public EdgeList() {
+		this(16);
+	}
+
+	public EdgeList(int capacity) {
+		capacity = Math.max(1, capacity);
+		a = new int[capacity];
+		b = new int[capacity];
+		delays = new long[capacity];
+	}
+
+	public void add(int nodeA, int nodeB) {
+		if (size == a.length) {
+			grow(size + 1);
+		}
+		a[size] = nodeA;
+		b[size] = nodeB;
+		size++;
+	}
+
+	/**
+	 * appends all edges of another list
+	 */
+	public void addAll(EdgeList other) {
+		grow(size + other.size);
+		System.arraycopy(other.a, 0, a, size, other.size);
+		System.arraycopy(other.b, 0, b, size, other.size);
+		System.arraycopy(other.delays, 0, delays, size, other.size);
+		size += other.size;
+	}
+
+	private void grow(int capacity) {
+		if (capacity > a.length) {
+			capacity = Math.max(capacity, a.length + (a.length >> 1));
+			int[] t = new int[capacity];
+			System.arraycopy(a, 0, t, 0, size);
+			a = t;
+			t = new int[capacity];
+			System.arraycopy(b, 0, t, 0, size);
+			b = t;
+			long[] d = new long[capacity];
+			System.arraycopy(delays, 0, d, 0, size);
+			delays = d;
+		}
+	}
+
+	/**
+	 * removes self loops and every edge that connects the same two nodes
+	 * as an earlier one; the order of the remaining edges is kept
+	 * @return the number of removed edges
+	 */
+	public int removeDuplicates() {
+		long[] sorted = new long[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = key(i);
+		}
+		Arrays.sort(sorted);
+		BitSet seen = new BitSet(size);
+		int to = 0;
+		for (int i = 0; i < size; i++) {
+			if (a[i] == b[i]) {
+				continue;
+			}
+			long key = key(i);
+			int pos = Arrays.binarySearch(sorted, key);
+			while (pos > 0 && sorted[pos - 1] == key) {
+				pos--;
+			}
+			if (!seen.get(pos)) {
+				seen.set(pos);
+				a[to] = a[i];
+				b[to] = b[i];
+				delays[to] = delays[i];
+				to++;
+			}
+		}
+		int removed = size - to;
+		size = to;
+		return removed;
+	}
+
+	private long key(int edge) {
+		int min = Math.min(a[edge], b[edge]);
+		int max = Math.max(a[edge], b[edge]);
+		return ((long) min << 32) | max;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getA(int edge) {
+		return a[edge];
+	}
+
+	public int getB(int edge) {
+		return b[edge];
+	}
+
+	public long getDelay(int edge) {
+		return delays[edge];
+	}
+
+	public void setDelay(int edge, long delay) {
+		delays[edge] = delay;
+	}
+}
@@ -0,0 +1,63 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * the random graph G(n, p) where every pair of nodes is connected with
+ * probability p.
+ * <p>
+ * instead of testing every pair the gaps between the edges are drawn
+ * from a geometric distribution, so the generation costs O(n + edges).
+ * </p>
+ * @author Dominik
+ *
+ */
+public class ErdosRenyiTopology extends ATopology {
+	private final double p;
+
+	public ErdosRenyiTopology(int nodes, double p) {
+		super(nodes);
+		if (p < 0 || p > 1) {
+			throw new IllegalArgumentException("p must be within [0 .. 1]");
+		}
+		this.p = p;
+	}
+
+	@Override
+	public int getChunks() {
+		return rangeChunks();
+	}
+
+	@Override
+	public void generate(int chunk, SplitMix random, EdgeList edges) {
+		if (p <= 0) {
+			return;
+		}
+		int n = getNodes();
+		double logQ = Math.log(1 - p);
+		for (int u = rangeStart(chunk); u < rangeEnd(chunk); u++) {
+			long v = u;
+			while (true) {
+				if (p >= 1) {
+					v++;
+				} else {
+					v += 1 + (long) Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+				}
+				if (v >= n) {
+					break;
+				}
+				edges.add(u, (int) v);
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "erdos-renyi(" + getNodes() + ", " + p + ")";
+	}
+}
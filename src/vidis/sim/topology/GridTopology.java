@@ -0,0 +1,55 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * a two dimensional grid where every node is connected to its right and
+ * lower neighbour; as torus the borders wrap around
+ * @author Dominik
+ *
+ */
+public class GridTopology extends ATopology {
+	private final int width;
+	private final int height;
+	private final boolean torus;
+
+	public GridTopology(int width, int height, boolean torus) {
+		super(width * height);
+		this.width = width;
+		this.height = height;
+		this.torus = torus;
+	}
+
+	@Override
+	public int getChunks() {
+		return rangeChunks();
+	}
+
+	@Override
+	public void generate(int chunk, SplitMix random, EdgeList edges) {
+		for (int i = rangeStart(chunk); i < rangeEnd(chunk); i++) {
+			int x = i % width;
+			int y = i / width;
+			if (x + 1 < width) {
+				edges.add(i, i + 1);
+			} else if (torus && width > 2) {
+				edges.add(i, i - x);
+			}
+			if (y + 1 < height) {
+				edges.add(i, i + width);
+			} else if (torus && height > 2) {
+				edges.add(i, x);
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return (torus ? "torus(" : "grid(") + width + "x" + height + ")";
+	}
+}
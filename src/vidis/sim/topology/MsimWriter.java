@@ -0,0 +1,89 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * streams a generated topology into a msim file that can be imported
+ * like a hand written one. the edges are written straight from the edge
+ * list, no components are created.
+ * @author Dominik
+ *
+ */
+public class MsimWriter {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * @param builder the topology and user classes
+	 * @param edges the generated edges
+	 * @param file the file to write
+	 */
+	public static void write(TopologyBuilder builder, EdgeList edges, File file) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), BUFFER_SIZE);
+		try {
+			write(builder, edges, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	public static void write(TopologyBuilder builder, EdgeList edges, Writer out) throws IOException {
+		int n = builder.getTopology().getNodes();
+		int nodeDigits = TopologyBuilder.digits(n - 1);
+		int linkDigits = TopologyBuilder.digits(edges.size() - 1);
+		out.write("<module>\n");
+		out.write("\t<description>" + escape(builder.toString()) + "</description>\n");
+		out.write("\t<package>" + escape(builder.getPackageName()) + "</package>\n");
+		out.write("\t<objects>\n");
+		String nodeClass = escape(builder.getNodeClass());
+		for (int i = 0; i < n; i++) {
+			out.write("\t\t<node><id>");
+			out.write(TopologyBuilder.name("node", i, nodeDigits));
+			out.write("</id><class>");
+			out.write(nodeClass);
+			out.write("</class><variables><variable><id>" + TopologyBuilder.NAME + "</id><value>");
+			out.write(TopologyBuilder.displayName(i));
+			out.write("</value></variable></variables></node>\n");
+		}
+		String linkClass = escape(builder.getLinkClass());
+		for (int i = 0; i < edges.size(); i++) {
+			out.write("\t\t<link><id>");
+			out.write(TopologyBuilder.name("link", i, linkDigits));
+			out.write("</id><class>");
+			out.write(linkClass);
+			out.write("</class><delay>");
+			out.write(String.valueOf(edges.getDelay(i)));
+			out.write("</delay></link>\n");
+		}
+		out.write("\t</objects>\n");
+		out.write("\t<connections>\n");
+		for (int i = 0; i < edges.size(); i++) {
+			out.write("\t\t<connection><nodeA>");
+			out.write(TopologyBuilder.name("node", edges.getA(i), nodeDigits));
+			out.write("</nodeA><nodeB>");
+			out.write(TopologyBuilder.name("node", edges.getB(i), nodeDigits));
+			out.write("</nodeB><link>");
+			out.write(TopologyBuilder.name("link", i, linkDigits));
+			out.write("</link></connection>\n");
+		}
+		out.write("\t</connections>\n");
+		out.write("</module>\n");
+		out.flush();
+	}
+
+	private static String escape(String s) {
+		if (s == null) {
+			return "";
+		}
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+}
@@ -0,0 +1,51 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * a random graph where every node has the same degree, built with the
+ * configuration model: every node gets degree stubs, the shuffled stubs
+ * are paired. self loops and duplicate edges of the pairing are removed
+ * by the {@link TopologyBuilder}, so a few nodes end up with a lower degree.
+ * @author Dominik
+ *
+ */
+public class RandomRegularTopology extends ATopology {
+	private final int degree;
+
+	public RandomRegularTopology(int nodes, int degree) {
+		super(nodes);
+		if (degree < 1 || degree >= nodes || ((long) nodes * degree) % 2 != 0) {
+			throw new IllegalArgumentException("degree must be within [1 .. nodes-1] and nodes*degree even");
+		}
+		this.degree = degree;
+	}
+
+	@Override
+	public void generate(int chunk, SplitMix random, EdgeList edges) {
+		int n = getNodes();
+		int[] stubs = new int[n * degree];
+		for (int i = 0; i < stubs.length; i++) {
+			stubs[i] = i / degree;
+		}
+		for (int i = stubs.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = stubs[i];
+			stubs[i] = stubs[j];
+			stubs[j] = t;
+		}
+		for (int i = 0; i < stubs.length; i += 2) {
+			edges.add(stubs[i], stubs[i + 1]);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "random-regular(" + getNodes() + ", " + degree + ")";
+	}
+}
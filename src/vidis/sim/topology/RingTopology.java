@@ -0,0 +1,40 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * every node is connected to its successor, the last one to the first
+ * @author Dominik
+ *
+ */
+public class RingTopology extends ATopology {
+	public RingTopology(int nodes) {
+		super(nodes);
+	}
+
+	@Override
+	public int getChunks() {
+		return rangeChunks();
+	}
+
+	@Override
+	public void generate(int chunk, SplitMix random, EdgeList edges) {
+		int n = getNodes();
+		for (int i = rangeStart(chunk); i < rangeEnd(chunk); i++) {
+			// a ring of two nodes has a single link
+			if (i + 1 < n || n > 2) {
+				edges.add(i, (i + 1) % n);
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "ring(" + getNodes() + ")";
+	}
+}
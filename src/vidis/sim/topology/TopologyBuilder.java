@@ -0,0 +1,296 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import vidis.data.mod.IUserLink;
+import vidis.data.mod.IUserNode;
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+import vidis.data.var.vars.AVariable;
+import vidis.data.var.vars.DefaultVariable;
+import vidis.sim.Simulator;
+import vidis.sim.classloader.VidisClassLoader;
+import vidis.util.SplitMix;
+
+/**
+ * creates the nodes and links of a generated topology.
+ * <p>
+ * the edges and their delays are generated in parallel, duplicates are
+ * removed. the components are instantiated directly, without going
+ * through a msim file; for a headless simulator this happens in parallel
+ * as well, only the registration at the simulator is sequential.
+ * the nodes get the ids node0 .. nodeN and the links link0 .. linkM,
+ * padded with zeros so that they sort in order; like the nodes of the
+ * bundled msim files every node has a user variable "name".
+ * </p>
+ * @author Dominik
+ *
+ */
+public class TopologyBuilder {
+	private static Logger logger = Logger.getLogger(TopologyBuilder.class);
+
+	/**
+	 * components per parallel task
+	 */
+	private static final int CHUNK_COMPONENTS = 1 << 14;
+
+	/**
+	 * the user variable most modules display
+	 */
+	static final String NAME = "name";
+
+	private ATopology topology;
+	private String packageName;
+	private String nodeClass;
+	private String linkClass;
+	private DelayDistribution delay = DelayDistribution.constant(1);
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * @param topology the topology to build
+	 * @param packageName the package of the user classes, e.g. vidis.modules.flooding
+	 * @param nodeClass the simple name of the user node class
+	 * @param linkClass the simple name of the user link class
+	 */
+	public TopologyBuilder(ATopology topology, String packageName, String nodeClass, String linkClass) {
+		this.topology = topology;
+		this.packageName = packageName;
+		this.nodeClass = nodeClass;
+		this.linkClass = linkClass;
+	}
+
+	public ATopology getTopology() {
+		return topology;
+	}
+
+	public String getPackageName() {
+		return packageName;
+	}
+
+	public String getNodeClass() {
+		return nodeClass;
+	}
+
+	public String getLinkClass() {
+		return linkClass;
+	}
+
+	public DelayDistribution getDelay() {
+		return delay;
+	}
+
+	public void setDelay(DelayDistribution delay) {
+		this.delay = delay;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * generates the edges and the delays of the links
+	 * @param seed the root seed of the random streams
+	 * @return the edges without self loops and duplicates
+	 */
+	public EdgeList generate(final long seed) {
+		final int chunks = topology.getChunks();
+		List<Callable<EdgeList>> tasks = new ArrayList<Callable<EdgeList>>();
+		for (int i = 0; i < chunks; i++) {
+			final int chunk = i;
+			tasks.add(new Callable<EdgeList>() {
+				public EdgeList call() {
+					EdgeList edges = new EdgeList();
+					topology.generate(chunk, SplitMix.forKey(seed, "topology:" + chunk), edges);
+					SplitMix random = SplitMix.forKey(seed, "delay:" + chunk);
+					for (int e = 0; e < edges.size(); e++) {
+						edges.setDelay(e, delay.next(random));
+					}
+					return edges;
+				}
+			});
+		}
+		List<EdgeList> parts = invokeAll(tasks, chunks);
+		int size = 0;
+		for (EdgeList part : parts) {
+			size += part.size();
+		}
+		EdgeList edges = new EdgeList(size);
+		for (EdgeList part : parts) {
+			edges.addAll(part);
+		}
+		int removed = edges.removeDuplicates();
+		if (removed > 0) {
+			logger.debug("removed " + removed + " self loops and duplicate edges of " + topology);
+		}
+		return edges;
+	}
+
+	/**
+	 * creates and registers the components; called by the simulator within
+	 * its context, see {@link Simulator#importTopology(TopologyBuilder)}
+	 * @param simulator the simulator to build for
+	 * @param edges the generated edges
+	 */
+	public void build(final Simulator simulator, final EdgeList edges) {
+		final Class<?> nodeType = loadClass(nodeClass);
+		final Class<?> linkType = loadClass(linkClass);
+		final int n = topology.getNodes();
+		final SimNode[] nodes = new SimNode[n];
+		final SimLink[] links = new SimLink[edges.size()];
+		final int nodeDigits = digits(n - 1);
+		final int linkDigits = digits(links.length - 1);
+		// the visualisation expects its events from a single thread
+		int parallel = simulator.isHeadless() ? threads : 1;
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int i = 0; i < n; i += CHUNK_COMPONENTS) {
+			final int from = i;
+			final int to = Math.min(n, i + CHUNK_COMPONENTS);
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					simulator.execute(new Runnable() {
+						public void run() {
+							for (int j = from; j < to; j++) {
+								SimNode node = new SimNode((IUserNode) newInstance(nodeType));
+								node.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, name("node", j, nodeDigits)));
+								node.registerVariable(new DefaultVariable(AVariable.COMMON_SCOPES.USER + "." + NAME, displayName(j)));
+								nodes[j] = node;
+							}
+						}
+					});
+					return null;
+				}
+			});
+		}
+		for (int i = 0; i < links.length; i += CHUNK_COMPONENTS) {
+			final int from = i;
+			final int to = Math.min(links.length, i + CHUNK_COMPONENTS);
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					simulator.execute(new Runnable() {
+						public void run() {
+							for (int j = from; j < to; j++) {
+								SimLink link = new SimLink((IUserLink) newInstance(linkType), edges.getDelay(j));
+								link.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, name("link", j, linkDigits)));
+								links[j] = link;
+							}
+						}
+					});
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks, parallel);
+
+		for (SimNode node : nodes) {
+			simulator.registerComponent(node);
+		}
+		for (int i = 0; i < links.length; i++) {
+			links[i].connect(nodes[edges.getA(i)], nodes[edges.getB(i)]);
+			simulator.registerComponent(links[i]);
+		}
+	}
+
+	private Class<?> loadClass(String simpleName) {
+		String name = packageName == null || packageName.length() == 0 ? simpleName : packageName + "." + simpleName;
+		try {
+			return VidisClassLoader.getInstance().loadClass(name);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("user class not found: " + name, e);
+		}
+	}
+
+	private static Object newInstance(Class<?> type) {
+		try {
+			return type.getDeclaredConstructor().newInstance();
+		} catch (InvocationTargetException e) {
+			// the constructor itself failed
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalArgumentException("cannot instantiate " + type, cause);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("cannot instantiate " + type + " without a default constructor", e);
+		} catch (InstantiationException e) {
+			throw new IllegalArgumentException("cannot instantiate " + type, e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("cannot instantiate " + type, e);
+		}
+	}
+
+	private <T> List<T> invokeAll(List<Callable<T>> tasks, int parallel) {
+		List<T> results = new ArrayList<T>();
+		if (Math.min(parallel, threads) <= 1 || tasks.size() <= 1) {
+			for (Callable<T> task : tasks) {
+				try {
+					results.add(task.call());
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return results;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(Math.min(parallel, threads), tasks.size()));
+		try {
+			for (Future<T> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	static int digits(int max) {
+		return String.valueOf(Math.max(0, max)).length();
+	}
+
+	/**
+	 * retrieve a zero padded id, e.g. node0042
+	 */
+	static String name(String prefix, int index, int digits) {
+		StringBuilder s = new StringBuilder(prefix.length() + digits);
+		s.append(prefix);
+		String number = String.valueOf(index);
+		for (int i = number.length(); i < digits; i++) {
+			s.append('0');
+		}
+		return s.append(number).toString();
+	}
+
+	static String displayName(int index) {
+		return "Node " + index;
+	}
+
+	@Override
+	public String toString() {
+		return topology + " of " + nodeClass + "/" + linkClass + " with delay " + delay;
+	}
+}
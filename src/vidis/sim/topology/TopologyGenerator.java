@@ -0,0 +1,168 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.jar.JarFile;
+
+import vidis.data.sim.AComponent;
+import vidis.data.sim.SimLink;
+import vidis.sim.Simulator;
+import vidis.sim.classloader.VidisClassLoader;
+import vidis.sim.partition.Partitioning;
+import vidis.sim.trace.TraceRecorder;
+
+/**
+ * command line interface of the topology generators.
+ * <p>
+ * usage: TopologyGenerator &lt;topology&gt; [options]
+ * </p>
+ * <ul>
+ * <li>ring:N, grid:WxH, torus:WxH, tree:N:ARITY, regular:N:DEGREE,
+ * er:N:P, ba:N:M, ws:N:K:BETA</li>
+ * <li>-package p, -node Class, -link Class: the user classes, the flooding module by default</li>
+ * <li>-jar file: a module jar to load the user classes from</li>
+ * <li>-delay d: the link delays, e.g. 3, uniform:1:10 or exp:4</li>
+ * <li>-seed s: the root seed, 0 by default</li>
+ * <li>-out file: writes a msim file instead of building the simulation</li>
+ * <li>-steps n: simulates n steps after building</li>
+ * <li>-trace dir: records a binary trace of the simulated steps</li>
+ * </ul>
+ * @author Dominik
+ *
+ */
+public class TopologyGenerator {
+	private static final String USAGE = "usage: TopologyGenerator <ring:N|grid:WxH|torus:WxH|tree:N:ARITY|regular:N:DEGREE|er:N:P|ba:N:M|ws:N:K:BETA>"
+		+ " [-package p] [-node Class] [-link Class] [-jar file] [-delay d] [-seed s] [-out file] [-steps n] [-trace dir] [-partitions k]";
+
+	/**
+	 * parses a topology given as name and colon separated parameters
+	 */
+	public static ATopology parse(String spec) {
+		String[] p = spec.split(":");
+		try {
+			String type = p[0].toLowerCase();
+			if (type.equals("ring") && p.length == 2) {
+				return new RingTopology(Integer.parseInt(p[1]));
+			} else if ((type.equals("grid") || type.equals("torus")) && p.length == 2) {
+				String[] size = p[1].toLowerCase().split("x");
+				return new GridTopology(Integer.parseInt(size[0]), Integer.parseInt(size[1]), type.equals("torus"));
+			} else if (type.equals("tree") && p.length == 3) {
+				return new TreeTopology(Integer.parseInt(p[1]), Integer.parseInt(p[2]));
+			} else if (type.equals("regular") && p.length == 3) {
+				return new RandomRegularTopology(Integer.parseInt(p[1]), Integer.parseInt(p[2]));
+			} else if (type.equals("er") && p.length == 3) {
+				return new ErdosRenyiTopology(Integer.parseInt(p[1]), Double.parseDouble(p[2]));
+			} else if (type.equals("ba") && p.length == 3) {
+				return new BarabasiAlbertTopology(Integer.parseInt(p[1]), Integer.parseInt(p[2]));
+			} else if (type.equals("ws") && p.length == 4) {
+				return new WattsStrogatzTopology(Integer.parseInt(p[1]), Integer.parseInt(p[2]), Double.parseDouble(p[3]));
+			}
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("invalid topology " + spec + ": " + e.getMessage(), e);
+		}
+		throw new IllegalArgumentException("unknown topology: " + spec);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		String packageName = "vidis.modules.flooding";
+		String nodeClass = "FloodNode";
+		String linkClass = "DefaultLink";
+		DelayDistribution delay = DelayDistribution.constant(1);
+		long seed = 0;
+		File out = null;
+		long steps = 0;
+		File trace = null;
+		int partitions = 0;
+		ATopology topology;
+		try {
+			topology = parse(args[0]);
+			for (int i = 1; i < args.length; i += 2) {
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("missing value of " + args[i]);
+				}
+				String value = args[i + 1];
+				if (args[i].equals("-package")) {
+					packageName = value;
+				} else if (args[i].equals("-node")) {
+					nodeClass = value;
+				} else if (args[i].equals("-link")) {
+					linkClass = value;
+				} else if (args[i].equals("-jar")) {
+					VidisClassLoader.getInstance().addFile(new JarFile(value));
+				} else if (args[i].equals("-delay")) {
+					delay = DelayDistribution.parse(value);
+				} else if (args[i].equals("-seed")) {
+					seed = Long.parseLong(value);
+				} else if (args[i].equals("-out")) {
+					out = new File(value);
+				} else if (args[i].equals("-steps")) {
+					steps = Long.parseLong(value);
+				} else if (args[i].equals("-trace")) {
+					trace = new File(value);
+				} else if (args[i].equals("-partitions")) {
+					partitions = Integer.parseInt(value);
+				} else {
+					throw new IllegalArgumentException("unknown option " + args[i]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+		TopologyBuilder builder = new TopologyBuilder(topology, packageName, nodeClass, linkClass);
+		builder.setDelay(delay);
+
+		long start = System.nanoTime();
+		if (out != null) {
+			EdgeList edges = builder.generate(seed);
+			long generated = System.nanoTime();
+			MsimWriter.write(builder, edges, out);
+			System.out.println(topology + ": " + topology.getNodes() + " nodes, " + edges.size() + " links, generated in "
+					+ (generated - start) / 1000000 + "ms, written to " + out + " in " + (System.nanoTime() - generated) / 1000000 + "ms");
+		} else {
+			Simulator simulator = Simulator.createHeadless();
+			simulator.setSeed(seed);
+			simulator.importTopology(builder);
+			long built = System.nanoTime();
+			int links = 0;
+			for (AComponent c : simulator.getSimulatorComponents()) {
+				if (c instanceof SimLink) {
+					links++;
+				}
+			}
+			System.out.println(topology + ": " + topology.getNodes() + " nodes, " + links + " links, built in " + (built - start) / 1000000 + "ms");
+			if (partitions > 0) {
+				long partitioned = System.nanoTime();
+				Partitioning p = simulator.partition(partitions);
+				System.out.println(p + ", partitioned in " + (System.nanoTime() - partitioned) / 1000000 + "ms");
+				built = System.nanoTime();
+			}
+			if (steps > 0) {
+				if (trace != null) {
+					TraceRecorder.getInstance().start(trace, simulator);
+				}
+				for (long s = 0; s < steps; s++) {
+					simulator.simulateOneStep();
+				}
+				TraceRecorder.getInstance().stop();
+				System.out.println(steps + " steps in " + (System.nanoTime() - built) / 1000000 + "ms");
+				if (partitions > 0) {
+					System.out.println("by observed cost: " + simulator.partition(partitions));
+				}
+			}
+			simulator.shutdown();
+		}
+		System.exit(0);
+	}
+}
@@ -0,0 +1,42 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * a complete tree where every node has up to arity children; node 0 is the root
+ * @author Dominik
+ *
+ */
+public class TreeTopology extends ATopology {
+	private final int arity;
+
+	public TreeTopology(int nodes, int arity) {
+		super(nodes);
+		if (arity < 1) {
+			throw new IllegalArgumentException("arity must be at least 1");
+		}
+		this.arity = arity;
+	}
+
+	@Override
+	public int getChunks() {
+		return rangeChunks();
+	}
+
+	@Override
+	public void generate(int chunk, SplitMix random, EdgeList edges) {
+		for (int i = Math.max(1, rangeStart(chunk)); i < rangeEnd(chunk); i++) {
+			edges.add((i - 1) / arity, i);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "tree(" + getNodes() + ", " + arity + ")";
+	}
+}
@@ -0,0 +1,63 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.topology;
+
+import vidis.util.SplitMix;
+
+/**
+ * a small world: a ring where every node is connected to its k nearest
+ * neighbours and every edge is rewired to a random node with probability
+ * beta. a rewired edge may duplicate another one, such edges are
+ * removed by the {@link TopologyBuilder}.
+ * @author Dominik
+ *
+ */
+public class WattsStrogatzTopology extends ATopology {
+	private final int k;
+	private final double beta;
+
+	/**
+	 * @param nodes the number of nodes
+	 * @param k the even number of neighbours of every node
+	 * @param beta the rewiring probability
+	 */
+	public WattsStrogatzTopology(int nodes, int k, double beta) {
+		super(nodes);
+		if (k < 2 || k % 2 != 0 || k >= nodes) {
+			throw new IllegalArgumentException("k must be even and within [2 .. nodes-1]");
+		}
+		this.k = k;
+		this.beta = beta;
+	}
+
+	@Override
+	public int getChunks() {
+		return rangeChunks();
+	}
+
+	@Override
+	public void generate(int chunk, SplitMix random, EdgeList edges) {
+		int n = getNodes();
+		for (int u = rangeStart(chunk); u < rangeEnd(chunk); u++) {
+			for (int j = 1; j <= k / 2; j++) {
+				int v = (u + j) % n;
+				if (random.nextDouble() < beta) {
+					// any node but u itself
+					v = random.nextInt(n - 1);
+					if (v >= u) {
+						v++;
+					}
+				}
+				edges.add(u, v);
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "watts-strogatz(" + getNodes() + ", " + k + ", " + beta + ")";
+	}
+}
@@ -0,0 +1,121 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.vecmath.Tuple3d;
+
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+import vidis.data.sim.SimPacket;
+import vidis.data.var.IVariableChangeListener;
+import vidis.data.var.IVariableContainer;
+import vidis.data.var.vars.AVariable;
+import vidis.data.var.vars.DefaultVariable;
+import vidis.ui.events.IVidisEvent;
+import vidis.ui.events.ObjectEvent;
+import vidis.ui.events.ObjectsEvent;
+import vidis.ui.model.impl.Packet;
+import vidis.ui.model.structure.IVisObject;
+import vidis.ui.mvc.api.Dispatcher;
+
+/**
+ * the variables of a replayed packet; it has no user logic, just what
+ * the visualisation needs to draw it
+ * @author Dominik
+ *
+ */
+public final class ReplayPacket implements IVariableContainer {
+	private Map<String, AVariable> variables = new HashMap<String, AVariable>();
+	private List<IVariableChangeListener> listeners = new ArrayList<IVariableChangeListener>();
+
+	private ReplayPacket() {
+	}
+
+	/**
+	 * creates and registers the vis object of a replayed packet
+	 * @param link the link the packet is on, it has to be shown
+	 * @param to the node the packet goes to
+	 * @param id the id to show
+	 * @param name the name to show
+	 * @return the vis object
+	 */
+	public static Packet show(SimLink link, SimNode to, String id, String name) {
+		ReplayPacket variables = new ReplayPacket();
+		variables.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.ID, id));
+		variables.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.NAME, name));
+		variables.registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.PACKETDIRECTION, to == link.getNodeASim() ? 1 : -1));
+		Packet vis = new Packet(variables, link.getVisObject());
+		Dispatcher.forwardEvent(new ObjectEvent(IVidisEvent.ObjectRegister, vis));
+		return vis;
+	}
+
+	/**
+	 * moves a replayed packet along its link
+	 * @param alpha the part of the way already done, clamped to [0 .. 1]
+	 */
+	public static void place(Packet vis, SimNode from, SimNode to, double alpha) {
+		AVariable a = from.getVariableById(AVariable.COMMON_IDENTIFIERS.POSITION);
+		AVariable b = to.getVariableById(AVariable.COMMON_IDENTIFIERS.POSITION);
+		if (a == null || b == null) {
+			return;
+		}
+		Tuple3d position = SimPacket.positionOnLink((Tuple3d) a.getData(), (Tuple3d) b.getData(), Math.max(0, Math.min(1, alpha)));
+		AVariable var = vis.getVariableContainer().getVariableById(AVariable.COMMON_IDENTIFIERS.POSITION);
+		if (var == null) {
+			vis.getVariableContainer().registerVariable(new DefaultVariable(AVariable.COMMON_IDENTIFIERS.POSITION, position));
+		} else {
+			((DefaultVariable) var).update(position);
+		}
+	}
+
+	/**
+	 * takes packet vis objects from their links and unregisters them
+	 */
+	public static void remove(Iterable<Packet> packets) {
+		List<IVisObject> list = new ArrayList<IVisObject>();
+		for (Packet vis : packets) {
+			vis.getLink().delPacket(vis);
+			list.add(vis);
+		}
+		if (!list.isEmpty()) {
+			Dispatcher.forwardEvent(new ObjectsEvent(IVidisEvent.ObjectsUnregister, list));
+		}
+	}
+
+	public AVariable getVariableById(String id) {
+		return variables.get(id);
+	}
+
+	public Set<String> getVariableIds() {
+		return variables.keySet();
+	}
+
+	public void registerVariable(AVariable var) {
+		variables.put(var.getIdentifier(), var);
+	}
+
+	public boolean hasVariable(String id) {
+		return variables.containsKey(id);
+	}
+
+	public void addVariableChangeListener(IVariableChangeListener l) {
+		listeners.add(l);
+	}
+
+	public void removeVariableChangeListener(IVariableChangeListener l) {
+		listeners.remove(l);
+	}
+
+	public List<IVariableChangeListener> getVariableChangeListeners() {
+		return listeners;
+	}
+}
@@ -0,0 +1,50 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * the records of one thread that have not been written to a segment
+ * yet and the packet classes it has numbered; only its own thread
+ * appends to it and hands it over, so neither takes a lock
+ * @author Dominik
+ *
+ */
+final class TraceBuffer {
+	private static final int RECORDS = 2048;
+
+	final ByteBuffer buffer = ByteBuffer.allocate(RECORDS * TraceRecord.SIZE);
+	/**
+	 * the trace session the records belong to
+	 */
+	int session = -1;
+	/**
+	 * the numbers of the packet classes within the session
+	 */
+	final Map<Class<?>, Integer> classes = new IdentityHashMap<Class<?>, Integer>();
+
+	/**
+	 * forgets what is left over from a trace that is stopped
+	 */
+	void join(int session) {
+		if (session != this.session) {
+			buffer.clear();
+			classes.clear();
+			this.session = session;
+		}
+	}
+
+	void put(TraceRecorder recorder, int session, long step, byte type, byte valueType, int source, int target, int link, int kind, int payload) {
+		join(session);
+		if (buffer.remaining() < TraceRecord.SIZE) {
+			recorder.flush(this);
+		}
+		TraceRecord.write(buffer, step, type, valueType, source, target, link, kind, payload);
+	}
+}
@@ -0,0 +1,143 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the names of the numbered components, packet classes and variables of
+ * a trace and the numbered string values, read from
+ * {@link TraceRecorder#NAMES}
+ * @author Dominik
+ *
+ */
+public final class TraceNames {
+	private List<String> componentTypes = new ArrayList<String>();
+	private List<String> componentIds = new ArrayList<String>();
+	private Map<Integer, String> packetClasses = new HashMap<Integer, String>();
+	private Map<Integer, String> variables = new HashMap<Integer, String>();
+	private Map<Integer, String> values = new HashMap<Integer, String>();
+
+	public TraceNames(File directory) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(new File(directory, TraceRecorder.NAMES)));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] parts = line.split("\t", 4);
+				if (parts.length < 3) {
+					continue;
+				}
+				int number = Integer.parseInt(parts[1]);
+				if ("c".equals(parts[0]) && parts.length == 4) {
+					while (componentTypes.size() <= number) {
+						componentTypes.add(null);
+						componentIds.add(null);
+					}
+					componentTypes.set(number, parts[2]);
+					componentIds.set(number, parts[3]);
+				} else if ("p".equals(parts[0])) {
+					packetClasses.put(number, parts[2]);
+				} else if ("v".equals(parts[0])) {
+					variables.put(number, parts[2]);
+				} else if ("s".equals(parts[0])) {
+					values.put(number, unescape(line.substring(line.indexOf('\t', 2) + 1)));
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	public int getComponentCount() {
+		return componentTypes.size();
+	}
+
+	/**
+	 * retrieve the kind of a component, e.g. SimNode
+	 * @return the kind or null if the number is unknown
+	 */
+	public String getComponentType(int number) {
+		return number >= 0 && number < componentTypes.size() ? componentTypes.get(number) : null;
+	}
+
+	/**
+	 * retrieve the id variable of a component
+	 * @return the id or null if the number is unknown
+	 */
+	public String getComponentId(int number) {
+		return number >= 0 && number < componentIds.size() ? componentIds.get(number) : null;
+	}
+
+	public String getPacketClass(int number) {
+		return packetClasses.get(number);
+	}
+
+	public String getVariable(int number) {
+		return variables.get(number);
+	}
+
+	/**
+	 * retrieve a string value of a variable
+	 * @return the value or null if the number is unknown
+	 */
+	public String getValue(int number) {
+		return values.get(number);
+	}
+
+	/**
+	 * escapes tabs, line breaks and backslashes of a value, so that it
+	 * fits into one line of the names file
+	 */
+	static String escape(String value) {
+		StringBuilder b = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+				b.append("\\\\");
+				break;
+			case '\t':
+				b.append("\\t");
+				break;
+			case '\n':
+				b.append("\\n");
+				break;
+			case '\r':
+				b.append("\\r");
+				break;
+			default:
+				b.append(c);
+			}
+		}
+		return b.toString();
+	}
+
+	private static String unescape(String value) {
+		StringBuilder b = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				c = value.charAt(++i);
+				if (c == 't') {
+					c = '\t';
+				} else if (c == 'n') {
+					c = '\n';
+				} else if (c == 'r') {
+					c = '\r';
+				}
+			}
+			b.append(c);
+		}
+		return b.toString();
+	}
+}
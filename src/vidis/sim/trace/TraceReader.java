@@ -0,0 +1,108 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * reads the records of a trace in the order they were written.
+ * <p>
+ * the segments are mapped read only. a position within the trace is a
+ * long of the segment number in the upper and the byte offset within
+ * the segment in the lower half; it may be used to seek back later.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class TraceReader {
+	private List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+	private int current;
+
+	public TraceReader(File directory) throws IOException {
+		for (int i = 0; TraceRecorder.getSegmentFile(directory, i).isFile(); i++) {
+			segments.add(map(TraceRecorder.getSegmentFile(directory, i)));
+		}
+		if (segments.isEmpty()) {
+			throw new IOException("no trace in " + directory);
+		}
+		seek(0);
+	}
+
+	private static ByteBuffer map(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (map.limit() < TraceRecord.HEADER || map.getInt(0) != TraceRecord.MAGIC) {
+				throw new IOException(file + " is no trace segment");
+			}
+			if (map.getShort(4) != TraceRecord.VERSION || map.getShort(6) != TraceRecord.SIZE) {
+				throw new IOException(file + " has an unknown version");
+			}
+			int valid = map.getInt(12);
+			if (valid >= TraceRecord.HEADER && valid < map.limit()) {
+				// without a valid length the records end with the first zero type
+				map.limit(valid);
+			}
+			return map;
+		} finally {
+			// the mapping stays valid
+			in.close();
+		}
+	}
+
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * retrieve the position of the next record
+	 */
+	public long position() {
+		return (long) current << 32 | segments.get(current).position();
+	}
+
+	/**
+	 * continues reading at a position retrieved by {@link #position()}
+	 */
+	public void seek(long position) {
+		int segment = (int) (position >>> 32);
+		int offset = (int) position;
+		if (segment < 0 || segment >= segments.size()) {
+			throw new IllegalArgumentException("no segment " + segment);
+		}
+		current = segment;
+		segments.get(segment).position(Math.max(TraceRecord.HEADER, offset));
+		for (int i = segment + 1; i < segments.size(); i++) {
+			segments.get(i).position(TraceRecord.HEADER);
+		}
+	}
+
+	/**
+	 * reads the next record
+	 * @return false at the end of the trace
+	 */
+	public boolean next(TraceRecord record) {
+		while (true) {
+			ByteBuffer segment = segments.get(current);
+			int start = segment.position();
+			if (record.read(segment)) {
+				return true;
+			}
+			segment.position(start);
+			if (current + 1 >= segments.size()) {
+				return false;
+			}
+			current++;
+		}
+	}
+}
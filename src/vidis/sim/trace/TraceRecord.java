@@ -0,0 +1,223 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.nio.ByteBuffer;
+
+/**
+ * one fixed size record of a trace.
+ * <p>
+ * every segment file starts with a header of {@link #HEADER} bytes: the
+ * magic number, the version, the record size, the segment number and the
+ * number of valid bytes (0 if the segment was not closed properly). then
+ * follow the records of {@link #SIZE} bytes each:
+ * </p>
+ * <pre>
+ * long step, byte type, byte value type, 2 bytes unused,
+ * int source, int target, int link, int kind, int payload
+ * </pre>
+ * <p>
+ * source, target and link are component numbers, see the names file of
+ * the trace. kind is the packet class number for packet events and the
+ * variable number for variable events. payload is the identity hash of
+ * the user packet.
+ * </p>
+ * <p>
+ * a variable event has no target and no link, these two hold the upper
+ * and lower half of the new value instead: primitives are stored inline,
+ * strings and the string form of other objects are numbered in the names
+ * file.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class TraceRecord {
+	public static final int MAGIC = 0x56545243;
+	public static final short VERSION = 2;
+	public static final int HEADER = 16;
+	public static final int SIZE = 32;
+
+	/**
+	 * the start of a simulator step
+	 */
+	public static final byte STEP = 1;
+	/**
+	 * a packet left a node onto a link
+	 */
+	public static final byte SEND = 2;
+	/**
+	 * a packet was delivered to a node
+	 */
+	public static final byte RECEIVE = 3;
+	/**
+	 * a packet was dropped
+	 */
+	public static final byte DROP = 4;
+	/**
+	 * a variable of a node or link was added or changed
+	 */
+	public static final byte VARIABLE = 5;
+
+	public static final int NONE = -1;
+
+	public static final byte VALUE_NULL = 0;
+	public static final byte VALUE_BOOLEAN = 1;
+	public static final byte VALUE_BYTE = 2;
+	public static final byte VALUE_CHAR = 3;
+	public static final byte VALUE_SHORT = 4;
+	public static final byte VALUE_INT = 5;
+	public static final byte VALUE_LONG = 6;
+	public static final byte VALUE_FLOAT = 7;
+	public static final byte VALUE_DOUBLE = 8;
+	/**
+	 * a string, the value is its number in the names file
+	 */
+	public static final byte VALUE_STRING = 9;
+	/**
+	 * any other object, the value is the number of its string form
+	 */
+	public static final byte VALUE_OBJECT = 10;
+
+	public long step;
+	public byte type;
+	public int source;
+	public int target;
+	public int link;
+	public int kind;
+	public int payload;
+	/**
+	 * the type of the value of a variable event
+	 */
+	public byte valueType;
+	/**
+	 * the encoded value of a variable event, see {@link #getValue(TraceNames)}
+	 */
+	public long value;
+
+	/**
+	 * reads the record at the position of the buffer
+	 * @return false if there is no more record
+	 */
+	public boolean read(ByteBuffer buffer) {
+		if (buffer.remaining() < SIZE) {
+			return false;
+		}
+		int start = buffer.position();
+		step = buffer.getLong();
+		type = buffer.get();
+		valueType = buffer.get();
+		buffer.position(start + 12);
+		source = buffer.getInt();
+		target = buffer.getInt();
+		link = buffer.getInt();
+		kind = buffer.getInt();
+		payload = buffer.getInt();
+		value = type == VARIABLE ? (long) target << 32 | (link & 0xffffffffL) : 0;
+		// a segment that was not closed ends with zeros
+		return type != 0;
+	}
+
+	/**
+	 * decodes the value of a variable event
+	 * @param names the names of the trace, for strings and objects
+	 * @return the value; objects are returned in their string form
+	 */
+	public Object getValue(TraceNames names) {
+		switch (valueType) {
+		case VALUE_BOOLEAN:
+			return value != 0;
+		case VALUE_BYTE:
+			return (byte) value;
+		case VALUE_CHAR:
+			return (char) value;
+		case VALUE_SHORT:
+			return (short) value;
+		case VALUE_INT:
+			return (int) value;
+		case VALUE_LONG:
+			return value;
+		case VALUE_FLOAT:
+			return Float.intBitsToFloat((int) value);
+		case VALUE_DOUBLE:
+			return Double.longBitsToDouble(value);
+		case VALUE_STRING:
+		case VALUE_OBJECT:
+			return names.getValue((int) value);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * retrieve the value type a value is encoded with
+	 */
+	static byte typeOf(Object value) {
+		if (value == null) {
+			return VALUE_NULL;
+		} else if (value instanceof Boolean) {
+			return VALUE_BOOLEAN;
+		} else if (value instanceof Byte) {
+			return VALUE_BYTE;
+		} else if (value instanceof Character) {
+			return VALUE_CHAR;
+		} else if (value instanceof Short) {
+			return VALUE_SHORT;
+		} else if (value instanceof Integer) {
+			return VALUE_INT;
+		} else if (value instanceof Long) {
+			return VALUE_LONG;
+		} else if (value instanceof Float) {
+			return VALUE_FLOAT;
+		} else if (value instanceof Double) {
+			return VALUE_DOUBLE;
+		} else if (value instanceof String) {
+			return VALUE_STRING;
+		}
+		return VALUE_OBJECT;
+	}
+
+	/**
+	 * encodes a primitive value inline
+	 * @param valueType the type from {@link #typeOf(Object)}
+	 */
+	static long bitsOf(byte valueType, Object value) {
+		switch (valueType) {
+		case VALUE_BOOLEAN:
+			return ((Boolean) value) ? 1 : 0;
+		case VALUE_CHAR:
+			return (Character) value;
+		case VALUE_BYTE:
+		case VALUE_SHORT:
+		case VALUE_INT:
+		case VALUE_LONG:
+			return ((Number) value).longValue();
+		case VALUE_FLOAT:
+			return Float.floatToIntBits((Float) value);
+		case VALUE_DOUBLE:
+			return Double.doubleToLongBits((Double) value);
+		default:
+			return 0;
+		}
+	}
+
+	static void write(ByteBuffer buffer, long step, byte type, byte valueType, int source, int target, int link, int kind, int payload) {
+		buffer.putLong(step);
+		buffer.putInt(type << 24 | (valueType & 0xff) << 16);
+		buffer.putInt(source);
+		buffer.putInt(target);
+		buffer.putInt(link);
+		buffer.putInt(kind);
+		buffer.putInt(payload);
+	}
+
+	@Override
+	public String toString() {
+		if (type == VARIABLE) {
+			return step + " " + type + " " + source + " " + kind + " " + valueType + ":" + value;
+		}
+		return step + " " + type + " " + source + " " + target + " " + link + " " + kind + " " + payload;
+	}
+}
@@ -0,0 +1,392 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import vidis.data.mod.IUserPacket;
+import vidis.data.sim.AComponent;
+import vidis.data.sim.SimPacket;
+import vidis.data.var.VariableIds;
+import vidis.sim.Simulator;
+import vidis.sim.classloader.ClassCache;
+
+/**
+ * records what happens within a simulation into binary trace files.
+ * <p>
+ * the records, see {@link TraceRecord}, are collected in a buffer per
+ * thread and copied into memory mapped segment files of a fixed size;
+ * a full segment is closed and the next one opened. components, packet
+ * classes and variables are numbered, the numbers are resolved in the
+ * text file {@link #NAMES} next to the segments.
+ * </p>
+ * <p>
+ * only the thread that owns a buffer copies it into the segments: when
+ * it is full, at the end of every simulator step and when a routine
+ * gives its turn back. starting and stopping a trace never touch the
+ * buffers of other threads; records of an earlier trace are dropped by
+ * their thread with its next record.
+ * </p>
+ * <p>
+ * a trace follows the one simulator it was started for, events of other
+ * simulators running at the same time, e.g. headless sweeps, are left
+ * out. every record takes the step from the simulator of its component.
+ * </p>
+ * <p>
+ * while no trace is running every record call costs one volatile read.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class TraceRecorder {
+	private static Logger logger = Logger.getLogger(TraceRecorder.class);
+
+	public static final long DEFAULT_SEGMENT_SIZE = 16L << 20;
+	private static final long MIN_SEGMENT_SIZE = 1L << 20;
+	public static final String NAMES = "names.txt";
+	/**
+	 * the number of distinct string values that are numbered only once,
+	 * further values are written anew with every change
+	 */
+	private static final int MAX_VALUES = 1 << 16;
+
+	private static final TraceRecorder instance = new TraceRecorder();
+
+	private volatile boolean enabled = false;
+	/**
+	 * increased with every start, components number themselves anew then
+	 */
+	private volatile int session = 0;
+	/**
+	 * the simulator that is traced
+	 */
+	private volatile Simulator simulator;
+
+	private File directory;
+	private long segmentSize;
+	private int segmentNumber;
+	private volatile TraceSegment segment;
+	private PrintWriter names;
+
+	private int nextComponent;
+	private int nextClass;
+	private int nextValue;
+	private ClassCache<Integer> classes = new ClassCache<Integer>();
+	private Map<Integer, Boolean> variables = new ConcurrentHashMap<Integer, Boolean>();
+	private Map<String, Integer> values = new ConcurrentHashMap<String, Integer>();
+
+	private ThreadLocal<TraceBuffer> buffer = new ThreadLocal<TraceBuffer>() {
+		@Override
+		protected TraceBuffer initialValue() {
+			return new TraceBuffer();
+		}
+	};
+
+	private TraceRecorder() {
+	}
+
+	public static TraceRecorder getInstance() {
+		return instance;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getSession() {
+		return session;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public void start(File directory, Simulator simulator) throws IOException {
+		start(directory, DEFAULT_SEGMENT_SIZE, simulator);
+	}
+
+	/**
+	 * starts a new trace, a running one is stopped first
+	 * @param directory where to put the segments and the names file
+	 * @param segmentSize the size of a segment file in bytes
+	 * @param simulator the simulator to trace
+	 */
+	public synchronized void start(File directory, long segmentSize, Simulator simulator) throws IOException {
+		stop();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create trace directory " + directory);
+		}
+		this.directory = directory;
+		this.segmentSize = Math.max(MIN_SEGMENT_SIZE, Math.min(Integer.MAX_VALUE, segmentSize));
+		segmentNumber = 0;
+		nextComponent = 0;
+		nextClass = 0;
+		nextValue = 0;
+		classes.clear();
+		variables.clear();
+		values.clear();
+		names = new PrintWriter(new BufferedWriter(new FileWriter(new File(directory, NAMES))));
+		segment = openSegment();
+		this.simulator = simulator;
+		session++;
+		enabled = true;
+		logger.info("tracing into " + directory);
+	}
+
+	/**
+	 * stops the running trace; the records of the calling thread are
+	 * written, those of other threads only as far as they were handed
+	 * over, which they are at the end of every step
+	 */
+	public synchronized void stop() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		enabled = false;
+		TraceBuffer own = buffer.get();
+		if (own.session == session) {
+			flush(own);
+		}
+		try {
+			if (segment != null) {
+				segment.close();
+			}
+		} finally {
+			segment = null;
+			simulator = null;
+			names.close();
+			names = null;
+		}
+		logger.info("trace stopped after " + segmentNumber + " segments");
+	}
+
+	/**
+	 * retrieve the file of a segment
+	 */
+	public static File getSegmentFile(File directory, int number) {
+		return new File(directory, String.format("trace-%05d.bin", number));
+	}
+
+	private TraceSegment openSegment() throws IOException {
+		return new TraceSegment(getSegmentFile(directory, segmentNumber++), segmentNumber - 1, segmentSize);
+	}
+
+	/**
+	 * to be called at the start of every simulator step
+	 * @param simulator the simulator that steps
+	 * @param step the step that starts
+	 */
+	public void step(Simulator simulator, long step) {
+		if (enabled && simulator == this.simulator) {
+			record(step, TraceRecord.STEP, TraceRecord.VALUE_NULL, TraceRecord.NONE, TraceRecord.NONE, TraceRecord.NONE, TraceRecord.NONE, 0);
+		}
+	}
+
+	/**
+	 * copies the records of the calling thread into the segments; to be
+	 * called by the stepping thread at the end of every step and by a
+	 * routine whenever it gives its turn back
+	 */
+	public void handOver() {
+		if (enabled) {
+			TraceBuffer b = buffer.get();
+			if (b.session == session) {
+				flush(b);
+			}
+		}
+	}
+
+	/**
+	 * retrieve if the events of a component belong to the running trace
+	 */
+	private boolean traces(AComponent component) {
+		return enabled && component.getSimulator() == simulator;
+	}
+
+	/**
+	 * records an event of a packet on its way
+	 * @param type SEND or RECEIVE
+	 */
+	public void packet(byte type, SimPacket packet) {
+		AComponent from = packet.getFromSim();
+		if (traces(from)) {
+			IUserPacket p = packet.getUserLogic();
+			record(from.getNow(), type, TraceRecord.VALUE_NULL, packet.getFromSim().getTraceId(), packet.getToSim().getTraceId(), packet.getThrough().getTraceId(),
+					classOf(p.getClass()), System.identityHashCode(p));
+		}
+	}
+
+	/**
+	 * records a packet that was dropped before or while it was on a link
+	 * @param at the node or link that dropped the packet
+	 */
+	public void dropped(AComponent at, IUserPacket packet) {
+		if (traces(at)) {
+			record(at.getNow(), TraceRecord.DROP, TraceRecord.VALUE_NULL, at.getTraceId(), TraceRecord.NONE, TraceRecord.NONE,
+					classOf(packet.getClass()), System.identityHashCode(packet));
+		}
+	}
+
+	/**
+	 * records that a variable of a component was added or changed; the
+	 * value is encoded at once, so later changes to it are not seen
+	 */
+	public void variable(AComponent component, String id, Object value) {
+		if (traces(component)) {
+			byte type = TraceRecord.typeOf(value);
+			long bits;
+			if (type == TraceRecord.VALUE_STRING || type == TraceRecord.VALUE_OBJECT) {
+				bits = valueOf(text(value));
+			} else {
+				bits = TraceRecord.bitsOf(type, value);
+			}
+			record(component.getNow(), TraceRecord.VARIABLE, type, component.getTraceId(), (int) (bits >>> 32), (int) bits,
+					variableOf(id), 0);
+		}
+	}
+
+	private void record(long step, byte type, byte valueType, int source, int target, int link, int kind, int payload) {
+		buffer.get().put(this, session, step, type, valueType, source, target, link, kind, payload);
+	}
+
+	/**
+	 * retrieve the string form of a value; arrays show their elements
+	 */
+	private static String text(Object value) {
+		if (value.getClass().isArray()) {
+			String s = Arrays.deepToString(new Object[] { value });
+			return s.substring(1, s.length() - 1);
+		}
+		return value.toString();
+	}
+
+	/**
+	 * numbers a component within the running trace
+	 * @param type the kind of component, e.g. SimNode
+	 * @param id the id of the component
+	 */
+	public synchronized int register(String type, String id) {
+		if (names == null) {
+			return TraceRecord.NONE;
+		}
+		int number = nextComponent++;
+		names.println("c\t" + number + "\t" + type + "\t" + id);
+		return number;
+	}
+
+	/**
+	 * numbers a packet class within the running trace; the thread looks
+	 * it up in its own buffer first and locks only for a class it has not
+	 * seen in this trace
+	 */
+	private int classOf(Class<?> clazz) {
+		TraceBuffer b = buffer.get();
+		b.join(session);
+		Integer number = b.classes.get(clazz);
+		if (number == null) {
+			number = numberClass(clazz);
+			if (number != TraceRecord.NONE) {
+				b.classes.put(clazz, number);
+			}
+		}
+		return number;
+	}
+
+	private synchronized int numberClass(Class<?> clazz) {
+		Integer number = classes.get(clazz);
+		if (number == null) {
+			if (names == null) {
+				return TraceRecord.NONE;
+			}
+			number = nextClass++;
+			names.println("p\t" + number + "\t" + clazz.getName());
+			classes.put(clazz, number);
+		}
+		return number;
+	}
+
+	/**
+	 * numbers a string value within the running trace
+	 */
+	private int valueOf(String value) {
+		Integer number = values.get(value);
+		if (number == null) {
+			synchronized (this) {
+				number = values.get(value);
+				if (number == null) {
+					if (names == null) {
+						return TraceRecord.NONE;
+					}
+					number = nextValue++;
+					names.println("s\t" + number + "\t" + TraceNames.escape(value));
+					if (values.size() < MAX_VALUES) {
+						values.put(value, number);
+					}
+				}
+			}
+		}
+		return number;
+	}
+
+	private int variableOf(String id) {
+		int number = VariableIds.intern(id);
+		if (!variables.containsKey(number)) {
+			synchronized (this) {
+				if (!variables.containsKey(number)) {
+					if (names == null) {
+						return number;
+					}
+					names.println("v\t" + number + "\t" + id);
+					variables.put(number, Boolean.TRUE);
+				}
+			}
+		}
+		return number;
+	}
+
+	/**
+	 * copies a thread buffer into the segments
+	 */
+	void flush(TraceBuffer b) {
+		ByteBuffer buffer = b.buffer;
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			TraceSegment s = segment;
+			if (s == null) {
+				break;
+			}
+			if (!s.write(buffer)) {
+				rotate(s);
+			}
+		}
+		buffer.clear();
+	}
+
+	private synchronized void rotate(TraceSegment full) {
+		if (segment != full) {
+			// another thread was faster
+			return;
+		}
+		try {
+			full.close();
+			segment = openSegment();
+		} catch (IOException e) {
+			logger.error("tracing stopped, cannot open the next segment", e);
+			enabled = false;
+			segment = null;
+		}
+	}
+}
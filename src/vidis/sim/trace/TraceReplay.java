@@ -0,0 +1,173 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * rebuilds the state of a traced simulation at any step without running
+ * the simulation again.
+ * <p>
+ * while opening, the trace is read once and a copy of the state is kept
+ * as keyframe at some step boundaries. a keyframe is only taken if at
+ * least {@link #KEYFRAME_RATIO} times its own size in records has been
+ * applied since the last one, so the keyframes never need more memory
+ * than a fraction of the trace and seeking to any step costs one copy
+ * plus at most that many records.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class TraceReplay {
+	private static Logger logger = Logger.getLogger(TraceReplay.class);
+
+	private static final int KEYFRAME_RATIO = 4;
+	private static final int MIN_KEYFRAME_RECORDS = 1 << 16;
+
+	private static final class Keyframe {
+		/**
+		 * the position of the STEP record after the state
+		 */
+		private final long position;
+		private final TraceState state;
+
+		private Keyframe(long position, TraceState state) {
+			this.position = position;
+			this.state = state;
+		}
+	}
+
+	private final TraceNames names;
+	private final TraceReader reader;
+	private final List<Keyframe> keyframes = new ArrayList<Keyframe>();
+	private long records;
+	private long lastStep = -1;
+
+	private TraceState state;
+	private long position;
+	private final TraceRecord record = new TraceRecord();
+
+	public TraceReplay(File directory) throws IOException {
+		names = new TraceNames(directory);
+		reader = new TraceReader(directory);
+		index();
+	}
+
+	private void index() {
+		TraceState s = new TraceState(names);
+		keyframes.add(new Keyframe(reader.position(), s.copy()));
+		long applied = 0;
+		while (true) {
+			long before = reader.position();
+			if (!reader.next(record)) {
+				break;
+			}
+			if (record.type == TraceRecord.STEP) {
+				if (applied >= Math.max(MIN_KEYFRAME_RECORDS, (long) KEYFRAME_RATIO * s.size())) {
+					keyframes.add(new Keyframe(before, s.copy()));
+					applied = 0;
+				}
+				lastStep = record.step;
+			}
+			s.apply(record);
+			applied++;
+			records++;
+		}
+		logger.info(records + " records up to step " + lastStep + ", " + keyframes.size() + " keyframes");
+		state = keyframes.get(0).state.copy();
+		position = keyframes.get(0).position;
+	}
+
+	public TraceNames getNames() {
+		return names;
+	}
+
+	public long getRecordCount() {
+		return records;
+	}
+
+	public int getKeyframeCount() {
+		return keyframes.size();
+	}
+
+	/**
+	 * retrieve the last step of the trace
+	 * @return the step or -1 if no step was traced
+	 */
+	public long getLastStep() {
+		return lastStep;
+	}
+
+	/**
+	 * retrieve the state the last seek ended at
+	 */
+	public TraceState getState() {
+		return state;
+	}
+
+	/**
+	 * rebuilds the state at the end of a step
+	 * @param step the step, the state before the first step if negative
+	 * @return the state; it is reused by the next seek
+	 */
+	public TraceState seek(long step) {
+		// the last keyframe at or before the step
+		int low = 0;
+		int high = keyframes.size() - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (keyframes.get(mid).state.getStep() <= step) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		Keyframe k = keyframes.get(low);
+		if (state.getStep() > step || state.getStep() < k.state.getStep()) {
+			state = k.state.copy();
+			position = k.position;
+		}
+		// else going on from the current state is cheaper
+		reader.seek(position);
+		while (true) {
+			long before = reader.position();
+			if (!reader.next(record)) {
+				position = before;
+				break;
+			}
+			if (record.type == TraceRecord.STEP && record.step > step) {
+				position = before;
+				break;
+			}
+			state.apply(record);
+		}
+		return state;
+	}
+
+	/**
+	 * prints the state of a trace at the given steps
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: TraceReplay <directory> [step]...");
+			System.exit(1);
+		}
+		long start = System.nanoTime();
+		TraceReplay replay = new TraceReplay(new File(args[0]));
+		System.out.println(replay.getRecordCount() + " records, last step " + replay.getLastStep() + ", "
+				+ replay.getKeyframeCount() + " keyframes, indexed in " + (System.nanoTime() - start) / 1000000 + "ms");
+		for (int i = 1; i < args.length; i++) {
+			start = System.nanoTime();
+			TraceState s = replay.seek(Long.parseLong(args[i]));
+			System.out.println(s + " (" + (System.nanoTime() - start) / 1000 + "us)");
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import vidis.data.sim.AComponent;
+import vidis.data.sim.SimLink;
+import vidis.data.sim.SimNode;
+import vidis.data.var.vars.AVariable;
+import vidis.ui.model.impl.Packet;
+
+/**
+ * shows the packets of a trace on the nodes and links of the loaded
+ * simulation instead of running its user logic.
+ * <p>
+ * the components of the trace are matched to the loaded ones by kind
+ * and id, so the simulation the trace was recorded from has to be
+ * loaded and must not be running while replaying, see
+ * {@link vidis.sim.Player#openReplay(TraceReplayView)}. a packet is drawn
+ * as far along its link as its age in steps relative to the link delay.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class TraceReplayView {
+	private final TraceReplay replay;
+	private final AComponent[] components;
+	private Map<TraceState.InFlight, Packet> shown = new IdentityHashMap<TraceState.InFlight, Packet>();
+
+	public TraceReplayView(TraceReplay replay, List<AComponent> loaded) {
+		this.replay = replay;
+		Map<String, AComponent> byName = new HashMap<String, AComponent>();
+		for (AComponent c : loaded) {
+			if (c.hasVariable(AVariable.COMMON_IDENTIFIERS.ID)) {
+				byName.put(c.getClass().getSimpleName() + "\t" + c.getVariableById(AVariable.COMMON_IDENTIFIERS.ID).getData(), c);
+			}
+		}
+		TraceNames names = replay.getNames();
+		components = new AComponent[names.getComponentCount()];
+		for (int i = 0; i < components.length; i++) {
+			components[i] = byName.get(names.getComponentType(i) + "\t" + names.getComponentId(i));
+		}
+	}
+
+	public TraceReplay getReplay() {
+		return replay;
+	}
+
+	/**
+	 * shows the packets at the end of a step
+	 * @return the state of the step
+	 */
+	public TraceState show(long step) {
+		TraceState state = replay.seek(step);
+		Map<TraceState.InFlight, Packet> next = new IdentityHashMap<TraceState.InFlight, Packet>();
+		for (TraceState.InFlight p : state.getInFlight()) {
+			Packet vis = shown.remove(p);
+			if (vis == null) {
+				vis = createPacket(p);
+				if (vis == null) {
+					continue;
+				}
+			}
+			place(vis, p, step);
+			next.put(p, vis);
+		}
+		ReplayPacket.remove(shown.values());
+		shown = next;
+		return state;
+	}
+
+	/**
+	 * removes all replayed packets from the visualisation
+	 */
+	public void clear() {
+		ReplayPacket.remove(shown.values());
+		shown = new IdentityHashMap<TraceState.InFlight, Packet>();
+	}
+
+	private AComponent component(int number) {
+		return number >= 0 && number < components.length ? components[number] : null;
+	}
+
+	private Packet createPacket(TraceState.InFlight p) {
+		AComponent link = component(p.link);
+		if (!(link instanceof SimLink) || ((SimLink) link).getVisObject() == null
+				|| !(component(p.source) instanceof SimNode) || !(component(p.target) instanceof SimNode)) {
+			return null;
+		}
+		String name = replay.getNames().getPacketClass(p.kind);
+		name = name == null ? "packet" : name.substring(name.lastIndexOf('.') + 1);
+		return ReplayPacket.show((SimLink) link, (SimNode) component(p.target), name + "@" + Integer.toHexString(p.payload), name);
+	}
+
+	private void place(Packet vis, TraceState.InFlight p, long step) {
+		SimLink link = (SimLink) component(p.link);
+		ReplayPacket.place(vis, (SimNode) component(p.source), (SimNode) component(p.target),
+				(double) (step - p.sent) / Math.max(1, link.getDelay()));
+	}
+}
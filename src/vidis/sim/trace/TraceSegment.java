@@ -0,0 +1,94 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * one memory mapped file of a trace.
+ * <p>
+ * writers reserve their range with a single atomic add and copy their
+ * buffer without locking. the first reservation that does not fit marks
+ * the segment full; everything before it has been written, everything
+ * after it is written into the next segment.
+ * </p>
+ * @author Dominik
+ *
+ */
+final class TraceSegment {
+	private final RandomAccessFile file;
+	private final MappedByteBuffer map;
+	private final long capacity;
+
+	private final AtomicLong reserved = new AtomicLong(TraceRecord.HEADER);
+	private final AtomicLong full = new AtomicLong(-1);
+	private final AtomicInteger writers = new AtomicInteger();
+	private volatile boolean closing;
+
+	TraceSegment(File path, int number, long capacity) throws IOException {
+		this.capacity = capacity;
+		file = new RandomAccessFile(path, "rw");
+		try {
+			map = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		map.putInt(0, TraceRecord.MAGIC);
+		map.putShort(4, TraceRecord.VERSION);
+		map.putShort(6, (short) TraceRecord.SIZE);
+		map.putInt(8, number);
+		map.putInt(12, 0);
+	}
+
+	/**
+	 * copies the remaining bytes of a buffer into this segment
+	 * @return false if they do not fit, the buffer is left untouched then
+	 */
+	boolean write(ByteBuffer src) {
+		writers.incrementAndGet();
+		try {
+			if (closing) {
+				return false;
+			}
+			int length = src.remaining();
+			long position = reserved.getAndAdd(length);
+			if (position + length > capacity) {
+				full.compareAndSet(-1, position);
+				return false;
+			}
+			ByteBuffer target = map.duplicate();
+			target.position((int) position);
+			target.put(src);
+			return true;
+		} finally {
+			writers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * waits for the running writes, stores the valid length and closes
+	 * the file; the mapping itself is released by the garbage collector.
+	 * the pages are written back by the operating system, even if the
+	 * simulator dies, so the segment is not forced to disk here
+	 */
+	void close() throws IOException {
+		closing = true;
+		while (writers.get() > 0) {
+			Thread.yield();
+		}
+		long end = full.get() >= 0 ? full.get() : Math.min(reserved.get(), capacity);
+		map.putInt(12, (int) end);
+		file.close();
+	}
+}
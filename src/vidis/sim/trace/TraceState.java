@@ -0,0 +1,192 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.sim.trace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the state of a simulation as far as it can be rebuilt from its trace:
+ * the packets on the links, the last value of every traced variable and
+ * the packet counters.
+ * <p>
+ * the packets and the decoded values are immutable, so copying a state
+ * for a keyframe only copies the two maps.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class TraceState {
+	/**
+	 * a packet on a link
+	 */
+	public static final class InFlight {
+		public final int source;
+		public final int target;
+		public final int link;
+		public final int kind;
+		public final int payload;
+		/**
+		 * the step the packet was sent in
+		 */
+		public final long sent;
+		/**
+		 * the same user packet sent earlier over the same link or null
+		 */
+		private final InFlight next;
+
+		private InFlight(TraceRecord r, InFlight next) {
+			this.source = r.source;
+			this.target = r.target;
+			this.link = r.link;
+			this.kind = r.kind;
+			this.payload = r.payload;
+			this.sent = r.step;
+			this.next = next;
+		}
+	}
+
+	private final TraceNames names;
+	private long step = -1;
+	private long sent;
+	private long received;
+	private long dropped;
+	private int inFlightCount;
+	private Map<Long, InFlight> inFlight;
+	private Map<Long, Object> variables;
+
+	/**
+	 * @param names the names of the trace, to decode string values
+	 */
+	public TraceState(TraceNames names) {
+		this.names = names;
+		inFlight = new HashMap<Long, InFlight>();
+		variables = new HashMap<Long, Object>();
+	}
+
+	private TraceState(TraceState s) {
+		names = s.names;
+		step = s.step;
+		sent = s.sent;
+		received = s.received;
+		dropped = s.dropped;
+		inFlightCount = s.inFlightCount;
+		inFlight = new HashMap<Long, InFlight>(s.inFlight);
+		variables = new HashMap<Long, Object>(s.variables);
+	}
+
+	public TraceState copy() {
+		return new TraceState(this);
+	}
+
+	private static long key(int a, int b) {
+		return (long) a << 32 | (b & 0xffffffffL);
+	}
+
+	/**
+	 * applies the next record of the trace
+	 */
+	public void apply(TraceRecord r) {
+		switch (r.type) {
+		case TraceRecord.STEP:
+			step = r.step;
+			break;
+		case TraceRecord.SEND:
+			sent++;
+			inFlightCount++;
+			Long k = key(r.link, r.payload);
+			inFlight.put(k, new InFlight(r, inFlight.get(k)));
+			break;
+		case TraceRecord.RECEIVE:
+			received++;
+			remove(r.link, r.payload);
+			break;
+		case TraceRecord.DROP:
+			// dropped by a link while on its way or by a node before
+			dropped++;
+			remove(r.source, r.payload);
+			break;
+		case TraceRecord.VARIABLE:
+			variables.put(key(r.source, r.kind), r.getValue(names));
+			break;
+		}
+	}
+
+	private void remove(int link, int payload) {
+		Long k = key(link, payload);
+		InFlight p = inFlight.get(k);
+		if (p != null) {
+			inFlightCount--;
+			if (p.next == null) {
+				inFlight.remove(k);
+			} else {
+				inFlight.put(k, p.next);
+			}
+		}
+	}
+
+	/**
+	 * retrieve the last step that was started
+	 * @return the step or -1 before the first step
+	 */
+	public long getStep() {
+		return step;
+	}
+
+	public long getSent() {
+		return sent;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public int getInFlightCount() {
+		return inFlightCount;
+	}
+
+	/**
+	 * retrieve all packets on the links
+	 */
+	public List<InFlight> getInFlight() {
+		List<InFlight> list = new ArrayList<InFlight>(inFlightCount);
+		for (InFlight p : inFlight.values()) {
+			for (; p != null; p = p.next) {
+				list.add(p);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * retrieve the last value of a variable
+	 * @param component the component number
+	 * @param variable the variable number
+	 * @return the value, objects in their string form, or null if the
+	 * variable was not traced or is null
+	 */
+	public Object getVariable(int component, int variable) {
+		return variables.get(key(component, variable));
+	}
+
+	/**
+	 * retrieve the number of entries a copy of this state costs
+	 */
+	int size() {
+		return inFlight.size() + variables.size();
+	}
+
+	@Override
+	public String toString() {
+		return "step " + step + ": sent " + sent + ", received " + received + ", dropped " + dropped + ", on links " + inFlightCount;
+	}
+}
@@ -33,6 +33,11 @@ public class Configuration {
 	 */
 	public static final String LOG_PATH = DATA_PATH + File.separatorChar + "logs";
 	
+	/**
+	 * trace path for vidis
+	 */
+	public static final String TRACE_PATH = DATA_PATH + File.separatorChar + "traces";
+	
 	/**
 	 * modules path for vidis
 	 */
@@ -77,6 +82,37 @@ public class Configuration {
 	public static double DETAIL_LEVEL = .0;
 	public static boolean USE_AUTOMATIC_DETAIL_LEVEL = true;
 	public static int USE_AUTOMATIC_DETAIL_LEVEL_COUNTER = 250;
+	
+	/**
+	 * detail levels of the single object groups within [0 .. 1.5];
+	 * the automatic detail level adjusts them by their render costs
+	 * and keeps DETAIL_LEVEL at their mean
+	 */
+	public static double NODE_DETAIL_LEVEL = .0;
+	public static double LINK_DETAIL_LEVEL = .0;
+	public static double PACKET_DETAIL_LEVEL = .0;
+	
+	/**
+	 * links further away from the camera are drawn as simple lines,
+	 * scaled by (0.5 + LINK_DETAIL_LEVEL)
+	 */
+	public static double LINK_LOD_DISTANCE = 20;
+	
+	/**
+	 * packets further away from the camera are only shown as traffic on
+	 * their link, scaled by (0.5 + PACKET_DETAIL_LEVEL)
+	 */
+	public static double PACKET_LOD_DISTANCE = 15;
+	
+	/**
+	 * skip nodes, links and packets outside of the view frustum
+	 */
+	public static boolean USE_FRUSTUM_CULLING = true;
+	
+	/**
+	 * show step and frame metrics on screen
+	 */
+	public static boolean SHOW_METRICS_OVERLAY = false;
 
 	/**
 	 * the angle we look down (x axis)
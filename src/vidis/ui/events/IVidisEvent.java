@@ -31,6 +31,7 @@ public interface IVidisEvent {
 	public final int CameraUnregister = 21;
 	public final int ObjectRegister = 22;
 	public final int ObjectUnregister = 23;
+	public final int ObjectsUnregister = 24;
 	
 	
 	public final int ScrollUp = 1001;
@@ -57,6 +58,13 @@ public interface IVidisEvent {
 	public final int SimulatorReload = 5003;
 	public final int SimulatorPause = 5004;
 	public final int ExportSimFile = 5005;
+	public final int SimulatorStepBackward = 5006;
+	public final int SimulatorStepForward = 5007;
+	public final int SimulatorRewind = 5008;
+	public final int TraceStart = 5020;
+	public final int TraceStop = 5021;
+	public final int TraceOpen = 5022;
+	public final int TraceClose = 5023;
 	
 	
 	public final int FPS 			= 10001;
@@ -6,6 +6,7 @@
 package vidis.ui.events;
 
 import vidis.ui.events.jobs.IJob;
+import vidis.ui.events.jobs.IJobListener;
 
 /**
  * the job append event
@@ -16,13 +17,23 @@ import vidis.ui.events.jobs.IJob;
  */
 public class JobAppend implements IVidisEvent {
 	private IJob job;
+	private IJobListener listener;
 	
 	/**
 	 * this is the default constructor taking one argument
 	 * @param data the job to be appended to the execution queue
 	 */
 	public JobAppend(IJob data) {
+		this(data, null);
+	}
+	
+	/**
+	 * @param data the job to be appended to the execution queue
+	 * @param listener informed once the job is finished; may be null
+	 */
+	public JobAppend(IJob data, IJobListener listener) {
 		this.job = data;
+		this.listener = listener;
 	}
 
 	/**
@@ -40,4 +51,12 @@ public class JobAppend implements IVidisEvent {
 	public IJob getJob() {
 		return job;
 	}
+	
+	/**
+	 * the listener to inform once the job is finished
+	 * @return the listener or null
+	 */
+	public IJobListener getListener() {
+		return listener;
+	}
 }
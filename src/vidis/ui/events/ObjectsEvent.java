@@ -0,0 +1,35 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.ui.events;
+
+import java.util.List;
+
+import vidis.ui.model.structure.IVisObject;
+
+/**
+ * an event for many objects at once, e.g. all packets a node received
+ * within one simulator step
+ * @author Christoph
+ *
+ */
+public class ObjectsEvent implements IVidisEvent {
+
+	private int eventId;
+	private List<IVisObject> objects;
+	
+	public ObjectsEvent( int eventId, List<IVisObject> objects ) {
+		this.eventId = eventId;
+		this.objects = objects;
+	}
+	public int getID() {
+		return eventId;
+	}
+	
+	public List<IVisObject> getObjects() {
+		return this.objects;
+	}
+
+}
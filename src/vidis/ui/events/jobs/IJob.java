@@ -11,15 +11,35 @@ package vidis.ui.events.jobs;
  *
  */
 public interface IJob extends Runnable {
+	/**
+	 * jobs the user waits for
+	 */
+	public static final int PRIORITY_UI = 0;
+	/**
+	 * layout jobs
+	 */
+	public static final int PRIORITY_LAYOUT = 1;
+	/**
+	 * background jobs like analytics and exports
+	 */
+	public static final int PRIORITY_ANALYTICS = 2;
 
 	/**
 	 * Determines if this job can be run only in a semi-singleton mode.
 	 * <p>
 	 * Semi-singleton mode means, that if a job of the same Class is already
-	 * executing or is planned for execution, this job won't be submitted.
+	 * planned for execution, this job is merged into the planned one; if
+	 * it is already executing, the running job is cancelled and this job
+	 * is run after it.
 	 * </p>
 	 * @return true or false
 	 */
 	boolean mustExecuteUniquely();
 
+	/**
+	 * the lane of this job; jobs with a lower value are run first
+	 * @return one of the PRIORITY_ constants
+	 */
+	int getPriority();
+
 }
@@ -0,0 +1,22 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.ui.events.jobs;
+
+/**
+ * gets informed when a job is finished
+ * @author Dominik
+ *
+ */
+public interface IJobListener {
+	/**
+	 * called once the job has finished, was cancelled or was not
+	 * accepted by the scheduler
+	 * @param job the job
+	 * @param cancelled true if the job did not run to its end
+	 * @param error the exception thrown by the job or null
+	 */
+	public void jobFinished(IJob job, boolean cancelled, Throwable error);
+}
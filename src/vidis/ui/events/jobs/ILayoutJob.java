@@ -18,4 +18,10 @@ import vidis.ui.model.graph.layouts.IGraphLayout;
 public interface ILayoutJob extends IJob {
 	public IGraphLayout getLayout();
 	public Collection<SimNode> getNodes();
+
+	/**
+	 * run the job; it should return early once the token is cancelled
+	 * @param token the cancellation token of this run
+	 */
+	public void run(CancellationToken token);
 }
@@ -7,6 +7,7 @@ package vidis.ui.events.jobs.jobs.layouts;
 
 import org.apache.log4j.Logger;
 
+import vidis.ui.events.jobs.CancellationToken;
 import vidis.ui.events.jobs.ILayoutJob;
 
 /**
@@ -17,9 +18,12 @@ import vidis.ui.events.jobs.ILayoutJob;
 public abstract class ALayoutJob implements ILayoutJob {
 	private static Logger logger = Logger.getLogger(ALayoutJob.class);
 	public void run() {
+		run(CancellationToken.NONE);
+	}
+	public void run(CancellationToken token) {
 		logger.info("starting job: " + this);
 		try {
-			getLayout().apply(getNodes());
+			getLayout().apply(getNodes(), token);
 		} catch (Exception e) {
 			logger.error(e);
 		}
@@ -27,5 +31,8 @@ public abstract class ALayoutJob implements ILayoutJob {
 	public boolean mustExecuteUniquely() {
 		return false;
 	}
+	public int getPriority() {
+		return PRIORITY_LAYOUT;
+	}
 
 }
@@ -7,6 +7,7 @@ package vidis.ui.events.jobs.jobs.layouts;
 
 import org.apache.log4j.Logger;
 
+import vidis.ui.events.jobs.CancellationToken;
 import vidis.ui.events.jobs.ILayoutJob;
 
 /**
@@ -17,14 +18,21 @@ import vidis.ui.events.jobs.ILayoutJob;
 public abstract class ARelayoutJob implements ILayoutJob {
 	private static Logger logger = Logger.getLogger(ARelayoutJob.class);
 	public void run() {
+		run(CancellationToken.NONE);
+	}
+	public void run(CancellationToken token) {
 		try {
-			getLayout().relayout(getNodes());
+			getLayout().relayout(getNodes(), token);
 		} catch (Exception e) {
 			logger.error(e);
 		}
 	}
 	public boolean mustExecuteUniquely() {
-		return false;
+		// duplicate relayout requests are merged
+		return true;
+	}
+	public int getPriority() {
+		return PRIORITY_LAYOUT;
 	}
 
 }
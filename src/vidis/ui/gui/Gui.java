@@ -6,16 +6,23 @@
 package vidis.ui.gui;
 
 import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.media.opengl.GL;
+import javax.swing.JFileChooser;
 
 import org.apache.log4j.Logger;
 
+import vidis.sim.Player;
+import vidis.sim.Simulator;
+import vidis.sim.trace.TraceRecorder;
 import vidis.ui.config.Configuration;
 import vidis.ui.events.AEventHandler;
 import vidis.ui.events.IVidisEvent;
+import vidis.ui.events.VidisEvent;
 import vidis.ui.events.mouse.AMouseEvent;
 import vidis.ui.gui.menu.Menu;
 import vidis.ui.gui.menu.MenuAction;
@@ -35,6 +42,7 @@ import vidis.ui.model.structure.ASimObject;
 import vidis.ui.model.structure.IGuiContainer;
 import vidis.ui.model.structure.IVisObject;
 import vidis.ui.mvc.api.Dispatcher;
+import vidis.util.metrics.Metrics;
 
 
 public class Gui extends AEventHandler {
@@ -45,6 +53,9 @@ public class Gui extends AEventHandler {
 	
 	public Label fps;
 	
+	private Label[] metrics = new Label[ 2 ];
+	private long lastMetricsUpdate = 0;
+	
 	private AScrollpane3D slider = new ScrollPane3D();
 	
 	private Menu menu;
@@ -65,6 +76,29 @@ public class Gui extends AEventHandler {
 	public void updateMenu() {
 		menu.reactOnVarChanges();
 		pps.update();
+		updateTraceMenu();
+	}
+	
+	private void updateTraceMenu() {
+		record.setText( TraceRecorder.getInstance().isEnabled() ? "Stop Trace" : "Start Trace" );
+		replay.setText( Simulator.getInstance().getPlayer().isReplaying() ? "Close Trace" : "Open Trace" );
+	}
+	
+	/**
+	 * asks for the directory of a trace, the last recorded one is
+	 * selected
+	 * @return the directory or null if cancelled
+	 */
+	private File chooseTrace() {
+		JFileChooser chooser = new JFileChooser( new File( Configuration.TRACE_PATH ) );
+		chooser.setFileSelectionMode( JFileChooser.DIRECTORIES_ONLY );
+		if ( TraceRecorder.getInstance().getDirectory() != null ) {
+			chooser.setSelectedFile( TraceRecorder.getInstance().getDirectory() );
+		}
+		if ( chooser.showOpenDialog( null ) == JFileChooser.APPROVE_OPTION ) {
+			return chooser.getSelectedFile();
+		}
+		return null;
 	}
 	
 	private MenuAction createEventRunnable( final int event ) {
@@ -77,6 +111,8 @@ public class Gui extends AEventHandler {
 	}
 	
 	private MenuItem load;
+	private MenuItem record;
+	private MenuItem replay;
 	private PlayPauseStop pps;
 	
 	private void initializeMenu() {
@@ -110,6 +146,72 @@ public class Gui extends AEventHandler {
 		
 		MenuItem wireframe = new MenuItem( options, wireframeCheckbox );
 		
+		CheckBox metricsCheckbox = new CheckBox();
+		metricsCheckbox.setName("metricsCheckBox");
+		metricsCheckbox.setText("Metrics?");
+		metricsCheckbox.addCheckChangeListener( new CheckChangeListener() {
+			@Override
+			public void onCheckCange(boolean checked) {
+				Configuration.SHOW_METRICS_OVERLAY = checked;
+				for ( Label l : metrics ) {
+					l.setVisible( checked );
+				}
+			}
+		});
+		metricsCheckbox.setChecked(Configuration.SHOW_METRICS_OVERLAY);
+		metricsCheckbox.setBounds(1, 1, 1.5, 20);
+		
+		MenuItem metricsItem = new MenuItem( options, metricsCheckbox );
+		
+		CheckBox maxSpeedCheckbox = new CheckBox();
+		maxSpeedCheckbox.setName("maxSpeedCheckBox");
+		maxSpeedCheckbox.setText("Max Speed?");
+		maxSpeedCheckbox.addCheckChangeListener( new CheckChangeListener() {
+			@Override
+			public void onCheckCange(boolean checked) {
+				Simulator.getInstance().getPlayer().setStepRate( checked ? Player.UNBOUNDED : Player.DEFAULT_STEP_RATE );
+			}
+		});
+		maxSpeedCheckbox.setChecked(false);
+		maxSpeedCheckbox.setBounds(1, 1, 1.5, 20);
+		
+		MenuItem maxSpeed = new MenuItem( options, maxSpeedCheckbox );
+		MenuItem dumpMetrics = new MenuItem( options, "Dump Metrics", new MenuAction() {
+			@Override
+			public void execute(Menu menu, MenuItem item) {
+				dumpMetrics();
+			}
+		});
+		
+		MenuItem trace = new MenuItem( menu, "Trace", null );
+		record = new MenuItem( trace, "Start Trace", new MenuAction() {
+			@Override
+			public void execute(Menu menu, MenuItem item) {
+				if ( TraceRecorder.getInstance().isEnabled() ) {
+					Dispatcher.forwardEvent( IVidisEvent.TraceStop );
+				}
+				else {
+					Dispatcher.forwardEvent( IVidisEvent.TraceStart );
+				}
+				updateTraceMenu();
+			}
+		});
+		replay = new MenuItem( trace, "Open Trace", new MenuAction() {
+			@Override
+			public void execute(Menu menu, MenuItem item) {
+				if ( Simulator.getInstance().getPlayer().isReplaying() ) {
+					Dispatcher.forwardEvent( IVidisEvent.TraceClose );
+				}
+				else {
+					File directory = chooseTrace();
+					if ( directory != null ) {
+						Dispatcher.forwardEvent( new VidisEvent<File>( IVidisEvent.TraceOpen, directory ) );
+					}
+				}
+				updateTraceMenu();
+			}
+		});
+		
 		load = new MenuItem( menu, "Open Load", new MenuAction() {
 			@Override
 			public void execute(Menu menu, MenuItem item) {
@@ -138,6 +240,7 @@ public class Gui extends AEventHandler {
 		menu.setExpanded( false );
 		layout.setExpanded( false );
 		options.setExpanded( false );
+		trace.setExpanded( false );
 		this.menu.update();
 		mainContainer.addChild( this.menu );
 	}
@@ -293,6 +396,46 @@ public class Gui extends AEventHandler {
 		fps.setOpaque( false) ;
 		fps.setText("0fps");
 		mainContainer.addChild(fps);
+		
+		for ( int i=0; i<metrics.length; i++ ) {
+			metrics[i] = new Label();
+			metrics[i].setName("Metrics" + i);
+			metrics[i].setLayout(new BasicMarginLayout(0, -1, -1, 1.5 * (metrics.length - i), 1.5, 45 ));
+			metrics[i].setTextColor( Color.black );
+			metrics[i].setOpaque( false );
+			metrics[i].setText("");
+			metrics[i].setVisible( Configuration.SHOW_METRICS_OVERLAY );
+			mainContainer.addChild(metrics[i]);
+		}
+	}
+	
+	/**
+	 * refreshes the metrics overlay about twice a second
+	 */
+	public void updateMetrics() {
+		if ( Configuration.SHOW_METRICS_OVERLAY && System.currentTimeMillis() - lastMetricsUpdate > 500 ) {
+			lastMetricsUpdate = System.currentTimeMillis();
+			String[] lines = Metrics.getInstance().getOverlayLines();
+			for ( int i=0; i<metrics.length && i<lines.length; i++ ) {
+				metrics[i].setText( lines[i] );
+			}
+		}
+	}
+	
+	/**
+	 * writes the current metrics as csv and json into the log directory
+	 */
+	private void dumpMetrics() {
+		String base = Configuration.LOG_PATH + File.separatorChar + "metrics-" + System.currentTimeMillis();
+		try {
+			new File( Configuration.LOG_PATH ).mkdirs();
+			Metrics.getInstance().dumpCsv( base + ".csv" );
+			Metrics.getInstance().dumpJson( base + ".json" );
+			logger.info( "dumped metrics to " + base + ".{csv,json}" );
+		}
+		catch ( IOException e ) {
+			logger.error( "could not dump metrics", e );
+		}
 	}
 	
 	
@@ -5,6 +5,7 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.ui.model.graph.layouts;
 
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -13,6 +14,7 @@ import javax.vecmath.Point3d;
 import vidis.data.sim.SimNode;
 import vidis.data.var.vars.AVariable;
 import vidis.data.var.vars.DefaultVariable;
+import vidis.ui.events.jobs.CancellationToken;
 import vidis.ui.model.graph.layouts.impl.GraphCenterLayout;
 import vidis.ui.model.graph.layouts.impl.GraphElectricSpringLayout;
 import vidis.ui.model.graph.layouts.impl.GraphRandomLayout;
@@ -32,6 +34,17 @@ public abstract class AGraphLayout implements IGraphLayout {
 		GraphRandomLayout.getInstance().setNodeDensity(density);
 		GraphSpiralLayout.getInstance().setNodeDensity(density);
 	}
+	/**
+	 * layouts that finish quickly ignore the token
+	 */
+	public void apply(Collection<SimNode> nodes, CancellationToken token) throws Exception {
+		apply(nodes);
+	}
+	
+	public void relayout(Collection<SimNode> nodes, CancellationToken token) throws Exception {
+		relayout(nodes);
+	}
+	
 	/**
 	 * set the position for a node
 	 * @param node the node to set the position
@@ -8,6 +8,7 @@ package vidis.ui.model.graph.layouts;
 import java.util.Collection;
 
 import vidis.data.sim.SimNode;
+import vidis.ui.events.jobs.CancellationToken;
 import vidis.ui.model.graph.layouts.impl.GraphCenterLayout;
 import vidis.ui.model.graph.layouts.impl.GraphElectricSpringLayout;
 import vidis.ui.model.graph.layouts.impl.GraphGridLayout;
@@ -39,6 +40,20 @@ public interface IGraphLayout {
 	 */
 	public void relayout(Collection<SimNode> nodes) throws Exception;
 	
+	/**
+	 * apply the graph layout to the nodes; returns early once the token is cancelled
+	 * @param nodes the list of all nodes
+	 * @param token the cancellation token
+	 */
+	public void apply(Collection<SimNode> nodes, CancellationToken token) throws Exception;
+	
+	/**
+	 * relayout the nodes; returns early once the token is cancelled
+	 * @param nodes all nodes
+	 * @param token the cancellation token
+	 */
+	public void relayout(Collection<SimNode> nodes, CancellationToken token) throws Exception;
+	
 	/**
 	 * the smaller the value, the more "dense" all points will be
 	 * @param density the density to set (double [0..1])
@@ -20,6 +20,7 @@ import org.apache.log4j.Logger;
 
 import vidis.data.sim.SimLink;
 import vidis.data.sim.SimNode;
+import vidis.ui.events.jobs.CancellationToken;
 import vidis.ui.model.graph.layouts.AGraphLayout;
 import vidis.ui.model.graph.layouts.IGraphLayout;
 import vidis.util.graphs.graph.Vertex;
@@ -77,6 +78,11 @@ public class GraphElectricSpringLayout extends AGraphLayout {
 	}
 	
 	public void relayout(Collection<SimNode> nodes) throws Exception {
+		relayout(nodes, CancellationToken.NONE);
+	}
+	
+	@Override
+	public void relayout(Collection<SimNode> nodes, CancellationToken token) throws Exception {
 		oldNodes.clear();
 		// init position vars if not available
 		GraphRandomLayout.getInstance().apply(nodes);
@@ -110,7 +116,7 @@ public class GraphElectricSpringLayout extends AGraphLayout {
 				}
 			}
 		}
-		apply_electricSpringAlgorithm(graph, nodesList, vertices);
+		apply_electricSpringAlgorithm(graph, nodesList, vertices, token);
 		
 		oldNodes.addAll(nodes);
 		
@@ -127,7 +133,12 @@ public class GraphElectricSpringLayout extends AGraphLayout {
 		relayout(nodes);
 	}
 	
-	private void apply_electricSpringAlgorithm(WeightedGraph graph, List<SimNode> nodes, Map<SimNode, Vertex> vertices) {
+	@Override
+	public void apply(Collection<SimNode> nodes, CancellationToken token) throws Exception {
+		relayout(nodes, token);
+	}
+	
+	private void apply_electricSpringAlgorithm(WeightedGraph graph, List<SimNode> nodes, Map<SimNode, Vertex> vertices, CancellationToken token) {
 		// execute dijkstra on it
 		ShortestPathAlgorithm spa = new ShortestPathAlgorithmDijkstra( graph, new HeapNodeComparator(-1) );
 		
@@ -140,7 +151,7 @@ public class GraphElectricSpringLayout extends AGraphLayout {
 		
 		List<Double> delta_history = new LinkedList<Double>();
 		double delta = 0;
-		while(true) {
+		while(!token.isCancelled()) {
 			delta = 0;
 			// for each vertex call our function
 			for(int i=0; i<nodes.size(); i++) {
@@ -8,9 +8,7 @@ package vidis.ui.model.impl;
 import java.awt.Color;
 import java.nio.DoubleBuffer;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 import javax.media.opengl.GL;
 import javax.vecmath.Point3d;
@@ -29,6 +27,7 @@ import vidis.ui.model.structure.IVisObject;
 import vidis.ui.vis.VecUtil;
 import vidis.ui.vis.shader.IProgram;
 import vidis.ui.vis.shader.IShader;
+import vidis.ui.vis.shader.IShaderVariable;
 import vidis.ui.vis.shader.ShaderFactory;
 import vidis.ui.vis.shader.impl.ShaderException;
 
@@ -67,7 +66,19 @@ public class Link extends ASimObject {
 	
 	private double l = radius * kappa;
 	
-	private double lastDetailLevel = Configuration.DETAIL_LEVEL;
+	private double lastDetailLevel = Configuration.LINK_DETAIL_LEVEL;
+	
+	/**
+	 * level of detail as decided by updateLevelOfDetail()
+	 */
+	private boolean drawnAsLine = false;
+	private boolean packetsHidden = false;
+	
+	/**
+	 * this number of packets on a link gives the full traffic color
+	 */
+	private static final double TRAFFIC_SATURATION = 8;
+	private static final Color TRAFFIC_COLOR = Color.RED;
 	
 	public Link(IVariableContainer c) {
 		super(c);
@@ -99,11 +110,11 @@ public class Link extends ASimObject {
 			Tuple3d posA = (Tuple3d) getVariableById( SimLink.POINT_A ).getData();
 			Tuple3d posB = (Tuple3d) getVariableById( SimLink.POINT_B ).getData();
 			
-			if ( (lastDetailLevel != Configuration.DETAIL_LEVEL && Configuration.USE_AUTOMATIC_DETAIL_LEVEL) 
+			if ( (lastDetailLevel != Configuration.LINK_DETAIL_LEVEL && Configuration.USE_AUTOMATIC_DETAIL_LEVEL) 
 					|| ( ! knownPointA.equals( posA ) || ! knownPointB.equals( posB ) ) ) {
 				if(Configuration.USE_AUTOMATIC_DETAIL_LEVEL) {
 					// fix if detail level changes
-					lastDetailLevel = Configuration.DETAIL_LEVEL;
+					lastDetailLevel = Configuration.LINK_DETAIL_LEVEL;
 				}
 				
 				// recalculate geometry
@@ -146,6 +157,8 @@ public class Link extends ASimObject {
 			linkProgram.addShader( fs );
 			linkProgram.link(gl);
 			linkProgram.use(gl);
+			packetVariables = null;
+			packetVariablesEmpty = false;
 		}
 		catch ( ShaderException se ) {
 			logger.error( "setupShaderProgram", se );
@@ -188,73 +201,238 @@ public class Link extends ASimObject {
 			gl.glPolygonMode( GL.GL_FRONT_AND_BACK, GL.GL_LINE );
 	}
 	
-	private Queue<Packet> dir1 = new LinkedList<Packet>();
-	private Queue<Packet> dir2 = new LinkedList<Packet>();
-	private boolean near( Packet a, Packet b ) {
-		Vector3d tmp = new Vector3d( b.getPosition() );
-		tmp.sub( a.getPosition() );
-		return tmp.length() < 0.2;
+	/**
+	 * the link shader bends the link around this many packets
+	 */
+	private static final int SHADER_PACKETS = 10;
+	
+	/**
+	 * packets closer than this (squared) are shown as one
+	 */
+	private static final double NEAR_PACKETS = 0.2 * 0.2;
+	
+	private static IShaderVariable[] packetVariables;
+	
+	/**
+	 * the packet variables are shared by all links; if they hold no packets
+	 * links without packets do not need to upload them again
+	 */
+	private static boolean packetVariablesEmpty = false;
+	
+	// only used within the render thread, shared by all links
+	private static double[] dir1 = new double[ 3 * SHADER_PACKETS ];
+	private static double[] dir2 = new double[ 3 * SHADER_PACKETS ];
+	private static int dir1Count;
+	private static int dir2Count;
+	private static Point3d packetPosition = new Point3d();
+	private static Vector3d packetValue = new Vector3d();
+	private static Point3d lodCenter = new Point3d();
+	
+	private static boolean near( double[] positions, int count, Point3d p ) {
+		for ( int i=0; i<count; i++ ) {
+			double dx = positions[ i*3 ] - p.x;
+			double dy = positions[ i*3 + 1 ] - p.y;
+			double dz = positions[ i*3 + 2 ] - p.z;
+			if ( dx*dx + dy*dy + dz*dz < NEAR_PACKETS ) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static void put( double[] positions, int index, Point3d p ) {
+		positions[ index*3 ] = p.x;
+		positions[ index*3 + 1 ] = p.y;
+		positions[ index*3 + 2 ] = p.z;
+	}
+	
+	/**
+	 * picks the packets the shader bends the link around; packets near
+	 * to an already picked one in the same direction are skipped
+	 */
+	private void selectPackets() {
+		dir1Count = 0;
+		dir2Count = 0;
+		for ( int i=0; i<packets.size() && dir1Count + dir2Count < SHADER_PACKETS; i++ ) {
+			Packet p = packets.get( i );
+			if ( ! p.getPosition( packetPosition ) ) {
+				continue;
+			}
+			int dir = (Integer) p.getVariableContainer().getVariableById( AVariable.COMMON_IDENTIFIERS.PACKETDIRECTION ).getData();
+			if ( dir == 1 ) {
+				if ( ! near( dir1, dir1Count, packetPosition ) ) {
+					put( dir1, dir1Count++, packetPosition );
+				}
+			}
+			else if ( dir == -1 ) {
+				if ( ! near( dir2, dir2Count, packetPosition ) ) {
+					put( dir2, dir2Count++, packetPosition );
+				}
+			}
+		}
+	}
+	
+	private void uploadPackets( GL gl ) {
+		if ( packetVariables == null ) {
+			packetVariables = new IShaderVariable[ SHADER_PACKETS ];
+			for ( int i=0; i<SHADER_PACKETS; i++ ) {
+				packetVariables[i] = linkProgram.getVariableByName( "packet" + i );
+			}
+		}
+		int count = dir1Count + dir2Count;
+		if ( count == 0 && packetVariablesEmpty ) {
+			return;
+		}
+		for ( int i=0; i<SHADER_PACKETS; i++ ) {
+			if ( i < dir1Count ) {
+				packetValue.set( dir1[ i*3 ], dir1[ i*3 + 1 ], dir1[ i*3 + 2 ] );
+			}
+			else if ( i - dir1Count < dir2Count ) {
+				int j = i - dir1Count;
+				packetValue.set( dir2[ j*3 ], dir2[ j*3 + 1 ], dir2[ j*3 + 2 ] );
+			}
+			else {
+				packetValue.set( 100, 100, 100 );
+			}
+			packetVariables[i].setValue( packetValue, gl );
+		}
+		packetVariablesEmpty = count == 0;
+	}
+	
+	/**
+	 * decides how this link and its packets are drawn within the next frame
+	 * @param eye the camera position; null draws everything in full detail
+	 */
+	public void updateLevelOfDetail( Point3d eye ) {
+		if ( eye == null || ! getBoundingCenter( lodCenter ) ) {
+			drawnAsLine = false;
+			packetsHidden = false;
+			return;
+		}
+		double distance = eye.distance( lodCenter ) - boundingRadius;
+		drawnAsLine = distance > Configuration.LINK_LOD_DISTANCE * ( 0.5 + Configuration.LINK_DETAIL_LEVEL );
+		packetsHidden = drawnAsLine || distance > Configuration.PACKET_LOD_DISTANCE * ( 0.5 + Configuration.PACKET_DETAIL_LEVEL );
+	}
+	
+	/**
+	 * retrieve if this link is drawn within the line batch
+	 * @see #renderLines(GL, List)
+	 */
+	public boolean isDrawnAsLine() {
+		return drawnAsLine;
+	}
+	
+	/**
+	 * retrieve if the packets on this link are only shown as traffic
+	 */
+	public boolean isPacketsHidden() {
+		return packetsHidden;
+	}
+	
+	private float getTrafficIntensity() {
+		return (float) Math.min( 1d, packets.size() / TRAFFIC_SATURATION );
+	}
+	
+	private static float mix( int a, int b, float f ) {
+		return ( a + ( b - a ) * f ) / 255f;
+	}
+	
+	private Color getTrafficColor() {
+		Color c = getVariableColor1();
+		float f = getTrafficIntensity();
+		if ( f == 0 ) {
+			return c;
+		}
+		return new Color( mix( c.getRed(), TRAFFIC_COLOR.getRed(), f ),
+				mix( c.getGreen(), TRAFFIC_COLOR.getGreen(), f ),
+				mix( c.getBlue(), TRAFFIC_COLOR.getBlue(), f ),
+				c.getAlpha() / 255f );
+	}
+	
+	/**
+	 * draws links that are far away as simple lines within one batch;
+	 * the color shows the traffic on a link instead of its packets
+	 */
+	public static void renderLines( GL gl, List<Link> links ) {
+		if ( links.isEmpty() ) {
+			return;
+		}
+		int segments = 2 + (int) Math.round( Configuration.LINK_DETAIL_LEVEL * 4 );
+		ShaderFactory.removeAllPrograms(gl);
+		gl.glDisable( GL.GL_LIGHTING );
+		gl.glLineWidth( 1.5f );
+		gl.glBegin( GL.GL_LINES );
+			for ( Link link : links ) {
+				try {
+					link.emitLine( gl, segments );
+				}
+				catch ( Exception e ) {
+					// may happen while the simulator exchanges the components
+				}
+			}
+		gl.glEnd();
+		gl.glLineWidth( 1f );
+		gl.glEnable( GL.GL_LIGHTING );
+	}
+	
+	/**
+	 * emits the bow of this link as line segments; it is the same curve
+	 * the line display list evaluates
+	 */
+	private void emitLine( GL gl, int segments ) {
+		Tuple3d a = (Tuple3d) getVariableById( SimLink.POINT_A ).getData();
+		Tuple3d b = (Tuple3d) getVariableById( SimLink.POINT_B ).getData();
+		Color c = getVariableColor1();
+		float f = getTrafficIntensity();
+		// the control point is the raised middle, see calculateMiddle( a, b, 1.0 )
+		double dx = b.x - a.x, dy = b.y - a.y, dz = b.z - a.z;
+		double mx = a.x + dx / 2;
+		double my = a.y + dy / 2 + Math.sqrt( dx*dx + dy*dy + dz*dz ) / 2;
+		double mz = a.z + dz / 2;
+		gl.glColor4f( mix( c.getRed(), TRAFFIC_COLOR.getRed(), f ),
+				mix( c.getGreen(), TRAFFIC_COLOR.getGreen(), f ),
+				mix( c.getBlue(), TRAFFIC_COLOR.getBlue(), f ),
+				c.getAlpha() / 255f );
+		double px = a.x, py = a.y, pz = a.z;
+		for ( int i=1; i<=segments; i++ ) {
+			double t = (double) i / segments;
+			double u = 1 - t;
+			double x = u*u*a.x + 2*u*t*mx + t*t*b.x;
+			double y = u*u*a.y + 2*u*t*my + t*t*b.y;
+			double z = u*u*a.z + 2*u*t*mz + t*t*b.z;
+			gl.glVertex3d( px, py, pz );
+			gl.glVertex3d( x, y, z );
+			px = x;
+			py = y;
+			pz = z;
+		}
 	}
+	
 	@Override
 	public void renderObject(GL gl) {
 		
 		if ( Configuration.NICE_LINKS ) {
 			
-			setColors( getVariableColor1(), getVariableColor2() );
+			// far packets are only shown by the color of the link
+			Color color = packetsHidden ? getTrafficColor() : getVariableColor1();
+			setColors( color, getVariableColor2() );
 	//		setColors( Color.RED, Color.BLACK );
-			useColor( gl, getVariableColor1() );
+			useColor( gl, color );
 	//		useColor( gl, Color.RED );
 			
 			useMaterial(gl);
 			
 			// packets
-			dir1.clear();
-			dir2.clear();
-			
-			for ( Packet p : packets ) {
-				int dir = (Integer) p.getVariableContainer().getVariableById( AVariable.COMMON_IDENTIFIERS.PACKETDIRECTION ).getData();
-				if (  dir == 1 ) {
-					boolean add = true;
-					for ( Packet x : dir1 ) {
-						if ( near( p, x ) ) {
-							add = false;	
-						}
-					}
-					if ( add ) dir1.add( p );
-				}
-				else if ( dir == -1 ) {
-					boolean add = true;
-					for ( Packet x : dir2 ) {
-						if ( near( p, x ) ) {
-							add = false;	
-						}
-					}
-					if ( add ) dir2.add( p );
-				}
-				if ( dir1.size() + dir2.size() >= 9 ) {
-					break;
-				}
+			if ( packetsHidden ) {
+				dir1Count = 0;
+				dir2Count = 0;
+			}
+			else {
+				selectPackets();
 			}
-			
-			
 			
 			// data for link vertex shader
-			for( int i=0; i<10; i++) {
-				
-				Packet p = dir1.poll();
-				if ( p == null ) p = dir2.poll();
-				
-				if ( p != null ) {
-					Point3d point = p.getPosition();
-					if(point != null) {
-						Vector3d pos = new Vector3d(point);
-						linkProgram.getVariableByName("packet" + i).setValue(pos, gl);
-					}
-					//linkProgram.getVariableByName( "packet" + j++ ).setValue( ((Packet)packets.toArray()[i]).getPosition(), gl );
-				} else {
-					linkProgram.getVariableByName("packet"+i).setValue(new Vector3d(100,100,100), gl);
-				}
-			}
+			uploadPackets( gl );
 			
 			if ( ! Configuration.DISPLAY_WIREFRAME ) {
 				silhouetteFrontBackFace(gl);
@@ -492,7 +670,7 @@ public class Link extends ASimObject {
 		// calc axis
 			Vector3d AB = new Vector3d( pointB );
 			AB.sub( pointA );
-			segments = (int) Math.round( ( Configuration.DETAIL_LEVEL * segments_max + segments_min) * AB.length() );
+			segments = (int) Math.round( ( Configuration.LINK_DETAIL_LEVEL * segments_max + segments_min) * AB.length() );
 			AB.normalize();
 			
 			right = VecUtil.cross( AB, up );
@@ -754,6 +932,51 @@ public class Link extends ASimObject {
 	public double getHitRadius() {
 		return 0;
 	}
+	
+	private double boundingRadius = 0;
+	
+	/**
+	 * the link is a bow from A to B that peaks at a quarter of the distance
+	 * above the middle; the bounding sphere is centered an eighth of the
+	 * distance above the middle
+	 */
+	@Override
+	public boolean getBoundingCenter( Point3d center ) {
+		AVariable varA = getVariableById( SimLink.POINT_A );
+		AVariable varB = getVariableById( SimLink.POINT_B );
+		if ( varA == null || varB == null ) {
+			return false;
+		}
+		Tuple3d posA = (Tuple3d) varA.getData();
+		Tuple3d posB = (Tuple3d) varB.getData();
+		double dx = posB.x - posA.x;
+		double dy = posB.y - posA.y;
+		double dz = posB.z - posA.z;
+		double distance = Math.sqrt( dx*dx + dy*dy + dz*dz );
+		center.interpolate( posA, posB, .5 );
+		center.y += distance / 8d;
+		boundingRadius = distance * 0.52 + radius;
+		return true;
+	}
+	
+	@Override
+	public double getBoundingRadius() {
+		return boundingRadius;
+	}
+	
+	/**
+	 * the bounds follow the nodes at both ends
+	 */
+	@Override
+	public IVariableContainer[] getBoundsSources() {
+		if ( getVariableContainer() instanceof SimLink ) {
+			SimLink l = (SimLink) getVariableContainer();
+			if ( l.getNodeASim() != null && l.getNodeBSim() != null ) {
+				return new IVariableContainer[] { l.getNodeASim(), l.getNodeBSim() };
+			}
+		}
+		return super.getBoundsSources();
+	}
 
 	@Override
 	public void onMouseIn() {
@@ -143,7 +143,7 @@ public class Node extends ASimObject {
 	}
 	
 	private String text = "";
-	private double lastDetailLevel = Configuration.DETAIL_LEVEL;
+	private double lastDetailLevel = Configuration.NODE_DETAIL_LEVEL;
 	
 	public void renderObjectText( GL gl ) {
 		renderObjectText( gl, 0.001 );
@@ -188,7 +188,7 @@ public class Node extends ASimObject {
 		setColors( getVariableColor1(), getVariableColor2() );
 		useColor( gl, getVariableColor1() );
 		useMaterial(gl);
-		if ( displayListId == -1 || lastDetailLevel  != Configuration.DETAIL_LEVEL ) {
+		if ( displayListId == -1 || lastDetailLevel  != Configuration.NODE_DETAIL_LEVEL ) {
 			preRenderObject(gl);
 		}
 		gl.glCallList( displayListId );
@@ -210,7 +210,7 @@ public class Node extends ASimObject {
 	}
 	
 	public void preRenderObject(GL gl) {
-		lastDetailLevel = Configuration.DETAIL_LEVEL;
+		lastDetailLevel = Configuration.NODE_DETAIL_LEVEL;
 		if ( displayListId != -1 ) {
 			gl.glDeleteLists(displayListId, 1);
 			displayListId = -1;
@@ -222,8 +222,8 @@ public class Node extends ASimObject {
 		int slices_max = 25;
 		int stacks_min = 6;
 		int stacks_max = 25;
-		int slices = (int)Math.round(Configuration.DETAIL_LEVEL * slices_max + slices_min);
-		int stacks = (int)Math.round(Configuration.DETAIL_LEVEL * stacks_max + stacks_min);
+		int slices = (int)Math.round(Configuration.NODE_DETAIL_LEVEL * slices_max + slices_min);
+		int stacks = (int)Math.round(Configuration.NODE_DETAIL_LEVEL * stacks_max + stacks_min);
 		requireTextRenderer();
 		gl.glNewList( displayListId, GL.GL_COMPILE );
 			if ( Configuration.NICE_NODES ) {
@@ -25,10 +25,32 @@ import vidis.ui.model.structure.ASimObject;
 public class Packet extends ASimObject {
 	private Logger logger = Logger.getLogger( Packet.class );
 	
+	private Link link;
+	
 	public Packet( IVariableContainer c, Link link ) {
 		super(c);
+		this.link = link;
 		link.addPacket( this );
 	}
+	
+	/**
+	 * packets move along their link, so the bounds of the link are used;
+	 * this way a moving packet never has to be relocated in the spatial index
+	 */
+	@Override
+	public boolean getBoundingCenter( Point3d center ) {
+		return link.getBoundingCenter( center );
+	}
+	
+	@Override
+	public double getBoundingRadius() {
+		return link.getBoundingRadius();
+	}
+	
+	@Override
+	public IVariableContainer[] getBoundsSources() {
+		return link.getBoundsSources();
+	}
 
 	private static int displayListId = -1;
 	
@@ -102,6 +124,24 @@ public class Packet extends ASimObject {
 		}
 	}
 
+	/**
+	 * fills the current position into a tuple without creating a new point
+	 * @param out the tuple to fill
+	 * @return false if the packet has no position
+	 */
+	public boolean getPosition( Tuple3d out ) {
+		AVariable pos = getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION );
+		if ( pos == null || !(pos.getData() instanceof Tuple3d) ) {
+			return false;
+		}
+		out.set( (Tuple3d) pos.getData() );
+		return true;
+	}
+	
+	public Link getLink() {
+		return link;
+	}
+	
 	@Override
 	public double getHitRadius() {
 		return 0.15;
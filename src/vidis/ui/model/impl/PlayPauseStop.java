@@ -18,12 +18,55 @@ import vidis.ui.mvc.api.Dispatcher;
 public class PlayPauseStop extends BasicGuiContainer {
 	private static Logger logger = Logger.getLogger(PlayPauseStop.class);
 
+	private static final int COLUMNS = 6;
+	
+	private Button rewind;
+	private Button back;
+	private Button forward;
 	private Button play;
 	private Button pause;
 	private Button stop;
 	
+	/**
+	 * places a button into one of the columns
+	 */
+	private static PercentMarginLayout column( int i ) {
+		double width = 1d / COLUMNS;
+		return new PercentMarginLayout( -i * width, 0, -( COLUMNS - 1 - i ) * width, 0, -1, -width );
+	}
+	
 	public PlayPauseStop() {
 		
+		rewind = new Button() {
+			@Override
+			public void onClick() {
+				Dispatcher.forwardEvent( IVidisEvent.SimulatorRewind );
+				update();
+			}
+		};
+		rewind.setText( "<<" );
+		rewind.setLayout( column( 0 ) );
+		
+		back = new Button() {
+			@Override
+			public void onClick() {
+				Dispatcher.forwardEvent( IVidisEvent.SimulatorStepBackward );
+				update();
+			}
+		};
+		back.setText( "<" );
+		back.setLayout( column( 1 ) );
+		
+		forward = new Button() {
+			@Override
+			public void onClick() {
+				Dispatcher.forwardEvent( IVidisEvent.SimulatorStepForward );
+				update();
+			}
+		};
+		forward.setText( ">" );
+		forward.setLayout( column( 2 ) );
+		
 		play = new Button() {
 			@Override
 			public void onClick() {
@@ -32,7 +75,7 @@ public class PlayPauseStop extends BasicGuiContainer {
 			}
 		};
 		play.setText( "Play" );
-		play.setLayout( new PercentMarginLayout( 0,0,-0.66,0,-1,-.34 ) );
+		play.setLayout( column( 3 ) );
 		
 		pause = new Button(){
 			@Override
@@ -42,7 +85,7 @@ public class PlayPauseStop extends BasicGuiContainer {
 			}
 		};
 		pause.setText( "Pause" );
-		pause.setLayout( new PercentMarginLayout( -0.34,0,-0.33,0,-1,-.33 ) );
+		pause.setLayout( column( 4 ) );
 		
 		stop = new Button(){
 			@Override
@@ -52,8 +95,11 @@ public class PlayPauseStop extends BasicGuiContainer {
 			}
 		};
 		stop.setText( "Reset" );
-		stop.setLayout( new PercentMarginLayout( -.67,0,0,0,-1,-.33 ) );
+		stop.setLayout( column( 5 ) );
 		
+		this.addChild( rewind );
+		this.addChild( back );
+		this.addChild( forward );
 		this.addChild( play );
 		this.addChild( pause );
 		this.addChild( stop );
@@ -63,6 +109,14 @@ public class PlayPauseStop extends BasicGuiContainer {
 		return Simulator.getInstance().getPlayer().isPaused();
 	}
 	
+	private boolean isHistory() {
+		return Simulator.getInstance().getHistory().isShowing();
+	}
+	
+	private boolean isReplaying() {
+		return Simulator.getInstance().getPlayer().isReplaying();
+	}
+	
 	private boolean isStop() {
 		return Simulator.getInstance().getPlayer().isStopped();
 	}
@@ -79,5 +133,15 @@ public class PlayPauseStop extends BasicGuiContainer {
 		} else {
 			pause.setColor1( Color.GRAY );
 		}
+		if ( isReplaying() ) {
+			rewind.setColor1( Color.CYAN );
+			back.setColor1( Color.CYAN );
+		} else if ( isHistory() ) {
+			rewind.setColor1( Color.YELLOW );
+			back.setColor1( Color.YELLOW );
+		} else {
+			rewind.setColor1( Color.GRAY );
+			back.setColor1( Color.GRAY );
+		}
 	}
 }
@@ -134,6 +134,38 @@ public abstract class ASimObject extends AEventHandler implements ISimObject {
 		return new Point3d( (Tuple3d)getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION ).getData() );
 	}
 	
+	/**
+	 * retrieve the center of the bounding sphere of this object
+	 * without creating a new point
+	 * @param center the point to fill
+	 * @return false if this object has no position yet
+	 */
+	public boolean getBoundingCenter( Point3d center ) {
+		AVariable pos = getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION );
+		if ( pos == null || !(pos.getData() instanceof Tuple3d) ) {
+			return false;
+		}
+		center.set( (Tuple3d) pos.getData() );
+		return true;
+	}
+	
+	/**
+	 * retrieve the radius of the bounding sphere of this object
+	 * @return the radius
+	 */
+	public double getBoundingRadius() {
+		return getHitRadius();
+	}
+	
+	/**
+	 * retrieve the containers whose position the bounds of this object
+	 * depend on; the spatial index relocates the object when one of them moves
+	 * @return the containers
+	 */
+	public IVariableContainer[] getBoundsSources() {
+		return new IVariableContainer[] { obj };
+	}
+	
 	private void translateToPosition( GL gl ) {
 		try {
 			if(obj.hasVariable(AVariable.COMMON_IDENTIFIERS.POSITION)) {
@@ -14,11 +14,13 @@ import vidis.ui.events.mouse.AMouseEvent;
 import vidis.ui.mvc.api.AController;
 import vidis.ui.mvc.api.Dispatcher;
 import vidis.ui.vis.camera.FreeLookCamera;
+import vidis.util.log.LogChannel;
 
 
 public class CameraController extends AController{
 
 	private static Logger logger = Logger.getLogger( CameraController.class );
+	private static final LogChannel log = LogChannel.get( CameraController.class );
 	
 	private FreeLookCamera defaultCamera;
 	
@@ -46,7 +48,7 @@ public class CameraController extends AController{
 	
 	@Override
 	public void handleEvent( IVidisEvent event ) {
-		logger.debug( "handleEvent("+event+")" );
+		log.debug( "handleEvent( {} )", event );
 		switch ( event.getID() ) {
 		case IVidisEvent.InitCamera:
 			initialize();
@@ -5,11 +5,15 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.ui.mvc;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.log4j.Logger;
 
 import vidis.ui.events.CameraEvent;
 import vidis.ui.events.IVidisEvent;
 import vidis.ui.events.ObjectEvent;
+import vidis.ui.events.ObjectsEvent;
 import vidis.ui.events.VidisEvent;
 import vidis.ui.gui.Gui;
 import vidis.ui.model.structure.ASimObject;
@@ -18,10 +22,12 @@ import vidis.ui.model.structure.IVisObject;
 import vidis.ui.mvc.api.AController;
 import vidis.ui.mvc.api.Dispatcher;
 import vidis.ui.vis.camera.GuiCamera;
+import vidis.util.log.LogChannel;
 
 public class GuiController extends AController {
 
 	private static Logger logger = Logger.getLogger( GuiController.class );
+	private static final LogChannel log = LogChannel.get( GuiController.class );
 	
 	private GuiCamera guiCamera;
 	private Gui gui;
@@ -31,7 +37,8 @@ public class GuiController extends AController {
 		registerEvent( IVidisEvent.InitGui );
 		
 		registerEvent( 	IVidisEvent.ObjectRegister, 
-				   		IVidisEvent.ObjectUnregister );
+				   		IVidisEvent.ObjectUnregister,
+				   		IVidisEvent.ObjectsUnregister );
 		
 		registerEvent( IVidisEvent.FPS );
 		
@@ -51,7 +58,7 @@ public class GuiController extends AController {
 	
 	@Override
 	public void handleEvent(IVidisEvent event) {
-		logger.debug( "handleEvent( "+event+" )");
+		log.debug( "handleEvent( {} )", event );
 		switch ( event.getID() ) {
 		case IVidisEvent.InitGui:
 			initialize();
@@ -62,6 +69,7 @@ public class GuiController extends AController {
 			break;
 		case IVidisEvent.UpdateFromRenderLoop:
 			gui.updateMenu();
+			gui.updateMetrics();
 			break;
 		case IVidisEvent.ShowGuiContainer:
 			gui.addContainer( (IGuiContainer) ((VidisEvent)event).getData() );
@@ -103,6 +111,17 @@ public class GuiController extends AController {
 				}
 			}
 			break;
+		case IVidisEvent.ObjectsUnregister:
+			List<IVisObject> labels = new ArrayList<IVisObject>();
+			for ( IVisObject o4 : ((ObjectsEvent)event).getObjects() ) {
+				if ( o4 instanceof ASimObject && ((ASimObject) o4).getOnScreenLabel() != null ) {
+					labels.add( ((ASimObject) o4).getOnScreenLabel() );
+				}
+			}
+			if ( labels.size() > 0 ) {
+				Dispatcher.forwardEvent( new ObjectsEvent( IVidisEvent.ObjectsUnregister, labels ) );
+			}
+			break;
 			
 		}
 	}
@@ -20,10 +20,12 @@ import vidis.ui.events.StartEvent;
 import vidis.ui.events.StopEvent;
 import vidis.ui.mvc.api.AController;
 import vidis.ui.mvc.api.Dispatcher;
+import vidis.util.log.LogChannel;
 
 public class InputController extends AController {
 
 	private static Logger logger = Logger.getLogger( InputController.class );
+	private static final LogChannel log = LogChannel.get( InputController.class );
 	
 	/**
 	 * Map von KeyEvent.TASTE nach IVidisEvents event
@@ -64,7 +66,7 @@ public class InputController extends AController {
 	
 	@Override
 	public void handleEvent(IVidisEvent event) {
-		logger.debug( "handleEvent( "+event+" )");
+		log.debug( "handleEvent( {} )", event );
 		switch (event.getID()) {
 		case IVidisEvent.KeyPressedEvent:
 			handleKeyPressedEvent( (KeyPressedEvent)event );
@@ -79,21 +81,21 @@ public class InputController extends AController {
 	}
 	
 	private void handleKeyPressedEvent( KeyPressedEvent event ) {
-		logger.debug( "handleKeyPressedEvent( "+event+" )");
+		log.debug( "handleKeyPressedEvent( {} )", event );
 		if (keyMap.containsKey( event.key ) ) {
 			Dispatcher.forwardEvent( new StartEvent( keyMap.get( event.key ) ) );
 		}
 	}
 	
 	private void handleKeyReleasedEvent( KeyReleasedEvent event ) {
-		logger.debug( "handleKeyReleasedEvent( "+event+" )");
+		log.debug( "handleKeyReleasedEvent( {} )", event );
 		if (keyMap.containsKey( event.key ) ) {
 			Dispatcher.forwardEvent( new StopEvent( keyMap.get( event.key ) ) );
 		}		
 	}
 	
 	private void handleKeyTypedEvent( KeyTypedEvent event ) {
-		logger.debug( "handleKeyTypedEvent( "+event+" )");
+		log.debug( "handleKeyTypedEvent( {} )", event );
 		if (keyMap.containsKey( event.key ) ) {
 			Dispatcher.forwardEvent( new DummyEvent( keyMap.get( event.key ) ) );
 		}
@@ -5,108 +5,246 @@
 	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
 package vidis.ui.mvc;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Future;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
 import vidis.ui.events.IVidisEvent;
 import vidis.ui.events.JobAppend;
+import vidis.ui.events.jobs.CancellationToken;
 import vidis.ui.events.jobs.IJob;
+import vidis.ui.events.jobs.IJobListener;
+import vidis.ui.events.jobs.ILayoutJob;
 import vidis.ui.mvc.api.AController;
-import vidis.ui.mvc.api.Dispatcher;
+import vidis.util.metrics.Metrics;
 
 /**
  * a job controller that takes jobs and executes them
+ * <p>
+ * the jobs are run by one thread per core, the queued jobs are ordered
+ * by their priority lane. at most MAX_QUEUED jobs wait; if the queue is
+ * full a waiting job of a lower lane is dropped or the new job is refused.
+ * unique jobs of the same class are merged while they wait and cancel
+ * each other cooperatively while they run.
+ * </p>
  * @author Dominik
  *
  */
 public class JobController extends AController {
 	private static Logger logger = Logger.getLogger(JobController.class);
 	
-	private ThreadPoolExecutor executer = new ThreadPoolExecutor( 3, 3, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>( 150 ));
+	private static final int MAX_QUEUED = 150;
 	
-	private Map<IJob, Future<?>> futureJobs = new HashMap<IJob, Future<?>>();
-	private List<IJob> futureJobsToRemove = new LinkedList<IJob>();
+	private static final int THREADS = Math.max( 2, Runtime.getRuntime().availableProcessors() );
 	
-	private static long last = System.currentTimeMillis();
+	private ThreadPoolExecutor executer = new ThreadPoolExecutor( THREADS, THREADS, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>( MAX_QUEUED ));
+	
+	/**
+	 * the submitted unique jobs by class
+	 */
+	private Map<Class<?>, ScheduledJob> active = new HashMap<Class<?>, ScheduledJob>();
+	/**
+	 * unique jobs that wait for their running predecessor to finish
+	 */
+	private Map<Class<?>, ScheduledJob> waiting = new HashMap<Class<?>, ScheduledJob>();
+	
+	private static AtomicLong sequence = new AtomicLong();
 	
 	public JobController() {
 		registerEvent( IVidisEvent.AppendJob, IVidisEvent.CleanDoneJobs );
-		// register the job remover job :-P
-		Dispatcher.forwardEvent( new JobAppend(new IJob() {
-			private long executeEvery = 5000;
-			public boolean mustExecuteUniquely() {
-				return true;
+	}
+	
+	/**
+	 * a job within the queue; ordered by lane, then by submission
+	 */
+	private class ScheduledJob extends FutureTask<Object> implements Comparable<ScheduledJob> {
+		private IJob job;
+		private CancellationToken token;
+		private List<IJobListener> listeners = new LinkedList<IJobListener>();
+		private long seq = sequence.incrementAndGet();
+		private boolean started = false;
+		
+		public ScheduledJob( IJob job, CancellationToken token ) {
+			super( timed( job, token ), null );
+			this.job = job;
+			this.token = token;
+		}
+		
+		public void addListener( IJobListener listener ) {
+			if ( listener != null ) {
+				listeners.add( listener );
 			}
+		}
+		
+		@Override
+		public void run() {
+			synchronized ( JobController.this ) {
+				started = true;
+			}
+			super.run();
+		}
+		
+		@Override
+		protected void done() {
+			finished( this );
+		}
+		
+		public int compareTo( ScheduledJob o ) {
+			if ( job.getPriority() != o.job.getPriority() ) {
+				return job.getPriority() < o.job.getPriority() ? -1 : 1;
+			}
+			return seq < o.seq ? -1 : ( seq == o.seq ? 0 : 1 );
+		}
+		
+		@Override
+		public String toString() {
+			return job.toString();
+		}
+	}
+	
+	/**
+	 * wraps a job so that its duration is recorded
+	 */
+	private static Runnable timed( final IJob j, final CancellationToken token ) {
+		final String histogram = j instanceof ILayoutJob ? Metrics.LAYOUT_JOB : Metrics.JOB;
+		return new Runnable() {
 			public void run() {
-				if(System.currentTimeMillis() - last < executeEvery) {
-					// execute a cleanup
-					Dispatcher.forwardEvent( IVidisEvent.CleanDoneJobs );
-					last = System.currentTimeMillis();
+				long start = System.nanoTime();
+				try {
+					if ( j instanceof ILayoutJob ) {
+						((ILayoutJob) j).run( token );
+					} else {
+						j.run();
+					}
+				} finally {
+					Metrics.getInstance().record( histogram, System.nanoTime() - start );
 				}
 			}
-			@Override
-			public String toString() {
-				return "job remover job";
+		};
+	}
+	
+	/**
+	 * hands a job to the executer; sheds load if the queue is full
+	 */
+	private synchronized void enqueue( ScheduledJob s ) {
+		if ( executer.getQueue().size() >= MAX_QUEUED ) {
+			ScheduledJob victim = null;
+			for ( Runnable r : executer.getQueue() ) {
+				ScheduledJob q = (ScheduledJob) r;
+				if ( victim == null || q.compareTo( victim ) > 0 ) {
+					victim = q;
+				}
+			}
+			if ( victim != null && victim.job.getPriority() > s.job.getPriority() ) {
+				logger.warn( "job queue full, dropping: " + victim );
+				executer.remove( victim );
+				victim.cancel( false );
+			} else {
+				logger.warn( "job queue full, refusing: " + s );
+				Metrics.getInstance().count( Metrics.JOB_DROPPED );
+				s.cancel( false );
+				return;
+			}
+			Metrics.getInstance().count( Metrics.JOB_DROPPED );
+		}
+		executer.execute( s );
+	}
+	
+	private synchronized void submit( IJob j, IJobListener listener ) {
+		if ( j.mustExecuteUniquely() ) {
+			Class<?> key = j.getClass();
+			ScheduledJob current = active.get( key );
+			if ( current != null ) {
+				if ( !current.started ) {
+					// the queued job will do the same work
+					logger.info( "merging job: " + j + " into " + current );
+					current.addListener( listener );
+					return;
+				}
+				// cancel the running job and run this one after it
+				current.token.cancel();
+				ScheduledJob next = new ScheduledJob( j, new CancellationToken() );
+				ScheduledJob old = waiting.put( key, next );
+				if ( old != null ) {
+					next.listeners.addAll( old.listeners );
+				}
+				next.addListener( listener );
+				logger.info( "received job: " + j + "; waiting for " + current );
+				return;
 			}
-		}) );
+			ScheduledJob s = new ScheduledJob( j, new CancellationToken() );
+			s.addListener( listener );
+			active.put( key, s );
+			logger.info( "received job: " + j );
+			enqueue( s );
+		} else {
+			ScheduledJob s = new ScheduledJob( j, new CancellationToken() );
+			s.addListener( listener );
+			logger.info( "received job: " + j );
+			enqueue( s );
+		}
 	}
 	
-	private void removeDoneFutureJobs() {
-		for(Entry<IJob, Future<?>> e : futureJobs.entrySet()) {
-			if(e.getValue().isDone()) {
-				// report it
-				logger.info("Finished job: " + e.getKey() + " @ " + e.getValue());
-				// clean done jobs
-				futureJobsToRemove.add(e.getKey());
+	private void finished( ScheduledJob s ) {
+		Throwable error = null;
+		boolean cancelled = s.isCancelled() || s.token.isCancelled();
+		if ( !s.isCancelled() ) {
+			try {
+				s.get();
+			} catch ( ExecutionException e ) {
+				error = e.getCause();
+				logger.error( "job failed: " + s, error );
+			} catch ( CancellationException e ) {
+				cancelled = true;
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		logger.info( "Finished job: " + s + ( cancelled ? " (cancelled)" : "" ) );
+		List<IJobListener> listeners;
+		synchronized ( this ) {
+			Class<?> key = s.job.getClass();
+			if ( active.get( key ) == s ) {
+				active.remove( key );
+				ScheduledJob next = waiting.remove( key );
+				if ( next != null ) {
+					active.put( key, next );
+					enqueue( next );
+				}
+			}
+			// submit() adds listeners under this lock
+			listeners = new ArrayList<IJobListener>( s.listeners );
+		}
+		for ( IJobListener l : listeners ) {
+			try {
+				l.jobFinished( s.job, cancelled, error );
+			} catch ( RuntimeException e ) {
+				logger.error( "job listener failed", e );
 			}
 		}
-		// remove unused futures
-		for(IJob tmp : futureJobsToRemove)
-			futureJobs.remove(tmp);
-		futureJobsToRemove.clear();
 	}
 	
 	@Override
 	public void handleEvent(IVidisEvent event) {
 		switch ( event.getID() ) {
 			case IVidisEvent.CleanDoneJobs:
-				removeDoneFutureJobs();
+				// finished jobs remove themselves; drop cancelled leftovers
+				executer.purge();
 			break;
 			case IVidisEvent.AppendJob:
-				// first of all do some burocrazy: clean done jobs
-				Dispatcher.forwardEvent(IVidisEvent.CleanDoneJobs);
-				// now handle the new job
 				if ( event instanceof JobAppend ) {
-					IJob j = ((JobAppend)event).getJob();
-					boolean submit = true;
-					if( j.mustExecuteUniquely() ) {
-						// check futures
-						for(Entry<IJob, Future<?>> e : futureJobs.entrySet()) {
-							if(e.getKey().getClass().equals(j.getClass())) {
-								// cancel old job
-								if(e.getValue().cancel(true)) {
-									// job cancelled, fine
-								} else {
-									// could not be cancelled, do not submit new job
-									submit = false;
-								}
-							}
-						}
-					}
-					logger.info("received job: " + j + "; submitting: " + submit);
-					if(submit) {
-						Future<?> fj = executer.submit(j);
-						futureJobs.put(j, fj);
-					}
+					submit( ((JobAppend)event).getJob(), ((JobAppend)event).getListener() );
 				} else
 					logger.warn("received a job that I cannot handle; claims to be append job event but the class is not compatible!");
 				break;
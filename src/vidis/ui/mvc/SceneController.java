@@ -10,8 +10,10 @@ import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GLAutoDrawable;
@@ -31,6 +33,7 @@ import vidis.ui.config.Configuration;
 import vidis.ui.events.CameraEvent;
 import vidis.ui.events.IVidisEvent;
 import vidis.ui.events.ObjectEvent;
+import vidis.ui.events.ObjectsEvent;
 import vidis.ui.events.VidisEvent;
 import vidis.ui.events.mouse.AMouseEvent;
 import vidis.ui.input.InputListener;
@@ -48,16 +51,23 @@ import vidis.ui.vis.Light;
 import vidis.ui.vis.camera.FreeLookCamera;
 import vidis.ui.vis.camera.GuiCamera;
 import vidis.ui.vis.camera.ICamera;
+import vidis.ui.vis.lod.DetailBudget;
 import vidis.ui.vis.objects.Axis;
 import vidis.ui.vis.objects.Grid;
 import vidis.ui.vis.objects.Selector;
 import vidis.ui.vis.shader.ShaderFactory;
+import vidis.ui.vis.spatial.Frustum;
+import vidis.ui.vis.spatial.LooseOctree;
+import vidis.ui.vis.spatial.MovementTracker;
+import vidis.util.log.LogChannel;
+import vidis.util.metrics.Metrics;
 
 import com.sun.opengl.util.Animator;
 
 public class SceneController extends AController implements GLEventListener {
 
 	private static Logger logger = Logger.getLogger( SceneController.class );
+	private static final LogChannel log = LogChannel.get( SceneController.class );
 	private static Logger glLogger = Logger.getLogger( "vis.opengl" );
 	
 	private List<ICamera> cameras = new LinkedList<ICamera>();
@@ -68,6 +78,17 @@ public class SceneController extends AController implements GLEventListener {
 	private List<IVisObject> objectsToDel = Collections.synchronizedList( new ArrayList<IVisObject>() );
 	private List<IVisObject> objectsToAdd = Collections.synchronizedList( new ArrayList<IVisObject>() );
 	
+	/**
+	 * spatial index over nodes, links and packets; used for picking and culling
+	 */
+	private LooseOctree<ASimObject> spatialIndex = new LooseOctree<ASimObject>();
+	private MovementTracker movementTracker = new MovementTracker();
+	private Set<ASimObject> movedObjects = new HashSet<ASimObject>();
+	private Point3d boundsCenter = new Point3d();
+	private Frustum frustum = new Frustum();
+	private List<ASimObject> visibleObjects = new ArrayList<ASimObject>();
+	private List<ASimObject> pickCandidates = new ArrayList<ASimObject>();
+	
 	
 	private GLCanvas canvas;
 	
@@ -89,6 +110,12 @@ public class SceneController extends AController implements GLEventListener {
 	private int warnLevel_laptopTooSlow;
 	private int autoAdjustDetailLevelCounter;
 	
+	/**
+	 * spreads the automatic detail level over nodes, links and packets
+	 */
+	private DetailBudget detailBudget = new DetailBudget();
+	private List<Link> lineLinks = new ArrayList<Link>();
+	
 	public SceneController() {
 		logger.debug( "Constructor()" );
 		addChildController( new CameraController() );
@@ -100,7 +127,8 @@ public class SceneController extends AController implements GLEventListener {
 					   IVidisEvent.CameraUnregister );
 		
 		registerEvent( IVidisEvent.ObjectRegister, 
-					   IVidisEvent.ObjectUnregister );
+					   IVidisEvent.ObjectUnregister,
+					   IVidisEvent.ObjectsUnregister );
 		
 		registerEvent( IVidisEvent.MouseReleasedEvent_3D2,
 				   IVidisEvent.MouseMovedEvent_3D2 );
@@ -115,11 +143,11 @@ public class SceneController extends AController implements GLEventListener {
 	
 	@Override
 	public void handleEvent( IVidisEvent event ) {
-		logger.debug( "handleEvent( "+event+" )" );
+		log.debug( "handleEvent( {} )", event );
 		switch ( event.getID() ) {
 		case IVidisEvent.AutoAdjustDetailLevel:
 			// reset detail level
-			Configuration.DETAIL_LEVEL = 0.0;
+			detailBudget.reset();
 			// then start adjusting
 			autoAdjustDetailLevelCounter = Configuration.USE_AUTOMATIC_DETAIL_LEVEL_COUNTER;
 			break;
@@ -155,6 +183,13 @@ public class SceneController extends AController implements GLEventListener {
 			}
 			unregisterObject( o );
 			
+			break;
+		case IVidisEvent.ObjectsUnregister:
+			List<IVisObject> os = ((ObjectsEvent)event).getObjects();
+			if ( os.contains( selector.getSelectedObject() ) ) {
+				selector.resetSelection();
+			}
+			unregisterObjects( os );
 			break;
 		case IVidisEvent.MouseReleasedEvent_3D2:
 		case IVidisEvent.MouseMovedEvent_3D2:
@@ -223,6 +258,14 @@ public class SceneController extends AController implements GLEventListener {
 				synchronized (objects) {
 					objects.addAll( objectsToAdd );
 				}
+				synchronized ( spatialIndex ) {
+					for ( IVisObject o : objectsToAdd ) {
+						if ( o instanceof ASimObject ) {
+							movementTracker.add( (ASimObject) o );
+							relocate( (ASimObject) o );
+						}
+					}
+				}
 				objectsToAdd.clear();
 			}
 		}
@@ -231,9 +274,51 @@ public class SceneController extends AController implements GLEventListener {
 				synchronized ( objects ) {
 					objects.removeAll( objectsToDel );
 				}
+				synchronized ( spatialIndex ) {
+					for ( IVisObject o : objectsToDel ) {
+						if ( o instanceof ASimObject ) {
+							movementTracker.remove( (ASimObject) o );
+							spatialIndex.remove( (ASimObject) o );
+						}
+					}
+				}
 				objectsToDel.clear();
 			}
 		}
+		updateSpatialIndex();
+	}
+	
+	/**
+	 * refreshes the bounds of the nodes, links and packets whose position
+	 * changed since the last frame
+	 */
+	private void updateSpatialIndex() {
+		synchronized ( spatialIndex ) {
+			movementTracker.collectMoved( movedObjects );
+			for ( ASimObject so : movedObjects ) {
+				relocate( so );
+			}
+			movedObjects.clear();
+		}
+	}
+	
+	/**
+	 * puts an object at its current bounds; objects that did not leave their
+	 * octree cell stay where they are
+	 */
+	private void relocate( ASimObject so ) {
+		try {
+			if ( so.getBoundingCenter( boundsCenter ) ) {
+				spatialIndex.put( so, boundsCenter.x, boundsCenter.y, boundsCenter.z, so.getBoundingRadius() );
+			}
+			else {
+				spatialIndex.remove( so );
+			}
+		}
+		catch ( Exception e ) {
+			// may happen while the simulator exchanges the components
+			spatialIndex.remove( so );
+		}
 	}
 	
 	
@@ -244,11 +329,16 @@ public class SceneController extends AController implements GLEventListener {
 	 */
 	public void display(GLAutoDrawable drawable) {
 		
+		Metrics metrics = Metrics.getInstance();
+		long frameStart = System.nanoTime();
+		
 		Dispatcher.forwardEvent( IVidisEvent.UpdateFromRenderLoop );
 		
 		// do thedateObjects(); update thing
 		updateObjects();
 		
+		metrics.record( Metrics.FRAME_UPDATE, System.nanoTime() - frameStart );
+		
 		final GL gl = drawable.getGL();
 		
 		startTime = System.currentTimeMillis();
@@ -285,6 +375,7 @@ public class SceneController extends AController implements GLEventListener {
 		}
 		
 		long usedTime = System.currentTimeMillis() - startTime;
+		metrics.record( Metrics.FRAME, System.nanoTime() - frameStart );
 		
 		double fps = 0;
 		
@@ -295,6 +386,8 @@ public class SceneController extends AController implements GLEventListener {
 				fps_log.remove(0);
 		}
 		
+		detailBudget.endFrame();
+		
 		double fpsMiddle = median(fps_log);
 		if(Configuration.USE_AUTOMATIC_DETAIL_LEVEL && autoAdjustDetailLevelCounter > 0) {
 			autoAdjustDetailLevelCounter--;
@@ -303,7 +396,7 @@ public class SceneController extends AController implements GLEventListener {
 				if ( ! inRange(fpsMiddle, wantedFps-2, wantedFps+2) ) {
 					double factor = (fpsMiddle / wantedFps) - 1;
 					double adjust = 0.005 * factor;
-					Configuration.DETAIL_LEVEL = Math.max(0, Math.min(1.5, Configuration.DETAIL_LEVEL + adjust ));
+					detailBudget.adjust( adjust );
 					if ( Configuration.DETAIL_LEVEL == 0 ) {
 						warnLevel_laptopTooSlow++;
 						if(warnLevel_laptopTooSlow >= fps_log_max*2 && warnLevel_laptopTooSlow % (fps_log_max*2) == 0)
@@ -346,7 +439,9 @@ public class SceneController extends AController implements GLEventListener {
 	}
 	
 	private void drawModel( GL gl, ICamera c ) {
+		Metrics metrics = Metrics.getInstance();
 		if ( c instanceof GuiCamera) {
+			long start = System.nanoTime();
 			
 			gl.glPolygonMode( GL.GL_FRONT_AND_BACK, GL.GL_FILL );
 			
@@ -359,6 +454,8 @@ public class SceneController extends AController implements GLEventListener {
 				}
 			}
 			gl.glPopMatrix();
+			
+			metrics.record( Metrics.FRAME_TEXT, System.nanoTime() - start );
 		}
 		else {
 			if ( c instanceof FreeLookCamera ) {
@@ -396,21 +493,46 @@ public class SceneController extends AController implements GLEventListener {
 			    // then the back side of the links
 				// then the packets
 				// and finally the front sides of the links
+				List<? extends IVisObject> simObjects = objects;
+				if ( Configuration.USE_FRUSTUM_CULLING && c instanceof FreeLookCamera ) {
+					((FreeLookCamera) c).updateFrustum( frustum );
+					visibleObjects.clear();
+					synchronized ( spatialIndex ) {
+						spatialIndex.intersectFrustum( frustum, visibleObjects );
+					}
+					simObjects = visibleObjects;
+				}
+				// level of detail of the links, packets of far links are hidden
+				detailBudget.begin( DetailBudget.LINKS );
+				Point3d eye = null;
+				if ( c instanceof FreeLookCamera ) {
+					eye = ((FreeLookCamera) c).getEyePosition();
+				}
+				for ( IVisObject o : simObjects ) {
+					if ( (o instanceof Link) ) {
+						((Link) o).updateLevelOfDetail( eye );
+					}
+				}
+				long linkTime = detailBudget.end( DetailBudget.LINKS );
 				gl.glPushMatrix();
 //					gl.glEnable( GL.GL_LIGHTING );
 					// nodes
+					detailBudget.begin( DetailBudget.NODES );
 					gl.glEnable( GL.GL_LIGHT1 );
-					for ( IVisObject o : objects ) {
+					for ( IVisObject o : simObjects ) {
 						if ( (o instanceof Node) ) {
 							o.render(gl);
 						}
 					}
+					metrics.record( Metrics.FRAME_NODES, detailBudget.end( DetailBudget.NODES ) );
 					// packets
-					for ( IVisObject o : objects ) {
-						if ( (o instanceof Packet) ) {
+					detailBudget.begin( DetailBudget.PACKETS );
+					for ( IVisObject o : simObjects ) {
+						if ( (o instanceof Packet) && ! ((Packet) o).getLink().isPacketsHidden() ) {
 							o.render(gl);
 						}
 					}
+					metrics.record( Metrics.FRAME_PACKETS, detailBudget.end( DetailBudget.PACKETS ) );
 					// links
 					gl.glEnable( GL.GL_BLEND );
 //					gl.glEnable( GL.GL_CULL_FACE );
@@ -418,11 +540,21 @@ public class SceneController extends AController implements GLEventListener {
 					
 //					gl.glBlendFunc( GL.GL_ONE, GL.GL_DST_ALPHA );
 //					gl.glColor4d( 0, 0, 1, 0.7 );
-					for ( IVisObject o : objects ) {
+					detailBudget.begin( DetailBudget.LINKS );
+					lineLinks.clear();
+					for ( IVisObject o : simObjects ) {
 						if ( (o instanceof Link) ) {
-							o.render(gl);
+							if ( ((Link) o).isDrawnAsLine() ) {
+								lineLinks.add( (Link) o );
+							}
+							else {
+								o.render(gl);
+							}
 						}
 					}
+					Link.renderLines( gl, lineLinks );
+					linkTime += detailBudget.end( DetailBudget.LINKS );
+					metrics.record( Metrics.FRAME_LINKS, linkTime );
 					gl.glDisable( GL.GL_BLEND );
 					gl.glDisable( GL.GL_CULL_FACE );
 					gl.glPolygonMode( GL.GL_FRONT_AND_BACK, GL.GL_FILL );
@@ -509,6 +641,15 @@ public class SceneController extends AController implements GLEventListener {
 		}
 	}
 	
+	private void unregisterObjects( List<IVisObject> os ) {
+		for ( IVisObject o : os ) {
+			o.kill();
+		}
+		synchronized ( objectsToDel ) {
+			objectsToDel.addAll( os );
+		}
+	}
+	
 	public synchronized List<IVisObject> getRegisteredObjects() {
 		return new ArrayList<IVisObject>( objects );
 	}
@@ -522,38 +663,36 @@ public class SceneController extends AController implements GLEventListener {
 		Vector3d g = new Vector3d ( e.ray.x, e.ray.y, e.ray.z ) ;
 		g.normalize();
 		
-		List<IVisObject> obj = getRegisteredObjects();
+		pickCandidates.clear();
+		synchronized ( spatialIndex ) {
+			spatialIndex.intersectRay( A.x, A.y, A.z, g.x, g.y, g.z, pickCandidates );
+		}
 		Vector3d AP = new Vector3d();
 		Vector3d dist = new Vector3d();
 		double nearestDistance = Double.MAX_VALUE;
 		ASimObject nearestObject = null;
 		
-		for ( IVisObject o : obj ) {
-			if ( o instanceof ASimObject ) {
-				try { 
-					P = ((ASimObject)o).getPosition();
-					
-					AP.sub( P, A );
-					
-					dist.set( 
-							g.y*AP.z - g.z*AP.y,
-							g.z*AP.x - g.x*AP.z,
-							g.x*AP.y - g.y*AP.x);
-					double l = dist.length();
-					if ( l < ((ASimObject)o).getHitRadius() ) {
-						double way = AP.length();
-						if ( way < nearestDistance ) {
-							nearestDistance = way;
-							nearestObject = (ASimObject) o;
-						}
+		for ( ASimObject o : pickCandidates ) {
+			try { 
+				P = o.getPosition();
+				
+				AP.sub( P, A );
+				
+				dist.set( 
+						g.y*AP.z - g.z*AP.y,
+						g.z*AP.x - g.x*AP.z,
+						g.x*AP.y - g.y*AP.x);
+				double l = dist.length();
+				if ( l < o.getHitRadius() ) {
+					double way = AP.length();
+					if ( way < nearestDistance ) {
+						nearestDistance = way;
+						nearestObject = o;
 					}
 				}
-				catch ( Exception ex ) {
-					logger.debug( "0815 error", ex );
-				}
 			}
-			else {
-				logger.debug( o + " was wrong" );
+			catch ( Exception ex ) {
+				logger.debug( "0815 error", ex );
 			}
 		}
 		if ( nearestObject != null ) {
@@ -585,11 +724,11 @@ public class SceneController extends AController implements GLEventListener {
 		if ( nearestObject != null && underMouseObject != null ) {
 			if ( ! nearestObject.equals( underMouseObject ) ) {
 				// mouse out underMouseObject
-				logger.info( "onMouseOut " + underMouseObject );
+				log.info( "onMouseOut {}", underMouseObject );
 				underMouseObject.onMouseOut();
 				// mouse in nearestObject
 				underMouseObject = nearestObject;
-				logger.info( "onMouseIn " + underMouseObject );
+				log.info( "onMouseIn {}", underMouseObject );
 				underMouseObject.onMouseIn();
 				
 			}
@@ -597,10 +736,10 @@ public class SceneController extends AController implements GLEventListener {
 		else if ( nearestObject != null && underMouseObject == null ){
 			underMouseObject = nearestObject;
 			underMouseObject.onMouseIn();
-			logger.info( "onMouseIn " + underMouseObject );
+			log.info( "onMouseIn {}", underMouseObject );
 		}
 		else if ( nearestObject == null && underMouseObject != null ) {
-			logger.info( "onMouseOut " + underMouseObject );
+			log.info( "onMouseOut {}", underMouseObject );
 			underMouseObject.onMouseOut();
 			underMouseObject = null;
 		}
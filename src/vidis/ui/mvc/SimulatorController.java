@@ -6,6 +6,7 @@
 package vidis.ui.mvc;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -14,9 +15,12 @@ import org.apache.log4j.Logger;
 
 import vidis.data.sim.AComponent;
 import vidis.data.sim.SimNode;
+import vidis.sim.Player;
 import vidis.sim.Simulator;
 import vidis.sim.classloader.modules.impl.AModuleFile;
 import vidis.sim.classloader.modules.impl.dir.FileModuleFile;
+import vidis.sim.trace.TraceReplay;
+import vidis.sim.trace.TraceReplayView;
 import vidis.ui.config.Configuration;
 import vidis.ui.events.IVidisEvent;
 import vidis.ui.events.JobAppend;
@@ -32,9 +36,11 @@ import vidis.ui.model.graph.layouts.impl.GraphSpiralLayout;
 import vidis.ui.mvc.api.AController;
 import vidis.ui.mvc.api.Dispatcher;
 import vidis.util.ResourceManager;
+import vidis.util.log.LogChannel;
 
 public class SimulatorController extends AController {
 	private static Logger logger = Logger.getLogger( SimulatorController.class );
+	private static final LogChannel log = LogChannel.get( SimulatorController.class );
 
 	private Simulator sim = Simulator.getInstance();
 
@@ -48,7 +54,15 @@ public class SimulatorController extends AController {
 		registerEvent( IVidisEvent.SimulatorPlay, 
 						IVidisEvent.SimulatorLoad,
 						IVidisEvent.SimulatorReload, 
-						IVidisEvent.SimulatorPause );
+						IVidisEvent.SimulatorPause,
+						IVidisEvent.SimulatorStepBackward,
+						IVidisEvent.SimulatorStepForward,
+						IVidisEvent.SimulatorRewind );
+		
+		registerEvent( IVidisEvent.TraceStart,
+						IVidisEvent.TraceStop,
+						IVidisEvent.TraceOpen,
+						IVidisEvent.TraceClose );
 		
 		registerEvent(
 				IVidisEvent.LayoutApplyGraphElectricSpring, 
@@ -63,7 +77,7 @@ public class SimulatorController extends AController {
 	
 	@Override
 	public void handleEvent(IVidisEvent event) {
-		logger.debug( "handleEvent( "+event+" )" );
+		log.debug( "handleEvent( {} )", event );
 		switch ( event.getID() ) {
 		case IVidisEvent.InitSimulator:
 			initialize();
@@ -74,9 +88,36 @@ public class SimulatorController extends AController {
 		case IVidisEvent.SimulatorPause:
 			sim.getPlayer().pause();
 			break;
+		case IVidisEvent.SimulatorStepBackward:
+			sim.getPlayer().stepBackward();
+			break;
+		case IVidisEvent.SimulatorStepForward:
+			sim.getPlayer().stepForward();
+			break;
+		case IVidisEvent.SimulatorRewind:
+			sim.getPlayer().rewind( Player.DEFAULT_REWIND_STEPS );
+			break;
 		case IVidisEvent.ExportSimFile:
 			sim.exportSimFile(new File("export/out.msim"));
 			break;
+		case IVidisEvent.TraceStart:
+			startTrace();
+			break;
+		case IVidisEvent.TraceStop:
+			try {
+				sim.getPlayer().stopTrace();
+			} catch ( IOException e ) {
+				logger.error( "could not stop the trace", e );
+			}
+			break;
+		case IVidisEvent.TraceOpen:
+			if ( event instanceof VidisEvent ) {
+				openTrace( (File) ((VidisEvent) event).getData() );
+			}
+			break;
+		case IVidisEvent.TraceClose:
+			sim.getPlayer().closeReplay();
+			break;
 		case IVidisEvent.SimulatorLoad:
 			if(event instanceof VidisEvent) {
 				// now pick a file
@@ -93,6 +134,7 @@ public class SimulatorController extends AController {
 				} finally {
 					if(f != null) {
 	//					System.err.println("Loading MSIM: " + f);
+						Simulator.getInstance().getPlayer().closeReplay();
 						// stop simulator
 						if(!Simulator.getInstance().getPlayer().isPaused())
 							Simulator.getInstance().getPlayer().pause();
@@ -122,6 +164,7 @@ public class SimulatorController extends AController {
 			}
 			break;
 		case IVidisEvent.SimulatorReload:
+			sim.getPlayer().closeReplay();
 			sim.reload();
 			Dispatcher.forwardEvent( IVidisEvent.LayoutApplySpiral );
 			break;
@@ -253,6 +296,41 @@ public class SimulatorController extends AController {
 //		Dispatcher.forwardEvent( new VidisEvent<File>( IVidisEvent.SimulatorLoad, ResourceManager.getModuleFile("vectorClockAlgorithm", "simple.msim") ) );
 	}
 	
+	/**
+	 * traces the simulation into a new directory below the trace path
+	 */
+	private void startTrace() {
+		File directory = new File( Configuration.TRACE_PATH, "trace-" + System.currentTimeMillis() );
+		try {
+			sim.getPlayer().startTrace( directory );
+		} catch ( IOException e ) {
+			logger.error( "could not start the trace " + directory, e );
+		}
+	}
+	
+	/**
+	 * reloads the simulation and shows the trace on it instead of
+	 * simulating; the trace has to be recorded from the loaded simulation
+	 */
+	private void openTrace( File directory ) {
+		Player player = sim.getPlayer();
+		try {
+			player.stopTrace();
+			TraceReplay replay = new TraceReplay( directory );
+			player.closeReplay();
+			if ( !player.isPaused() ) {
+				player.pause();
+			}
+			player.stop();
+			// the replayed packets go onto fresh components
+			sim.reload();
+			player.openReplay( new TraceReplayView( replay, sim.getSimulatorComponents() ) );
+			logger.info( "replaying " + directory + " up to step " + replay.getLastStep() );
+		} catch ( IOException e ) {
+			logger.error( "could not open the trace " + directory, e );
+		}
+	}
+	
 	private List<SimNode> getNodes() {
 		List<AComponent> components = sim.getSimulatorComponents();
 		List<SimNode> nodes = new ArrayList<SimNode>();
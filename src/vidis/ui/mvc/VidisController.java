@@ -11,10 +11,12 @@ import vidis.ui.events.IVidisEvent;
 import vidis.ui.events.VidisEvent;
 import vidis.ui.mvc.api.AController;
 import vidis.ui.mvc.api.Dispatcher;
+import vidis.util.log.LogChannel;
 
 public class VidisController extends AController {
 
 	private static Logger logger = Logger.getLogger( VidisController.class );
+	private static final LogChannel log = LogChannel.get( VidisController.class );
 	
 	public VidisController() {
 		logger.debug( "Constructor()" );
@@ -28,7 +30,7 @@ public class VidisController extends AController {
 	
 	@Override
 	public void handleEvent(IVidisEvent event) {
-		logger.debug( "handleEvent( "+event+" )" );
+		log.debug( "handleEvent( {} )", event );
 		switch ( event.getID() ) {
 		case IVidisEvent.Init:
 			logger.info( "sending InitWindow Event" );
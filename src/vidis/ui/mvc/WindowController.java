@@ -13,10 +13,12 @@ import vidis.ui.events.IVidisEvent;
 import vidis.ui.events.VidisEvent;
 import vidis.ui.mvc.api.AController;
 import vidis.ui.vis.FrameContainer;
+import vidis.util.log.LogChannel;
 
 public class WindowController extends AController {
 	
 	private static Logger logger = Logger.getLogger(WindowController.class);
+	private static final LogChannel log = LogChannel.get( WindowController.class );
 
 	private FrameContainer frame;
 	
@@ -28,7 +30,7 @@ public class WindowController extends AController {
 	@SuppressWarnings( "unchecked" )
 	@Override
 	public void handleEvent(IVidisEvent event) {
-		logger.debug( "handleEvent( "+event+" )" );
+		log.debug( "handleEvent( {} )", event );
 		switch (event.getID()) {
 		case IVidisEvent.InitWindow:
 			frame = new FrameContainer( "VIDIS" );
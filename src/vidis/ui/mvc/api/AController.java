@@ -13,10 +13,12 @@ import org.apache.log4j.Logger;
 import vidis.ui.events.AEventHandler;
 import vidis.ui.events.IEventHandler;
 import vidis.ui.events.IVidisEvent;
+import vidis.util.log.LogChannel;
 
 public abstract class AController extends AEventHandler implements IController {
 
 	private static Logger logger = Logger.getLogger( AController.class );
+	private static final LogChannel log = LogChannel.get( AController.class );
 	
 	private Set<IController> childs = new HashSet<IController>();
 	
@@ -38,14 +40,14 @@ public abstract class AController extends AEventHandler implements IController {
 	}
 	
 	protected void forwardEventToChilds( IVidisEvent event) {
-		logger.debug( "forwardEventToChilds()" );
+		log.debug( "forwardEventToChilds()" );
 		for ( IController c : childs ) {
 			c.fireEvent(event);
 		}
 	}
 	
 	protected void forwardEventToOtherHandler( IEventHandler h, IVidisEvent e ) {
-		logger.debug( "forwardEventToOtherHandler()" );
+		log.debug( "forwardEventToOtherHandler()" );
 		h.fireEvent( e );
 	}
 	
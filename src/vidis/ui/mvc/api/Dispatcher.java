@@ -10,14 +10,16 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.log4j.Logger;
-
 import vidis.ui.events.DummyEvent;
 import vidis.ui.events.IVidisEvent;
+import vidis.util.log.LogChannel;
+import vidis.util.metrics.Histogram;
+import vidis.util.metrics.Metrics;
 
 public class Dispatcher {
 
-	private static Logger logger = Logger.getLogger( Dispatcher.class );
+	private static final LogChannel log = LogChannel.get( Dispatcher.class );
+	private static final Histogram dispatchTimes = Metrics.getInstance().histogram( Metrics.DISPATCH );
 
 	public static Set<IController> controller = new HashSet<IController>();
 	
@@ -28,18 +30,20 @@ public class Dispatcher {
 	 * @param event
 	 */
 	public static void forwardEvent( IVidisEvent event ) {
-		logger.debug( "forwardEvent( "+ event + " )" );
+		log.debug( "forwardEvent( {} )", event );
+		long start = System.nanoTime();
 		if ( eventHandler.containsKey( event.getID() )) {
 			for ( IController c : eventHandler.get( event.getID() ) ) {
 				c.fireEvent( event );
 			}
 		}
 		else {
-			logger.warn( "forwardEvent: nobody registered for "+event+" .. forwarding to all" );
+			log.warn( "forwardEvent: nobody registered for {} .. forwarding to all", event );
 			for ( IController c : controller ) {
 				c.fireEvent( event );
 			}
 		}
+		Metrics.getInstance().record( dispatchTimes, System.nanoTime() - start );
 	}
 	
 	/**
@@ -29,6 +29,7 @@ import vidis.ui.events.StartEvent;
 import vidis.ui.events.StopEvent;
 import vidis.ui.events.mouse.AMouseEvent;
 import vidis.ui.mvc.api.Dispatcher;
+import vidis.ui.vis.spatial.Frustum;
 
 public class FreeLookCamera extends AEventHandler implements ICamera {
 	private static Logger logger = Logger.getLogger( FreeLookCamera.class );
@@ -130,6 +131,22 @@ public class FreeLookCamera extends AEventHandler implements ICamera {
 		gl.glGetIntegerv(GL.GL_VIEWPORT, view);
 	}
 	
+	/**
+	 * updates a frustum with the matrices of the last applyViewMatrix() call
+	 * @param frustum the frustum to update
+	 */
+	public void updateFrustum( Frustum frustum ) {
+		frustum.set( proj.array(), model.array() );
+	}
+	
+	/**
+	 * retrieve the position of the eye
+	 * @return a copy of the camera position
+	 */
+	public Point3d getEyePosition() {
+		return new Point3d( position );
+	}
+	
 	public void applyViewMatrix(GL gl) {
 		//gl.glScaled(-1, 1, 1);
 		//double realX, realZ;
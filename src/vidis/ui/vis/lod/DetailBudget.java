@@ -0,0 +1,145 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.ui.vis.lod;
+
+import vidis.ui.config.Configuration;
+
+/**
+ * distributes the automatic detail level over the object groups.
+ * <p>
+ * the render time of every group is measured each frame; if the frame
+ * rate is too low the expensive groups lose detail first, if there is
+ * time left the cheap groups gain detail first.
+ * </p>
+ * @author Christoph
+ *
+ */
+public class DetailBudget {
+	public static final int NODES = 0;
+	public static final int LINKS = 1;
+	public static final int PACKETS = 2;
+
+	private static final int GROUPS = 3;
+
+	private static final double MAX_DETAIL_LEVEL = 1.5;
+
+	/**
+	 * how fast the measured shares follow the current frame
+	 */
+	private static final double SMOOTHING = 0.1;
+
+	private long[] started = new long[ GROUPS ];
+	private long[] used = new long[ GROUPS ];
+
+	/**
+	 * smoothed share of every group on the render time
+	 */
+	private double[] share = new double[ GROUPS ];
+
+	public DetailBudget() {
+		for ( int i=0; i<GROUPS; i++ ) {
+			share[i] = 1d / GROUPS;
+		}
+	}
+
+	public void begin( int group ) {
+		started[ group ] = System.nanoTime();
+	}
+
+	/**
+	 * @return the nanoseconds since the matching begin()
+	 */
+	public long end( int group ) {
+		long elapsed = System.nanoTime() - started[ group ];
+		used[ group ] += elapsed;
+		return elapsed;
+	}
+
+	/**
+	 * to be called once per frame after everything has been rendered
+	 */
+	public void endFrame() {
+		long total = 0;
+		for ( int i=0; i<GROUPS; i++ ) {
+			total += used[i];
+		}
+		if ( total > 0 ) {
+			for ( int i=0; i<GROUPS; i++ ) {
+				share[i] += SMOOTHING * ( (double) used[i] / total - share[i] );
+			}
+		}
+		for ( int i=0; i<GROUPS; i++ ) {
+			used[i] = 0;
+		}
+	}
+
+	/**
+	 * retrieve the share of a group on the render time within [0 .. 1]
+	 */
+	public double getShare( int group ) {
+		return share[ group ];
+	}
+
+	/**
+	 * sets all groups back to the lowest detail level
+	 */
+	public void reset() {
+		for ( int i=0; i<GROUPS; i++ ) {
+			setDetailLevel( i, 0 );
+		}
+		Configuration.DETAIL_LEVEL = 0;
+	}
+
+	/**
+	 * spreads an adjustment of the overall detail level over the groups
+	 * @param adjust negative to lower, positive to raise the detail
+	 */
+	public void adjust( double adjust ) {
+		double sum = 0;
+		for ( int i=0; i<GROUPS; i++ ) {
+			double weight;
+			if ( adjust < 0 ) {
+				// expensive groups pay most
+				weight = share[i] * GROUPS;
+			}
+			else {
+				// cheap groups gain most
+				weight = ( 1 - share[i] ) * GROUPS / ( GROUPS - 1 );
+			}
+			setDetailLevel( i, getDetailLevel( i ) + adjust * weight );
+			sum += getDetailLevel( i );
+		}
+		Configuration.DETAIL_LEVEL = sum / GROUPS;
+	}
+
+	public static double getDetailLevel( int group ) {
+		switch ( group ) {
+		case NODES:
+			return Configuration.NODE_DETAIL_LEVEL;
+		case LINKS:
+			return Configuration.LINK_DETAIL_LEVEL;
+		case PACKETS:
+			return Configuration.PACKET_DETAIL_LEVEL;
+		default:
+			return Configuration.DETAIL_LEVEL;
+		}
+	}
+
+	private static void setDetailLevel( int group, double value ) {
+		value = Math.max( 0, Math.min( MAX_DETAIL_LEVEL, value ) );
+		switch ( group ) {
+		case NODES:
+			Configuration.NODE_DETAIL_LEVEL = value;
+			break;
+		case LINKS:
+			Configuration.LINK_DETAIL_LEVEL = value;
+			break;
+		case PACKETS:
+			Configuration.PACKET_DETAIL_LEVEL = value;
+			break;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.ui.vis.spatial;
+
+/**
+ * a view frustum given by its six clipping planes.
+ * <p>
+ * the planes are extracted from the projection and modelview matrices
+ * as delivered by <code>glGetDoublev</code> (column major), so the
+ * frustum can be built and tested without a gl context.
+ * </p>
+ * @author Christoph
+ *
+ */
+public class Frustum {
+	public static final int OUTSIDE = 0;
+	public static final int INTERSECT = 1;
+	public static final int INSIDE = 2;
+
+	/**
+	 * six planes (left, right, bottom, top, near, far), four coefficients each;
+	 * a point p is inside a plane if a*p.x + b*p.y + c*p.z + d >= 0
+	 */
+	private final double[] planes = new double[ 6 * 4 ];
+
+	private final double[] clip = new double[ 16 ];
+
+	public Frustum() {
+		// an "everything is visible" frustum until the first set()
+		for ( int i=0; i<6; i++ ) {
+			planes[ i*4 + 3 ] = Double.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * updates the planes from a projection and a modelview matrix
+	 * @param projection column major 4x4 projection matrix
+	 * @param modelview column major 4x4 modelview matrix
+	 */
+	public void set( double[] projection, double[] modelview ) {
+		for ( int col=0; col<4; col++ ) {
+			for ( int row=0; row<4; row++ ) {
+				double sum = 0;
+				for ( int k=0; k<4; k++ ) {
+					sum += projection[ k*4 + row ] * modelview[ col*4 + k ];
+				}
+				clip[ col*4 + row ] = sum;
+			}
+		}
+		set( clip );
+	}
+
+	/**
+	 * updates the planes from a combined clip matrix (projection * modelview)
+	 * @param clip column major 4x4 matrix
+	 */
+	public void set( double[] clip ) {
+		for ( int i=0; i<3; i++ ) {
+			for ( int c=0; c<4; c++ ) {
+				double w = clip[ c*4 + 3 ];
+				double v = clip[ c*4 + i ];
+				planes[ (2*i) * 4 + c ] = w + v;
+				planes[ (2*i+1) * 4 + c ] = w - v;
+			}
+		}
+		for ( int p=0; p<6; p++ ) {
+			int o = p*4;
+			double len = Math.sqrt( planes[o]*planes[o] + planes[o+1]*planes[o+1] + planes[o+2]*planes[o+2] );
+			if ( len > 0 ) {
+				planes[o] /= len;
+				planes[o+1] /= len;
+				planes[o+2] /= len;
+				planes[o+3] /= len;
+			}
+		}
+	}
+
+	/**
+	 * tests a sphere against this frustum
+	 * @return true if the sphere is at least partly visible
+	 */
+	public boolean intersectsSphere( double x, double y, double z, double radius ) {
+		for ( int p=0; p<6; p++ ) {
+			int o = p*4;
+			if ( planes[o]*x + planes[o+1]*y + planes[o+2]*z + planes[o+3] < -radius ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * classifies an axis aligned box against this frustum
+	 * @return one of {@link #OUTSIDE}, {@link #INTERSECT} or {@link #INSIDE}
+	 */
+	public int classifyBox( double minX, double minY, double minZ, double maxX, double maxY, double maxZ ) {
+		int result = INSIDE;
+		for ( int p=0; p<6; p++ ) {
+			int o = p*4;
+			double a = planes[o], b = planes[o+1], c = planes[o+2], d = planes[o+3];
+			// the corner furthest along the plane normal
+			double px = a >= 0 ? maxX : minX;
+			double py = b >= 0 ? maxY : minY;
+			double pz = c >= 0 ? maxZ : minZ;
+			if ( a*px + b*py + c*pz + d < 0 ) {
+				return OUTSIDE;
+			}
+			// the corner furthest against the plane normal
+			double nx = a >= 0 ? minX : maxX;
+			double ny = b >= 0 ? minY : maxY;
+			double nz = c >= 0 ? minZ : maxZ;
+			if ( a*nx + b*ny + c*nz + d < 0 ) {
+				result = INTERSECT;
+			}
+		}
+		return result;
+	}
+}
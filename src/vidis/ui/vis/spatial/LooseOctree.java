@@ -0,0 +1,384 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.ui.vis.spatial;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a dynamic loose octree over bounding spheres.
+ * <p>
+ * every cell accepts objects whose center lies within the cell and
+ * whose radius is not bigger than half the cell size; the cell is
+ * tested with twice its size, so a moving object only has to be
+ * relocated if it leaves its cell. the root grows on demand, so there
+ * are no fixed world bounds.
+ * </p>
+ * <p>
+ * this class is not thread safe, callers have to synchronize.
+ * </p>
+ * @author Christoph
+ *
+ * @param <T> the type of the indexed objects
+ */
+public class LooseOctree<T> {
+	/**
+	 * number of entries a leaf holds before it is split
+	 */
+	private static final int SPLIT_THRESHOLD = 8;
+
+	/**
+	 * maximum depth below the root
+	 */
+	private static final int MAX_DEPTH = 16;
+
+	private static final double INITIAL_HALF_SIZE = 16;
+
+	private Cell root;
+
+	private Map<T, Entry> entries = new HashMap<T, Entry>();
+
+	public LooseOctree() {
+		clear();
+	}
+
+	/**
+	 * inserts an object or updates its bounds if it is already indexed
+	 */
+	public void put( T object, double x, double y, double z, double radius ) {
+		if ( Double.isNaN( x + y + z + radius ) || Double.isInfinite( x + y + z + radius ) ) {
+			// no valid bounds, the object cannot be found until it gets some
+			remove( object );
+			return;
+		}
+		Entry e = entries.get( object );
+		if ( e == null ) {
+			e = new Entry( object );
+			entries.put( object, e );
+		}
+		else if ( e.cell.accepts( x, y, z, radius ) ) {
+			// still fits into its cell, no relocation needed
+			e.set( x, y, z, radius );
+			return;
+		}
+		else {
+			e.cell.remove( e );
+		}
+		e.set( x, y, z, radius );
+		while ( ! root.accepts( x, y, z, radius ) ) {
+			grow( x, y, z );
+		}
+		root.insert( e );
+	}
+
+	/**
+	 * removes an object from the index
+	 */
+	public void remove( T object ) {
+		Entry e = entries.remove( object );
+		if ( e != null ) {
+			e.cell.remove( e );
+		}
+	}
+
+	public boolean contains( T object ) {
+		return entries.containsKey( object );
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public void clear() {
+		entries.clear();
+		root = new Cell( null, 0, 0, 0, INITIAL_HALF_SIZE, 0 );
+	}
+
+	/**
+	 * collects all objects whose bounding sphere is hit by a ray
+	 * @param ox ray origin
+	 * @param dx ray direction (need not be normalized)
+	 * @param out the list the hits are appended to
+	 */
+	public void intersectRay( double ox, double oy, double oz, double dx, double dy, double dz, List<T> out ) {
+		double len = Math.sqrt( dx*dx + dy*dy + dz*dz );
+		if ( len == 0 ) {
+			return;
+		}
+		intersectRay( root, ox, oy, oz, dx/len, dy/len, dz/len, out );
+	}
+
+	/**
+	 * collects all objects whose bounding sphere is at least partly within the frustum
+	 * @param out the list the visible objects are appended to
+	 */
+	public void intersectFrustum( Frustum f, List<T> out ) {
+		intersectFrustum( root, f, out );
+	}
+
+	@SuppressWarnings("unchecked")
+	private void intersectRay( Cell c, double ox, double oy, double oz, double dx, double dy, double dz, List<T> out ) {
+		double l = c.half * 2;
+		if ( ! rayHitsBox( ox, oy, oz, dx, dy, dz, c.x-l, c.y-l, c.z-l, c.x+l, c.y+l, c.z+l ) ) {
+			return;
+		}
+		for ( int i=0; i<c.entries.size(); i++ ) {
+			Entry e = c.entries.get( i );
+			if ( rayHitsSphere( ox, oy, oz, dx, dy, dz, e.x, e.y, e.z, e.radius ) ) {
+				out.add( (T) e.object );
+			}
+		}
+		if ( c.children != null ) {
+			for ( Cell child : c.children ) {
+				if ( child != null ) {
+					intersectRay( child, ox, oy, oz, dx, dy, dz, out );
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void intersectFrustum( Cell c, Frustum f, List<T> out ) {
+		double l = c.half * 2;
+		int state = f.classifyBox( c.x-l, c.y-l, c.z-l, c.x+l, c.y+l, c.z+l );
+		if ( state == Frustum.OUTSIDE ) {
+			return;
+		}
+		if ( state == Frustum.INSIDE ) {
+			collectAll( c, out );
+			return;
+		}
+		for ( int i=0; i<c.entries.size(); i++ ) {
+			Entry e = c.entries.get( i );
+			if ( f.intersectsSphere( e.x, e.y, e.z, e.radius ) ) {
+				out.add( (T) e.object );
+			}
+		}
+		if ( c.children != null ) {
+			for ( Cell child : c.children ) {
+				if ( child != null ) {
+					intersectFrustum( child, f, out );
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void collectAll( Cell c, List<T> out ) {
+		for ( int i=0; i<c.entries.size(); i++ ) {
+			out.add( (T) c.entries.get( i ).object );
+		}
+		if ( c.children != null ) {
+			for ( Cell child : c.children ) {
+				if ( child != null ) {
+					collectAll( child, out );
+				}
+			}
+		}
+	}
+
+	/**
+	 * doubles the root towards a point that is not covered yet
+	 */
+	private void grow( double x, double y, double z ) {
+		Cell old = root;
+		double h = old.half;
+		double nx = x >= old.x ? old.x + h : old.x - h;
+		double ny = y >= old.y ? old.y + h : old.y - h;
+		double nz = z >= old.z ? old.z + h : old.z - h;
+		root = new Cell( null, nx, ny, nz, h * 2, 0 );
+		if ( old.isEmpty() ) {
+			return;
+		}
+		// the old root becomes a child of the new one
+		root.children = new Cell[8];
+		root.children[ root.childIndex( old.x, old.y, old.z ) ] = old;
+		old.parent = root;
+		shiftDepth( old, 1 );
+	}
+
+	private void shiftDepth( Cell c, int by ) {
+		c.depth += by;
+		if ( c.children != null ) {
+			for ( Cell child : c.children ) {
+				if ( child != null ) {
+					shiftDepth( child, by );
+				}
+			}
+		}
+	}
+
+	private static boolean rayHitsSphere( double ox, double oy, double oz, double dx, double dy, double dz, double cx, double cy, double cz, double r ) {
+		double px = cx - ox, py = cy - oy, pz = cz - oz;
+		double t = px*dx + py*dy + pz*dz;
+		if ( t < 0 ) {
+			// center is behind the origin
+			return px*px + py*py + pz*pz <= r*r;
+		}
+		double qx = px - t*dx, qy = py - t*dy, qz = pz - t*dz;
+		return qx*qx + qy*qy + qz*qz <= r*r;
+	}
+
+	/**
+	 * slab test of a ray against an axis aligned box
+	 */
+	private static boolean rayHitsBox( double ox, double oy, double oz, double dx, double dy, double dz,
+			double minX, double minY, double minZ, double maxX, double maxY, double maxZ ) {
+		double[] t = { 0, Double.MAX_VALUE };
+		return slab( ox, dx, minX, maxX, t ) && slab( oy, dy, minY, maxY, t ) && slab( oz, dz, minZ, maxZ, t );
+	}
+
+	private static boolean slab( double o, double d, double min, double max, double[] t ) {
+		if ( d == 0 ) {
+			return o >= min && o <= max;
+		}
+		double t1 = (min - o) / d;
+		double t2 = (max - o) / d;
+		if ( t1 > t2 ) {
+			double tmp = t1; t1 = t2; t2 = tmp;
+		}
+		t[0] = Math.max( t[0], t1 );
+		t[1] = Math.min( t[1], t2 );
+		return t[0] <= t[1];
+	}
+
+	private static class Entry {
+		Object object;
+		double x, y, z, radius;
+		Cell cell;
+
+		Entry( Object object ) {
+			this.object = object;
+		}
+
+		void set( double x, double y, double z, double radius ) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.radius = radius;
+		}
+	}
+
+	private static class Cell {
+		Cell parent;
+		double x, y, z, half;
+		int depth;
+		List<Entry> entries = new ArrayList<Entry>( 2 );
+		Cell[] children;
+
+		Cell( Cell parent, double x, double y, double z, double half, int depth ) {
+			this.parent = parent;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.half = half;
+			this.depth = depth;
+		}
+
+		boolean contains( double px, double py, double pz ) {
+			return px >= x-half && px < x+half
+				&& py >= y-half && py < y+half
+				&& pz >= z-half && pz < z+half;
+		}
+
+		boolean accepts( double px, double py, double pz, double r ) {
+			return contains( px, py, pz ) && r <= half;
+		}
+
+		boolean isEmpty() {
+			if ( entries.size() > 0 ) {
+				return false;
+			}
+			if ( children != null ) {
+				for ( Cell child : children ) {
+					if ( child != null && ! child.isEmpty() ) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		int childIndex( double px, double py, double pz ) {
+			return ( px >= x ? 1 : 0 ) | ( py >= y ? 2 : 0 ) | ( pz >= z ? 4 : 0 );
+		}
+
+		/**
+		 * retrieve if an entry can be pushed into a child of this cell
+		 */
+		boolean fitsChild( Entry e ) {
+			return depth < MAX_DEPTH && e.radius <= half / 2;
+		}
+
+		Cell child( int i ) {
+			if ( children == null ) {
+				children = new Cell[8];
+			}
+			if ( children[i] == null ) {
+				double h = half / 2;
+				children[i] = new Cell( this,
+						x + ( (i & 1) != 0 ? h : -h ),
+						y + ( (i & 2) != 0 ? h : -h ),
+						z + ( (i & 4) != 0 ? h : -h ),
+						h, depth + 1 );
+			}
+			return children[i];
+		}
+
+		void insert( Entry e ) {
+			if ( children == null && ( entries.size() < SPLIT_THRESHOLD || depth >= MAX_DEPTH ) ) {
+				add( e );
+				return;
+			}
+			if ( children == null ) {
+				split();
+			}
+			if ( fitsChild( e ) ) {
+				child( childIndex( e.x, e.y, e.z ) ).insert( e );
+			}
+			else {
+				add( e );
+			}
+		}
+
+		private void add( Entry e ) {
+			entries.add( e );
+			e.cell = this;
+		}
+
+		private void split() {
+			children = new Cell[8];
+			List<Entry> old = entries;
+			entries = new ArrayList<Entry>( 2 );
+			for ( Entry e : old ) {
+				if ( fitsChild( e ) ) {
+					child( childIndex( e.x, e.y, e.z ) ).add( e );
+				}
+				else {
+					add( e );
+				}
+			}
+		}
+
+		void remove( Entry e ) {
+			entries.remove( e );
+			e.cell = null;
+			// prune empty leaves
+			Cell c = this;
+			while ( c.parent != null && c.isEmpty() ) {
+				Cell p = c.parent;
+				for ( int i=0; i<8; i++ ) {
+					if ( p.children[i] == c ) {
+						p.children[i] = null;
+					}
+				}
+				c = p;
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.ui.vis.spatial;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.vecmath.Point3d;
+
+import vidis.data.var.IVariableContainer;
+import vidis.data.var.vars.AVariable;
+import vidis.ui.model.structure.ASimObject;
+
+/**
+ * tells which objects of the spatial index have to be relocated.
+ * <p>
+ * it remembers the position of the containers the bounds of the tracked
+ * objects depend on, see {@link ASimObject#getBoundsSources()}, and
+ * compares them once per frame; when one of them moved all objects that
+ * depend on it are reported, so the index is updated only where
+ * positions changed. the positions are compared instead of listened to
+ * as the layouts move the points in place, which fires no change.
+ * </p>
+ * <p>
+ * add(), remove() and collectMoved() have to be called by one thread,
+ * positions may change on any thread.
+ * </p>
+ * @author Christoph
+ *
+ */
+public class MovementTracker {
+
+	private Map<IVariableContainer, Source> sources = new HashMap<IVariableContainer, Source>();
+	private Map<ASimObject, IVariableContainer[]> tracked = new HashMap<ASimObject, IVariableContainer[]>();
+
+	private static class Source {
+		private final IVariableContainer container;
+		private final List<ASimObject> dependents = new ArrayList<ASimObject>( 4 );
+		/**
+		 * the position at the last comparison, NaN if there was none
+		 */
+		private double x = Double.NaN;
+		private double y = Double.NaN;
+		private double z = Double.NaN;
+
+		public Source( IVariableContainer container ) {
+			this.container = container;
+			moved();
+		}
+
+		/**
+		 * compares the position with the remembered one and remembers it
+		 * @return true if it is another one
+		 */
+		public boolean moved() {
+			Point3d p = position( container );
+			if ( p == null ) {
+				return false;
+			}
+			double px = p.x;
+			double py = p.y;
+			double pz = p.z;
+			if ( px == x && py == y && pz == z ) {
+				return false;
+			}
+			x = px;
+			y = py;
+			z = pz;
+			return true;
+		}
+	}
+
+	private static Point3d position( IVariableContainer c ) {
+		try {
+			AVariable v = c.getVariableById( AVariable.COMMON_IDENTIFIERS.POSITION );
+			if ( v != null && v.getData() instanceof Point3d ) {
+				return (Point3d) v.getData();
+			}
+		}
+		catch ( Exception e ) {
+			// may happen while the simulator exchanges the components
+		}
+		return null;
+	}
+
+	/**
+	 * starts to track an object
+	 */
+	public void add( ASimObject o ) {
+		if ( tracked.containsKey( o ) ) {
+			return;
+		}
+		IVariableContainer[] containers = o.getBoundsSources();
+		tracked.put( o, containers );
+		for ( IVariableContainer c : containers ) {
+			Source s = sources.get( c );
+			if ( s == null ) {
+				s = new Source( c );
+				sources.put( c, s );
+			}
+			s.dependents.add( o );
+		}
+	}
+
+	public void remove( ASimObject o ) {
+		IVariableContainer[] containers = tracked.remove( o );
+		if ( containers == null ) {
+			return;
+		}
+		for ( IVariableContainer c : containers ) {
+			Source s = sources.get( c );
+			if ( s != null ) {
+				s.dependents.remove( o );
+				if ( s.dependents.isEmpty() ) {
+					sources.remove( c );
+				}
+			}
+		}
+	}
+
+	/**
+	 * adds all objects whose sources moved since the last call; an object
+	 * may be added more than once
+	 * @param into the collection to fill
+	 */
+	public void collectMoved( Collection<ASimObject> into ) {
+		for ( Source s : sources.values() ) {
+			if ( s.moved() ) {
+				into.addAll( s.dependents );
+			}
+		}
+	}
+
+	public void clear() {
+		sources.clear();
+		tracked.clear();
+	}
+}
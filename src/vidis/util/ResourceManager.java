@@ -9,20 +9,25 @@ import java.awt.Font;
 import java.awt.FontFormatException;
 import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.jar.JarFile;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.ImageIcon;
 
-import vidis.sim.classloader.VidisClassLoader;
+import org.apache.log4j.Logger;
+
 import vidis.sim.classloader.modules.impl.AModule;
 import vidis.sim.classloader.modules.impl.dir.DirectoryModule;
 import vidis.sim.classloader.modules.impl.jar.JarModule;
+import vidis.sim.classloader.modules.impl.jar.JarModuleIndex;
 
 /**
  * This class provides the Resources in a static way to all other classes
@@ -31,6 +36,8 @@ import vidis.sim.classloader.modules.impl.jar.JarModule;
  * 
  */
 public class ResourceManager {
+	private static Logger logger = Logger.getLogger(ResourceManager.class);
+	
 	private ResourceManager() {
 	}
 
@@ -103,21 +110,19 @@ public class ResourceManager {
 		return new ImageIcon(dataPath + pathSeperator + "resources" + pathSeperator + "images" + pathSeperator + icon);
 	}
 	
-	private static List<JarFile> findJarFiles(List<JarFile> returns, File base) {
+	/**
+	 * the cached index of the drop in jars
+	 */
+	public static String getModuleIndexPath() {
+		return dataPath + pathSeperator + "moduleIndex.txt";
+	}
+	
+	private static List<File> findJarFiles(List<File> returns, File base) {
 		for(File c : base.listFiles()) {
 			if(c.isFile()) {
 				if(c.getName().endsWith(".jar")) {
-					// possible a jar file, try to create one
-					try {
-						JarFile j = new JarFile(c, true);
-						returns.add(j);
-						// add it to the classpath
-						System.setProperty("java.class.path", System.getProperty("java.class.path") + File.pathSeparatorChar + j.getName());
-					} catch (IOException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-					
+					// possible a jar file, it is opened when it is indexed
+					returns.add(c);
 				}
 			} else if(c.isDirectory()) {
 				// recurse
@@ -127,6 +132,79 @@ public class ResourceManager {
 		return returns;
 	}
 	
+	/**
+	 * retrieves the index entries of the jars in parallel; the entry of a
+	 * jar that cannot be read is null, so the result has one entry per jar
+	 */
+	private static List<JarModuleIndex.Entry> indexJarFiles(final List<File> jars) {
+		final JarModuleIndex index = JarModuleIndex.getInstance();
+		List<Callable<JarModuleIndex.Entry>> tasks = new ArrayList<Callable<JarModuleIndex.Entry>>();
+		for(final File jar : jars) {
+			tasks.add(new Callable<JarModuleIndex.Entry>() {
+				public JarModuleIndex.Entry call() {
+					return indexJarFile(index, jar);
+				}
+			});
+		}
+		List<JarModuleIndex.Entry> entries = new ArrayList<JarModuleIndex.Entry>();
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(), tasks.size());
+		if(threads <= 1) {
+			for(File jar : jars) {
+				entries.add(indexJarFile(index, jar));
+			}
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<JarModuleIndex.Entry>> futures = executor.invokeAll(tasks);
+				for(int i=0; i<futures.size(); i++) {
+					try {
+						entries.add(futures.get(i).get());
+					} catch (ExecutionException e) {
+						logger.error("could not index " + jars.get(i), e.getCause());
+						entries.add(null);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				executor.shutdownNow();
+			}
+			// interrupted, the remaining jars are not indexed
+			while(entries.size() < jars.size()) {
+				entries.add(null);
+			}
+		}
+		index.save();
+		return entries;
+	}
+	
+	private static JarModuleIndex.Entry indexJarFile(JarModuleIndex index, File jar) {
+		try {
+			return index.get(jar);
+		} catch (IOException e) {
+			logger.error("could not index " + jar, e);
+			return null;
+		} catch (RuntimeException e) {
+			logger.error("could not index " + jar, e);
+			return null;
+		}
+	}
+	
+	/**
+	 * appends the jars that are not yet part of it to java.class.path
+	 */
+	private static void addToClassPath(List<File> jars) {
+		String classPath = System.getProperty("java.class.path");
+		List<String> known = Arrays.asList(classPath.split(File.pathSeparator));
+		StringBuilder s = new StringBuilder(classPath);
+		for(File jar : jars) {
+			if(! known.contains(jar.getPath())) {
+				s.append(File.pathSeparatorChar).append(jar.getPath());
+			}
+		}
+		System.setProperty("java.class.path", s.toString());
+	}
+	
 	public static List<AModule> getModules() {
 		// all module files
 		List<AModule> modules = new ArrayList<AModule>();
@@ -137,14 +215,13 @@ public class ResourceManager {
 		if(dropInFolder.exists()) {
 			if(dropInFolder.isDirectory()) {
 				// TODO detect all possible .jar archives
-				List<JarFile> jars = findJarFiles(new LinkedList<JarFile>(), dropInFolder);
-				// TODO load all possible .jar archives (if not loaded yet)
-				for(JarFile p : jars) {
-					try {
-						VidisClassLoader.getInstance().addFile(p);
-						modules.add(new JarModule(p));
-					} catch (MalformedURLException e) {
-						e.printStackTrace();
+				List<File> jars = findJarFiles(new ArrayList<File>(), dropInFolder);
+				addToClassPath(jars);
+				List<JarModuleIndex.Entry> entries = indexJarFiles(jars);
+				// the classes are loaded per import, see ModuleClassLoader
+				for(int i=0; i<jars.size(); i++) {
+					if(entries.get(i) != null) {
+						modules.add(new JarModule(jars.get(i), entries.get(i)));
 					}
 				}
 			}
@@ -0,0 +1,114 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.util;
+
+/**
+ * a small, fast and splittable pseudo random number generator
+ * (splitmix64, as used by java.util.SplittableRandom of later jdks).
+ * <p>
+ * every simulator component owns one of these, derived from the seed of
+ * the simulator and the id of the component, so a run gives the same
+ * numbers no matter in which order or on which thread the components
+ * are executed. instances are not thread safe and do not need to be.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class SplitMix {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+	private long seed;
+	private final long gamma;
+
+	public SplitMix(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private SplitMix(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * creates the generator for a named stream below a root seed
+	 * @param root the root seed, e.g. of the simulator
+	 * @param key a stable name of the stream, e.g. the component id
+	 * @return a generator that depends on root and key only
+	 */
+	public static SplitMix forKey(long root, String key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return new SplitMix(mix64(root ^ mix64(h)));
+	}
+
+	/**
+	 * creates a new generator whose numbers are independent of this one;
+	 * this advances this generator
+	 */
+	public SplitMix split() {
+		return new SplitMix(nextLong(), mixGamma(nextSeed()));
+	}
+
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	/**
+	 * @param bound the exclusive upper bound, must be positive
+	 * @return a value within [0 .. bound)
+	 */
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		int r = nextInt() >>> 1;
+		int m = bound - 1;
+		if ((bound & m) == 0) {
+			return r & m;
+		}
+		// reject the values that would favour the lower numbers
+		for (int u = r; u - (r = u % bound) + m < 0; u = nextInt() >>> 1)
+			;
+		return r;
+	}
+
+	/**
+	 * @return a value within [0 .. 1), like Math.random()
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
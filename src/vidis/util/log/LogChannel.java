@@ -0,0 +1,166 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.util.log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * logging for hot paths on top of log4j.
+ * <p>
+ * the enabled levels are kept in flags, so a disabled call site costs
+ * one field read when it checks {@link #isDebug()} or {@link #isInfo()}
+ * first. messages are templates with <code>{}</code> placeholders; the
+ * template and its arguments are put into a ring buffer and rendered
+ * and appended by a background thread, so an enabled call site neither
+ * builds the message nor waits for an appender. strings, boxed
+ * primitives and enums are passed as they are; any other argument is
+ * turned into its text on the calling thread, so it may change after
+ * the call. if the ring buffer is full the event is dropped and
+ * counted.
+ * </p>
+ * <p>
+ * the flags are read from log4j when the channel is created; call
+ * {@link #refreshAll()} after changing log4j levels at runtime.
+ * </p>
+ * @author Dominik
+ *
+ */
+public final class LogChannel {
+	private static final List<LogChannel> channels = new CopyOnWriteArrayList<LogChannel>();
+
+	private final Logger logger;
+	private volatile boolean debug;
+	private volatile boolean info;
+	private volatile boolean warn;
+
+	private LogChannel(Logger logger) {
+		this.logger = logger;
+		refresh();
+	}
+
+	/**
+	 * retrieve the channel of a class; keep it in a static field
+	 */
+	public static LogChannel get(Class<?> clazz) {
+		LogChannel c = new LogChannel(Logger.getLogger(clazz));
+		channels.add(c);
+		return c;
+	}
+
+	/**
+	 * re-reads the levels of all channels from log4j
+	 */
+	public static void refreshAll() {
+		for (LogChannel c : channels) {
+			c.refresh();
+		}
+	}
+
+	/**
+	 * waits until all events logged so far have been appended
+	 */
+	public static void flush() {
+		LogRing.getInstance().flush();
+	}
+
+	/**
+	 * retrieve the number of events dropped because the ring was full
+	 */
+	public static long getDropped() {
+		return LogRing.getInstance().getDropped();
+	}
+
+	private void refresh() {
+		debug = logger.isDebugEnabled();
+		info = logger.isInfoEnabled();
+		warn = logger.isEnabledFor(Level.WARN);
+	}
+
+	Logger getLogger() {
+		return logger;
+	}
+
+	public boolean isDebug() {
+		return debug;
+	}
+
+	public boolean isInfo() {
+		return info;
+	}
+
+	public void debug(String message) {
+		if (debug) {
+			LogRing.getInstance().publish(this, Level.DEBUG, message, 0, null, null, null, null, 0, false);
+		}
+	}
+
+	public void debug(String format, Object a) {
+		if (debug) {
+			LogRing.getInstance().publish(this, Level.DEBUG, format, 1, a, null, null, null, 0, false);
+		}
+	}
+
+	public void debug(String format, Object a, Object b) {
+		if (debug) {
+			LogRing.getInstance().publish(this, Level.DEBUG, format, 2, a, b, null, null, 0, false);
+		}
+	}
+
+	public void debug(String format, Object a, Object b, Object c) {
+		if (debug) {
+			LogRing.getInstance().publish(this, Level.DEBUG, format, 3, a, b, c, null, 0, false);
+		}
+	}
+
+	public void debug(String format, Object a, Object b, Object c, Object d) {
+		if (debug) {
+			LogRing.getInstance().publish(this, Level.DEBUG, format, 4, a, b, c, d, 0, false);
+		}
+	}
+
+	/**
+	 * logs a number without boxing it
+	 */
+	public void debug(String format, long n) {
+		if (debug) {
+			LogRing.getInstance().publish(this, Level.DEBUG, format, 1, null, null, null, null, n, true);
+		}
+	}
+
+	public void info(String message) {
+		if (info) {
+			LogRing.getInstance().publish(this, Level.INFO, message, 0, null, null, null, null, 0, false);
+		}
+	}
+
+	public void info(String format, Object a) {
+		if (info) {
+			LogRing.getInstance().publish(this, Level.INFO, format, 1, a, null, null, null, 0, false);
+		}
+	}
+
+	public void info(String format, Object a, Object b) {
+		if (info) {
+			LogRing.getInstance().publish(this, Level.INFO, format, 2, a, b, null, null, 0, false);
+		}
+	}
+
+	public void info(String format, Object a, Object b, Object c) {
+		if (info) {
+			LogRing.getInstance().publish(this, Level.INFO, format, 3, a, b, c, null, 0, false);
+		}
+	}
+
+	public void warn(String format, Object a) {
+		if (warn) {
+			LogRing.getInstance().publish(this, Level.WARN, format, 1, a, null, null, null, 0, false);
+		}
+	}
+}
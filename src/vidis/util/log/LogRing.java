@@ -0,0 +1,221 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.util.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+/**
+ * the ring buffer between the logging threads and the thread that
+ * renders and appends the events.
+ * <p>
+ * a producer claims a slot with a compare and set on the head, fills
+ * the preallocated slot and publishes it by writing its sequence. the
+ * single consumer appends the slots in order and moves the tail. a
+ * producer that would overtake the tail drops its event instead of
+ * waiting.
+ * </p>
+ * <p>
+ * only immutable arguments are handed to the consumer: strings, boxed
+ * primitives, enums, classes and throwables. any other argument is
+ * rendered by the producer before it claims a slot, so the consumer
+ * never reads a live object another thread is changing.
+ * </p>
+ * @author Dominik
+ *
+ */
+final class LogRing {
+	private static final int CAPACITY = 1 << 13;
+	private static final long IDLE_NANOS = 1000000;
+	private static final LocationInfo NO_LOCATION = new LocationInfo("?", "?", "?", "?");
+
+	private static final class Slot {
+		private volatile long sequence = -1;
+		private LogChannel channel;
+		private Level level;
+		private String format;
+		private int args;
+		private Object a;
+		private Object b;
+		private Object c;
+		private Object d;
+		private long n;
+		private boolean number;
+		private long time;
+		private String thread;
+	}
+
+	private static final LogRing instance = new LogRing();
+
+	private final Slot[] slots = new Slot[CAPACITY];
+	private final AtomicLong head = new AtomicLong();
+	private volatile long tail;
+	private final AtomicLong dropped = new AtomicLong();
+	private long reportedDropped;
+
+	private Thread consumer;
+
+	private LogRing() {
+		for (int i = 0; i < CAPACITY; i++) {
+			slots[i] = new Slot();
+		}
+	}
+
+	static LogRing getInstance() {
+		return instance;
+	}
+
+	private synchronized void startConsumer() {
+		if (consumer != null) {
+			return;
+		}
+		consumer = new Thread("Vidis Log") {
+			@Override
+			public void run() {
+				consume();
+			}
+		};
+		consumer.setDaemon(true);
+		consumer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				flush();
+			}
+		});
+	}
+
+	void publish(LogChannel channel, Level level, String format, int args, Object a, Object b, Object c, Object d, long n,
+			boolean number) {
+		if (consumer == null) {
+			startConsumer();
+		}
+		a = freeze(a);
+		b = freeze(b);
+		c = freeze(c);
+		d = freeze(d);
+		long sequence;
+		do {
+			sequence = head.get();
+			if (sequence - tail >= CAPACITY) {
+				dropped.incrementAndGet();
+				return;
+			}
+		} while (!head.compareAndSet(sequence, sequence + 1));
+		Slot s = slots[(int) sequence & (CAPACITY - 1)];
+		s.channel = channel;
+		s.level = level;
+		s.format = format;
+		s.args = args;
+		s.a = a;
+		s.b = b;
+		s.c = c;
+		s.d = d;
+		s.n = n;
+		s.number = number;
+		s.time = System.currentTimeMillis();
+		s.thread = Thread.currentThread().getName();
+		// publish
+		s.sequence = sequence;
+	}
+
+	/**
+	 * retrieve an argument that may be read by the consumer: the argument
+	 * itself if it is immutable, otherwise its text
+	 */
+	private static Object freeze(Object arg) {
+		if (arg == null || arg instanceof String || arg instanceof Number || arg instanceof Boolean
+				|| arg instanceof Character || arg instanceof Enum<?> || arg instanceof Class<?> || arg instanceof Throwable) {
+			return arg;
+		}
+		try {
+			return String.valueOf(arg);
+		} catch (RuntimeException e) {
+			// a broken toString() must not break the caller
+			return arg.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(arg));
+		}
+	}
+
+	long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * waits until everything published before has been appended
+	 */
+	void flush() {
+		long until = head.get();
+		while (consumer != null && consumer.isAlive() && tail < until) {
+			LockSupport.parkNanos(IDLE_NANOS);
+		}
+	}
+
+	private void consume() {
+		StringBuilder text = new StringBuilder();
+		while (true) {
+			long t = tail;
+			Slot s = slots[(int) t & (CAPACITY - 1)];
+			if (s.sequence != t) {
+				reportDropped();
+				LockSupport.parkNanos(IDLE_NANOS);
+				continue;
+			}
+			try {
+				append(s, text);
+			} catch (RuntimeException e) {
+				// a broken toString() must not stop the logging
+				s.channel.getLogger().warn("could not log " + s.format, e);
+			}
+			s.channel = null;
+			s.a = null;
+			s.b = null;
+			s.c = null;
+			s.d = null;
+			tail = t + 1;
+		}
+	}
+
+	private void reportDropped() {
+		long d = dropped.get();
+		if (d != reportedDropped) {
+			Logger.getLogger(LogChannel.class).warn("dropped " + (d - reportedDropped) + " log events, the ring buffer was full");
+			reportedDropped = d;
+		}
+	}
+
+	private static void append(Slot s, StringBuilder text) {
+		text.setLength(0);
+		Throwable thrown = null;
+		int arg = 0;
+		int from = 0;
+		String format = s.format;
+		for (int i = format.indexOf("{}"); i >= 0 && arg < s.args; i = format.indexOf("{}", from)) {
+			text.append(format, from, i);
+			if (s.number) {
+				text.append(s.n);
+			} else {
+				text.append(arg == 0 ? s.a : arg == 1 ? s.b : arg == 2 ? s.c : s.d);
+			}
+			arg++;
+			from = i + 2;
+		}
+		text.append(format, from, format.length());
+		// a throwable without placeholder is appended with its stack trace
+		Object last = s.args == 0 || s.number ? null : s.args == 1 ? s.a : s.args == 2 ? s.b : s.args == 3 ? s.c : s.d;
+		if (arg < s.args && last instanceof Throwable) {
+			thrown = (Throwable) last;
+		}
+		Logger logger = s.channel.getLogger();
+		logger.callAppenders(new LoggingEvent(Logger.class.getName(), logger, s.time, s.level, text.toString(), s.thread,
+				thrown == null ? null : new ThrowableInformation(thrown), null, NO_LOCATION, null));
+	}
+}
@@ -0,0 +1,63 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a counter that also keeps a histogram of its increase per simulator step
+ * @author Dominik
+ *
+ */
+public class Counter {
+	private final String name;
+	private AtomicLong total = new AtomicLong();
+	private long lastStepTotal = 0;
+	private Histogram perStep;
+
+	public Counter( String name ) {
+		this.name = name;
+		this.perStep = new Histogram( name + ".perStep", "count" );
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void increment() {
+		total.incrementAndGet();
+	}
+
+	public void add( long delta ) {
+		total.addAndGet( delta );
+	}
+
+	public long get() {
+		return total.get();
+	}
+
+	/**
+	 * retrieve the histogram of the increase per simulator step
+	 */
+	public Histogram getPerStep() {
+		return perStep;
+	}
+
+	/**
+	 * records the increase since the last step
+	 */
+	synchronized void endStep() {
+		long now = total.get();
+		perStep.record( now - lastStepTotal );
+		lastStepTotal = now;
+	}
+
+	synchronized void reset() {
+		total.set( 0 );
+		lastStepTotal = 0;
+		perStep.reset();
+	}
+}
@@ -0,0 +1,149 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.util.metrics;
+
+/**
+ * a histogram over positive long values with a bounded relative error.
+ * <p>
+ * values below 64 are counted exactly; above, every power of two is
+ * split into 32 buckets, so the relative error of any percentile is
+ * below 1/32 while the whole range of long values fits into less than
+ * two thousand counters. recording never allocates.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR = 2 * SUB_BUCKETS;
+	private static final int BUCKETS = LINEAR + ( 63 - SUB_BUCKET_BITS - 1 ) * SUB_BUCKETS;
+
+	private final String name;
+	private final String unit;
+
+	private long[] counts = new long[ BUCKETS ];
+	private long count;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	public Histogram( String name, String unit ) {
+		this.name = name;
+		this.unit = unit;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * retrieve the unit of the recorded values, e.g. "ns" or "count"
+	 */
+	public String getUnit() {
+		return unit;
+	}
+
+	public synchronized void record( long value ) {
+		if ( value < 0 ) {
+			value = 0;
+		}
+		counts[ indexOf( value ) ]++;
+		count++;
+		sum += value;
+		if ( value < min ) {
+			min = value;
+		}
+		if ( value > max ) {
+			max = value;
+		}
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	public synchronized long getMax() {
+		return max;
+	}
+
+	public synchronized double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * retrieve the value below which the given percentage of all values lie
+	 * @param percentile within [0 .. 100]
+	 * @return the upper bound of the matching bucket, at most the maximum
+	 */
+	public synchronized long getPercentile( double percentile ) {
+		if ( count == 0 ) {
+			return 0;
+		}
+		long wanted = (long) Math.ceil( count * Math.max( 0, Math.min( 100, percentile ) ) / 100d );
+		if ( wanted < 1 ) {
+			wanted = 1;
+		}
+		long seen = 0;
+		for ( int i=0; i<BUCKETS; i++ ) {
+			seen += counts[i];
+			if ( seen >= wanted ) {
+				return Math.min( max, upperBoundOf( i ) );
+			}
+		}
+		return max;
+	}
+
+	public synchronized void reset() {
+		for ( int i=0; i<BUCKETS; i++ ) {
+			counts[i] = 0;
+		}
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	/**
+	 * retrieve a consistent copy of this histogram
+	 */
+	public synchronized Histogram copy() {
+		Histogram h = new Histogram( name, unit );
+		System.arraycopy( counts, 0, h.counts, 0, BUCKETS );
+		h.count = count;
+		h.sum = sum;
+		h.min = min;
+		h.max = max;
+		return h;
+	}
+
+	static int indexOf( long value ) {
+		if ( value < LINEAR ) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+		int sub = (int) ( value >>> shift ) - SUB_BUCKETS;
+		return LINEAR + ( shift - 1 ) * SUB_BUCKETS + sub;
+	}
+
+	static long upperBoundOf( int index ) {
+		if ( index < LINEAR ) {
+			return index;
+		}
+		int shift = ( index - LINEAR ) / SUB_BUCKETS + 1;
+		long sub = ( index - LINEAR ) % SUB_BUCKETS + SUB_BUCKETS;
+		return ( ( sub + 1 ) << shift ) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return name + "{count=" + getCount() + ", p50=" + getPercentile( 50 ) + ", p99=" + getPercentile( 99 ) + ", max=" + getMax() + " " + unit + "}";
+	}
+}
@@ -0,0 +1,345 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.util.metrics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * registry of all runtime metrics of simulator and visualisation.
+ * <p>
+ * times are recorded in nanoseconds into {@link Histogram}s, events into
+ * {@link Counter}s that also keep their increase per simulator step.
+ * the metrics are published through jmx as <code>vidis:type=Metrics</code>
+ * and may be dumped as csv or json.
+ * </p>
+ * @author Dominik
+ *
+ */
+public class Metrics implements MetricsMBean {
+	private static Logger logger = Logger.getLogger(Metrics.class);
+
+	public static final String STEP = "sim.step";
+	public static final String EXECUTE = "sim.execute.";
+	public static final String EXECUTED = "sim.components.executed";
+	public static final String PACKETS_SENT = "sim.packets.sent";
+	public static final String PACKETS_DELIVERED = "sim.packets.delivered";
+	public static final String PACKETS_DROPPED = "sim.packets.dropped";
+	public static final String DISPATCH = "ui.dispatch";
+	public static final String JOB = "ui.job";
+	public static final String LAYOUT_JOB = "ui.job.layout";
+	public static final String JOB_DROPPED = "ui.job.dropped";
+	public static final String FRAME = "ui.frame";
+	public static final String FRAME_UPDATE = "ui.frame.update";
+	public static final String FRAME_NODES = "ui.frame.nodes";
+	public static final String FRAME_LINKS = "ui.frame.links";
+	public static final String FRAME_PACKETS = "ui.frame.packets";
+	public static final String FRAME_TEXT = "ui.frame.text";
+
+	private static final String UNIT_NANOS = "ns";
+
+	private static final Metrics instance = new Metrics();
+
+	static {
+		instance.registerMBean();
+	}
+
+	private volatile boolean enabled = true;
+	private volatile boolean componentTiming = false;
+
+	private Map<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+	private Map<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+
+	private Metrics() {
+	}
+
+	public static Metrics getInstance() {
+		return instance;
+	}
+
+	private void registerMBean() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean( this, new ObjectName( "vidis:type=Metrics" ) );
+		} catch ( Exception e ) {
+			logger.warn( "could not register metrics mbean", e );
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled( boolean enabled ) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * retrieve if the execute time of every component is recorded per user class;
+	 * this costs two timer calls per component and step and is off by default
+	 */
+	public boolean isComponentTiming() {
+		return enabled && componentTiming;
+	}
+
+	public void setComponentTiming( boolean componentTiming ) {
+		this.componentTiming = componentTiming;
+	}
+
+	/**
+	 * retrieve a time histogram, it is created on first use
+	 */
+	public Histogram histogram( String name ) {
+		Histogram h = histograms.get( name );
+		if ( h == null ) {
+			synchronized ( histograms ) {
+				h = histograms.get( name );
+				if ( h == null ) {
+					h = new Histogram( name, UNIT_NANOS );
+					histograms.put( name, h );
+				}
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * retrieve a counter, it is created on first use; hot paths keep the
+	 * counter instead of looking it up by name every time
+	 */
+	public Counter counter( String name ) {
+		Counter c = counters.get( name );
+		if ( c == null ) {
+			synchronized ( counters ) {
+				c = counters.get( name );
+				if ( c == null ) {
+					c = new Counter( name );
+					counters.put( name, c );
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * records a duration if the metrics are enabled
+	 * @param name the histogram
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void record( String name, long nanos ) {
+		if ( enabled ) {
+			histogram( name ).record( nanos );
+		}
+	}
+
+	/**
+	 * counts an event if the metrics are enabled
+	 */
+	public void count( String name ) {
+		if ( enabled ) {
+			counter( name ).increment();
+		}
+	}
+
+	public void count( String name, long events ) {
+		if ( enabled ) {
+			counter( name ).add( events );
+		}
+	}
+
+	public void count( Counter counter, long events ) {
+		if ( enabled ) {
+			counter.add( events );
+		}
+	}
+
+	public void record( Histogram histogram, long nanos ) {
+		if ( enabled ) {
+			histogram.record( nanos );
+		}
+	}
+
+	/**
+	 * to be called after every simulator step; records the per step
+	 * increase of all counters
+	 */
+	public void endStep() {
+		if ( enabled ) {
+			for ( Counter c : counters.values() ) {
+				c.endStep();
+			}
+		}
+	}
+
+	public void reset() {
+		for ( Histogram h : histograms.values() ) {
+			h.reset();
+		}
+		for ( Counter c : counters.values() ) {
+			c.reset();
+		}
+	}
+
+	/**
+	 * retrieve copies of all histograms sorted by name, including the
+	 * per step histograms of the counters
+	 */
+	public List<Histogram> getHistograms() {
+		List<Histogram> list = new ArrayList<Histogram>();
+		for ( Histogram h : histograms.values() ) {
+			list.add( h.copy() );
+		}
+		for ( Counter c : counters.values() ) {
+			list.add( c.getPerStep().copy() );
+		}
+		Collections.sort( list, new Comparator<Histogram>() {
+			public int compare( Histogram a, Histogram b ) {
+				return a.getName().compareTo( b.getName() );
+			}
+		});
+		return list;
+	}
+
+	public String[] getNames() {
+		List<Histogram> list = getHistograms();
+		String[] names = new String[ list.size() ];
+		for ( int i=0; i<names.length; i++ ) {
+			names[i] = list.get( i ).getName();
+		}
+		return names;
+	}
+
+	private Histogram find( String name ) {
+		Histogram h = histograms.get( name );
+		if ( h == null ) {
+			for ( Counter c : counters.values() ) {
+				if ( c.getPerStep().getName().equals( name ) ) {
+					return c.getPerStep();
+				}
+			}
+		}
+		return h;
+	}
+
+	public long getCount( String name ) {
+		Counter c = counters.get( name );
+		if ( c != null ) {
+			return c.get();
+		}
+		Histogram h = find( name );
+		return h == null ? 0 : h.getCount();
+	}
+
+	public long getPercentile( String name, double percentile ) {
+		Histogram h = find( name );
+		return h == null ? 0 : h.getPercentile( percentile );
+	}
+
+	public String getSummary( String name ) {
+		Histogram h = find( name );
+		return h == null ? "" : h.toString();
+	}
+
+	/**
+	 * retrieve two short lines for an on screen display
+	 */
+	public String[] getOverlayLines() {
+		return new String[] {
+			String.format( Locale.US, "step %s  sent %d  delivered %d  dropped %d  (p50 per step)",
+					formatNanos( histogram( STEP ) ),
+					counter( PACKETS_SENT ).getPerStep().getPercentile( 50 ),
+					counter( PACKETS_DELIVERED ).getPerStep().getPercentile( 50 ),
+					counter( PACKETS_DROPPED ).getPerStep().getPercentile( 50 ) ),
+			String.format( Locale.US, "frame %s  update %s  nodes %s  links %s  packets %s  text %s",
+					formatNanos( histogram( FRAME ) ),
+					formatNanos( histogram( FRAME_UPDATE ) ),
+					formatNanos( histogram( FRAME_NODES ) ),
+					formatNanos( histogram( FRAME_LINKS ) ),
+					formatNanos( histogram( FRAME_PACKETS ) ),
+					formatNanos( histogram( FRAME_TEXT ) ) )
+		};
+	}
+
+	private static String formatNanos( Histogram h ) {
+		return String.format( Locale.US, "%.2f/%.2fms", h.getPercentile( 50 ) / 1e6, h.getPercentile( 99 ) / 1e6 );
+	}
+
+	private static final String[] COLUMNS = { "name", "unit", "count", "min", "mean", "p50", "p90", "p99", "p999", "max" };
+
+	public void dumpCsv( Writer w ) {
+		PrintWriter out = new PrintWriter( w );
+		for ( int i=0; i<COLUMNS.length; i++ ) {
+			out.print( ( i > 0 ? "," : "" ) + COLUMNS[i] );
+		}
+		out.println();
+		for ( Histogram h : getHistograms() ) {
+			out.println( String.format( Locale.US, "%s,%s,%d,%d,%.1f,%d,%d,%d,%d,%d",
+					h.getName(), h.getUnit(), h.getCount(), h.getMin(), h.getMean(),
+					h.getPercentile( 50 ), h.getPercentile( 90 ), h.getPercentile( 99 ), h.getPercentile( 99.9 ),
+					h.getMax() ) );
+		}
+		out.flush();
+	}
+
+	public void dumpJson( Writer w ) {
+		PrintWriter out = new PrintWriter( w );
+		out.println( "{" );
+		out.println( "  \"timestamp\": " + System.currentTimeMillis() + "," );
+		out.println( "  \"histograms\": [" );
+		List<Histogram> list = getHistograms();
+		for ( int i=0; i<list.size(); i++ ) {
+			Histogram h = list.get( i );
+			out.print( String.format( Locale.US,
+					"    {\"name\": \"%s\", \"unit\": \"%s\", \"count\": %d, \"min\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d}",
+					h.getName().replace( "\\", "\\\\" ).replace( "\"", "\\\"" ), h.getUnit(), h.getCount(), h.getMin(), h.getMean(),
+					h.getPercentile( 50 ), h.getPercentile( 90 ), h.getPercentile( 99 ), h.getPercentile( 99.9 ),
+					h.getMax() ) );
+			out.println( i < list.size() - 1 ? "," : "" );
+		}
+		out.println( "  ]," );
+		out.println( "  \"counters\": {" );
+		List<String> names = new ArrayList<String>( counters.keySet() );
+		Collections.sort( names );
+		for ( int i=0; i<names.size(); i++ ) {
+			out.print( "    \"" + names.get( i ) + "\": " + counters.get( names.get( i ) ).get() );
+			out.println( i < names.size() - 1 ? "," : "" );
+		}
+		out.println( "  }" );
+		out.println( "}" );
+		out.flush();
+	}
+
+	public void dumpCsv( String file ) throws IOException {
+		FileWriter w = new FileWriter( file );
+		try {
+			dumpCsv( w );
+		} finally {
+			w.close();
+		}
+	}
+
+	public void dumpJson( String file ) throws IOException {
+		FileWriter w = new FileWriter( file );
+		try {
+			dumpJson( w );
+		} finally {
+			w.close();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*	VIDIS is a simulation and visualisation framework for distributed systems.
+	Copyright (C) 2009 Dominik Psenner, Christoph Caks
+	This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+	This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+	You should have received a copy of the GNU General Public License along with this program; if not, see <http://www.gnu.org/licenses/>. */
+package vidis.util.metrics;
+
+import java.io.IOException;
+
+/**
+ * jmx management interface of the metrics
+ * @author Dominik
+ *
+ */
+public interface MetricsMBean {
+	public boolean isEnabled();
+	public void setEnabled( boolean enabled );
+
+	public boolean isComponentTiming();
+	public void setComponentTiming( boolean componentTiming );
+
+	/**
+	 * retrieve the names of all histograms
+	 */
+	public String[] getNames();
+
+	public long getCount( String name );
+	public long getPercentile( String name, double percentile );
+	public String getSummary( String name );
+
+	public void reset();
+
+	public void dumpCsv( String file ) throws IOException;
+	public void dumpJson( String file ) throws IOException;
+}